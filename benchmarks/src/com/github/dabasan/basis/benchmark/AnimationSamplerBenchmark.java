@@ -0,0 +1,120 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.animation.AnimationClip;
+import com.github.dabasan.basis.animation.AnimationSampler;
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+import com.github.dabasan.basis.quaternion.Quaternion;
+import com.github.dabasan.basis.quaternion.QuaternionFunctions;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Sampling a frame of an AnimationClip compared with composing each track
+ * from MGetScale, QToMatrix and MGetTranslate
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnimationSamplerBenchmark {
+	private static final int KEY_COUNT = 60;
+	private static final float FRAME_TIME = 1.0f / 60.0f;
+
+	@Param({"1000", "10000"})
+	private int track_count;
+
+	private AnimationClip clip;
+	private AnimationSampler sampler;
+	private ParallelRunner runner;
+	private float[] dst;
+	private Vector[] translations;
+	private Quaternion[] rotations;
+	private Vector[] scales;
+	private Matrix[] matrices;
+	private float time;
+
+	@Setup
+	public void Setup() {
+		final Random random = new Random(0);
+
+		final int[] key_counts = new int[track_count];
+		Arrays.fill(key_counts, KEY_COUNT);
+		clip = new AnimationClip(key_counts);
+		for (int i = 0; i < track_count; i++) {
+			for (int k = 0; k < KEY_COUNT; k++) {
+				final Vector axis = VectorFunctions.VNorm(VectorFunctions.VGet(
+						random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+						random.nextFloat() - 0.5f));
+				final Vector translation = VectorFunctions.VGet(random.nextFloat(),
+						random.nextFloat(), random.nextFloat());
+				clip.SetKey(i, k, k / 30.0f, translation,
+						QuaternionFunctions.QGetRotAxis(axis, random.nextFloat()),
+						VectorFunctions.VGet(1.0f, 1.0f, 1.0f));
+			}
+		}
+
+		sampler = new AnimationSampler(clip);
+		sampler.SetLooping(true);
+		runner = new ParallelRunner();
+		dst = new float[track_count * 16];
+
+		translations = new Vector[track_count];
+		rotations = new Quaternion[track_count];
+		scales = new Vector[track_count];
+		matrices = new Matrix[track_count];
+		for (int i = 0; i < track_count; i++) {
+			translations[i] = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(),
+					random.nextFloat());
+			rotations[i] = QuaternionFunctions.QGetRotAxis(VectorFunctions.UNIT_Y,
+					random.nextFloat());
+			scales[i] = VectorFunctions.VGet(1.0f, 1.0f, 1.0f);
+		}
+	}
+
+	@Benchmark
+	public float[] Sample() {
+		time += FRAME_TIME;
+		return sampler.Sample(time, dst);
+	}
+	@Benchmark
+	public float[] SampleParallel() {
+		time += FRAME_TIME;
+		sampler.Sample(time, dst, runner);
+		return dst;
+	}
+	/**
+	 * Composition only, without key search or interpolation
+	 */
+	@Benchmark
+	public Matrix[] ComposeMatrixFunctions() {
+		for (int i = 0; i < track_count; i++) {
+			matrices[i] = MatrixFunctions.MMult(MatrixFunctions.MGetTranslate(translations[i]),
+					MatrixFunctions.MMult(QuaternionFunctions.QToMatrix(rotations[i]),
+							MatrixFunctions.MGetScale(scales[i])));
+		}
+		return matrices;
+	}
+}
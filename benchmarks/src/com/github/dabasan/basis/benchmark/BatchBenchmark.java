@@ -0,0 +1,184 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.coloru8.ColorU8Functions;
+import com.github.dabasan.basis.matrix.BatchTransformer;
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorArray;
+import com.github.dabasan.basis.vector.VectorArrayFunctions;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Batch throughput (elements per microsecond)<br>
+ * Matrix inverses are measured on GENERAL matrices, sequentially and through a
+ * BatchTransformer on the common ForkJoinPool.<br>
+ * Run with <code>-jvmArgs "--add-modules jdk.incubator.vector"</code> to
+ * measure the SIMD kernels.
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+	private static final int SIZE = 65536;
+	private static final int MATRIX_COUNT = 16384;
+
+	private Vector[] vs;
+	private Vector[] dst_vs;
+	private VectorArray va;
+	private VectorArray vb;
+	private VectorArray dst_va;
+	private float[] dots;
+	private int[] u8;
+	private float[] channels;
+	private Matrix m;
+	private Matrix projection;
+	private Matrix[] ms;
+	private Matrix[] dst_ms;
+	private float[] packed;
+	private float[] dst_packed;
+	private BatchTransformer transformer;
+
+	@Setup
+	public void Setup() {
+		final Random random = new Random(0);
+
+		vs = new Vector[SIZE];
+		dst_vs = new Vector[SIZE];
+		va = new VectorArray(SIZE);
+		vb = new VectorArray(SIZE);
+		dst_va = new VectorArray(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			vs[i] = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(),
+					random.nextFloat());
+			dst_vs[i] = new Vector();
+			va.SetVector(i, vs[i]);
+			vb.SetVector(i, random.nextFloat(), random.nextFloat(), random.nextFloat());
+		}
+		dots = new float[SIZE];
+
+		u8 = new int[SIZE * 4];
+		for (int i = 0; i < u8.length; i++) {
+			u8[i] = random.nextInt(256);
+		}
+		channels = new float[SIZE * 4];
+
+		m = MatrixFunctions.MMult(MatrixFunctions.MGetTranslate(VectorFunctions.VGet(1, 2, 3)),
+				MatrixFunctions.MGetRotAxis(VectorFunctions.VNorm(VectorFunctions.VGet(1, 1, 1)),
+						0.5f));
+		projection = new Matrix();
+		projection.SetValues(new float[]{1.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f,
+				0.0f, -1.0f, -0.2f, 0.0f, 0.0f, -1.0f, 0.0f});
+
+		ms = new Matrix[MATRIX_COUNT];
+		dst_ms = new Matrix[MATRIX_COUNT];
+		packed = new float[MATRIX_COUNT * 16];
+		dst_packed = new float[MATRIX_COUNT * 16];
+		for (int i = 0; i < MATRIX_COUNT; i++) {
+			ms[i] = new Matrix();
+			for (int j = 0; j < 16; j++) {
+				packed[i * 16 + j] = random.nextFloat();
+			}
+			ms[i].SetValues(Arrays.copyOfRange(packed, i * 16, i * 16 + 16));
+			dst_ms[i] = new Matrix();
+		}
+		transformer = new BatchTransformer();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Vector[] VTransformVectorLoop() {
+		for (int i = 0; i < SIZE; i++) {
+			MatrixFunctions.VTransform(vs[i], m, dst_vs[i]);
+		}
+		return dst_vs;
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VTransform() {
+		return MatrixFunctions.VTransform(va, m, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VTransformSR() {
+		return MatrixFunctions.VTransformSR(va, m, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VProject() {
+		return MatrixFunctions.VProject(va, projection, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(MATRIX_COUNT)
+	public int MTryInverseMatrixArray() {
+		return MatrixFunctions.MTryInverse(ms, dst_ms, 1.0E-6f, null);
+	}
+	@Benchmark
+	@OperationsPerInvocation(MATRIX_COUNT)
+	public int MTryInversePacked() {
+		return MatrixFunctions.MTryInverse(packed, dst_packed, 1.0E-6f, null);
+	}
+	@Benchmark
+	@OperationsPerInvocation(MATRIX_COUNT)
+	public int MTryInverseMatrixArrayParallel() {
+		return transformer.MTryInverse(ms, dst_ms, 1.0E-6f, null);
+	}
+	@Benchmark
+	@OperationsPerInvocation(MATRIX_COUNT)
+	public int MTryInversePackedParallel() {
+		return transformer.MTryInverse(packed, dst_packed, 1.0E-6f, null);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VAdd() {
+		return VectorArrayFunctions.VAdd(va, vb, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VSub() {
+		return VectorArrayFunctions.VSub(va, vb, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VScale() {
+		return VectorArrayFunctions.VScale(va, 2.0f, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public VectorArray VNorm() {
+		return VectorArrayFunctions.VNorm(va, dst_va);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public float[] VDot() {
+		return VectorArrayFunctions.VDot(va, vb, dots);
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE * 4)
+	public float[] U8ToFloat() {
+		return ColorU8Functions.U8ToFloat(u8, channels);
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.dabasan.basis.benchmark;
+
+import com.github.dabasan.basis.coloru8.ColorSpaceFunctions;
+
+/**
+ * Prints maximum errors of ColorSpaceFunctions against the exact sRGB
+ * formula.<br>
+ * Run with
+ * <code>java -cp target/benchmarks.jar com.github.dabasan.basis.benchmark.ColorSpaceAccuracyReport</code>.
+ * 
+ * @author Daba
+ *
+ */
+public class ColorSpaceAccuracyReport {
+	private static final int SAMPLE_COUNT = 10000000;
+
+	public static void main(String[] args) {
+		double srgb_to_linear_error = 0.0;
+		double linear_to_srgb_error = 0.0;
+		int linear_to_u8_error = 0;
+		for (int i = 0; i <= SAMPLE_COUNT; i++) {
+			final float v = (float) i / SAMPLE_COUNT;
+			final double to_linear = ColorSpaceFunctions.SRGBToLinearExact(v);
+			final double to_srgb = ColorSpaceFunctions.LinearToSRGBExact(v);
+			srgb_to_linear_error = Math.max(srgb_to_linear_error,
+					Math.abs(ColorSpaceFunctions.SRGBToLinear(v) - to_linear));
+			linear_to_srgb_error = Math.max(linear_to_srgb_error,
+					Math.abs(ColorSpaceFunctions.LinearToSRGB(v) - to_srgb));
+
+			final int exact = (int) Math.round(to_srgb * 255.0);
+			linear_to_u8_error = Math.max(linear_to_u8_error,
+					Math.abs(ColorSpaceFunctions.LinearToSRGBU8(v) - exact));
+		}
+
+		int u8_round_trip_failures = 0;
+		int u16_round_trip_failures = 0;
+		for (int c = 0; c < 256; c++) {
+			if (ColorSpaceFunctions.LinearToSRGBU8(ColorSpaceFunctions.SRGBU8ToLinear(c)) != c) {
+				u8_round_trip_failures++;
+			}
+			final int linear_u16 = ColorSpaceFunctions.SRGBU8ToLinearU16(c);
+			if (ColorSpaceFunctions.LinearU16ToSRGBU8(linear_u16) != c) {
+				u16_round_trip_failures++;
+			}
+		}
+
+		System.out.printf("SRGBToLinear(float)    max error %.2e%n", srgb_to_linear_error);
+		System.out.printf("LinearToSRGB(float)    max error %.2e%n", linear_to_srgb_error);
+		System.out.printf("LinearToSRGBU8(float)  max error %d level(s)%n", linear_to_u8_error);
+		System.out.printf("8-bit round trip       %d failure(s)%n", u8_round_trip_failures);
+		System.out.printf("16-bit round trip      %d failure(s)%n", u16_round_trip_failures);
+	}
+}
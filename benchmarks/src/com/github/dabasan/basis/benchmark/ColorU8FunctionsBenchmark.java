@@ -0,0 +1,138 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.coloru8.ColorU8;
+import com.github.dabasan.basis.coloru8.ColorU8Functions;
+
+/**
+ * Single-call latency of ColorU8Functions, and bulk conversions of a 4K
+ * frame<br>
+ * The Frame benchmarks convert 3840x2160 colors between packed ints, float
+ * channels and ColorU8 objects, and report milliseconds per frame.
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColorU8FunctionsBenchmark {
+	private float fr = 0.1f;
+	private float fg = 0.2f;
+	private float fb = 0.3f;
+	private float fa = 0.4f;
+	private int ir = 25;
+	private int ig = 51;
+	private int ib = 76;
+	private int ia = 102;
+	private int packed = 0x19334C66;
+	private ColorU8 color = new ColorU8(0.1f, 0.2f, 0.3f, 0.4f);
+	private ColorU8 dst_color = new ColorU8();
+
+	/**
+	 * Buffers of one 4K frame
+	 */
+	@State(Scope.Thread)
+	public static class Frame {
+		private static final int PIXEL_COUNT = 3840 * 2160;
+
+		private int[] packed;
+		private int[] dst_packed;
+		private float[] channels;
+		private ColorU8[] colors;
+
+		@Setup
+		public void Setup() {
+			final Random random = new Random(0);
+
+			packed = new int[PIXEL_COUNT];
+			for (int i = 0; i < PIXEL_COUNT; i++) {
+				packed[i] = random.nextInt();
+			}
+			dst_packed = new int[PIXEL_COUNT];
+			channels = new float[PIXEL_COUNT * 4];
+			colors = new ColorU8[PIXEL_COUNT];
+			for (int i = 0; i < PIXEL_COUNT; i++) {
+				colors[i] = new ColorU8();
+			}
+		}
+	}
+
+	@Benchmark
+	public ColorU8 GetColorU8Float() {
+		return ColorU8Functions.GetColorU8(fr, fg, fb, fa);
+	}
+	@Benchmark
+	public ColorU8 GetColorU8Int() {
+		return ColorU8Functions.GetColorU8(ir, ig, ib, ia);
+	}
+	@Benchmark
+	public int GetPackedColorU8() {
+		return ColorU8Functions.GetPackedColorU8(ir, ig, ib, ia);
+	}
+	@Benchmark
+	public int FloatToU8() {
+		return ColorU8Functions.FloatToU8(fr);
+	}
+	@Benchmark
+	public int PackColorU8() {
+		return ColorU8Functions.PackColorU8(color);
+	}
+	@Benchmark
+	public ColorU8 UnpackColorU8() {
+		return ColorU8Functions.UnpackColorU8(packed);
+	}
+	@Benchmark
+	public ColorU8 UnpackColorU8Dst() {
+		return ColorU8Functions.UnpackColorU8(packed, dst_color);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public float[] FramePackedToFloat(Frame frame) {
+		return ColorU8Functions.PackedToFloat(frame.packed, frame.channels);
+	}
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int[] FrameFloatToPacked(Frame frame) {
+		return ColorU8Functions.FloatToPacked(frame.channels, frame.dst_packed);
+	}
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int[] FrameRoundTripFloat(Frame frame) {
+		ColorU8Functions.PackedToFloat(frame.packed, frame.channels);
+		return ColorU8Functions.FloatToPacked(frame.channels, frame.dst_packed);
+	}
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ColorU8[] FramePackedToColorU8(Frame frame) {
+		return ColorU8Functions.PackedToColorU8(frame.packed, frame.colors);
+	}
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int[] FrameColorU8ToPacked(Frame frame) {
+		return ColorU8Functions.ColorU8ToPacked(frame.colors, frame.dst_packed);
+	}
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int[] FrameRoundTripColorU8(Frame frame) {
+		ColorU8Functions.PackedToColorU8(frame.packed, frame.colors);
+		return ColorU8Functions.ColorU8ToPacked(frame.colors, frame.dst_packed);
+	}
+}
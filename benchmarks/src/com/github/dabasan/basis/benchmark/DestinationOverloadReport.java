@@ -0,0 +1,199 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.github.dabasan.basis.kernel.BatchKernelsProvider;
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks the dst overloads of MatrixFunctions and VectorFunctions.<br>
+ * Prints the number of overloads whose result changes when dst is one of the
+ * inputs, and the bytes allocated per call after warm-up, which should be 0.
+ * Matrix overloads are checked with RIGID and with GENERAL matrices, since the
+ * two kinds run different kernels.
+ * Allocation is counted with com.sun.management.ThreadMXBean, so this needs a
+ * HotSpot-based JVM.<br>
+ * Run with
+ * <code>java -cp target/benchmarks.jar com.github.dabasan.basis.benchmark.DestinationOverloadReport</code>.
+ * 
+ * @author Daba
+ *
+ */
+public class DestinationOverloadReport {
+	private static final int SAMPLE_COUNT = 100000;
+	private static final int WARMUP_ROUNDS = 20;
+	private static final int CALLS_PER_SAMPLE = 16;
+
+	private static final Vector[] vectors = new Vector[8];
+	private static final Matrix[] matrices = new Matrix[8];
+	private static final Matrix[] general_matrices = new Matrix[8];
+
+	public static void main(String[] args) {
+		final Random random = new Random(0);
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = RandomVector(random);
+		}
+		for (int i = 0; i < matrices.length; i++) {
+			final Matrix rotation = MatrixFunctions.MGetRotAxis(
+					VectorFunctions.VNorm(RandomVector(random)), random.nextFloat() * 6.0f);
+			final Matrix translation = MatrixFunctions.MGetTranslate(RandomVector(random));
+			matrices[i] = MatrixFunctions.MMult(rotation, translation);
+
+			// SetValues() makes the matrix GENERAL.
+			final float[] values = new float[16];
+			for (int j = 0; j < 16; j++) {
+				values[j] = random.nextFloat() * 2.0f - 1.0f;
+			}
+			general_matrices[i] = new Matrix();
+			general_matrices[i].SetValues(values);
+		}
+
+		System.out.printf("Kernels                 %s%n",
+				BatchKernelsProvider.GetKernels().GetName());
+		System.out.printf("Aliasing failures       %d%n", CountAliasingFailures());
+
+		final ThreadMXBean bean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long thread_id = Thread.currentThread().getId();
+		final Vector v = new Vector();
+		final Matrix m = new Matrix();
+		float sink = 0.0f;
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			sink += CallAll(v, m);
+		}
+		final long start = bean.getThreadAllocatedBytes(thread_id);
+		sink += CallAll(v, m);
+		final long bytes = bean.getThreadAllocatedBytes(thread_id) - start;
+
+		System.out.printf("Allocation per call     %.3f byte(s)%n",
+				(double) bytes / (SAMPLE_COUNT * CALLS_PER_SAMPLE));
+		System.out.printf("(checksum %f)%n", sink);
+	}
+
+	private static Vector RandomVector(Random random) {
+		return new Vector(random.nextFloat() * 2.0f - 1.0f, random.nextFloat() * 2.0f - 1.0f,
+				random.nextFloat() * 2.0f - 1.0f);
+	}
+
+	private static boolean Same(Vector v1, Vector v2) {
+		return v1.GetX() == v2.GetX() && v1.GetY() == v2.GetY() && v1.GetZ() == v2.GetZ();
+	}
+	private static boolean Same(Matrix m1, Matrix m2) {
+		return Arrays.equals(m1.GetValues(), m2.GetValues()) && m1.GetKind() == m2.GetKind();
+	}
+
+	private static int CountAliasingFailures() {
+		int failures = 0;
+		for (int i = 0; i < vectors.length; i++) {
+			final Vector a = vectors[i];
+			final Vector b = vectors[(i + 1) % vectors.length];
+
+			Vector dst = new Vector(a);
+			if (!Same(VectorFunctions.VAdd(a, b), VectorFunctions.VAdd(dst, b, dst))) {
+				failures++;
+			}
+			dst = new Vector(b);
+			if (!Same(VectorFunctions.VSub(a, b), VectorFunctions.VSub(a, dst, dst))) {
+				failures++;
+			}
+			dst = new Vector(a);
+			if (!Same(VectorFunctions.VNorm(a), VectorFunctions.VNorm(dst, dst))) {
+				failures++;
+			}
+			dst = new Vector(a);
+			if (!Same(VectorFunctions.VScale(a, 3.0f), VectorFunctions.VScale(dst, 3.0f, dst))) {
+				failures++;
+			}
+			dst = new Vector(a);
+			if (!Same(VectorFunctions.VCross(a, b), VectorFunctions.VCross(dst, b, dst))) {
+				failures++;
+			}
+			dst = new Vector(b);
+			if (!Same(VectorFunctions.VCross(a, b), VectorFunctions.VCross(a, dst, dst))) {
+				failures++;
+			}
+
+			final int j = (i + 1) % matrices.length;
+			failures += CountAliasingFailures(a, matrices[i], matrices[j]);
+			failures += CountAliasingFailures(a, general_matrices[i], general_matrices[j]);
+		}
+
+		return failures;
+	}
+	private static int CountAliasingFailures(Vector a, Matrix m, Matrix n) {
+		int failures = 0;
+		Vector dst = new Vector(a);
+		if (!Same(MatrixFunctions.VTransform(a, m), MatrixFunctions.VTransform(dst, m, dst))) {
+			failures++;
+		}
+		dst = new Vector(a);
+		if (!Same(MatrixFunctions.VTransformSR(a, m),
+				MatrixFunctions.VTransformSR(dst, m, dst))) {
+			failures++;
+		}
+		dst = new Vector(a);
+		if (!Same(MatrixFunctions.VProject(a, m), MatrixFunctions.VProject(dst, m, dst))) {
+			failures++;
+		}
+
+		Matrix mdst = new Matrix(m);
+		if (!Same(MatrixFunctions.MMult(m, n), MatrixFunctions.MMult(mdst, n, mdst))) {
+			failures++;
+		}
+		mdst = new Matrix(n);
+		if (!Same(MatrixFunctions.MMult(m, n), MatrixFunctions.MMult(m, mdst, mdst))) {
+			failures++;
+		}
+		mdst = new Matrix(m);
+		if (!Same(MatrixFunctions.MMult(m, m), MatrixFunctions.MMult(mdst, mdst, mdst))) {
+			failures++;
+		}
+		mdst = new Matrix(m);
+		if (!Same(MatrixFunctions.MTranspose(m), MatrixFunctions.MTranspose(mdst, mdst))) {
+			failures++;
+		}
+		mdst = new Matrix(m);
+		if (!Same(MatrixFunctions.MInverse(m), MatrixFunctions.MInverse(mdst, mdst))) {
+			failures++;
+		}
+
+		return failures;
+	}
+
+	private static float CallAll(Vector v, Matrix m) {
+		float sink = 0.0f;
+		for (int i = 0; i < SAMPLE_COUNT; i++) {
+			final Vector a = vectors[i & 7];
+			final Vector b = vectors[(i + 1) & 7];
+			final Matrix p = matrices[i & 7];
+			final Matrix q = matrices[(i + 1) & 7];
+
+			VectorFunctions.VAdd(a, b, v);
+			VectorFunctions.VSub(v, b, v);
+			VectorFunctions.VNorm(v, v);
+			VectorFunctions.VScale(v, 2.0f, v);
+			VectorFunctions.VCross(v, a, v);
+			VectorFunctions.VGetFromAngles(0.5f, 0.25f, v);
+			MatrixFunctions.VTransform(a, p, v);
+			MatrixFunctions.VTransformSR(v, p, v);
+			MatrixFunctions.VProject(v, p, v);
+			sink += v.GetX();
+
+			MatrixFunctions.MMult(p, q, m);
+			MatrixFunctions.MTranspose(m, m);
+			MatrixFunctions.MInverse(p, m);
+			MatrixFunctions.MGetRotAxis(a, 0.5f, m);
+			MatrixFunctions.MGetTranslate(b, m);
+			MatrixFunctions.MGetScale(a, m);
+			MatrixFunctions.MGetIdent(m);
+			sink += m.GetValue(0, 0);
+		}
+
+		return sink;
+	}
+}
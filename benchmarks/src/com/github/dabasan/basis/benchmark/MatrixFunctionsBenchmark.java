@@ -0,0 +1,311 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.matrix.MatrixKind;
+import com.github.dabasan.basis.matrix.TransformBuilder;
+import com.github.dabasan.basis.quaternion.Quaternion;
+import com.github.dabasan.basis.quaternion.QuaternionFunctions;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Single-call latency of MatrixFunctions<br>
+ * The fused TRS builders and TransformBuilder are compared with the MMult
+ * chain they replace (MMultChainTRS). m1 and m2 are GENERAL, so MInverse and
+ * MTryInverse on them measure the full 4x4 inverse. The Rigid variants
+ * measure the MatrixKind fast paths.
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixFunctionsBenchmark {
+	private Matrix m1;
+	private Matrix m2;
+	private Matrix rigid;
+	private Matrix dst_m;
+	private Vector v;
+	private Vector axis;
+	private Vector dst_v;
+	private float th;
+	private Vector translate;
+	private Vector scale;
+	private Quaternion rotation;
+	private float[] packed;
+	private TransformBuilder builder;
+	private Matrix chain_t;
+	private Matrix chain_r;
+	private Matrix chain_s;
+	private Matrix chain_rs;
+
+	@Setup
+	public void Setup() {
+		final Random random = new Random(0);
+
+		m1 = new Matrix();
+		m2 = new Matrix();
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				m1.SetValue(i, j, random.nextFloat());
+				m2.SetValue(i, j, random.nextFloat());
+			}
+		}
+		dst_m = new Matrix();
+		rigid = MatrixFunctions.MMult(
+				MatrixFunctions.MGetTranslate(VectorFunctions.VGet(1.0f, 2.0f, 3.0f)),
+				MatrixFunctions.MGetRotAxis(
+						VectorFunctions.VNorm(VectorFunctions.VGet(1.0f, 1.0f, 1.0f)), 0.5f));
+
+		v = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(), random.nextFloat());
+		axis = VectorFunctions.VNorm(VectorFunctions.VGet(1.0f, 2.0f, 3.0f));
+		dst_v = new Vector();
+		th = random.nextFloat();
+
+		translate = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(),
+				random.nextFloat());
+		scale = VectorFunctions.VGet(0.5f + random.nextFloat(), 0.5f + random.nextFloat(),
+				0.5f + random.nextFloat());
+		rotation = QuaternionFunctions.QGetRotAxis(axis, th);
+		packed = new float[16];
+		builder = new TransformBuilder();
+		builder.SetTranslation(translate);
+		builder.SetScale(scale);
+		chain_t = new Matrix();
+		chain_r = new Matrix();
+		chain_s = new Matrix();
+		chain_rs = new Matrix();
+	}
+
+	@Benchmark
+	public Matrix MMult() {
+		return MatrixFunctions.MMult(m1, m2);
+	}
+	@Benchmark
+	public Matrix MMultDst() {
+		return MatrixFunctions.MMult(m1, m2, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetIdent() {
+		return MatrixFunctions.MGetIdent();
+	}
+	@Benchmark
+	public Matrix MGetIdentDst() {
+		return MatrixFunctions.MGetIdent(dst_m);
+	}
+	@Benchmark
+	public Matrix MGetScale() {
+		return MatrixFunctions.MGetScale(v);
+	}
+	@Benchmark
+	public Matrix MGetScaleDst() {
+		return MatrixFunctions.MGetScale(v, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTranslate() {
+		return MatrixFunctions.MGetTranslate(v);
+	}
+	@Benchmark
+	public Matrix MGetTranslateDst() {
+		return MatrixFunctions.MGetTranslate(v, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetRotX() {
+		return MatrixFunctions.MGetRotX(th);
+	}
+	@Benchmark
+	public Matrix MGetRotXDst() {
+		return MatrixFunctions.MGetRotX(th, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetRotY() {
+		return MatrixFunctions.MGetRotY(th);
+	}
+	@Benchmark
+	public Matrix MGetRotYDst() {
+		return MatrixFunctions.MGetRotY(th, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetRotZ() {
+		return MatrixFunctions.MGetRotZ(th);
+	}
+	@Benchmark
+	public Matrix MGetRotZDst() {
+		return MatrixFunctions.MGetRotZ(th, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetRotAxis() {
+		return MatrixFunctions.MGetRotAxis(axis, th);
+	}
+	@Benchmark
+	public Matrix MGetRotAxisDst() {
+		return MatrixFunctions.MGetRotAxis(axis, th, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSAxis() {
+		return MatrixFunctions.MGetTRS(translate, axis, th, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSAxisDst() {
+		return MatrixFunctions.MGetTRS(translate, axis, th, scale, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseAxis() {
+		return MatrixFunctions.MGetTRSInverse(translate, axis, th, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseAxisDst() {
+		return MatrixFunctions.MGetTRSInverse(translate, axis, th, scale, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSXYZ() {
+		return MatrixFunctions.MGetTRS(translate, th, th * 2.0f, th * 3.0f, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSXYZDst() {
+		return MatrixFunctions.MGetTRS(translate, th, th * 2.0f, th * 3.0f, scale, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseXYZ() {
+		return MatrixFunctions.MGetTRSInverse(translate, th, th * 2.0f, th * 3.0f, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseXYZDst() {
+		return MatrixFunctions.MGetTRSInverse(translate, th, th * 2.0f, th * 3.0f, scale,
+				dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSQuaternion() {
+		return MatrixFunctions.MGetTRS(translate, rotation, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSQuaternionDst() {
+		return MatrixFunctions.MGetTRS(translate, rotation, scale, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseQuaternion() {
+		return MatrixFunctions.MGetTRSInverse(translate, rotation, scale);
+	}
+	@Benchmark
+	public Matrix MGetTRSInverseQuaternionDst() {
+		return MatrixFunctions.MGetTRSInverse(translate, rotation, scale, dst_m);
+	}
+	@Benchmark
+	public float[] MGetTRSPacked() {
+		return MatrixFunctions.MGetTRS(translate.GetX(), translate.GetY(), translate.GetZ(),
+				rotation.GetW(), rotation.GetX(), rotation.GetY(), rotation.GetZ(),
+				scale.GetX(), scale.GetY(), scale.GetZ(), packed, 0);
+	}
+	@Benchmark
+	public Matrix MMultChainTRS() {
+		MatrixFunctions.MGetTranslate(translate, chain_t);
+		MatrixFunctions.MGetRotAxis(axis, th, chain_r);
+		MatrixFunctions.MGetScale(scale, chain_s);
+		MatrixFunctions.MMult(chain_r, chain_s, chain_rs);
+		return MatrixFunctions.MMult(chain_t, chain_rs, dst_m);
+	}
+	/**
+	 * Each call changes the rotation, so the builder composes every time.
+	 */
+	@Benchmark
+	public Matrix TransformBuilderGetMatrix() {
+		builder.SetRotationAxis(axis, th);
+		return builder.GetMatrix();
+	}
+	@Benchmark
+	public Matrix TransformBuilderGetInverse() {
+		builder.SetRotationAxis(axis, th);
+		return builder.GetInverse();
+	}
+	@Benchmark
+	public Matrix MTranspose() {
+		return MatrixFunctions.MTranspose(m1);
+	}
+	@Benchmark
+	public Matrix MTransposeDst() {
+		return MatrixFunctions.MTranspose(m1, dst_m);
+	}
+	@Benchmark
+	public Matrix MGetMagic() {
+		return MatrixFunctions.MGetMagic();
+	}
+	@Benchmark
+	public float MGetDet() {
+		return MatrixFunctions.MGetDet(m1);
+	}
+	@Benchmark
+	public Matrix MInverse() {
+		return MatrixFunctions.MInverse(m1);
+	}
+	@Benchmark
+	public Matrix MInverseDst() {
+		return MatrixFunctions.MInverse(m1, dst_m);
+	}
+	@Benchmark
+	public Matrix MInverseRigidDst() {
+		return MatrixFunctions.MInverse(rigid, dst_m);
+	}
+	@Benchmark
+	public boolean MTryInverse() {
+		return MatrixFunctions.MTryInverse(m1, dst_m);
+	}
+	@Benchmark
+	public boolean MTryInverseRigid() {
+		return MatrixFunctions.MTryInverse(rigid, dst_m);
+	}
+	@Benchmark
+	public MatrixKind MClassify() {
+		return MatrixFunctions.MClassify(m1, 1.0E-6f);
+	}
+	@Benchmark
+	public MatrixKind MClassifyRigid() {
+		return MatrixFunctions.MClassify(rigid, 1.0E-6f);
+	}
+	@Benchmark
+	public Matrix MCopy() {
+		return MatrixFunctions.MCopy(m1, dst_m);
+	}
+	@Benchmark
+	public Vector VTransform() {
+		return MatrixFunctions.VTransform(v, m1);
+	}
+	@Benchmark
+	public Vector VTransformDst() {
+		return MatrixFunctions.VTransform(v, m1, dst_v);
+	}
+	@Benchmark
+	public Vector VTransformSR() {
+		return MatrixFunctions.VTransformSR(v, m1);
+	}
+	@Benchmark
+	public Vector VTransformSRDst() {
+		return MatrixFunctions.VTransformSR(v, m1, dst_v);
+	}
+	@Benchmark
+	public Vector VProject() {
+		return MatrixFunctions.VProject(v, m1);
+	}
+	@Benchmark
+	public Vector VProjectDst() {
+		return MatrixFunctions.VProject(v, m1, dst_v);
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.matrix.MatrixKind;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Prints maximum absolute errors of the MatrixKind fast paths of
+ * MatrixFunctions against the GENERAL path for every kind.<br>
+ * Run with
+ * <code>java -cp target/benchmarks.jar com.github.dabasan.basis.benchmark.MatrixKindAccuracyReport</code>.
+ * 
+ * @author Daba
+ *
+ */
+public class MatrixKindAccuracyReport {
+	private static final int SAMPLE_COUNT = 100000;
+
+	public static void main(String[] args) {
+		System.out.println("kind         inverse   mult      transform");
+
+		final MatrixKind[] kinds = {MatrixKind.IDENTITY, MatrixKind.TRANSLATION,
+				MatrixKind.RIGID, MatrixKind.AFFINE};
+		for (final MatrixKind kind : kinds) {
+			final Random random = new Random(0);
+
+			double inverse_error = 0.0;
+			double mult_error = 0.0;
+			double transform_error = 0.0;
+			for (int i = 0; i < SAMPLE_COUNT; i++) {
+				final Matrix m = RandomMatrix(random, kind);
+				final Matrix n = RandomMatrix(random, kind);
+				final Vector v = RandomVector(random);
+				final Matrix general_m = General(m);
+				final Matrix general_n = General(n);
+
+				inverse_error = Math.max(inverse_error, MaxError(MatrixFunctions.MInverse(m),
+						MatrixFunctions.MInverse(general_m)));
+				mult_error = Math.max(mult_error, MaxError(MatrixFunctions.MMult(m, n),
+						MatrixFunctions.MMult(general_m, general_n)));
+				transform_error = Math.max(transform_error,
+						MaxError(MatrixFunctions.VTransform(v, m),
+								MatrixFunctions.VTransform(v, general_m)));
+			}
+
+			System.out.printf("%-12s %.2e  %.2e  %.2e%n", kind, inverse_error, mult_error,
+					transform_error);
+		}
+	}
+
+	private static Vector RandomVector(Random random) {
+		return new Vector(random.nextFloat() * 20.0f - 10.0f, random.nextFloat() * 20.0f - 10.0f,
+				random.nextFloat() * 20.0f - 10.0f);
+	}
+	private static Matrix RandomMatrix(Random random, MatrixKind kind) {
+		final Matrix translation = MatrixFunctions.MGetTranslate(RandomVector(random));
+		final Vector axis = VectorFunctions.VNorm(RandomVector(random));
+		final Matrix rotation = MatrixFunctions.MGetRotAxis(axis, random.nextFloat() * 6.0f);
+		final Vector scale = new Vector(0.5f + random.nextFloat() * 2.0f,
+				0.5f + random.nextFloat() * 2.0f, 0.5f + random.nextFloat() * 2.0f);
+
+		switch (kind) {
+			case IDENTITY:
+				return MatrixFunctions.MGetIdent();
+			case TRANSLATION:
+				return translation;
+			case RIGID:
+				return MatrixFunctions.MMult(rotation, translation);
+			default:
+				return MatrixFunctions.MMult(
+						MatrixFunctions.MMult(MatrixFunctions.MGetScale(scale), rotation),
+						translation);
+		}
+	}
+	private static Matrix General(Matrix m) {
+		final Matrix general = new Matrix(m);
+		general.SetKind(MatrixKind.GENERAL);
+		return general;
+	}
+
+	private static double MaxError(Matrix m1, Matrix m2) {
+		double error = 0.0;
+		for (int row = 0; row < 4; row++) {
+			for (int column = 0; column < 4; column++) {
+				error = Math.max(error,
+						Math.abs(m1.GetValue(row, column) - m2.GetValue(row, column)));
+			}
+		}
+		return error;
+	}
+	private static double MaxError(Vector v1, Vector v2) {
+		double error = Math.abs(v1.GetX() - v2.GetX());
+		error = Math.max(error, Math.abs(v1.GetY() - v2.GetY()));
+		error = Math.max(error, Math.abs(v1.GetZ() - v2.GetZ()));
+		return error;
+	}
+}
@@ -0,0 +1,134 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.bvh.RayHit;
+import com.github.dabasan.basis.bvh.TriangleBVH;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorArray;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Ray casts through TriangleBVH compared with a brute-force loop over Vector
+ * triples
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriangleBVHBenchmark {
+	@Param({"10000", "100000"})
+	private int triangle_count;
+
+	private Vector[] triangles;
+	private VectorArray vertices;
+	private TriangleBVH bvh;
+	private ParallelRunner runner;
+	private Vector origin;
+	private Vector direction;
+	private RayHit hit;
+
+	@Setup
+	public void Setup() {
+		final Random random = new Random(0);
+
+		triangles = new Vector[triangle_count * 3];
+		for (int t = 0; t < triangle_count; t++) {
+			final float cx = random.nextFloat() * 100.0f;
+			final float cy = random.nextFloat() * 100.0f;
+			final float cz = random.nextFloat() * 100.0f;
+			for (int k = 0; k < 3; k++) {
+				triangles[t * 3 + k] = VectorFunctions.VGet(
+						cx + random.nextFloat() * 2.0f - 1.0f,
+						cy + random.nextFloat() * 2.0f - 1.0f,
+						cz + random.nextFloat() * 2.0f - 1.0f);
+			}
+		}
+		vertices = new VectorArray(triangles);
+		bvh = new TriangleBVH(vertices);
+		runner = new ParallelRunner();
+
+		origin = VectorFunctions.VGet(50.0f, 50.0f, -10.0f);
+		direction = VectorFunctions.VGet(0.1f, -0.05f, 1.0f);
+		hit = new RayHit();
+	}
+
+	@Benchmark
+	public float RayBruteForce() {
+		float best = Float.POSITIVE_INFINITY;
+		final Vector e1 = new Vector();
+		final Vector e2 = new Vector();
+		final Vector p = new Vector();
+		final Vector s = new Vector();
+		final Vector q = new Vector();
+		for (int t = 0; t < triangle_count; t++) {
+			final Vector v0 = triangles[t * 3];
+			VectorFunctions.VSub(triangles[t * 3 + 1], v0, e1);
+			VectorFunctions.VSub(triangles[t * 3 + 2], v0, e2);
+			VectorFunctions.VCross(direction, e2, p);
+			final float det = VectorFunctions.VDot(e1, p);
+			if (Math.abs(det) < 1.0E-7f) {
+				continue;
+			}
+
+			VectorFunctions.VSub(origin, v0, s);
+			final float u = VectorFunctions.VDot(s, p) / det;
+			if (u < 0.0f || u > 1.0f) {
+				continue;
+			}
+			VectorFunctions.VCross(s, e1, q);
+			final float v = VectorFunctions.VDot(direction, q) / det;
+			if (v < 0.0f || u + v > 1.0f) {
+				continue;
+			}
+
+			final float dist = VectorFunctions.VDot(e2, q) / det;
+			if (dist >= 0.0f && dist < best) {
+				best = dist;
+			}
+		}
+
+		return best;
+	}
+	@Benchmark
+	public float RayNearest() {
+		bvh.IntersectRay(origin, direction, Float.POSITIVE_INFINITY, hit);
+		return hit.GetDistance();
+	}
+	@Benchmark
+	public boolean RayAny() {
+		return bvh.IntersectRayAny(origin, direction, Float.POSITIVE_INFINITY);
+	}
+	@Benchmark
+	public TriangleBVH Build() {
+		return new TriangleBVH(vertices);
+	}
+	@Benchmark
+	public TriangleBVH BuildParallel() {
+		return new TriangleBVH(vertices, runner);
+	}
+	@Benchmark
+	public TriangleBVH Refit() {
+		bvh.Refit();
+		return bvh;
+	}
+}
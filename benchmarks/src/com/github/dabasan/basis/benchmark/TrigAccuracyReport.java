@@ -0,0 +1,57 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+
+import com.github.dabasan.basis.trig.TrigFunctions;
+import com.github.dabasan.basis.trig.TrigMode;
+
+/**
+ * Prints maximum absolute errors of TrigFunctions against java.lang.Math for
+ * every mode.<br>
+ * Run with
+ * <code>java -cp target/benchmarks.jar com.github.dabasan.basis.benchmark.TrigAccuracyReport</code>.
+ * 
+ * @author Daba
+ *
+ */
+public class TrigAccuracyReport {
+	private static final int SAMPLE_COUNT = 10000000;
+	private static final double MAX_ANGLE = 1.0E4;
+
+	public static void main(String[] args) {
+		System.out.println("mode        sin       cos       asin      acos      atan2");
+
+		for (final TrigMode mode : TrigMode.values()) {
+			final Random random = new Random(0);
+
+			double sin_error = 0.0;
+			double cos_error = 0.0;
+			double asin_error = 0.0;
+			double acos_error = 0.0;
+			double atan2_error = 0.0;
+			for (int i = 0; i < SAMPLE_COUNT; i++) {
+				// Half of the angles are small, as rotation angles usually are.
+				final double range = i % 2 == 0 ? MAX_ANGLE : Math.PI * 2.0;
+				final float th = (float) ((random.nextDouble() * 2.0 - 1.0) * range);
+				sin_error = Math.max(sin_error,
+						Math.abs(TrigFunctions.Sin(mode, th) - Math.sin(th)));
+				cos_error = Math.max(cos_error,
+						Math.abs(TrigFunctions.Cos(mode, th) - Math.cos(th)));
+
+				final float x = (float) (random.nextDouble() * 2.0 - 1.0);
+				asin_error = Math.max(asin_error,
+						Math.abs(TrigFunctions.Asin(mode, x) - Math.asin(x)));
+				acos_error = Math.max(acos_error,
+						Math.abs(TrigFunctions.Acos(mode, x) - Math.acos(x)));
+
+				final float y = (float) random.nextGaussian();
+				final float z = (float) random.nextGaussian();
+				atan2_error = Math.max(atan2_error,
+						Math.abs(TrigFunctions.Atan2(mode, y, z) - Math.atan2(y, z)));
+			}
+
+			System.out.printf("%-11s %.2e  %.2e  %.2e  %.2e  %.2e%n", mode, sin_error, cos_error,
+					asin_error, acos_error, atan2_error);
+		}
+	}
+}
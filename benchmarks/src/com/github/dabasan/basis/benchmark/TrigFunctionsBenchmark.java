@@ -0,0 +1,107 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.trig.TrigFunctions;
+import com.github.dabasan.basis.trig.TrigMode;
+
+/**
+ * TrigFunctions and rotation builders in each TrigMode
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrigFunctionsBenchmark {
+	private static final int SIZE = 1024;
+
+	@Param({"PRECISE", "POLYNOMIAL", "TABLE"})
+	private TrigMode mode;
+
+	private float[] angles;
+	private float[] values;
+	private float[] sin_cos;
+	private Matrix dst;
+
+	@Setup
+	public void Setup() {
+		TrigFunctions.SetMode(mode);
+
+		final Random random = new Random(0);
+		angles = new float[SIZE];
+		values = new float[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			angles[i] = (random.nextFloat() * 2.0f - 1.0f) * 10.0f;
+			values[i] = random.nextFloat() * 2.0f - 1.0f;
+		}
+		sin_cos = new float[2];
+		dst = new Matrix();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public float Sin() {
+		float sum = 0.0f;
+		for (int i = 0; i < SIZE; i++) {
+			sum += TrigFunctions.Sin(angles[i]);
+		}
+		return sum;
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public float SinCos() {
+		float sum = 0.0f;
+		for (int i = 0; i < SIZE; i++) {
+			TrigFunctions.SinCos(angles[i], sin_cos);
+			sum += sin_cos[0] + sin_cos[1];
+		}
+		return sum;
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public float Acos() {
+		float sum = 0.0f;
+		for (int i = 0; i < SIZE; i++) {
+			sum += TrigFunctions.Acos(values[i]);
+		}
+		return sum;
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public float Atan2() {
+		float sum = 0.0f;
+		for (int i = 0; i < SIZE; i++) {
+			sum += TrigFunctions.Atan2(values[i], angles[i]);
+		}
+		return sum;
+	}
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public Matrix MGetRotY() {
+		for (int i = 0; i < SIZE; i++) {
+			MatrixFunctions.MGetRotY(angles[i], dst);
+		}
+		return dst;
+	}
+}
@@ -0,0 +1,139 @@
+package com.github.dabasan.basis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Single-call latency of VectorFunctions
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorFunctionsBenchmark {
+	private Vector v1;
+	private Vector v2;
+	private Vector dst;
+	private Vector[] vs;
+	private float x;
+	private float y;
+	private float z;
+
+	@Setup
+	public void Setup() {
+		final Random random = new Random(0);
+
+		x = random.nextFloat();
+		y = random.nextFloat();
+		z = random.nextFloat();
+		v1 = VectorFunctions.VGet(x, y, z);
+		v2 = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(), random.nextFloat());
+		dst = new Vector();
+
+		vs = new Vector[64];
+		for (int i = 0; i < vs.length; i++) {
+			vs[i] = VectorFunctions.VGet(random.nextFloat(), random.nextFloat(),
+					random.nextFloat());
+		}
+	}
+
+	@Benchmark
+	public Vector VGet() {
+		return VectorFunctions.VGet(x, y, z);
+	}
+	@Benchmark
+	public Vector VAdd() {
+		return VectorFunctions.VAdd(v1, v2);
+	}
+	@Benchmark
+	public Vector VAddDst() {
+		return VectorFunctions.VAdd(v1, v2, dst);
+	}
+	@Benchmark
+	public Vector VSub() {
+		return VectorFunctions.VSub(v1, v2);
+	}
+	@Benchmark
+	public Vector VSubDst() {
+		return VectorFunctions.VSub(v1, v2, dst);
+	}
+	@Benchmark
+	public float VSize() {
+		return VectorFunctions.VSize(v1);
+	}
+	@Benchmark
+	public float VSquareSize() {
+		return VectorFunctions.VSquareSize(v1);
+	}
+	@Benchmark
+	public Vector VNorm() {
+		return VectorFunctions.VNorm(v1);
+	}
+	@Benchmark
+	public Vector VNormDst() {
+		return VectorFunctions.VNorm(v1, dst);
+	}
+	@Benchmark
+	public Vector VScale() {
+		return VectorFunctions.VScale(v1, x);
+	}
+	@Benchmark
+	public Vector VScaleDst() {
+		return VectorFunctions.VScale(v1, x, dst);
+	}
+	@Benchmark
+	public float VDot() {
+		return VectorFunctions.VDot(v1, v2);
+	}
+	@Benchmark
+	public Vector VCross() {
+		return VectorFunctions.VCross(v1, v2);
+	}
+	@Benchmark
+	public Vector VCrossDst() {
+		return VectorFunctions.VCross(v1, v2, dst);
+	}
+	@Benchmark
+	public Vector VAverage() {
+		return VectorFunctions.VAverage(vs);
+	}
+	@Benchmark
+	public Vector VAverageDst() {
+		return VectorFunctions.VAverage(vs, dst);
+	}
+	@Benchmark
+	public float VAngleV() {
+		return VectorFunctions.VAngleV(v1);
+	}
+	@Benchmark
+	public float VAngleH() {
+		return VectorFunctions.VAngleH(v1);
+	}
+	@Benchmark
+	public Vector VGetFromAngles() {
+		return VectorFunctions.VGetFromAngles(x, y);
+	}
+	@Benchmark
+	public Vector VGetFromAnglesDst() {
+		return VectorFunctions.VGetFromAngles(x, y, dst);
+	}
+}
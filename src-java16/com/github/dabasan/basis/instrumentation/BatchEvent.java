@@ -0,0 +1,32 @@
+package com.github.dabasan.basis.instrumentation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event for a batch recorded by Instrumentation
+ * 
+ * @author Daba
+ *
+ */
+@Name("com.github.dabasan.basis.Batch")
+@Label("DH3DBasis Batch")
+@Category("DH3DBasis")
+@Description("Batch of vectors or matrices processed by DH3DBasis")
+@StackTrace(false)
+class BatchEvent extends Event {
+	@Label("Operation")
+	String operation;
+
+	@Label("Elements")
+	int elements;
+
+	@Label("Elapsed")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsed;
+}
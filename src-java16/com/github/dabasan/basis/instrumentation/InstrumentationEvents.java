@@ -0,0 +1,22 @@
+package com.github.dabasan.basis.instrumentation;
+
+/**
+ * Emits JDK Flight Recorder events.<br>
+ * This is the JDK 16+ version packed in META-INF/versions/16. A BatchEvent
+ * is committed for every recorded batch while a recording has the event
+ * enabled.
+ * 
+ * @author Daba
+ *
+ */
+class InstrumentationEvents {
+	static void CommitBatch(InstrumentedOperation op, int elements, long nanos) {
+		final BatchEvent event = new BatchEvent();
+		if (event.shouldCommit()) {
+			event.operation = op.name();
+			event.elements = elements;
+			event.elapsed = nanos;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.github.dabasan.basis.kernel;
+
+/**
+ * Selects the batch kernel implementation.<br>
+ * This is the JDK 16+ version packed in META-INF/versions/16. SIMD kernels
+ * backed by the Vector API are used when the jdk.incubator.vector module is
+ * available (e.g. the JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>) and the system property
+ * <code>dh3dbasis.simd</code> is not set to <code>false</code>. Otherwise the
+ * scalar kernels are used.
+ * 
+ * @author Daba
+ *
+ */
+public class BatchKernelsProvider {
+	private static final BatchKernels KERNELS = CreateKernels();
+
+	/**
+	 * Returns the kernels used by this library.
+	 * 
+	 * @return Kernels
+	 */
+	public static BatchKernels GetKernels() {
+		return KERNELS;
+	}
+
+	private static BatchKernels CreateKernels() {
+		if ("false".equals(System.getProperty("dh3dbasis.simd"))) {
+			return new ScalarBatchKernels();
+		}
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return new ScalarBatchKernels();
+		}
+
+		// Loaded reflectively so that this class never links against the
+		// incubator module when it is absent.
+		try {
+			return (BatchKernels) Class
+					.forName("com.github.dabasan.basis.kernel.VectorAPIBatchKernels")
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new ScalarBatchKernels();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.github.dabasan.basis.kernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the batch kernels using the Vector API<br>
+ * Operations are evaluated in the same order as in the scalar kernels, so the
+ * results are identical. Remaining elements that do not fill a whole vector
+ * are handled by the scalar kernels.
+ * 
+ * @author Daba
+ *
+ */
+class VectorAPIBatchKernels extends ScalarBatchKernels {
+	private static final VectorSpecies<Float> S128 = FloatVector.SPECIES_128;
+	private static final VectorSpecies<Float> FS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> IS = IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public String GetName() {
+		return "vector-api(" + FS.vectorBitSize() + "bit)";
+	}
+
+	@Override
+	public void MMult(float[] a, float[] b, float[] r) {
+		final FloatVector b0 = FloatVector.fromArray(S128, b, 0);
+		final FloatVector b1 = FloatVector.fromArray(S128, b, 4);
+		final FloatVector b2 = FloatVector.fromArray(S128, b, 8);
+		final FloatVector b3 = FloatVector.fromArray(S128, b, 12);
+
+		final FloatVector r0 = b0.mul(a[0]).add(b1.mul(a[1])).add(b2.mul(a[2]))
+				.add(b3.mul(a[3]));
+		final FloatVector r1 = b0.mul(a[4]).add(b1.mul(a[5])).add(b2.mul(a[6]))
+				.add(b3.mul(a[7]));
+		final FloatVector r2 = b0.mul(a[8]).add(b1.mul(a[9])).add(b2.mul(a[10]))
+				.add(b3.mul(a[11]));
+		final FloatVector r3 = b0.mul(a[12]).add(b1.mul(a[13])).add(b2.mul(a[14]))
+				.add(b3.mul(a[15]));
+
+		r0.intoArray(r, 0);
+		r1.intoArray(r, 4);
+		r2.intoArray(r, 8);
+		r3.intoArray(r, 12);
+	}
+	@Override
+	public void VTransform(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to) {
+		final float m00 = m[0];
+		final float m01 = m[1];
+		final float m02 = m[2];
+		final float m03 = m[3];
+		final float m10 = m[4];
+		final float m11 = m[5];
+		final float m12 = m[6];
+		final float m13 = m[7];
+		final float m20 = m[8];
+		final float m21 = m[9];
+		final float m22 = m[10];
+		final float m23 = m[11];
+
+		int i = from;
+		final int bound = from + FS.loopBound(to - from);
+		for (; i < bound; i += FS.length()) {
+			final FloatVector x = FloatVector.fromArray(FS, xs, i);
+			final FloatVector y = FloatVector.fromArray(FS, ys, i);
+			final FloatVector z = FloatVector.fromArray(FS, zs, i);
+
+			x.mul(m00).add(y.mul(m01)).add(z.mul(m02)).add(m03).intoArray(dxs, i);
+			x.mul(m10).add(y.mul(m11)).add(z.mul(m12)).add(m13).intoArray(dys, i);
+			x.mul(m20).add(y.mul(m21)).add(z.mul(m22)).add(m23).intoArray(dzs, i);
+		}
+
+		super.VTransform(m, xs, ys, zs, dxs, dys, dzs, i, to);
+	}
+	@Override
+	public void VTransformSR(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to) {
+		final float m00 = m[0];
+		final float m01 = m[1];
+		final float m02 = m[2];
+		final float m10 = m[4];
+		final float m11 = m[5];
+		final float m12 = m[6];
+		final float m20 = m[8];
+		final float m21 = m[9];
+		final float m22 = m[10];
+
+		int i = from;
+		final int bound = from + FS.loopBound(to - from);
+		for (; i < bound; i += FS.length()) {
+			final FloatVector x = FloatVector.fromArray(FS, xs, i);
+			final FloatVector y = FloatVector.fromArray(FS, ys, i);
+			final FloatVector z = FloatVector.fromArray(FS, zs, i);
+
+			x.mul(m00).add(y.mul(m01)).add(z.mul(m02)).intoArray(dxs, i);
+			x.mul(m10).add(y.mul(m11)).add(z.mul(m12)).intoArray(dys, i);
+			x.mul(m20).add(y.mul(m21)).add(z.mul(m22)).intoArray(dzs, i);
+		}
+
+		super.VTransformSR(m, xs, ys, zs, dxs, dys, dzs, i, to);
+	}
+	@Override
+	public void VNorm(float[] xs, float[] ys, float[] zs, float[] dxs, float[] dys, float[] dzs,
+			int from, int to) {
+		int i = from;
+		final int bound = from + FS.loopBound(to - from);
+		for (; i < bound; i += FS.length()) {
+			final FloatVector x = FloatVector.fromArray(FS, xs, i);
+			final FloatVector y = FloatVector.fromArray(FS, ys, i);
+			final FloatVector z = FloatVector.fromArray(FS, zs, i);
+			final FloatVector size = x.mul(x).add(y.mul(y)).add(z.mul(z)).sqrt();
+
+			x.div(size).intoArray(dxs, i);
+			y.div(size).intoArray(dys, i);
+			z.div(size).intoArray(dzs, i);
+		}
+
+		super.VNorm(xs, ys, zs, dxs, dys, dzs, i, to);
+	}
+	@Override
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float[] rxs, float[] rys,
+			float[] rzs, float[] dst, int from, int to) {
+		int i = from;
+		final int bound = from + FS.loopBound(to - from);
+		for (; i < bound; i += FS.length()) {
+			final FloatVector lx = FloatVector.fromArray(FS, lxs, i);
+			final FloatVector ly = FloatVector.fromArray(FS, lys, i);
+			final FloatVector lz = FloatVector.fromArray(FS, lzs, i);
+			final FloatVector rx = FloatVector.fromArray(FS, rxs, i);
+			final FloatVector ry = FloatVector.fromArray(FS, rys, i);
+			final FloatVector rz = FloatVector.fromArray(FS, rzs, i);
+
+			lx.mul(rx).add(ly.mul(ry)).add(lz.mul(rz)).intoArray(dst, i);
+		}
+
+		super.VDot(lxs, lys, lzs, rxs, rys, rzs, dst, i, to);
+	}
+	@Override
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float rx, float ry, float rz,
+			float[] dst, int from, int to) {
+		int i = from;
+		final int bound = from + FS.loopBound(to - from);
+		for (; i < bound; i += FS.length()) {
+			final FloatVector lx = FloatVector.fromArray(FS, lxs, i);
+			final FloatVector ly = FloatVector.fromArray(FS, lys, i);
+			final FloatVector lz = FloatVector.fromArray(FS, lzs, i);
+
+			lx.mul(rx).add(ly.mul(ry)).add(lz.mul(rz)).intoArray(dst, i);
+		}
+
+		super.VDot(lxs, lys, lzs, rx, ry, rz, dst, i, to);
+	}
+	@Override
+	public void U8ToFloat(int[] src, float[] dst, int from, int to) {
+		int i = from;
+		final int bound = from + IS.loopBound(to - from);
+		for (; i < bound; i += IS.length()) {
+			final FloatVector v = (FloatVector) IntVector.fromArray(IS, src, i)
+					.convert(VectorOperators.I2F, 0);
+
+			v.div(255.0f).intoArray(dst, i);
+		}
+
+		super.U8ToFloat(src, dst, i, to);
+	}
+}
@@ -0,0 +1,190 @@
+package com.github.dabasan.basis.animation;
+
+import com.github.dabasan.basis.quaternion.Quaternion;
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * Keyframes of a set of tracks stored in packed arrays<br>
+ * Each track (e.g. a bone) has its own keys, and each key holds a time, a
+ * translation, a rotation and a scale. Keys of all tracks are concatenated:
+ * the keys of track i are GetKeyOffset(i) to GetKeyOffset(i+1)-1, and the
+ * arrays returned by Get*Array() can be filled directly in bulk. Rotations
+ * are packed as (w, x, y, z) like the packed quaternion functions of
+ * QuaternionFunctions. Key times must increase within a track. Call
+ * MarkDirty() after writing key times to the arrays directly.<br>
+ * A clip holds no sampling state and can be shared by any number of
+ * AnimationSamplers.
+ * 
+ * @author Daba
+ *
+ */
+public class AnimationClip {
+	private final int[] key_offsets;
+	private final float[] times;
+	private final float[] translations;
+	private final float[] rotations;
+	private final float[] scales;
+	/**
+	 * NaN until computed
+	 */
+	private float duration;
+
+	/**
+	 * Allocates keys. Every key is initialized with time 0 and an identity
+	 * transform.
+	 * 
+	 * @param key_counts
+	 *            Number of keys of each track (at least 1)
+	 */
+	public AnimationClip(int[] key_counts) {
+		key_offsets = new int[key_counts.length + 1];
+		for (int i = 0; i < key_counts.length; i++) {
+			if (key_counts[i] < 1) {
+				throw new IllegalArgumentException("Track " + i + " must have at least one key.");
+			}
+			key_offsets[i + 1] = key_offsets[i] + key_counts[i];
+		}
+
+		final int key_count = key_offsets[key_counts.length];
+		times = new float[key_count];
+		translations = new float[key_count * 3];
+		rotations = new float[key_count * 4];
+		scales = new float[key_count * 3];
+		for (int k = 0; k < key_count; k++) {
+			rotations[k * 4] = 1.0f;
+			scales[k * 3] = 1.0f;
+			scales[k * 3 + 1] = 1.0f;
+			scales[k * 3 + 2] = 1.0f;
+		}
+		duration = Float.NaN;
+	}
+
+	public int GetTrackCount() {
+		return key_offsets.length - 1;
+	}
+	public int GetKeyCount(int track) {
+		return key_offsets[track + 1] - key_offsets[track];
+	}
+	/**
+	 * Returns the index of the first key of a track in the packed arrays.
+	 * 
+	 * @param track
+	 *            Track (GetTrackCount() for the total number of keys)
+	 * @return Index of the first key
+	 */
+	public int GetKeyOffset(int track) {
+		return key_offsets[track];
+	}
+	/**
+	 * Returns the time of the last key over all tracks.<br>
+	 * The duration is computed once and kept until the keys change.
+	 * 
+	 * @return Duration
+	 */
+	public float GetDuration() {
+		// A single float field, so a racing reader sees either NaN or the value.
+		float d = duration;
+		if (Float.isNaN(d)) {
+			d = 0.0f;
+			for (int i = 1; i < key_offsets.length; i++) {
+				d = Math.max(d, times[key_offsets[i] - 1]);
+			}
+			duration = d;
+		}
+		return d;
+	}
+	/**
+	 * Marks the key times as changed.<br>
+	 * Call this after writing to the array returned by GetTimeArray()
+	 * directly.
+	 */
+	public void MarkDirty() {
+		duration = Float.NaN;
+	}
+
+	/**
+	 * Sets a key.
+	 * 
+	 * @param track
+	 *            Track
+	 * @param key
+	 *            Key within the track
+	 * @param time
+	 *            Time
+	 * @param translation
+	 *            Translation
+	 * @param rotation
+	 *            Rotation (normalized)
+	 * @param scale
+	 *            Scale
+	 */
+	public void SetKey(int track, int key, float time, Vector translation, Quaternion rotation,
+			Vector scale) {
+		this.SetKey(track, key, time, translation.GetX(), translation.GetY(), translation.GetZ(),
+				rotation.GetW(), rotation.GetX(), rotation.GetY(), rotation.GetZ(), scale.GetX(),
+				scale.GetY(), scale.GetZ());
+	}
+	public void SetKey(int track, int key, float time, float tx, float ty, float tz, float rw,
+			float rx, float ry, float rz, float sx, float sy, float sz) {
+		final int k = this.CheckKey(track, key);
+
+		times[k] = time;
+		duration = Float.NaN;
+		translations[k * 3] = tx;
+		translations[k * 3 + 1] = ty;
+		translations[k * 3 + 2] = tz;
+		rotations[k * 4] = rw;
+		rotations[k * 4 + 1] = rx;
+		rotations[k * 4 + 2] = ry;
+		rotations[k * 4 + 3] = rz;
+		scales[k * 3] = sx;
+		scales[k * 3 + 1] = sy;
+		scales[k * 3 + 2] = sz;
+	}
+	public float GetKeyTime(int track, int key) {
+		return times[this.CheckKey(track, key)];
+	}
+
+	/**
+	 * Returns the key times of all tracks.
+	 * 
+	 * @return Times (one per key, not copied)
+	 */
+	public float[] GetTimeArray() {
+		return times;
+	}
+	/**
+	 * Returns the translations of all keys.
+	 * 
+	 * @return Translations (x, y, z per key, not copied)
+	 */
+	public float[] GetTranslationArray() {
+		return translations;
+	}
+	/**
+	 * Returns the rotations of all keys.
+	 * 
+	 * @return Rotations (w, x, y, z per key, not copied)
+	 */
+	public float[] GetRotationArray() {
+		return rotations;
+	}
+	/**
+	 * Returns the scales of all keys.
+	 * 
+	 * @return Scales (x, y, z per key, not copied)
+	 */
+	public float[] GetScaleArray() {
+		return scales;
+	}
+
+	private int CheckKey(int track, int key) {
+		if (track < 0 || track >= key_offsets.length - 1) {
+			throw new IndexOutOfBoundsException("Invalid track: " + track);
+		}
+		if (key < 0 || key >= key_offsets[track + 1] - key_offsets[track]) {
+			throw new IndexOutOfBoundsException("Invalid key: " + key);
+		}
+		return key_offsets[track] + key;
+	}
+}
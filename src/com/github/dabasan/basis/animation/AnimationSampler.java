@@ -0,0 +1,272 @@
+package com.github.dabasan.basis.animation;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.matrix.MatrixKind;
+import com.github.dabasan.basis.parallel.BatchTiming;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+import com.github.dabasan.basis.quaternion.QuaternionFunctions;
+
+/**
+ * Samples the tracks of an AnimationClip into transform matrices<br>
+ * Keys are interpolated linearly (translation, scale) and along the shorter
+ * arc (rotation), and each track is composed into T*R*S, the same matrix as
+ * MMult(MGetTranslate(t), MMult(QToMatrix(r), MGetScale(s))). The sampler
+ * remembers the last key of each track, so sampling at steadily increasing
+ * (or decreasing) times finds keys in constant time; other jumps fall back to
+ * a binary search.<br>
+ * A sampler holds the playback state of one clip instance. Use one sampler
+ * per animated object.
+ * 
+ * @author Daba
+ *
+ */
+public class AnimationSampler {
+	/**
+	 * Sampling a track is a relatively large amount of work.
+	 */
+	private static final int PARALLEL_MIN_TRACKS = 256;
+
+	private final AnimationClip clip;
+	private final int[] last_keys;
+	private final float[] values;
+	private boolean looping;
+	private boolean slerp;
+
+	public AnimationSampler(AnimationClip clip) {
+		this.clip = clip;
+
+		final int track_count = clip.GetTrackCount();
+		last_keys = new int[track_count];
+		for (int i = 0; i < track_count; i++) {
+			last_keys[i] = clip.GetKeyOffset(i);
+		}
+
+		values = new float[16];
+		looping = false;
+		slerp = false;
+	}
+
+	public AnimationClip GetClip() {
+		return clip;
+	}
+	/**
+	 * Sets whether times beyond the duration of the clip wrap around.<br>
+	 * Otherwise they are clamped to the first and last keys.
+	 * 
+	 * @param looping
+	 *            Looping flag
+	 */
+	public void SetLooping(boolean looping) {
+		this.looping = looping;
+	}
+	public boolean IsLooping() {
+		return looping;
+	}
+	/**
+	 * Sets whether rotations are interpolated with slerp.<br>
+	 * By default they are interpolated with nlerp, which is much cheaper and
+	 * indistinguishable for densely sampled keys.
+	 * 
+	 * @param slerp
+	 *            Slerp flag
+	 */
+	public void SetSlerp(boolean slerp) {
+		this.slerp = slerp;
+	}
+	public boolean IsSlerp() {
+		return slerp;
+	}
+
+	/**
+	 * Samples tracks.
+	 * 
+	 * @param time
+	 *            Time
+	 * @param dst
+	 *            Destination (16 floats per track in row-major order, indexed
+	 *            by track)
+	 * @param from
+	 *            First track (inclusive)
+	 * @param to
+	 *            Last track (exclusive)
+	 * @return dst
+	 */
+	public float[] Sample(float time, float[] dst, int from, int to) {
+		final float t = this.WrapTime(time);
+		for (int i = from; i < to; i++) {
+			this.SampleTrack(i, t, dst, i * 16);
+		}
+		return dst;
+	}
+	public float[] Sample(float time, float[] dst) {
+		return this.Sample(time, dst, 0, last_keys.length);
+	}
+	/**
+	 * Samples all tracks in parallel.
+	 * 
+	 * @param time
+	 *            Time
+	 * @param dst
+	 *            Destination (16 floats per track in row-major order, indexed
+	 *            by track)
+	 * @param runner
+	 *            Runner
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Sample(float time, float[] dst, ParallelRunner runner) {
+		final float t = this.WrapTime(time);
+		return runner.Run(0, last_keys.length, PARALLEL_MIN_TRACKS, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				this.SampleTrack(i, t, dst, i * 16);
+			}
+		});
+	}
+	/**
+	 * Samples all tracks into matrices.
+	 * 
+	 * @param time
+	 *            Time
+	 * @param dst
+	 *            Destination matrices (indexed by track)
+	 * @return dst
+	 */
+	public Matrix[] Sample(float time, Matrix[] dst) {
+		final float t = this.WrapTime(time);
+		for (int i = 0; i < last_keys.length; i++) {
+			this.SampleTrack(i, t, values, 0);
+			dst[i].SetValues(values);
+			dst[i].SetKind(MatrixKind.AFFINE);
+		}
+		return dst;
+	}
+	/**
+	 * Samples all tracks into matrices in parallel.
+	 * 
+	 * @param time
+	 *            Time
+	 * @param dst
+	 *            Destination matrices (indexed by track)
+	 * @param runner
+	 *            Runner
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Sample(float time, Matrix[] dst, ParallelRunner runner) {
+		final float t = this.WrapTime(time);
+		return runner.Run(0, last_keys.length, PARALLEL_MIN_TRACKS, (from, to) -> {
+			final float[] chunk_values = new float[16];
+			for (int i = from; i < to; i++) {
+				this.SampleTrack(i, t, chunk_values, 0);
+				dst[i].SetValues(chunk_values);
+				dst[i].SetKind(MatrixKind.AFFINE);
+			}
+		});
+	}
+	/**
+	 * Samples a track.
+	 * 
+	 * @param track
+	 *            Track
+	 * @param time
+	 *            Time
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix Sample(int track, float time, Matrix dst) {
+		this.SampleTrack(track, this.WrapTime(time), values, 0);
+		dst.SetValues(values);
+		dst.SetKind(MatrixKind.AFFINE);
+
+		return dst;
+	}
+
+	private float WrapTime(float time) {
+		if (!looping) {
+			return time;
+		}
+
+		final float duration = clip.GetDuration();
+		if (duration <= 0.0f) {
+			return time;
+		}
+		return time - duration * (float) Math.floor(time / duration);
+	}
+	private void SampleTrack(int track, float t, float[] dst, int base) {
+		final float[] times = clip.GetTimeArray();
+		final float[] translations = clip.GetTranslationArray();
+		final float[] rotations = clip.GetRotationArray();
+		final float[] scales = clip.GetScaleArray();
+
+		final int first = clip.GetKeyOffset(track);
+		final int last = clip.GetKeyOffset(track + 1) - 1;
+		final int k = FindKey(times, first, last, last_keys[track], t);
+		last_keys[track] = k;
+
+		final int n = k < last ? k + 1 : k;
+		float alpha = 0.0f;
+		if (n != k) {
+			final float span = times[n] - times[k];
+			alpha = span > 0.0f ? (t - times[k]) / span : 0.0f;
+			alpha = alpha > 0.0f ? (alpha < 1.0f ? alpha : 1.0f) : 0.0f;
+		}
+		final float beta = 1.0f - alpha;
+
+		final float tx = beta * translations[k * 3] + alpha * translations[n * 3];
+		final float ty = beta * translations[k * 3 + 1] + alpha * translations[n * 3 + 1];
+		final float tz = beta * translations[k * 3 + 2] + alpha * translations[n * 3 + 2];
+		final float sx = beta * scales[k * 3] + alpha * scales[n * 3];
+		final float sy = beta * scales[k * 3 + 1] + alpha * scales[n * 3 + 1];
+		final float sz = beta * scales[k * 3 + 2] + alpha * scales[n * 3 + 2];
+
+		// The rotation is interpolated into the last row, which MGetTRS overwrites.
+		final int q = base + 12;
+		if (slerp) {
+			QuaternionFunctions.QSlerp(rotations, k * 4, rotations, n * 4, alpha, dst, q);
+		} else {
+			QuaternionFunctions.QNlerp(rotations, k * 4, rotations, n * 4, alpha, dst, q);
+		}
+		MatrixFunctions.MGetTRS(tx, ty, tz, dst[q], dst[q + 1], dst[q + 2], dst[q + 3], sx, sy, sz,
+				dst, base);
+	}
+	/**
+	 * Returns the last key in [first, last] whose time is not after t, or
+	 * first if there is none.<br>
+	 * The hint, the key after it and the key before it are checked before
+	 * searching.
+	 */
+	private static int FindKey(float[] times, int first, int last, int hint, float t) {
+		int lo;
+		int hi;
+		if (t >= times[hint]) {
+			if (hint == last || t < times[hint + 1]) {
+				return hint;
+			}
+			if (hint + 1 == last || t < times[hint + 2]) {
+				return hint + 1;
+			}
+			lo = hint + 2;
+			hi = last;
+		} else {
+			if (!(t >= times[first])) {
+				return first;
+			}
+			// hint > first here, since t >= times[first] and t < times[hint].
+			if (t >= times[hint - 1]) {
+				return hint - 1;
+			}
+			lo = first;
+			hi = hint - 2;
+		}
+
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (times[mid] <= t) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.dabasan.basis.animation;
+
+import com.github.dabasan.basis.parallel.BatchTiming;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+
+/**
+ * Skins large vertex buffers in parallel.<br>
+ * Each method splits the vertices across the threads of its ParallelRunner,
+ * skins them with SkinningFunctions and returns the timing of the batch.
+ * 
+ * @author Daba
+ *
+ */
+public class Skinner {
+	private final ParallelRunner runner;
+
+	/**
+	 * Uses the common ForkJoinPool.
+	 */
+	public Skinner() {
+		this(new ParallelRunner());
+	}
+	public Skinner(ParallelRunner runner) {
+		this.runner = runner;
+	}
+
+	public ParallelRunner GetRunner() {
+		return runner;
+	}
+
+	/**
+	 * Skins all vertices.
+	 * 
+	 * @param palette
+	 *            Bone palette (16 floats per bone)
+	 * @param bone_indices
+	 *            Bone indices (influence_count per vertex)
+	 * @param weights
+	 *            Weights (influence_count per vertex, summing to 1)
+	 * @param influence_count
+	 *            Number of influences per vertex
+	 * @param positions
+	 *            Bind-pose positions
+	 * @param normals
+	 *            Bind-pose normals (null to skip normals)
+	 * @param dst_positions
+	 *            Destination positions (may be positions)
+	 * @param dst_normals
+	 *            Destination normals (may be normals, ignored if normals is
+	 *            null)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Skin(float[] palette, int[] bone_indices, float[] weights,
+			int influence_count, float[] positions, float[] normals, float[] dst_positions,
+			float[] dst_normals) {
+		return runner.Run(0, positions.length / 3,
+				(from, to) -> SkinningFunctions.Skin(palette, bone_indices, weights,
+						influence_count, positions, normals, dst_positions, dst_normals, from, to));
+	}
+}
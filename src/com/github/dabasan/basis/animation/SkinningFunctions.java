@@ -0,0 +1,169 @@
+package com.github.dabasan.basis.animation;
+
+import com.github.dabasan.basis.matrix.Matrix;
+
+/**
+ * Provides methods for linear blend skinning.<br>
+ * Bone palettes are packed as 16 floats per bone in row-major order (the
+ * layout written by AnimationSampler), and only their upper three rows are
+ * read. Positions and normals are packed as (x, y, z) per vertex. Each vertex
+ * has the same number of influences, stored consecutively in the index and
+ * weight arrays; unused influences should have a weight of 0 and any valid
+ * bone index.<br>
+ * The weighted bone matrices are blended first, and the blended matrix
+ * transforms the position and the normal. Normals are transformed with the
+ * blended 3x3 part and renormalized, which is exact for bones without
+ * non-uniform scaling.
+ * 
+ * @author Daba
+ *
+ */
+public class SkinningFunctions {
+	/**
+	 * Packs bone matrices into a palette.
+	 * 
+	 * @param bones
+	 *            Bone matrices
+	 * @param dst
+	 *            Destination palette (16 floats per bone)
+	 * @return dst
+	 */
+	public static float[] PackPalette(Matrix[] bones, float[] dst) {
+		for (int i = 0; i < bones.length; i++) {
+			bones[i].GetValues(dst, i * 16);
+		}
+		return dst;
+	}
+
+	/**
+	 * Skins vertices.
+	 * 
+	 * @param palette
+	 *            Bone palette (16 floats per bone)
+	 * @param bone_indices
+	 *            Bone indices (influence_count per vertex)
+	 * @param weights
+	 *            Weights (influence_count per vertex, summing to 1)
+	 * @param influence_count
+	 *            Number of influences per vertex
+	 * @param positions
+	 *            Bind-pose positions
+	 * @param normals
+	 *            Bind-pose normals (null to skip normals)
+	 * @param dst_positions
+	 *            Destination positions (may be positions)
+	 * @param dst_normals
+	 *            Destination normals (may be normals, ignored if normals is
+	 *            null)
+	 * @param from
+	 *            First vertex (inclusive)
+	 * @param to
+	 *            Last vertex (exclusive)
+	 */
+	public static void Skin(float[] palette, int[] bone_indices, float[] weights,
+			int influence_count, float[] positions, float[] normals, float[] dst_positions,
+			float[] dst_normals, int from, int to) {
+		if (influence_count < 1) {
+			throw new IllegalArgumentException("influence_count must be at least 1.");
+		}
+
+		float m0;
+		float m1;
+		float m2;
+		float m3;
+		float m4;
+		float m5;
+		float m6;
+		float m7;
+		float m8;
+		float m9;
+		float m10;
+		float m11;
+		for (int v = from; v < to; v++) {
+			// Blended upper three rows of the bone matrices
+			int influence = v * influence_count;
+			int bone = bone_indices[influence] * 16;
+			float w = weights[influence];
+			m0 = w * palette[bone];
+			m1 = w * palette[bone + 1];
+			m2 = w * palette[bone + 2];
+			m3 = w * palette[bone + 3];
+			m4 = w * palette[bone + 4];
+			m5 = w * palette[bone + 5];
+			m6 = w * palette[bone + 6];
+			m7 = w * palette[bone + 7];
+			m8 = w * palette[bone + 8];
+			m9 = w * palette[bone + 9];
+			m10 = w * palette[bone + 10];
+			m11 = w * palette[bone + 11];
+			for (int j = 1; j < influence_count; j++) {
+				influence++;
+				bone = bone_indices[influence] * 16;
+				w = weights[influence];
+				m0 += w * palette[bone];
+				m1 += w * palette[bone + 1];
+				m2 += w * palette[bone + 2];
+				m3 += w * palette[bone + 3];
+				m4 += w * palette[bone + 4];
+				m5 += w * palette[bone + 5];
+				m6 += w * palette[bone + 6];
+				m7 += w * palette[bone + 7];
+				m8 += w * palette[bone + 8];
+				m9 += w * palette[bone + 9];
+				m10 += w * palette[bone + 10];
+				m11 += w * palette[bone + 11];
+			}
+
+			final int base = v * 3;
+			final float px = positions[base];
+			final float py = positions[base + 1];
+			final float pz = positions[base + 2];
+			dst_positions[base] = m0 * px + m1 * py + m2 * pz + m3;
+			dst_positions[base + 1] = m4 * px + m5 * py + m6 * pz + m7;
+			dst_positions[base + 2] = m8 * px + m9 * py + m10 * pz + m11;
+
+			if (normals != null) {
+				final float nx = normals[base];
+				final float ny = normals[base + 1];
+				final float nz = normals[base + 2];
+				final float x = m0 * nx + m1 * ny + m2 * nz;
+				final float y = m4 * nx + m5 * ny + m6 * nz;
+				final float z = m8 * nx + m9 * ny + m10 * nz;
+				final float square_size = x * x + y * y + z * z;
+				final float rec_size = square_size > 0.0f
+						? 1.0f / (float) Math.sqrt(square_size)
+						: 0.0f;
+				dst_normals[base] = x * rec_size;
+				dst_normals[base + 1] = y * rec_size;
+				dst_normals[base + 2] = z * rec_size;
+			}
+		}
+	}
+	/**
+	 * Skins all vertices.
+	 * 
+	 * @param palette
+	 *            Bone palette (16 floats per bone)
+	 * @param bone_indices
+	 *            Bone indices (influence_count per vertex)
+	 * @param weights
+	 *            Weights (influence_count per vertex, summing to 1)
+	 * @param influence_count
+	 *            Number of influences per vertex
+	 * @param positions
+	 *            Bind-pose positions
+	 * @param normals
+	 *            Bind-pose normals (null to skip normals)
+	 * @param dst_positions
+	 *            Destination positions (may be positions)
+	 * @param dst_normals
+	 *            Destination normals (may be normals, ignored if normals is
+	 *            null)
+	 */
+	public static void Skin(float[] palette, int[] bone_indices, float[] weights,
+			int influence_count, float[] positions, float[] normals, float[] dst_positions,
+			float[] dst_normals) {
+		SkinningFunctions.Skin(palette, bone_indices, weights, influence_count, positions, normals,
+				dst_positions, dst_normals, 0, positions.length / 3);
+	}
+}
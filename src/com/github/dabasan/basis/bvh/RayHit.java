@@ -0,0 +1,58 @@
+package com.github.dabasan.basis.bvh;
+
+/**
+ * Result of a ray query<br>
+ * The hit point is origin+distance*direction, and also
+ * (1-u-v)*v0+u*v1+v*v2 in terms of the triangle vertices.
+ * 
+ * @author Daba
+ *
+ */
+public class RayHit {
+	private int triangle;
+	private float distance;
+	private float u;
+	private float v;
+
+	public RayHit() {
+		triangle = -1;
+		distance = Float.POSITIVE_INFINITY;
+		u = 0.0f;
+		v = 0.0f;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + triangle + "," + distance + "," + u + "," + v + ")";
+	}
+
+	void Set(int triangle, float distance, float u, float v) {
+		this.triangle = triangle;
+		this.distance = distance;
+		this.u = u;
+		this.v = v;
+	}
+
+	/**
+	 * Returns the index of the hit triangle.
+	 * 
+	 * @return Triangle index, or -1 if nothing was hit
+	 */
+	public int GetTriangle() {
+		return triangle;
+	}
+	/**
+	 * Returns the ray parameter of the hit point.
+	 * 
+	 * @return Distance in units of the ray direction
+	 */
+	public float GetDistance() {
+		return distance;
+	}
+	public float GetU() {
+		return u;
+	}
+	public float GetV() {
+		return v;
+	}
+}
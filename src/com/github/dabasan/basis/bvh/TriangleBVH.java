@@ -0,0 +1,841 @@
+package com.github.dabasan.basis.bvh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.dabasan.basis.parallel.ParallelRunner;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorArray;
+
+/**
+ * Bounding volume hierarchy over a triangle soup<br>
+ * Triangle t consists of vertices 3t, 3t+1 and 3t+2. The tree is built with
+ * the binned surface area heuristic and stored in flat arrays. Children of an
+ * interior node are adjacent and are stored after their parent. A leaf
+ * refers to a range of a triangle index array.<br>
+ * The vertex array is referenced, not copied. After moving vertices, call
+ * Refit() to update the bounds while keeping the tree topology.
+ * 
+ * @author Daba
+ *
+ */
+public class TriangleBVH {
+	private static final int BIN_COUNT = 16;
+	private static final int MAX_LEAF_SIZE = 8;
+	private static final int MIN_PARALLEL_BUILD_SIZE = 4096;
+	private static final float RAY_EPSILON = 1.0E-7f;
+
+	private final VectorArray vertices;
+	private final int triangle_count;
+
+	// Bounds and centroids of triangles
+	private final float[] tri_min_xs;
+	private final float[] tri_min_ys;
+	private final float[] tri_min_zs;
+	private final float[] tri_max_xs;
+	private final float[] tri_max_ys;
+	private final float[] tri_max_zs;
+	private final float[] tri_cxs;
+	private final float[] tri_cys;
+	private final float[] tri_czs;
+
+	private final int[] tri_indices;
+
+	// (min x, min y, min z, max x, max y, max z) per node
+	private float[] node_bounds;
+	// First child of interior nodes, or first position in tri_indices of leaves
+	private int[] node_firsts;
+	// Number of triangles of leaves, or 0 for interior nodes
+	private int[] node_counts;
+	private int node_count;
+	private int max_depth;
+
+	private final ThreadLocal<TraversalStack> stacks;
+
+	/**
+	 * Builds a hierarchy sequentially.
+	 * 
+	 * @param vertices
+	 *            Vertices, three per triangle
+	 */
+	public TriangleBVH(VectorArray vertices) {
+		this(vertices, null);
+	}
+	/**
+	 * Builds a hierarchy.<br>
+	 * With a runner, triangle bounds are computed in parallel and subtrees
+	 * below the top levels are built in parallel.
+	 * 
+	 * @param vertices
+	 *            Vertices, three per triangle
+	 * @param runner
+	 *            Runner, or null to build sequentially
+	 */
+	public TriangleBVH(VectorArray vertices, ParallelRunner runner) {
+		if (vertices.GetSize() % 3 != 0) {
+			throw new IllegalArgumentException("Number of vertices must be a multiple of 3.");
+		}
+
+		this.vertices = vertices;
+		triangle_count = vertices.GetSize() / 3;
+
+		tri_min_xs = new float[triangle_count];
+		tri_min_ys = new float[triangle_count];
+		tri_min_zs = new float[triangle_count];
+		tri_max_xs = new float[triangle_count];
+		tri_max_ys = new float[triangle_count];
+		tri_max_zs = new float[triangle_count];
+		tri_cxs = new float[triangle_count];
+		tri_cys = new float[triangle_count];
+		tri_czs = new float[triangle_count];
+
+		tri_indices = new int[triangle_count];
+		for (int i = 0; i < triangle_count; i++) {
+			tri_indices[i] = i;
+		}
+
+		stacks = ThreadLocal.withInitial(() -> new TraversalStack(max_depth + 2));
+
+		this.Build(runner);
+	}
+	/**
+	 * Copies vertices and builds a hierarchy sequentially.
+	 * 
+	 * @param vertices
+	 *            Vertices, three per triangle
+	 */
+	public TriangleBVH(Vector[] vertices) {
+		this(new VectorArray(vertices), null);
+	}
+
+	public VectorArray GetVertices() {
+		return vertices;
+	}
+	public int GetTriangleCount() {
+		return triangle_count;
+	}
+	public int GetNodeCount() {
+		return node_count;
+	}
+	public int GetMaxDepth() {
+		return max_depth;
+	}
+
+	private void ComputeTriangleBounds(int from, int to) {
+		final float[] xs = vertices.GetXArray();
+		final float[] ys = vertices.GetYArray();
+		final float[] zs = vertices.GetZArray();
+
+		for (int t = from; t < to; t++) {
+			final int v = t * 3;
+			tri_min_xs[t] = Math.min(xs[v], Math.min(xs[v + 1], xs[v + 2]));
+			tri_min_ys[t] = Math.min(ys[v], Math.min(ys[v + 1], ys[v + 2]));
+			tri_min_zs[t] = Math.min(zs[v], Math.min(zs[v + 1], zs[v + 2]));
+			tri_max_xs[t] = Math.max(xs[v], Math.max(xs[v + 1], xs[v + 2]));
+			tri_max_ys[t] = Math.max(ys[v], Math.max(ys[v + 1], ys[v + 2]));
+			tri_max_zs[t] = Math.max(zs[v], Math.max(zs[v + 1], zs[v + 2]));
+			tri_cxs[t] = (tri_min_xs[t] + tri_max_xs[t]) * 0.5f;
+			tri_cys[t] = (tri_min_ys[t] + tri_max_ys[t]) * 0.5f;
+			tri_czs[t] = (tri_min_zs[t] + tri_max_zs[t]) * 0.5f;
+		}
+	}
+
+	private void Build(ParallelRunner runner) {
+		if (runner != null) {
+			runner.Run(0, triangle_count, this::ComputeTriangleBounds);
+		} else {
+			this.ComputeTriangleBounds(0, triangle_count);
+		}
+
+		final NodeList nodes = new NodeList(Math.max(1, triangle_count * 2 - 1));
+		final int root = nodes.Allocate(1);
+
+		if (runner == null || runner.GetParallelism() == 1
+				|| triangle_count <= MIN_PARALLEL_BUILD_SIZE) {
+			final Builder builder = new Builder(nodes, 0);
+			builder.Build(root, 0, triangle_count, 0);
+			max_depth = builder.max_depth;
+		} else {
+			// Build the top levels here and leave the subtrees below them as jobs.
+			final int job_size = Math.max(MIN_PARALLEL_BUILD_SIZE,
+					triangle_count / (runner.GetParallelism() * 4));
+			final Builder top = new Builder(nodes, job_size);
+			top.Build(root, 0, triangle_count, 0);
+
+			final List<int[]> jobs = top.jobs;
+			final NodeList[] results = new NodeList[jobs.size()];
+			final int[] depths = new int[jobs.size()];
+			runner.Run(0, jobs.size(), 1, (from, to) -> {
+				for (int j = from; j < to; j++) {
+					final int[] job = jobs.get(j);
+					final NodeList sub_nodes = new NodeList(job[2] * 2 - 1);
+					final Builder builder = new Builder(sub_nodes, 0);
+					builder.Build(sub_nodes.Allocate(1), job[1], job[2], job[3]);
+					results[j] = sub_nodes;
+					depths[j] = builder.max_depth;
+				}
+			});
+
+			max_depth = top.max_depth;
+			for (int j = 0; j < results.length; j++) {
+				nodes.Merge(jobs.get(j)[0], results[j]);
+				max_depth = Math.max(max_depth, depths[j]);
+			}
+		}
+
+		node_bounds = nodes.bounds;
+		node_firsts = nodes.firsts;
+		node_counts = nodes.counts;
+		node_count = nodes.size;
+	}
+
+	/**
+	 * Recomputes bounds after vertices have moved.<br>
+	 * The topology is kept, so queries stay correct but may become slower if
+	 * the vertices have moved far. Rebuild in that case.
+	 */
+	public void Refit() {
+		this.Refit(null);
+	}
+	/**
+	 * Recomputes bounds after vertices have moved.
+	 * 
+	 * @param runner
+	 *            Runner used to compute triangle bounds, or null
+	 */
+	public void Refit(ParallelRunner runner) {
+		if (runner != null) {
+			runner.Run(0, triangle_count, this::ComputeTriangleBounds);
+		} else {
+			this.ComputeTriangleBounds(0, triangle_count);
+		}
+
+		// Children are stored after their parents.
+		for (int n = node_count - 1; n >= 0; n--) {
+			final int o = n * 6;
+			final int count = node_counts[n];
+			if (count > 0) {
+				float min_x = Float.POSITIVE_INFINITY;
+				float min_y = Float.POSITIVE_INFINITY;
+				float min_z = Float.POSITIVE_INFINITY;
+				float max_x = Float.NEGATIVE_INFINITY;
+				float max_y = Float.NEGATIVE_INFINITY;
+				float max_z = Float.NEGATIVE_INFINITY;
+				final int first = node_firsts[n];
+				for (int i = first; i < first + count; i++) {
+					final int t = tri_indices[i];
+					min_x = Math.min(min_x, tri_min_xs[t]);
+					min_y = Math.min(min_y, tri_min_ys[t]);
+					min_z = Math.min(min_z, tri_min_zs[t]);
+					max_x = Math.max(max_x, tri_max_xs[t]);
+					max_y = Math.max(max_y, tri_max_ys[t]);
+					max_z = Math.max(max_z, tri_max_zs[t]);
+				}
+				node_bounds[o] = min_x;
+				node_bounds[o + 1] = min_y;
+				node_bounds[o + 2] = min_z;
+				node_bounds[o + 3] = max_x;
+				node_bounds[o + 4] = max_y;
+				node_bounds[o + 5] = max_z;
+			} else if (node_count > 1) {
+				final int l = node_firsts[n] * 6;
+				final int r = l + 6;
+				node_bounds[o] = Math.min(node_bounds[l], node_bounds[r]);
+				node_bounds[o + 1] = Math.min(node_bounds[l + 1], node_bounds[r + 1]);
+				node_bounds[o + 2] = Math.min(node_bounds[l + 2], node_bounds[r + 2]);
+				node_bounds[o + 3] = Math.max(node_bounds[l + 3], node_bounds[r + 3]);
+				node_bounds[o + 4] = Math.max(node_bounds[l + 4], node_bounds[r + 4]);
+				node_bounds[o + 5] = Math.max(node_bounds[l + 5], node_bounds[r + 5]);
+			}
+		}
+	}
+
+	/**
+	 * Finds the nearest triangle hit by a ray.<br>
+	 * Triangles are hit from both sides.
+	 * 
+	 * @param origin
+	 *            Origin of the ray
+	 * @param direction
+	 *            Direction of the ray (need not be normalized)
+	 * @param max_distance
+	 *            Maximum ray parameter
+	 * @param hit
+	 *            Destination of the result, left unchanged if nothing is hit
+	 * @return True if a triangle is hit
+	 */
+	public boolean IntersectRay(Vector origin, Vector direction, float max_distance, RayHit hit) {
+		return this.Traverse(origin, direction, max_distance, hit);
+	}
+	/**
+	 * Tests whether a ray hits any triangle.<br>
+	 * Stops at the first hit found, which is not necessarily the nearest.
+	 * 
+	 * @param origin
+	 *            Origin of the ray
+	 * @param direction
+	 *            Direction of the ray (need not be normalized)
+	 * @param max_distance
+	 *            Maximum ray parameter
+	 * @return True if a triangle is hit
+	 */
+	public boolean IntersectRayAny(Vector origin, Vector direction, float max_distance) {
+		return this.Traverse(origin, direction, max_distance, null);
+	}
+	private boolean Traverse(Vector origin, Vector direction, float max_distance, RayHit hit) {
+		if (triangle_count == 0) {
+			return false;
+		}
+
+		final float ox = origin.GetX();
+		final float oy = origin.GetY();
+		final float oz = origin.GetZ();
+		final float dx = direction.GetX();
+		final float dy = direction.GetY();
+		final float dz = direction.GetZ();
+		final float idx = 1.0f / dx;
+		final float idy = 1.0f / dy;
+		final float idz = 1.0f / dz;
+
+		final float[] xs = vertices.GetXArray();
+		final float[] ys = vertices.GetYArray();
+		final float[] zs = vertices.GetZArray();
+
+		float best_t = max_distance;
+		int best_tri = -1;
+		float best_u = 0.0f;
+		float best_v = 0.0f;
+
+		final TraversalStack stack = stacks.get();
+		final int[] stack_nodes = stack.nodes;
+		final float[] stack_dists = stack.dists;
+		int sp = 0;
+
+		final float root_t = this.IntersectBox(0, ox, oy, oz, idx, idy, idz, best_t);
+		if (root_t == Float.POSITIVE_INFINITY) {
+			return false;
+		}
+		stack_nodes[sp] = 0;
+		stack_dists[sp] = root_t;
+		sp++;
+
+		while (sp > 0) {
+			sp--;
+			if (stack_dists[sp] > best_t) {
+				continue;
+			}
+
+			final int n = stack_nodes[sp];
+			final int count = node_counts[n];
+			if (count > 0) {
+				final int first = node_firsts[n];
+				for (int i = first; i < first + count; i++) {
+					final int t = tri_indices[i];
+					final int v = t * 3;
+
+					// Moller-Trumbore
+					final float e1x = xs[v + 1] - xs[v];
+					final float e1y = ys[v + 1] - ys[v];
+					final float e1z = zs[v + 1] - zs[v];
+					final float e2x = xs[v + 2] - xs[v];
+					final float e2y = ys[v + 2] - ys[v];
+					final float e2z = zs[v + 2] - zs[v];
+					final float px = dy * e2z - dz * e2y;
+					final float py = dz * e2x - dx * e2z;
+					final float pz = dx * e2y - dy * e2x;
+					final float det = e1x * px + e1y * py + e1z * pz;
+					if (det > -RAY_EPSILON && det < RAY_EPSILON) {
+						continue;
+					}
+
+					final float rec_det = 1.0f / det;
+					final float sx = ox - xs[v];
+					final float sy = oy - ys[v];
+					final float sz = oz - zs[v];
+					final float u = (sx * px + sy * py + sz * pz) * rec_det;
+					if (u < 0.0f || u > 1.0f) {
+						continue;
+					}
+
+					final float qx = sy * e1z - sz * e1y;
+					final float qy = sz * e1x - sx * e1z;
+					final float qz = sx * e1y - sy * e1x;
+					final float w = (dx * qx + dy * qy + dz * qz) * rec_det;
+					if (w < 0.0f || u + w > 1.0f) {
+						continue;
+					}
+
+					final float dist = (e2x * qx + e2y * qy + e2z * qz) * rec_det;
+					if (dist >= 0.0f && dist <= best_t) {
+						if (hit == null) {
+							return true;
+						}
+
+						best_t = dist;
+						best_tri = t;
+						best_u = u;
+						best_v = w;
+					}
+				}
+			} else {
+				final int l = node_firsts[n];
+				final int r = l + 1;
+				final float tl = this.IntersectBox(l, ox, oy, oz, idx, idy, idz, best_t);
+				final float tr = this.IntersectBox(r, ox, oy, oz, idx, idy, idz, best_t);
+
+				// Push the farther child first so that the nearer one is visited first.
+				if (tl <= tr) {
+					if (tr != Float.POSITIVE_INFINITY) {
+						stack_nodes[sp] = r;
+						stack_dists[sp] = tr;
+						sp++;
+					}
+					if (tl != Float.POSITIVE_INFINITY) {
+						stack_nodes[sp] = l;
+						stack_dists[sp] = tl;
+						sp++;
+					}
+				} else {
+					if (tl != Float.POSITIVE_INFINITY) {
+						stack_nodes[sp] = l;
+						stack_dists[sp] = tl;
+						sp++;
+					}
+					stack_nodes[sp] = r;
+					stack_dists[sp] = tr;
+					sp++;
+				}
+			}
+		}
+
+		if (best_tri < 0) {
+			return false;
+		}
+
+		hit.Set(best_tri, best_t, best_u, best_v);
+		return true;
+	}
+	/**
+	 * Slab test against node bounds.
+	 * 
+	 * @return Entry distance, or positive infinity if the ray misses the box
+	 *         within [0, max_t]
+	 */
+	private float IntersectBox(int node, float ox, float oy, float oz, float idx, float idy,
+			float idz, float max_t) {
+		final float[] b = node_bounds;
+		final int o = node * 6;
+
+		final float tx1 = (b[o] - ox) * idx;
+		final float tx2 = (b[o + 3] - ox) * idx;
+		float t_min = Math.min(tx1, tx2);
+		float t_max = Math.max(tx1, tx2);
+
+		final float ty1 = (b[o + 1] - oy) * idy;
+		final float ty2 = (b[o + 4] - oy) * idy;
+		t_min = Math.max(t_min, Math.min(ty1, ty2));
+		t_max = Math.min(t_max, Math.max(ty1, ty2));
+
+		final float tz1 = (b[o + 2] - oz) * idz;
+		final float tz2 = (b[o + 5] - oz) * idz;
+		t_min = Math.max(t_min, Math.min(tz1, tz2));
+		t_max = Math.min(t_max, Math.max(tz1, tz2));
+
+		t_min = Math.max(t_min, 0.0f);
+		if (t_max < t_min || t_min > max_t) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		return t_min;
+	}
+
+	/**
+	 * Finds triangles whose bounding boxes overlap a box.
+	 * 
+	 * @param min
+	 *            Minimum corner of the box
+	 * @param max
+	 *            Maximum corner of the box
+	 * @param dst
+	 *            Destination of triangle indices, filled up to its length
+	 * @return Number of triangles found, which may exceed the length of dst
+	 */
+	public int QueryAABB(Vector min, Vector max, int[] dst) {
+		return this.Query(min.GetX(), min.GetY(), min.GetZ(), max.GetX(), max.GetY(), max.GetZ(),
+				0.0f, 0.0f, 0.0f, -1.0f, dst);
+	}
+	/**
+	 * Finds triangles whose bounding boxes overlap a sphere.
+	 * 
+	 * @param center
+	 *            Center of the sphere
+	 * @param radius
+	 *            Radius of the sphere
+	 * @param dst
+	 *            Destination of triangle indices, filled up to its length
+	 * @return Number of triangles found, which may exceed the length of dst
+	 */
+	public int QuerySphere(Vector center, float radius, int[] dst) {
+		final float cx = center.GetX();
+		final float cy = center.GetY();
+		final float cz = center.GetZ();
+
+		return this.Query(cx - radius, cy - radius, cz - radius, cx + radius, cy + radius,
+				cz + radius, cx, cy, cz, radius * radius, dst);
+	}
+	/**
+	 * Range query with a box, optionally narrowed to a sphere when
+	 * sq_radius is not negative.
+	 */
+	private int Query(float min_x, float min_y, float min_z, float max_x, float max_y,
+			float max_z, float cx, float cy, float cz, float sq_radius, int[] dst) {
+		if (triangle_count == 0) {
+			return 0;
+		}
+
+		final int[] stack_nodes = stacks.get().nodes;
+		int sp = 0;
+		int count = 0;
+
+		stack_nodes[sp++] = 0;
+		while (sp > 0) {
+			final int n = stack_nodes[--sp];
+			final int o = n * 6;
+			if (!Overlaps(node_bounds[o], node_bounds[o + 1], node_bounds[o + 2],
+					node_bounds[o + 3], node_bounds[o + 4], node_bounds[o + 5], min_x, min_y,
+					min_z, max_x, max_y, max_z, cx, cy, cz, sq_radius)) {
+				continue;
+			}
+
+			final int node_tri_count = node_counts[n];
+			if (node_tri_count > 0) {
+				final int first = node_firsts[n];
+				for (int i = first; i < first + node_tri_count; i++) {
+					final int t = tri_indices[i];
+					if (Overlaps(tri_min_xs[t], tri_min_ys[t], tri_min_zs[t], tri_max_xs[t],
+							tri_max_ys[t], tri_max_zs[t], min_x, min_y, min_z, max_x, max_y,
+							max_z, cx, cy, cz, sq_radius)) {
+						if (count < dst.length) {
+							dst[count] = t;
+						}
+						count++;
+					}
+				}
+			} else {
+				stack_nodes[sp++] = node_firsts[n] + 1;
+				stack_nodes[sp++] = node_firsts[n];
+			}
+		}
+
+		return count;
+	}
+	private static boolean Overlaps(float a_min_x, float a_min_y, float a_min_z, float a_max_x,
+			float a_max_y, float a_max_z, float min_x, float min_y, float min_z, float max_x,
+			float max_y, float max_z, float cx, float cy, float cz, float sq_radius) {
+		if (a_max_x < min_x || a_min_x > max_x || a_max_y < min_y || a_min_y > max_y
+				|| a_max_z < min_z || a_min_z > max_z) {
+			return false;
+		}
+		if (sq_radius < 0.0f) {
+			return true;
+		}
+
+		// Squared distance from the sphere center to the box
+		final float ex = Math.max(0.0f, Math.max(a_min_x - cx, cx - a_max_x));
+		final float ey = Math.max(0.0f, Math.max(a_min_y - cy, cy - a_max_y));
+		final float ez = Math.max(0.0f, Math.max(a_min_z - cz, cz - a_max_z));
+
+		return ex * ex + ey * ey + ez * ez <= sq_radius;
+	}
+
+	private class Builder {
+		private final NodeList nodes;
+		private final int job_size;
+		final List<int[]> jobs;
+		int max_depth;
+
+		private final int[] bin_counts;
+		private final float[] bin_bounds;
+		private final float[] right_areas;
+		private final int[] right_counts;
+
+		/**
+		 * @param nodes
+		 *            Destination of nodes
+		 * @param job_size
+		 *            Ranges no larger than this are left as jobs, or 0 to build
+		 *            the whole tree
+		 */
+		public Builder(NodeList nodes, int job_size) {
+			this.nodes = nodes;
+			this.job_size = job_size;
+			jobs = new ArrayList<>();
+			max_depth = 0;
+
+			bin_counts = new int[BIN_COUNT];
+			bin_bounds = new float[BIN_COUNT * 6];
+			right_areas = new float[BIN_COUNT];
+			right_counts = new int[BIN_COUNT];
+		}
+
+		public void Build(int node, int first, int count, int depth) {
+			max_depth = Math.max(max_depth, depth);
+
+			float min_x = Float.POSITIVE_INFINITY;
+			float min_y = Float.POSITIVE_INFINITY;
+			float min_z = Float.POSITIVE_INFINITY;
+			float max_x = Float.NEGATIVE_INFINITY;
+			float max_y = Float.NEGATIVE_INFINITY;
+			float max_z = Float.NEGATIVE_INFINITY;
+			float c_min_x = Float.POSITIVE_INFINITY;
+			float c_min_y = Float.POSITIVE_INFINITY;
+			float c_min_z = Float.POSITIVE_INFINITY;
+			float c_max_x = Float.NEGATIVE_INFINITY;
+			float c_max_y = Float.NEGATIVE_INFINITY;
+			float c_max_z = Float.NEGATIVE_INFINITY;
+			for (int i = first; i < first + count; i++) {
+				final int t = tri_indices[i];
+				min_x = Math.min(min_x, tri_min_xs[t]);
+				min_y = Math.min(min_y, tri_min_ys[t]);
+				min_z = Math.min(min_z, tri_min_zs[t]);
+				max_x = Math.max(max_x, tri_max_xs[t]);
+				max_y = Math.max(max_y, tri_max_ys[t]);
+				max_z = Math.max(max_z, tri_max_zs[t]);
+				c_min_x = Math.min(c_min_x, tri_cxs[t]);
+				c_min_y = Math.min(c_min_y, tri_cys[t]);
+				c_min_z = Math.min(c_min_z, tri_czs[t]);
+				c_max_x = Math.max(c_max_x, tri_cxs[t]);
+				c_max_y = Math.max(c_max_y, tri_cys[t]);
+				c_max_z = Math.max(c_max_z, tri_czs[t]);
+			}
+			nodes.SetBounds(node, min_x, min_y, min_z, max_x, max_y, max_z);
+
+			if (count <= 2) {
+				nodes.SetLeaf(node, first, count);
+				return;
+			}
+			if (count <= job_size) {
+				nodes.SetLeaf(node, first, count);
+				jobs.add(new int[] { node, first, count, depth });
+				return;
+			}
+
+			// Find the cheapest split over all axes.
+			final float parent_area = HalfArea(max_x - min_x, max_y - min_y, max_z - min_z);
+			float best_cost = Float.POSITIVE_INFINITY;
+			int best_axis = -1;
+			int best_split = 0;
+			for (int axis = 0; axis < 3; axis++) {
+				final float c_min = axis == 0 ? c_min_x : axis == 1 ? c_min_y : c_min_z;
+				final float c_max = axis == 0 ? c_max_x : axis == 1 ? c_max_y : c_max_z;
+				if (c_max <= c_min) {
+					continue;
+				}
+
+				this.FillBins(first, count, axis, c_min, BIN_COUNT / (c_max - c_min));
+
+				float r_min_x = Float.POSITIVE_INFINITY;
+				float r_min_y = Float.POSITIVE_INFINITY;
+				float r_min_z = Float.POSITIVE_INFINITY;
+				float r_max_x = Float.NEGATIVE_INFINITY;
+				float r_max_y = Float.NEGATIVE_INFINITY;
+				float r_max_z = Float.NEGATIVE_INFINITY;
+				int r_count = 0;
+				for (int b = BIN_COUNT - 1; b > 0; b--) {
+					final int o = b * 6;
+					r_min_x = Math.min(r_min_x, bin_bounds[o]);
+					r_min_y = Math.min(r_min_y, bin_bounds[o + 1]);
+					r_min_z = Math.min(r_min_z, bin_bounds[o + 2]);
+					r_max_x = Math.max(r_max_x, bin_bounds[o + 3]);
+					r_max_y = Math.max(r_max_y, bin_bounds[o + 4]);
+					r_max_z = Math.max(r_max_z, bin_bounds[o + 5]);
+					r_count += bin_counts[b];
+					right_counts[b] = r_count;
+					right_areas[b] = r_count == 0 ? 0.0f
+							: HalfArea(r_max_x - r_min_x, r_max_y - r_min_y, r_max_z - r_min_z);
+				}
+
+				float l_min_x = Float.POSITIVE_INFINITY;
+				float l_min_y = Float.POSITIVE_INFINITY;
+				float l_min_z = Float.POSITIVE_INFINITY;
+				float l_max_x = Float.NEGATIVE_INFINITY;
+				float l_max_y = Float.NEGATIVE_INFINITY;
+				float l_max_z = Float.NEGATIVE_INFINITY;
+				int l_count = 0;
+				for (int b = 0; b < BIN_COUNT - 1; b++) {
+					final int o = b * 6;
+					l_min_x = Math.min(l_min_x, bin_bounds[o]);
+					l_min_y = Math.min(l_min_y, bin_bounds[o + 1]);
+					l_min_z = Math.min(l_min_z, bin_bounds[o + 2]);
+					l_max_x = Math.max(l_max_x, bin_bounds[o + 3]);
+					l_max_y = Math.max(l_max_y, bin_bounds[o + 4]);
+					l_max_z = Math.max(l_max_z, bin_bounds[o + 5]);
+					l_count += bin_counts[b];
+
+					final int r = right_counts[b + 1];
+					if (l_count == 0 || r == 0) {
+						continue;
+					}
+
+					final float l_area = HalfArea(l_max_x - l_min_x, l_max_y - l_min_y,
+							l_max_z - l_min_z);
+					final float cost = (l_area * l_count + right_areas[b + 1] * r) / parent_area;
+					if (cost < best_cost) {
+						best_cost = cost;
+						best_axis = axis;
+						best_split = b + 1;
+					}
+				}
+			}
+
+			int mid;
+			if (best_axis < 0) {
+				// All centroids coincide, so any split is as good as another.
+				if (count <= MAX_LEAF_SIZE) {
+					nodes.SetLeaf(node, first, count);
+					return;
+				}
+				mid = first + count / 2;
+			} else {
+				// Traversal cost of 1 relative to one triangle test
+				if (best_cost + 1.0f >= count && count <= MAX_LEAF_SIZE) {
+					nodes.SetLeaf(node, first, count);
+					return;
+				}
+
+				final float c_min = best_axis == 0 ? c_min_x : best_axis == 1 ? c_min_y : c_min_z;
+				final float c_max = best_axis == 0 ? c_max_x : best_axis == 1 ? c_max_y : c_max_z;
+				final float scale = BIN_COUNT / (c_max - c_min);
+				final float[] cs = best_axis == 0 ? tri_cxs : best_axis == 1 ? tri_cys : tri_czs;
+
+				int i = first;
+				int j = first + count - 1;
+				while (i <= j) {
+					if (Bin(cs[tri_indices[i]], c_min, scale) < best_split) {
+						i++;
+					} else {
+						final int tmp = tri_indices[i];
+						tri_indices[i] = tri_indices[j];
+						tri_indices[j] = tmp;
+						j--;
+					}
+				}
+				mid = i;
+			}
+
+			final int left = nodes.Allocate(2);
+			nodes.SetInterior(node, left);
+			this.Build(left, first, mid - first, depth + 1);
+			this.Build(left + 1, mid, first + count - mid, depth + 1);
+		}
+		private void FillBins(int first, int count, int axis, float c_min, float scale) {
+			Arrays.fill(bin_counts, 0);
+			for (int b = 0; b < BIN_COUNT; b++) {
+				final int o = b * 6;
+				bin_bounds[o] = Float.POSITIVE_INFINITY;
+				bin_bounds[o + 1] = Float.POSITIVE_INFINITY;
+				bin_bounds[o + 2] = Float.POSITIVE_INFINITY;
+				bin_bounds[o + 3] = Float.NEGATIVE_INFINITY;
+				bin_bounds[o + 4] = Float.NEGATIVE_INFINITY;
+				bin_bounds[o + 5] = Float.NEGATIVE_INFINITY;
+			}
+
+			final float[] cs = axis == 0 ? tri_cxs : axis == 1 ? tri_cys : tri_czs;
+			for (int i = first; i < first + count; i++) {
+				final int t = tri_indices[i];
+				final int b = Bin(cs[t], c_min, scale);
+				final int o = b * 6;
+				bin_counts[b]++;
+				bin_bounds[o] = Math.min(bin_bounds[o], tri_min_xs[t]);
+				bin_bounds[o + 1] = Math.min(bin_bounds[o + 1], tri_min_ys[t]);
+				bin_bounds[o + 2] = Math.min(bin_bounds[o + 2], tri_min_zs[t]);
+				bin_bounds[o + 3] = Math.max(bin_bounds[o + 3], tri_max_xs[t]);
+				bin_bounds[o + 4] = Math.max(bin_bounds[o + 4], tri_max_ys[t]);
+				bin_bounds[o + 5] = Math.max(bin_bounds[o + 5], tri_max_zs[t]);
+			}
+		}
+	}
+	private static int Bin(float c, float c_min, float scale) {
+		return Math.min(BIN_COUNT - 1, (int) ((c - c_min) * scale));
+	}
+	private static float HalfArea(float ex, float ey, float ez) {
+		return ex * ey + ey * ez + ez * ex;
+	}
+
+	/**
+	 * Growable node storage used during a build
+	 */
+	private static class NodeList {
+		float[] bounds;
+		int[] firsts;
+		int[] counts;
+		int size;
+
+		public NodeList(int capacity) {
+			bounds = new float[capacity * 6];
+			firsts = new int[capacity];
+			counts = new int[capacity];
+			size = 0;
+		}
+
+		public int Allocate(int n) {
+			if (size + n > firsts.length) {
+				final int capacity = Math.max(size + n, firsts.length * 2);
+				bounds = Arrays.copyOf(bounds, capacity * 6);
+				firsts = Arrays.copyOf(firsts, capacity);
+				counts = Arrays.copyOf(counts, capacity);
+			}
+
+			final int index = size;
+			size += n;
+			return index;
+		}
+		public void SetBounds(int node, float min_x, float min_y, float min_z, float max_x,
+				float max_y, float max_z) {
+			final int o = node * 6;
+			bounds[o] = min_x;
+			bounds[o + 1] = min_y;
+			bounds[o + 2] = min_z;
+			bounds[o + 3] = max_x;
+			bounds[o + 4] = max_y;
+			bounds[o + 5] = max_z;
+		}
+		public void SetLeaf(int node, int first, int count) {
+			firsts[node] = first;
+			counts[node] = count;
+		}
+		public void SetInterior(int node, int first_child) {
+			firsts[node] = first_child;
+			counts[node] = 0;
+		}
+		/**
+		 * Replaces a node with the root of a subtree built separately and
+		 * appends the other nodes of the subtree.
+		 */
+		public void Merge(int node, NodeList sub) {
+			final int base = this.Allocate(sub.size - 1);
+
+			for (int k = 0; k < sub.size; k++) {
+				final int dst = k == 0 ? node : base + k - 1;
+				System.arraycopy(sub.bounds, k * 6, bounds, dst * 6, 6);
+				counts[dst] = sub.counts[k];
+				firsts[dst] = sub.counts[k] > 0 ? sub.firsts[k] : base + sub.firsts[k] - 1;
+			}
+		}
+	}
+
+	/**
+	 * Per-thread traversal stack
+	 */
+	private static class TraversalStack {
+		final int[] nodes;
+		final float[] dists;
+
+		public TraversalStack(int depth) {
+			// A visited node pushes at most two children, one of which is popped next.
+			nodes = new int[depth * 2 + 2];
+			dists = new float[depth * 2 + 2];
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package com.github.dabasan.basis.coloru8;
+
+/**
+ * Converts colors between sRGB and linear space.<br>
+ * 8-bit and 16-bit inputs are converted with precomputed tables, and float
+ * inputs with polynomial approximations. Alpha is never converted. Maximum
+ * errors against the exact formula:
+ * <ul>
+ * <li>SRGBToLinear(float): 1.0E-5</li>
+ * <li>LinearToSRGB(float): 1.0E-5</li>
+ * <li>Tables: exact (correctly rounded)</li>
+ * <li>LinearToSRGBU8(float): at most 1 level, and only for inputs within
+ * 1/65535 of a rounding boundary</li>
+ * </ul>
+ * Float inputs are clamped to [0,1], and NaN becomes 0.
+ * 
+ * @author Daba
+ *
+ */
+public class ColorSpaceFunctions {
+	private static final float SRGB_THRESHOLD = 0.04045f;
+	private static final float LINEAR_THRESHOLD = 0.0031308f;
+
+	// Polynomials in x = c*SCALE+OFFSET, fitted at Chebyshev nodes
+	private static final float SRGB_SCALE = 2.0843103538116825f;
+	private static final float SRGB_OFFSET = -1.0843103538116827f;
+	private static final float S0 = 0.23324089729867994f;
+	private static final float S1 = 0.46692105460610517f;
+	private static final float S2 = 0.27257688148620957f;
+	private static final float S3 = 0.030085457288739684f;
+	private static final float S4 = -0.0036737554695878616f;
+	private static final float S5 = 0.0014218302613304176f;
+	private static final float S6 = -0.0005751814062949709f;
+
+	// Polynomial in x = l^(1/4)*SCALE+OFFSET
+	private static final float LINEAR_SCALE = 2.619669900441418f;
+	private static final float LINEAR_OFFSET = -1.619669900441418f;
+	private static final float L0 = 0.41839564429444687f;
+	private static final float L1 = 0.4871236911013729f;
+	private static final float L2 = 0.10015046403401404f;
+	private static final float L3 = -0.006837153469287445f;
+	private static final float L4 = 0.0016719262002990825f;
+	private static final float L5 = -0.0005086781762931869f;
+
+	private static final float[] SRGB_U8_TO_LINEAR;
+	private static final short[] SRGB_U8_TO_LINEAR_U16;
+	private static final byte[] LINEAR_U12_TO_SRGB_U8;
+	private static final byte[] LINEAR_U16_TO_SRGB_U8;
+
+	static {
+		SRGB_U8_TO_LINEAR = new float[256];
+		SRGB_U8_TO_LINEAR_U16 = new short[256];
+		for (int i = 0; i < 256; i++) {
+			final double linear = SRGBToLinearExact(i / 255.0);
+			SRGB_U8_TO_LINEAR[i] = (float) linear;
+			SRGB_U8_TO_LINEAR_U16[i] = (short) Math.round(linear * 65535.0);
+		}
+
+		LINEAR_U12_TO_SRGB_U8 = new byte[4096];
+		for (int i = 0; i < 4096; i++) {
+			LINEAR_U12_TO_SRGB_U8[i] = (byte) Math.round(LinearToSRGBExact(i / 4095.0) * 255.0);
+		}
+		LINEAR_U16_TO_SRGB_U8 = new byte[65536];
+		for (int i = 0; i < 65536; i++) {
+			LINEAR_U16_TO_SRGB_U8[i] = (byte) Math.round(LinearToSRGBExact(i / 65535.0) * 255.0);
+		}
+	}
+
+	/**
+	 * Converts an sRGB channel value to linear space with the exact formula.
+	 * 
+	 * @param c
+	 *            sRGB value (0.0-1.0)
+	 * @return Linear value
+	 */
+	public static double SRGBToLinearExact(double c) {
+		if (c <= 0.04045) {
+			return c / 12.92;
+		}
+		return Math.pow((c + 0.055) / 1.055, 2.4);
+	}
+	/**
+	 * Converts a linear channel value to sRGB space with the exact formula.
+	 * 
+	 * @param l
+	 *            Linear value (0.0-1.0)
+	 * @return sRGB value
+	 */
+	public static double LinearToSRGBExact(double l) {
+		if (l <= 0.0031308) {
+			return l * 12.92;
+		}
+		return 1.055 * Math.pow(l, 1.0 / 2.4) - 0.055;
+	}
+
+	/**
+	 * Converts an sRGB channel value to linear space.
+	 * 
+	 * @param c
+	 *            sRGB value (0.0-1.0)
+	 * @return Linear value
+	 */
+	public static float SRGBToLinear(float c) {
+		if (!(c > SRGB_THRESHOLD)) {
+			return c > 0.0f ? c / 12.92f : 0.0f;
+		}
+		if (c >= 1.0f) {
+			return 1.0f;
+		}
+
+		final float x = c * SRGB_SCALE + SRGB_OFFSET;
+		return S0 + x * (S1 + x * (S2 + x * (S3 + x * (S4 + x * (S5 + x * S6)))));
+	}
+	/**
+	 * Converts a linear channel value to sRGB space.
+	 * 
+	 * @param l
+	 *            Linear value (0.0-1.0)
+	 * @return sRGB value
+	 */
+	public static float LinearToSRGB(float l) {
+		if (!(l > LINEAR_THRESHOLD)) {
+			return l > 0.0f ? l * 12.92f : 0.0f;
+		}
+		if (l >= 1.0f) {
+			return 1.0f;
+		}
+
+		final float x = (float) Math.sqrt(Math.sqrt(l)) * LINEAR_SCALE + LINEAR_OFFSET;
+		return L0 + x * (L1 + x * (L2 + x * (L3 + x * (L4 + x * L5))));
+	}
+	/**
+	 * Converts an 8-bit sRGB channel value to linear space.<br>
+	 * Values out of range are clamped.
+	 * 
+	 * @param c
+	 *            sRGB value (0-255)
+	 * @return Linear value (0.0-1.0)
+	 */
+	public static float SRGBU8ToLinear(int c) {
+		final int u = c > 255 ? 255 : c;
+		return SRGB_U8_TO_LINEAR[u > 0 ? u : 0];
+	}
+	/**
+	 * Converts an 8-bit sRGB channel value to a 16-bit linear value.<br>
+	 * Values out of range are clamped.
+	 * 
+	 * @param c
+	 *            sRGB value (0-255)
+	 * @return Linear value (0-65535)
+	 */
+	public static int SRGBU8ToLinearU16(int c) {
+		final int u = c > 255 ? 255 : c;
+		return SRGB_U8_TO_LINEAR_U16[u > 0 ? u : 0] & 0xFFFF;
+	}
+	/**
+	 * Converts a 12-bit linear value to an 8-bit sRGB channel value.<br>
+	 * Values out of range are clamped.
+	 * 
+	 * @param l
+	 *            Linear value (0-4095)
+	 * @return sRGB value (0-255)
+	 */
+	public static int LinearU12ToSRGBU8(int l) {
+		final int c = l > 4095 ? 4095 : l;
+		return LINEAR_U12_TO_SRGB_U8[c > 0 ? c : 0] & 0xFF;
+	}
+	/**
+	 * Converts a 16-bit linear value to an 8-bit sRGB channel value.<br>
+	 * Values out of range are clamped.
+	 * 
+	 * @param l
+	 *            Linear value (0-65535)
+	 * @return sRGB value (0-255)
+	 */
+	public static int LinearU16ToSRGBU8(int l) {
+		final int c = l > 65535 ? 65535 : l;
+		return LINEAR_U16_TO_SRGB_U8[c > 0 ? c : 0] & 0xFF;
+	}
+	/**
+	 * Converts a linear channel value to an 8-bit sRGB channel value.
+	 * 
+	 * @param l
+	 *            Linear value (0.0-1.0)
+	 * @return sRGB value (0-255)
+	 */
+	public static int LinearToSRGBU8(float l) {
+		// NaN fails both comparisons and is converted to 0 by the cast.
+		final float c = l > 1.0f ? 1.0f : l;
+		return LINEAR_U16_TO_SRGB_U8[(int) ((c > 0.0f ? c : 0.0f) * 65535.0f + 0.5f)] & 0xFF;
+	}
+
+	/**
+	 * Converts a color from sRGB to linear space.
+	 * 
+	 * @param c
+	 *            Color in sRGB space
+	 * @return Color in linear space
+	 */
+	public static ColorU8 SRGBToLinear(ColorU8 c) {
+		return ColorSpaceFunctions.SRGBToLinear(c, new ColorU8());
+	}
+	/**
+	 * Converts a color from sRGB to linear space and stores the result in a
+	 * destination color.
+	 * 
+	 * @param c
+	 *            Color in sRGB space
+	 * @param dst
+	 *            Destination color
+	 * @return dst
+	 */
+	public static ColorU8 SRGBToLinear(ColorU8 c, ColorU8 dst) {
+		dst.SetRGBA(SRGBToLinear(c.GetR()), SRGBToLinear(c.GetG()), SRGBToLinear(c.GetB()),
+				c.GetA());
+		return dst;
+	}
+	/**
+	 * Converts a color from linear to sRGB space.
+	 * 
+	 * @param c
+	 *            Color in linear space
+	 * @return Color in sRGB space
+	 */
+	public static ColorU8 LinearToSRGB(ColorU8 c) {
+		return ColorSpaceFunctions.LinearToSRGB(c, new ColorU8());
+	}
+	/**
+	 * Converts a color from linear to sRGB space and stores the result in a
+	 * destination color.
+	 * 
+	 * @param c
+	 *            Color in linear space
+	 * @param dst
+	 *            Destination color
+	 * @return dst
+	 */
+	public static ColorU8 LinearToSRGB(ColorU8 c, ColorU8 dst) {
+		dst.SetRGBA(LinearToSRGB(c.GetR()), LinearToSRGB(c.GetG()), LinearToSRGB(c.GetB()),
+				c.GetA());
+		return dst;
+	}
+
+	/**
+	 * Converts float channel values from sRGB to linear space in bulk.<br>
+	 * Every value is converted, so pass only color channels.
+	 * 
+	 * @param src
+	 *            sRGB values
+	 * @param dst
+	 *            Destination values (may be src)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static float[] SRGBToLinear(float[] src, float[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = SRGBToLinear(src[i]);
+		}
+
+		return dst;
+	}
+	public static float[] SRGBToLinear(float[] src, float[] dst) {
+		return ColorSpaceFunctions.SRGBToLinear(src, dst, 0, src.length);
+	}
+	/**
+	 * Converts float channel values from linear to sRGB space in bulk.<br>
+	 * Every value is converted, so pass only color channels.
+	 * 
+	 * @param src
+	 *            Linear values
+	 * @param dst
+	 *            Destination values (may be src)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static float[] LinearToSRGB(float[] src, float[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = LinearToSRGB(src[i]);
+		}
+
+		return dst;
+	}
+	public static float[] LinearToSRGB(float[] src, float[] dst) {
+		return ColorSpaceFunctions.LinearToSRGB(src, dst, 0, src.length);
+	}
+
+	/**
+	 * Converts packed sRGB colors to linear float channels in bulk.
+	 * 
+	 * @param src
+	 *            Packed colors (0xRRGGBBAA) in sRGB space
+	 * @param dst
+	 *            Destination channels, 4 floats (r, g, b, a) per color
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static float[] PackedSRGBToLinear(int[] src, float[] dst, int from, int to) {
+		final float[] table = SRGB_U8_TO_LINEAR;
+		for (int i = from; i < to; i++) {
+			final int p = src[i];
+			final int o = i * 4;
+			dst[o] = table[p >>> 24];
+			dst[o + 1] = table[(p >>> 16) & 0xFF];
+			dst[o + 2] = table[(p >>> 8) & 0xFF];
+			dst[o + 3] = ColorU8Functions.U8_TO_FLOAT[p & 0xFF];
+		}
+
+		return dst;
+	}
+	public static float[] PackedSRGBToLinear(int[] src, float[] dst) {
+		return ColorSpaceFunctions.PackedSRGBToLinear(src, dst, 0, src.length);
+	}
+	/**
+	 * Converts linear float channels to packed sRGB colors in bulk.
+	 * 
+	 * @param src
+	 *            Channels in linear space, 4 floats (r, g, b, a) per color
+	 * @param dst
+	 *            Destination packed colors (0xRRGGBBAA)
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static int[] LinearToPackedSRGB(float[] src, int[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final int o = i * 4;
+			dst[i] = (LinearToSRGBU8(src[o]) << 24) | (LinearToSRGBU8(src[o + 1]) << 16)
+					| (LinearToSRGBU8(src[o + 2]) << 8) | ColorU8Functions.FloatToU8(src[o + 3]);
+		}
+
+		return dst;
+	}
+	public static int[] LinearToPackedSRGB(float[] src, int[] dst) {
+		return ColorSpaceFunctions.LinearToPackedSRGB(src, dst, 0, dst.length);
+	}
+	/**
+	 * Converts packed sRGB colors to 16-bit linear channels in bulk.<br>
+	 * Alpha is widened to 16 bits as well.
+	 * 
+	 * @param src
+	 *            Packed colors (0xRRGGBBAA) in sRGB space
+	 * @param dst
+	 *            Destination channels, 4 unsigned shorts (r, g, b, a) per color
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static short[] PackedSRGBToLinearU16(int[] src, short[] dst, int from, int to) {
+		final short[] table = SRGB_U8_TO_LINEAR_U16;
+		for (int i = from; i < to; i++) {
+			final int p = src[i];
+			final int o = i * 4;
+			dst[o] = table[p >>> 24];
+			dst[o + 1] = table[(p >>> 16) & 0xFF];
+			dst[o + 2] = table[(p >>> 8) & 0xFF];
+			dst[o + 3] = (short) ((p & 0xFF) * 257);
+		}
+
+		return dst;
+	}
+	public static short[] PackedSRGBToLinearU16(int[] src, short[] dst) {
+		return ColorSpaceFunctions.PackedSRGBToLinearU16(src, dst, 0, src.length);
+	}
+	/**
+	 * Converts 16-bit linear channels to packed sRGB colors in bulk.
+	 * 
+	 * @param src
+	 *            Channels in linear space, 4 unsigned shorts (r, g, b, a) per
+	 *            color
+	 * @param dst
+	 *            Destination packed colors (0xRRGGBBAA)
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static int[] LinearU16ToPackedSRGB(short[] src, int[] dst, int from, int to) {
+		final byte[] table = LINEAR_U16_TO_SRGB_U8;
+		for (int i = from; i < to; i++) {
+			final int o = i * 4;
+			final int a = ((src[o + 3] & 0xFFFF) * 255 + 32767) / 65535;
+			dst[i] = ((table[src[o] & 0xFFFF] & 0xFF) << 24)
+					| ((table[src[o + 1] & 0xFFFF] & 0xFF) << 16)
+					| ((table[src[o + 2] & 0xFFFF] & 0xFF) << 8) | a;
+		}
+
+		return dst;
+	}
+	public static int[] LinearU16ToPackedSRGB(short[] src, int[] dst) {
+		return ColorSpaceFunctions.LinearU16ToPackedSRGB(src, dst, 0, dst.length);
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.dabasan.basis.coloru8;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Array of colors stored in an off-heap buffer<br>
+ * Each color occupies 4 contiguous floats (r, g, b, a). The buffer can be
+ * handed to native code or shared memory without copying.<br>
+ * Elements are accessed by absolute index and the position of the buffer is
+ * never changed, so disjoint ranges can be accessed from multiple threads.
+ * 
+ * @author Daba
+ *
+ */
+public class ColorU8Buffer {
+	private final ByteBuffer bytes;
+	private final FloatBuffer floats;
+	private final int capacity;
+
+	/**
+	 * Allocates a direct buffer in native byte order.
+	 * 
+	 * @param capacity
+	 *            Number of colors
+	 */
+	public ColorU8Buffer(int capacity) {
+		this(ByteBuffer.allocateDirect(capacity * 4 * 4).order(ByteOrder.nativeOrder()));
+	}
+	/**
+	 * Wraps an existing buffer (e.g. a mapped file).<br>
+	 * The buffer is used from its current position to its limit and its byte
+	 * order is respected.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 */
+	public ColorU8Buffer(ByteBuffer buffer) {
+		this.bytes = buffer.slice().order(buffer.order());
+		this.floats = bytes.asFloatBuffer();
+		this.capacity = floats.capacity() / 4;
+	}
+
+	public int GetCapacity() {
+		return capacity;
+	}
+	/**
+	 * Returns the underlying byte buffer.
+	 * 
+	 * @return Byte buffer
+	 */
+	public ByteBuffer GetByteBuffer() {
+		return bytes;
+	}
+
+	public void SetColor(int index, float r, float g, float b, float a) {
+		final int base = index * 4;
+		floats.put(base, r);
+		floats.put(base + 1, g);
+		floats.put(base + 2, b);
+		floats.put(base + 3, a);
+	}
+	public void SetColor(int index, ColorU8 c) {
+		this.SetColor(index, c.GetR(), c.GetG(), c.GetB(), c.GetA());
+	}
+	/**
+	 * Loads a color into a destination color.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination color
+	 * @return dst
+	 */
+	public ColorU8 GetColor(int index, ColorU8 dst) {
+		final int base = index * 4;
+		dst.SetRGBA(floats.get(base), floats.get(base + 1), floats.get(base + 2),
+				floats.get(base + 3));
+		return dst;
+	}
+	public ColorU8 GetColor(int index) {
+		return this.GetColor(index, new ColorU8());
+	}
+	/**
+	 * Stores colors.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param src
+	 *            Source colors
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of colors
+	 */
+	public void SetColors(int index, ColorU8[] src, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.SetColor(index + i, src[offset + i]);
+		}
+	}
+	/**
+	 * Loads colors into destination colors.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param dst
+	 *            Destination colors
+	 * @param offset
+	 *            First index in dst
+	 * @param count
+	 *            Number of colors
+	 */
+	public void GetColors(int index, ColorU8[] dst, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.GetColor(index + i, dst[offset + i]);
+		}
+	}
+	/**
+	 * Copies raw channels into this buffer in a single bulk operation.
+	 * 
+	 * @param index
+	 *            First color index in this buffer
+	 * @param src
+	 *            Source channels (r, g, b, a per color)
+	 * @param offset
+	 *            First element in src
+	 * @param count
+	 *            Number of colors
+	 */
+	public void SetValues(int index, float[] src, int offset, int count) {
+		this.ViewAt(index * 4).put(src, offset, count * 4);
+	}
+	/**
+	 * Copies raw channels out of this buffer in a single bulk operation.
+	 * 
+	 * @param index
+	 *            First color index in this buffer
+	 * @param dst
+	 *            Destination channels (r, g, b, a per color)
+	 * @param offset
+	 *            First element in dst
+	 * @param count
+	 *            Number of colors
+	 */
+	public void GetValues(int index, float[] dst, int offset, int count) {
+		this.ViewAt(index * 4).get(dst, offset, count * 4);
+	}
+	/**
+	 * Returns a view of the floats positioned at an element, so that bulk
+	 * transfers never move the position of the shared buffer.
+	 */
+	private FloatBuffer ViewAt(int element) {
+		final FloatBuffer view = floats.duplicate();
+		view.position(element);
+		return view;
+	}
+}
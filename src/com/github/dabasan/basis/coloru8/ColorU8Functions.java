@@ -1,12 +1,31 @@
 package com.github.dabasan.basis.coloru8;
 
+import com.github.dabasan.basis.kernel.BatchKernels;
+import com.github.dabasan.basis.kernel.BatchKernelsProvider;
+
 /**
- * Provides methods to handle ColorU8.
+ * Provides methods to handle ColorU8.<br>
+ * Colors can also be packed into an int as 0xRRGGBBAA, one byte per channel.
+ * Arrays of packed colors take a quarter of the memory of float channels and
+ * need no per-pixel objects. Float channels are converted to bytes by
+ * rounding to the nearest value after clamping to [0,1], and NaN becomes 0.
  * 
  * @author Daba
  *
  */
 public class ColorU8Functions {
+	private static final BatchKernels KERNELS = BatchKernelsProvider.GetKernels();
+
+	// Same values as i/255.0f, without a division per channel
+	static final float[] U8_TO_FLOAT;
+
+	static {
+		U8_TO_FLOAT = new float[256];
+		for (int i = 0; i < 256; i++) {
+			U8_TO_FLOAT[i] = i / 255.0f;
+		}
+	}
+
 	public static ColorU8 GetColorU8(float r, float g, float b, float a) {
 		return new ColorU8(r, g, b, a);
 	}
@@ -18,4 +37,208 @@ public class ColorU8Functions {
 
 		return new ColorU8(fr, fg, fb, fa);
 	}
+	/**
+	 * Converts 8-bit channel values (0-255) to float channel values (0.0-1.0)
+	 * in bulk.
+	 * 
+	 * @param src
+	 *            Source values
+	 * @param dst
+	 *            Destination values
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static float[] U8ToFloat(int[] src, float[] dst, int from, int to) {
+		KERNELS.U8ToFloat(src, dst, from, to);
+		return dst;
+	}
+	public static float[] U8ToFloat(int[] src, float[] dst) {
+		return ColorU8Functions.U8ToFloat(src, dst, 0, src.length);
+	}
+
+	/**
+	 * Converts a float channel value to a byte.
+	 * 
+	 * @param v
+	 *            Channel value (0.0-1.0)
+	 * @return Byte (0-255)
+	 */
+	public static int FloatToU8(float v) {
+		// NaN fails both comparisons and is converted to 0 by the cast.
+		final float c = v > 1.0f ? 1.0f : v;
+		return (int) ((c > 0.0f ? c : 0.0f) * 255.0f + 0.5f);
+	}
+
+	/**
+	 * Packs channel values into an int.<br>
+	 * Values are clamped to 0-255.
+	 * 
+	 * @param r
+	 *            Red (0-255)
+	 * @param g
+	 *            Green (0-255)
+	 * @param b
+	 *            Blue (0-255)
+	 * @param a
+	 *            Alpha (0-255)
+	 * @return Packed color (0xRRGGBBAA)
+	 */
+	public static int GetPackedColorU8(int r, int g, int b, int a) {
+		return (ClampU8(r) << 24) | (ClampU8(g) << 16) | (ClampU8(b) << 8) | ClampU8(a);
+	}
+	/**
+	 * Packs a color into an int.
+	 * 
+	 * @param c
+	 *            Color
+	 * @return Packed color (0xRRGGBBAA)
+	 */
+	public static int PackColorU8(ColorU8 c) {
+		return (FloatToU8(c.GetR()) << 24) | (FloatToU8(c.GetG()) << 16)
+				| (FloatToU8(c.GetB()) << 8) | FloatToU8(c.GetA());
+	}
+	/**
+	 * Unpacks a color.
+	 * 
+	 * @param packed
+	 *            Packed color (0xRRGGBBAA)
+	 * @return Color
+	 */
+	public static ColorU8 UnpackColorU8(int packed) {
+		return ColorU8Functions.UnpackColorU8(packed, new ColorU8());
+	}
+	/**
+	 * Unpacks a color and stores the result in a destination color.
+	 * 
+	 * @param packed
+	 *            Packed color (0xRRGGBBAA)
+	 * @param dst
+	 *            Destination color
+	 * @return dst
+	 */
+	public static ColorU8 UnpackColorU8(int packed, ColorU8 dst) {
+		dst.SetRGBA(U8_TO_FLOAT[packed >>> 24], U8_TO_FLOAT[(packed >>> 16) & 0xFF],
+				U8_TO_FLOAT[(packed >>> 8) & 0xFF], U8_TO_FLOAT[packed & 0xFF]);
+		return dst;
+	}
+	public static int GetPackedR(int packed) {
+		return packed >>> 24;
+	}
+	public static int GetPackedG(int packed) {
+		return (packed >>> 16) & 0xFF;
+	}
+	public static int GetPackedB(int packed) {
+		return (packed >>> 8) & 0xFF;
+	}
+	public static int GetPackedA(int packed) {
+		return packed & 0xFF;
+	}
+
+	/**
+	 * Converts packed colors to float channels in bulk.
+	 * 
+	 * @param src
+	 *            Packed colors
+	 * @param dst
+	 *            Destination channels, 4 floats (r, g, b, a) per color
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static float[] PackedToFloat(int[] src, float[] dst, int from, int to) {
+		final float[] table = U8_TO_FLOAT;
+		for (int i = from; i < to; i++) {
+			final int packed = src[i];
+			final int o = i * 4;
+			dst[o] = table[packed >>> 24];
+			dst[o + 1] = table[(packed >>> 16) & 0xFF];
+			dst[o + 2] = table[(packed >>> 8) & 0xFF];
+			dst[o + 3] = table[packed & 0xFF];
+		}
+
+		return dst;
+	}
+	public static float[] PackedToFloat(int[] src, float[] dst) {
+		return ColorU8Functions.PackedToFloat(src, dst, 0, src.length);
+	}
+	/**
+	 * Converts float channels to packed colors in bulk.
+	 * 
+	 * @param src
+	 *            Channels, 4 floats (r, g, b, a) per color
+	 * @param dst
+	 *            Destination packed colors
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static int[] FloatToPacked(float[] src, int[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final int o = i * 4;
+			dst[i] = (FloatToU8(src[o]) << 24) | (FloatToU8(src[o + 1]) << 16)
+					| (FloatToU8(src[o + 2]) << 8) | FloatToU8(src[o + 3]);
+		}
+
+		return dst;
+	}
+	public static int[] FloatToPacked(float[] src, int[] dst) {
+		return ColorU8Functions.FloatToPacked(src, dst, 0, dst.length);
+	}
+	/**
+	 * Unpacks colors into existing ColorU8 objects in bulk.
+	 * 
+	 * @param src
+	 *            Packed colors
+	 * @param dst
+	 *            Destination colors
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static ColorU8[] PackedToColorU8(int[] src, ColorU8[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			ColorU8Functions.UnpackColorU8(src[i], dst[i]);
+		}
+
+		return dst;
+	}
+	public static ColorU8[] PackedToColorU8(int[] src, ColorU8[] dst) {
+		return ColorU8Functions.PackedToColorU8(src, dst, 0, src.length);
+	}
+	/**
+	 * Packs ColorU8 objects in bulk.
+	 * 
+	 * @param src
+	 *            Colors
+	 * @param dst
+	 *            Destination packed colors
+	 * @param from
+	 *            First color (inclusive)
+	 * @param to
+	 *            Last color (exclusive)
+	 * @return dst
+	 */
+	public static int[] ColorU8ToPacked(ColorU8[] src, int[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = ColorU8Functions.PackColorU8(src[i]);
+		}
+
+		return dst;
+	}
+	public static int[] ColorU8ToPacked(ColorU8[] src, int[] dst) {
+		return ColorU8Functions.ColorU8ToPacked(src, dst, 0, src.length);
+	}
+
+	private static int ClampU8(int v) {
+		return v < 0 ? 0 : v > 255 ? 255 : v;
+	}
 }
@@ -0,0 +1,72 @@
+package com.github.dabasan.basis.coloru8;
+
+/**
+ * Porter-Duff compositing operators<br>
+ * With premultiplied colors, each operator computes src*Fa+dst*Fb, where the
+ * factors depend on the source alpha (as) and the destination alpha (ad).
+ * 
+ * @author Daba
+ *
+ */
+public enum CompositeOperator {
+	/**
+	 * Fa=0, Fb=0
+	 */
+	CLEAR(CompositeFunctions.FACTOR_ZERO, CompositeFunctions.FACTOR_ZERO),
+	/**
+	 * Fa=1, Fb=0
+	 */
+	SRC(CompositeFunctions.FACTOR_ONE, CompositeFunctions.FACTOR_ZERO),
+	/**
+	 * Fa=0, Fb=1
+	 */
+	DST(CompositeFunctions.FACTOR_ZERO, CompositeFunctions.FACTOR_ONE),
+	/**
+	 * Fa=1, Fb=1-as
+	 */
+	SRC_OVER(CompositeFunctions.FACTOR_ONE, CompositeFunctions.FACTOR_INV_ALPHA),
+	/**
+	 * Fa=1-ad, Fb=1
+	 */
+	DST_OVER(CompositeFunctions.FACTOR_INV_ALPHA, CompositeFunctions.FACTOR_ONE),
+	/**
+	 * Fa=ad, Fb=0
+	 */
+	SRC_IN(CompositeFunctions.FACTOR_ALPHA, CompositeFunctions.FACTOR_ZERO),
+	/**
+	 * Fa=0, Fb=as
+	 */
+	DST_IN(CompositeFunctions.FACTOR_ZERO, CompositeFunctions.FACTOR_ALPHA),
+	/**
+	 * Fa=1-ad, Fb=0
+	 */
+	SRC_OUT(CompositeFunctions.FACTOR_INV_ALPHA, CompositeFunctions.FACTOR_ZERO),
+	/**
+	 * Fa=0, Fb=1-as
+	 */
+	DST_OUT(CompositeFunctions.FACTOR_ZERO, CompositeFunctions.FACTOR_INV_ALPHA),
+	/**
+	 * Fa=ad, Fb=1-as
+	 */
+	SRC_ATOP(CompositeFunctions.FACTOR_ALPHA, CompositeFunctions.FACTOR_INV_ALPHA),
+	/**
+	 * Fa=1-ad, Fb=as
+	 */
+	DST_ATOP(CompositeFunctions.FACTOR_INV_ALPHA, CompositeFunctions.FACTOR_ALPHA),
+	/**
+	 * Fa=1-ad, Fb=1-as
+	 */
+	XOR(CompositeFunctions.FACTOR_INV_ALPHA, CompositeFunctions.FACTOR_INV_ALPHA),
+	/**
+	 * Fa=1, Fb=1 (saturated)
+	 */
+	PLUS(CompositeFunctions.FACTOR_ONE, CompositeFunctions.FACTOR_ONE);
+
+	final int src_factor;
+	final int dst_factor;
+
+	private CompositeOperator(int src_factor, int dst_factor) {
+		this.src_factor = src_factor;
+		this.dst_factor = dst_factor;
+	}
+}
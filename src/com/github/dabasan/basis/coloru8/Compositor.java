@@ -0,0 +1,110 @@
+package com.github.dabasan.basis.coloru8;
+
+import com.github.dabasan.basis.parallel.BatchTiming;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+
+/**
+ * Composites large buffers of packed colors in parallel.<br>
+ * Each method splits the buffer into tiles of consecutive pixels, processes
+ * them on the threads of its ParallelRunner with CompositeFunctions and
+ * returns the timing of the batch.
+ * 
+ * @author Daba
+ *
+ */
+public class Compositor {
+	private final ParallelRunner runner;
+
+	/**
+	 * Uses the common ForkJoinPool.
+	 */
+	public Compositor() {
+		this(new ParallelRunner());
+	}
+	public Compositor(ParallelRunner runner) {
+		this.runner = runner;
+	}
+
+	public ParallelRunner GetRunner() {
+		return runner;
+	}
+
+	/**
+	 * Converts straight-alpha colors to premultiplied colors.
+	 * 
+	 * @param src
+	 *            Source colors
+	 * @param dst
+	 *            Destination colors (may be src)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Premultiply(int[] src, int[] dst) {
+		return runner.Run(0, dst.length,
+				(from, to) -> CompositeFunctions.Premultiply(src, dst, from, to));
+	}
+	/**
+	 * Converts premultiplied colors to straight-alpha colors.
+	 * 
+	 * @param src
+	 *            Source colors
+	 * @param dst
+	 *            Destination colors (may be src)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Unpremultiply(int[] src, int[] dst) {
+		return runner.Run(0, dst.length,
+				(from, to) -> CompositeFunctions.Unpremultiply(src, dst, from, to));
+	}
+	/**
+	 * Multiplies premultiplied colors by a constant alpha.
+	 * 
+	 * @param src
+	 *            Source colors
+	 * @param alpha
+	 *            Alpha (0-255)
+	 * @param dst
+	 *            Destination colors (may be src)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Fade(int[] src, int alpha, int[] dst) {
+		return runner.Run(0, dst.length,
+				(from, to) -> CompositeFunctions.Fade(src, alpha, dst, from, to));
+	}
+	/**
+	 * Composites premultiplied colors.
+	 * 
+	 * @param op
+	 *            Operator
+	 * @param src
+	 *            Source colors
+	 * @param dst
+	 *            Destination colors
+	 * @param out
+	 *            Output colors (may be src or dst)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Composite(CompositeOperator op, int[] src, int[] dst, int[] out) {
+		return this.Composite(op, src, 255, dst, out);
+	}
+	/**
+	 * Composites premultiplied colors, fading the source by a constant alpha
+	 * first.
+	 * 
+	 * @param op
+	 *            Operator
+	 * @param src
+	 *            Source colors
+	 * @param opacity
+	 *            Constant alpha of the source (0-255)
+	 * @param dst
+	 *            Destination colors
+	 * @param out
+	 *            Output colors (may be src or dst)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Composite(CompositeOperator op, int[] src, int opacity, int[] dst,
+			int[] out) {
+		return runner.Run(0, out.length,
+				(from, to) -> CompositeFunctions.Composite(op, src, opacity, dst, out, from, to));
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.dabasan.basis.culling;
+
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * Array of axis-aligned bounding boxes stored as a structure of arrays
+ * 
+ * @author Daba
+ *
+ */
+public class AABBArray extends BoundsArray {
+	final float[] min_xs;
+	final float[] min_ys;
+	final float[] min_zs;
+	final float[] max_xs;
+	final float[] max_ys;
+	final float[] max_zs;
+
+	/**
+	 * All boxes are set to a point at the origin.
+	 * 
+	 * @param size
+	 *            Number of boxes
+	 */
+	public AABBArray(int size) {
+		super(size);
+
+		min_xs = new float[size];
+		min_ys = new float[size];
+		min_zs = new float[size];
+		max_xs = new float[size];
+		max_ys = new float[size];
+		max_zs = new float[size];
+	}
+
+	public void SetAABB(int index, float min_x, float min_y, float min_z, float max_x,
+			float max_y, float max_z) {
+		min_xs[index] = min_x;
+		min_ys[index] = min_y;
+		min_zs[index] = min_z;
+		max_xs[index] = max_x;
+		max_ys[index] = max_y;
+		max_zs[index] = max_z;
+		this.MarkDirty(index);
+	}
+	public void SetAABB(int index, Vector min, Vector max) {
+		this.SetAABB(index, min.GetX(), min.GetY(), min.GetZ(), max.GetX(), max.GetY(), max.GetZ());
+	}
+	public Vector GetMin(int index, Vector dst) {
+		dst.SetVector(min_xs[index], min_ys[index], min_zs[index]);
+		return dst;
+	}
+	public Vector GetMax(int index, Vector dst) {
+		dst.SetVector(max_xs[index], max_ys[index], max_zs[index]);
+		return dst;
+	}
+
+	/**
+	 * Returns the backing array of minimum x-coordinates.<br>
+	 * Call MarkDirty() after writing to it.
+	 * 
+	 * @return Minimum x-coordinates
+	 */
+	public float[] GetMinXArray() {
+		return min_xs;
+	}
+	public float[] GetMinYArray() {
+		return min_ys;
+	}
+	public float[] GetMinZArray() {
+		return min_zs;
+	}
+	public float[] GetMaxXArray() {
+		return max_xs;
+	}
+	public float[] GetMaxYArray() {
+		return max_ys;
+	}
+	public float[] GetMaxZArray() {
+		return max_zs;
+	}
+
+	@Override
+	void ComputeBlockBounds(int block, int from, int to) {
+		float min_x = Float.POSITIVE_INFINITY;
+		float min_y = Float.POSITIVE_INFINITY;
+		float min_z = Float.POSITIVE_INFINITY;
+		float max_x = Float.NEGATIVE_INFINITY;
+		float max_y = Float.NEGATIVE_INFINITY;
+		float max_z = Float.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			min_x = Math.min(min_x, min_xs[i]);
+			min_y = Math.min(min_y, min_ys[i]);
+			min_z = Math.min(min_z, min_zs[i]);
+			max_x = Math.max(max_x, max_xs[i]);
+			max_y = Math.max(max_y, max_ys[i]);
+			max_z = Math.max(max_z, max_zs[i]);
+		}
+
+		block_min_xs[block] = min_x;
+		block_min_ys[block] = min_y;
+		block_min_zs[block] = min_z;
+		block_max_xs[block] = max_x;
+		block_max_ys[block] = max_y;
+		block_max_zs[block] = max_z;
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.dabasan.basis.culling;
+
+import java.util.Arrays;
+
+/**
+ * Base of bounding-volume arrays<br>
+ * Objects are grouped into blocks of CullingFunctions.BLOCK_SIZE consecutive
+ * entries. Each block keeps a box enclosing all of its objects, so that
+ * culling can accept or reject a whole block with one test.
+ * 
+ * @author Daba
+ *
+ */
+abstract class BoundsArray {
+	final int size;
+	final int block_count;
+	final float[] block_min_xs;
+	final float[] block_min_ys;
+	final float[] block_min_zs;
+	final float[] block_max_xs;
+	final float[] block_max_ys;
+	final float[] block_max_zs;
+	private final boolean[] block_dirty;
+	private boolean any_dirty;
+
+	BoundsArray(int size) {
+		this.size = size;
+		block_count = (size + CullingFunctions.BLOCK_SIZE - 1) / CullingFunctions.BLOCK_SIZE;
+		block_min_xs = new float[block_count];
+		block_min_ys = new float[block_count];
+		block_min_zs = new float[block_count];
+		block_max_xs = new float[block_count];
+		block_max_ys = new float[block_count];
+		block_max_zs = new float[block_count];
+		block_dirty = new boolean[block_count];
+
+		Arrays.fill(block_dirty, true);
+		any_dirty = true;
+	}
+
+	public int GetSize() {
+		return size;
+	}
+
+	/**
+	 * Marks a range as changed.<br>
+	 * Call this after writing to the backing arrays directly.
+	 * 
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void MarkDirty(int from, int to) {
+		if (from >= to) {
+			return;
+		}
+
+		final int first = from / CullingFunctions.BLOCK_SIZE;
+		final int last = (to - 1) / CullingFunctions.BLOCK_SIZE;
+		for (int b = first; b <= last; b++) {
+			block_dirty[b] = true;
+		}
+		any_dirty = true;
+	}
+	void MarkDirty(int index) {
+		block_dirty[index / CullingFunctions.BLOCK_SIZE] = true;
+		any_dirty = true;
+	}
+
+	/**
+	 * Recomputes the bounds of changed blocks.
+	 */
+	void UpdateBlockBounds() {
+		if (!any_dirty) {
+			return;
+		}
+
+		for (int b = 0; b < block_count; b++) {
+			if (block_dirty[b]) {
+				final int from = b * CullingFunctions.BLOCK_SIZE;
+				final int to = Math.min(size, from + CullingFunctions.BLOCK_SIZE);
+				this.ComputeBlockBounds(b, from, to);
+				block_dirty[b] = false;
+			}
+		}
+		any_dirty = false;
+	}
+	abstract void ComputeBlockBounds(int block, int from, int to);
+}
@@ -0,0 +1,275 @@
+package com.github.dabasan.basis.culling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dabasan.basis.parallel.ParallelRunner;
+
+/**
+ * Batch frustum culling<br>
+ * Objects are processed in blocks of BLOCK_SIZE. A block whose bounds are
+ * entirely outside the frustum is rejected, and a block entirely inside is
+ * accepted, without looking at its objects. For the remaining blocks, objects
+ * are tested only against the planes that the block bounds cross.<br>
+ * Results are written either as a list of visible indices or as a bitset in
+ * which bit (i%64) of word (i/64) is set when object i is visible.
+ * 
+ * @author Daba
+ *
+ */
+public class CullingFunctions {
+	/**
+	 * Number of objects per block, equal to the number of bits in a bitset
+	 * word
+	 */
+	public static final int BLOCK_SIZE = 64;
+
+	static final int ALL_PLANES = (1 << Frustum.PLANE_COUNT) - 1;
+	/**
+	 * Minimum number of blocks per parallel chunk, so that a chunk covers
+	 * about as many objects as the default chunk of ParallelRunner
+	 */
+	static final int MIN_CHUNK_BLOCKS = Math.max(1,
+			ParallelRunner.DEFAULT_MIN_CHUNK_SIZE / BLOCK_SIZE);
+
+	/**
+	 * Returns the number of words needed for a bitset.
+	 * 
+	 * @param size
+	 *            Number of objects
+	 * @return Number of words
+	 */
+	public static int GetBitsetLength(int size) {
+		return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+	}
+
+	/**
+	 * Culls spheres and writes indices of visible ones.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param spheres
+	 *            Spheres
+	 * @param visible
+	 *            Destination of visible indices, at least as long as the
+	 *            number of spheres
+	 * @return Number of visible spheres
+	 */
+	public static int CullSpheres(Frustum f, SphereArray spheres, int[] visible) {
+		spheres.UpdateBlockBounds();
+
+		int count = 0;
+		for (int b = 0; b < spheres.block_count; b++) {
+			count = WriteIndices(CullSphereBlock(f.planes, spheres, b), b, visible, count);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls spheres and writes a visibility bitset.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param spheres
+	 *            Spheres
+	 * @param bits
+	 *            Destination bitset of GetBitsetLength() words
+	 * @return Number of visible spheres
+	 */
+	public static int CullSpheres(Frustum f, SphereArray spheres, long[] bits) {
+		spheres.UpdateBlockBounds();
+
+		int count = 0;
+		for (int b = 0; b < spheres.block_count; b++) {
+			bits[b] = CullSphereBlock(f.planes, spheres, b);
+			count += Long.bitCount(bits[b]);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls spheres in parallel and writes a visibility bitset.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param spheres
+	 *            Spheres
+	 * @param bits
+	 *            Destination bitset of GetBitsetLength() words
+	 * @param runner
+	 *            Runner used to split blocks across threads
+	 * @return Number of visible spheres
+	 */
+	public static int CullSpheres(Frustum f, SphereArray spheres, long[] bits,
+			ParallelRunner runner) {
+		spheres.UpdateBlockBounds();
+
+		final AtomicInteger count = new AtomicInteger();
+		runner.Run(0, spheres.block_count, MIN_CHUNK_BLOCKS, (from, to) -> {
+			int chunk_count = 0;
+			for (int b = from; b < to; b++) {
+				bits[b] = CullSphereBlock(f.planes, spheres, b);
+				chunk_count += Long.bitCount(bits[b]);
+			}
+			count.addAndGet(chunk_count);
+		});
+
+		return count.get();
+	}
+
+	/**
+	 * Culls boxes and writes indices of visible ones.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param boxes
+	 *            Boxes
+	 * @param visible
+	 *            Destination of visible indices, at least as long as the
+	 *            number of boxes
+	 * @return Number of visible boxes
+	 */
+	public static int CullAABBs(Frustum f, AABBArray boxes, int[] visible) {
+		boxes.UpdateBlockBounds();
+
+		int count = 0;
+		for (int b = 0; b < boxes.block_count; b++) {
+			count = WriteIndices(CullAABBBlock(f.planes, boxes, b), b, visible, count);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls boxes and writes a visibility bitset.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param boxes
+	 *            Boxes
+	 * @param bits
+	 *            Destination bitset of GetBitsetLength() words
+	 * @return Number of visible boxes
+	 */
+	public static int CullAABBs(Frustum f, AABBArray boxes, long[] bits) {
+		boxes.UpdateBlockBounds();
+
+		int count = 0;
+		for (int b = 0; b < boxes.block_count; b++) {
+			bits[b] = CullAABBBlock(f.planes, boxes, b);
+			count += Long.bitCount(bits[b]);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls boxes in parallel and writes a visibility bitset.
+	 * 
+	 * @param f
+	 *            Frustum
+	 * @param boxes
+	 *            Boxes
+	 * @param bits
+	 *            Destination bitset of GetBitsetLength() words
+	 * @param runner
+	 *            Runner used to split blocks across threads
+	 * @return Number of visible boxes
+	 */
+	public static int CullAABBs(Frustum f, AABBArray boxes, long[] bits,
+			ParallelRunner runner) {
+		boxes.UpdateBlockBounds();
+
+		final AtomicInteger count = new AtomicInteger();
+		runner.Run(0, boxes.block_count, MIN_CHUNK_BLOCKS, (from, to) -> {
+			int chunk_count = 0;
+			for (int b = from; b < to; b++) {
+				bits[b] = CullAABBBlock(f.planes, boxes, b);
+				chunk_count += Long.bitCount(bits[b]);
+			}
+			count.addAndGet(chunk_count);
+		});
+
+		return count.get();
+	}
+
+	/**
+	 * Converts a visibility bitset to a list of indices.
+	 * 
+	 * @param bits
+	 *            Bitset
+	 * @param visible
+	 *            Destination of visible indices
+	 * @return Number of visible objects
+	 */
+	public static int BitsToIndices(long[] bits, int[] visible) {
+		int count = 0;
+		for (int b = 0; b < bits.length; b++) {
+			count = WriteIndices(bits[b], b, visible, count);
+		}
+
+		return count;
+	}
+
+	private static int WriteIndices(long word, int block, int[] visible, int count) {
+		final int base = block * BLOCK_SIZE;
+		while (word != 0) {
+			visible[count++] = base + Long.numberOfTrailingZeros(word);
+			word &= word - 1;
+		}
+
+		return count;
+	}
+	private static long BlockMask(int from, int to) {
+		final int n = to - from;
+		return n == BLOCK_SIZE ? -1L : (1L << n) - 1;
+	}
+	private static long CullSphereBlock(float[] planes, SphereArray s, int block) {
+		final int mask = Frustum.TestAABB(planes, ALL_PLANES, s.block_min_xs[block],
+				s.block_min_ys[block], s.block_min_zs[block], s.block_max_xs[block],
+				s.block_max_ys[block], s.block_max_zs[block]);
+		if (mask < 0) {
+			return 0L;
+		}
+
+		final int from = block * BLOCK_SIZE;
+		final int to = Math.min(s.size, from + BLOCK_SIZE);
+		if (mask == 0) {
+			return BlockMask(from, to);
+		}
+
+		final float[] xs = s.xs;
+		final float[] ys = s.ys;
+		final float[] zs = s.zs;
+		final float[] rs = s.rs;
+		long word = 0L;
+		for (int i = from; i < to; i++) {
+			if (Frustum.TestSphere(planes, mask, xs[i], ys[i], zs[i], rs[i])) {
+				word |= 1L << (i - from);
+			}
+		}
+
+		return word;
+	}
+	private static long CullAABBBlock(float[] planes, AABBArray a, int block) {
+		final int mask = Frustum.TestAABB(planes, ALL_PLANES, a.block_min_xs[block],
+				a.block_min_ys[block], a.block_min_zs[block], a.block_max_xs[block],
+				a.block_max_ys[block], a.block_max_zs[block]);
+		if (mask < 0) {
+			return 0L;
+		}
+
+		final int from = block * BLOCK_SIZE;
+		final int to = Math.min(a.size, from + BLOCK_SIZE);
+		if (mask == 0) {
+			return BlockMask(from, to);
+		}
+
+		long word = 0L;
+		for (int i = from; i < to; i++) {
+			if (Frustum.TestAABBVisible(planes, mask, a.min_xs[i], a.min_ys[i], a.min_zs[i],
+					a.max_xs[i], a.max_ys[i], a.max_zs[i])) {
+				word |= 1L << (i - from);
+			}
+		}
+
+		return word;
+	}
+}
@@ -0,0 +1,208 @@
+package com.github.dabasan.basis.culling;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * View frustum as six normalized planes<br>
+ * A point p is on the inner side of a plane (a,b,c,d) when a*p.x+b*p.y+c*p.z+d
+ * is not negative. Planes are extracted from a view-projection matrix that
+ * transforms column vectors (m*v), as the functions in MatrixFunctions do.
+ * 
+ * @author Daba
+ *
+ */
+public class Frustum {
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+
+	public static final int PLANE_COUNT = 6;
+
+	/**
+	 * (a,b,c,d) of each plane
+	 */
+	final float[] planes;
+	private final float[] values;
+
+	/**
+	 * All planes are set to 0, so every object is inside.
+	 */
+	public Frustum() {
+		planes = new float[PLANE_COUNT * 4];
+		values = new float[16];
+	}
+	/**
+	 * Extracts planes from a view-projection matrix.<br>
+	 * Clip-space depth is assumed to be in [-w,w].
+	 * 
+	 * @param view_projection
+	 *            View-projection matrix
+	 */
+	public Frustum(Matrix view_projection) {
+		this();
+		this.SetMatrix(view_projection, false);
+	}
+
+	/**
+	 * Extracts planes from a view-projection matrix.
+	 * 
+	 * @param view_projection
+	 *            View-projection matrix
+	 * @param zero_to_one_depth
+	 *            True if clip-space depth is in [0,w], false if it is in
+	 *            [-w,w]
+	 */
+	public void SetMatrix(Matrix view_projection, boolean zero_to_one_depth) {
+		final float[] a = view_projection.GetValues(values);
+
+		for (int i = 0; i < 4; i++) {
+			final float r0 = a[i];
+			final float r1 = a[4 + i];
+			final float r2 = a[8 + i];
+			final float r3 = a[12 + i];
+
+			planes[LEFT * 4 + i] = r3 + r0;
+			planes[RIGHT * 4 + i] = r3 - r0;
+			planes[BOTTOM * 4 + i] = r3 + r1;
+			planes[TOP * 4 + i] = r3 - r1;
+			planes[NEAR * 4 + i] = zero_to_one_depth ? r2 : r3 + r2;
+			planes[FAR * 4 + i] = r3 - r2;
+		}
+
+		for (int p = 0; p < PLANE_COUNT; p++) {
+			final int o = p * 4;
+			final float len = (float) Math.sqrt(planes[o] * planes[o]
+					+ planes[o + 1] * planes[o + 1] + planes[o + 2] * planes[o + 2]);
+			if (len == 0.0f) {
+				continue;
+			}
+
+			final float rec_len = 1.0f / len;
+			planes[o] *= rec_len;
+			planes[o + 1] *= rec_len;
+			planes[o + 2] *= rec_len;
+			planes[o + 3] *= rec_len;
+		}
+	}
+
+	/**
+	 * Returns a plane.
+	 * 
+	 * @param index
+	 *            Plane index (LEFT to FAR)
+	 * @param dst
+	 *            Destination array (a,b,c,d)
+	 * @return dst
+	 */
+	public float[] GetPlane(int index, float[] dst) {
+		if (index < 0 || index >= PLANE_COUNT) {
+			throw new IndexOutOfBoundsException("Invalid plane: " + index);
+		}
+
+		System.arraycopy(planes, index * 4, dst, 0, 4);
+		return dst;
+	}
+
+	/**
+	 * Tests a sphere against the frustum.
+	 * 
+	 * @param center
+	 *            Center
+	 * @param radius
+	 *            Radius
+	 * @return True if the sphere is at least partially inside
+	 */
+	public boolean TestSphere(Vector center, float radius) {
+		return TestSphere(planes, CullingFunctions.ALL_PLANES, center.GetX(), center.GetY(),
+				center.GetZ(), radius);
+	}
+	/**
+	 * Tests an axis-aligned box against the frustum.
+	 * 
+	 * @param min
+	 *            Minimum corner
+	 * @param max
+	 *            Maximum corner
+	 * @return True if the box is at least partially inside
+	 */
+	public boolean TestAABB(Vector min, Vector max) {
+		return TestAABBVisible(planes, CullingFunctions.ALL_PLANES, min.GetX(), min.GetY(),
+				min.GetZ(), max.GetX(), max.GetY(), max.GetZ());
+	}
+
+	static boolean TestSphere(float[] planes, int mask, float x, float y, float z, float r) {
+		for (int p = 0; p < PLANE_COUNT; p++) {
+			if ((mask & (1 << p)) == 0) {
+				continue;
+			}
+
+			final int o = p * 4;
+			if (planes[o] * x + planes[o + 1] * y + planes[o + 2] * z + planes[o + 3] < -r) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+	static boolean TestAABBVisible(float[] planes, int mask, float min_x, float min_y,
+			float min_z, float max_x, float max_y, float max_z) {
+		for (int p = 0; p < PLANE_COUNT; p++) {
+			if ((mask & (1 << p)) == 0) {
+				continue;
+			}
+
+			final int o = p * 4;
+			final float a = planes[o];
+			final float b = planes[o + 1];
+			final float c = planes[o + 2];
+			if (a * (a > 0.0f ? max_x : min_x) + b * (b > 0.0f ? max_y : min_y)
+					+ c * (c > 0.0f ? max_z : min_z) + planes[o + 3] < 0.0f) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+	/**
+	 * Tests a box against the planes in a mask.
+	 * 
+	 * @return -1 if the box is outside, otherwise the subset of the mask whose
+	 *         planes the box crosses
+	 */
+	static int TestAABB(float[] planes, int mask, float min_x, float min_y, float min_z,
+			float max_x, float max_y, float max_z) {
+		int crossing = 0;
+
+		for (int p = 0; p < PLANE_COUNT; p++) {
+			if ((mask & (1 << p)) == 0) {
+				continue;
+			}
+
+			final int o = p * 4;
+			final float a = planes[o];
+			final float b = planes[o + 1];
+			final float c = planes[o + 2];
+			final float d = planes[o + 3];
+
+			// Corner farthest along the plane normal
+			final float far = a * (a > 0.0f ? max_x : min_x) + b * (b > 0.0f ? max_y : min_y)
+					+ c * (c > 0.0f ? max_z : min_z) + d;
+			if (far < 0.0f) {
+				return -1;
+			}
+
+			// Corner farthest against the plane normal
+			final float near = a * (a > 0.0f ? min_x : max_x) + b * (b > 0.0f ? min_y : max_y)
+					+ c * (c > 0.0f ? min_z : max_z) + d;
+			if (near < 0.0f) {
+				crossing |= 1 << p;
+			}
+		}
+
+		return crossing;
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.dabasan.basis.culling;
+
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * Array of bounding spheres stored as a structure of arrays
+ * 
+ * @author Daba
+ *
+ */
+public class SphereArray extends BoundsArray {
+	final float[] xs;
+	final float[] ys;
+	final float[] zs;
+	final float[] rs;
+
+	/**
+	 * All spheres are set to a point at the origin.
+	 * 
+	 * @param size
+	 *            Number of spheres
+	 */
+	public SphereArray(int size) {
+		super(size);
+
+		xs = new float[size];
+		ys = new float[size];
+		zs = new float[size];
+		rs = new float[size];
+	}
+
+	public void SetSphere(int index, float x, float y, float z, float radius) {
+		xs[index] = x;
+		ys[index] = y;
+		zs[index] = z;
+		rs[index] = radius;
+		this.MarkDirty(index);
+	}
+	public void SetSphere(int index, Vector center, float radius) {
+		this.SetSphere(index, center.GetX(), center.GetY(), center.GetZ(), radius);
+	}
+	public Vector GetCenter(int index, Vector dst) {
+		dst.SetVector(xs[index], ys[index], zs[index]);
+		return dst;
+	}
+	public float GetRadius(int index) {
+		return rs[index];
+	}
+
+	/**
+	 * Returns the backing array of center x-coordinates.<br>
+	 * Call MarkDirty() after writing to it.
+	 * 
+	 * @return X-coordinates
+	 */
+	public float[] GetXArray() {
+		return xs;
+	}
+	public float[] GetYArray() {
+		return ys;
+	}
+	public float[] GetZArray() {
+		return zs;
+	}
+	public float[] GetRadiusArray() {
+		return rs;
+	}
+
+	@Override
+	void ComputeBlockBounds(int block, int from, int to) {
+		float min_x = Float.POSITIVE_INFINITY;
+		float min_y = Float.POSITIVE_INFINITY;
+		float min_z = Float.POSITIVE_INFINITY;
+		float max_x = Float.NEGATIVE_INFINITY;
+		float max_y = Float.NEGATIVE_INFINITY;
+		float max_z = Float.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			final float r = rs[i];
+			min_x = Math.min(min_x, xs[i] - r);
+			min_y = Math.min(min_y, ys[i] - r);
+			min_z = Math.min(min_z, zs[i] - r);
+			max_x = Math.max(max_x, xs[i] + r);
+			max_y = Math.max(max_y, ys[i] + r);
+			max_z = Math.max(max_z, zs[i] + r);
+		}
+
+		block_min_xs[block] = min_x;
+		block_min_ys[block] = min_y;
+		block_min_zs[block] = min_z;
+		block_max_xs[block] = max_x;
+		block_max_ys[block] = max_y;
+		block_max_zs[block] = max_z;
+	}
+}
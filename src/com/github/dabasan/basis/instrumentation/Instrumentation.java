@@ -0,0 +1,171 @@
+package com.github.dabasan.basis.instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters for hot library functions<br>
+ * Instrumentation is compiled out unless the JVM is started with
+ * <code>-Ddh3dbasis.instrumentation=true</code>: every call site is guarded
+ * by the constant AVAILABLE, so the JIT removes it entirely otherwise. When
+ * available, recording starts enabled and can be switched off and on at run
+ * time with SetEnabled().<br>
+ * Single-value functions (MMult, MInverse, VTransform, VNorm) count calls and
+ * allocating calls. Batch functions also add their element count and elapsed
+ * time, and on JDK 16 and later commit a JDK Flight Recorder event
+ * (com.github.dabasan.basis.Batch) per batch. Counters are LongAdders, so
+ * recording from many threads does not contend.
+ *
+ * @author Daba
+ *
+ */
+public class Instrumentation {
+	/**
+	 * Whether instrumentation was requested at startup
+	 */
+	public static final boolean AVAILABLE = Boolean.getBoolean("dh3dbasis.instrumentation");
+
+	static final int CALLS = 0;
+	static final int ALLOCATIONS = 1;
+	static final int ELEMENTS = 2;
+	static final int NANOS = 3;
+	static final int FIELD_COUNT = 4;
+
+	private static final int OPERATION_COUNT = InstrumentedOperation.values().length;
+	private static final LongAdder[] COUNTERS;
+	private static volatile boolean enabled = AVAILABLE;
+
+	static {
+		COUNTERS = new LongAdder[OPERATION_COUNT * FIELD_COUNT];
+		for (int i = 0; i < COUNTERS.length; i++) {
+			COUNTERS[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Starts or stops recording.
+	 *
+	 * @param enabled
+	 *            Whether to record
+	 * @throws IllegalStateException
+	 *             If enabled is true and instrumentation is not AVAILABLE
+	 */
+	public static void SetEnabled(boolean enabled) {
+		if (enabled && !AVAILABLE) {
+			throw new IllegalStateException(
+					"Instrumentation requires -Ddh3dbasis.instrumentation=true at startup.");
+		}
+		Instrumentation.enabled = enabled;
+	}
+	public static boolean IsEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the current counter values.<br>
+	 * Counters updated concurrently may or may not be included.
+	 *
+	 * @return Snapshot
+	 */
+	public static InstrumentationSnapshot GetSnapshot() {
+		final long[] values = new long[COUNTERS.length];
+		for (int i = 0; i < COUNTERS.length; i++) {
+			values[i] = COUNTERS[i].sum();
+		}
+		return new InstrumentationSnapshot(values);
+	}
+	/**
+	 * Returns the current counter values and resets the counters to 0.<br>
+	 * This suits periodic scraping, where each snapshot covers the time since
+	 * the previous one.
+	 *
+	 * @return Snapshot
+	 */
+	public static InstrumentationSnapshot GetSnapshotAndReset() {
+		final long[] values = new long[COUNTERS.length];
+		for (int i = 0; i < COUNTERS.length; i++) {
+			values[i] = COUNTERS[i].sumThenReset();
+		}
+		return new InstrumentationSnapshot(values);
+	}
+	/**
+	 * Resets all counters to 0.
+	 */
+	public static void Reset() {
+		for (final LongAdder counter : COUNTERS) {
+			counter.reset();
+		}
+	}
+
+	/**
+	 * Records a call.<br>
+	 * Call sites should be guarded by AVAILABLE.
+	 *
+	 * @param op
+	 *            Operation
+	 */
+	public static void CountCall(InstrumentedOperation op) {
+		if (enabled) {
+			COUNTERS[op.ordinal() * FIELD_COUNT + CALLS].increment();
+		}
+	}
+	/**
+	 * Records a call that allocates its result.<br>
+	 * Call sites should be guarded by AVAILABLE.
+	 *
+	 * @param op
+	 *            Operation
+	 */
+	public static void CountAllocation(InstrumentedOperation op) {
+		if (enabled) {
+			COUNTERS[op.ordinal() * FIELD_COUNT + ALLOCATIONS].increment();
+		}
+	}
+	/**
+	 * Returns the start time of a batch for EndBatch().<br>
+	 * Call sites should be guarded by AVAILABLE.
+	 *
+	 * @return Start time, or Long.MIN_VALUE if recording is disabled
+	 */
+	public static long StartBatch() {
+		return enabled ? System.nanoTime() : Long.MIN_VALUE;
+	}
+	/**
+	 * Records a batch started with StartBatch().<br>
+	 * Call sites should be guarded by AVAILABLE.
+	 *
+	 * @param op
+	 *            Operation
+	 * @param elements
+	 *            Number of elements
+	 * @param start
+	 *            Value returned by StartBatch()
+	 */
+	public static void EndBatch(InstrumentedOperation op, int elements, long start) {
+		if (start != Long.MIN_VALUE) {
+			RecordBatch(op, elements, System.nanoTime() - start);
+		}
+	}
+	/**
+	 * Records a batch that was timed by the caller.<br>
+	 * Call sites should be guarded by AVAILABLE.
+	 *
+	 * @param op
+	 *            Operation
+	 * @param elements
+	 *            Number of elements
+	 * @param nanos
+	 *            Elapsed time (ns)
+	 */
+	public static void RecordBatch(InstrumentedOperation op, int elements, long nanos) {
+		if (!enabled) {
+			return;
+		}
+
+		final int base = op.ordinal() * FIELD_COUNT;
+		COUNTERS[base + CALLS].increment();
+		COUNTERS[base + ELEMENTS].add(elements);
+		COUNTERS[base + NANOS].add(nanos);
+
+		InstrumentationEvents.CommitBatch(op, elements, nanos);
+	}
+}
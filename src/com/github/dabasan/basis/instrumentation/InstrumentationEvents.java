@@ -0,0 +1,15 @@
+package com.github.dabasan.basis.instrumentation;
+
+/**
+ * Emits JDK Flight Recorder events.<br>
+ * This is the Java 8 version, which does nothing. On JDK 16 and later, the
+ * multi-release JAR replaces this class with a version that commits a JFR
+ * event for every recorded batch.
+ * 
+ * @author Daba
+ *
+ */
+class InstrumentationEvents {
+	static void CommitBatch(InstrumentedOperation op, int elements, long nanos) {
+	}
+}
@@ -0,0 +1,83 @@
+package com.github.dabasan.basis.instrumentation;
+
+/**
+ * Counter values of Instrumentation at one point in time
+ * 
+ * @author Daba
+ *
+ */
+public class InstrumentationSnapshot {
+	private static final InstrumentedOperation[] OPERATIONS = InstrumentedOperation.values();
+
+	private final long[] values;
+
+	/**
+	 * @param values
+	 *            Counter values (Instrumentation.FIELD_COUNT per operation)
+	 */
+	InstrumentationSnapshot(long[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Returns one line per operation in the form
+	 * <code>NAME calls=.. allocations=.. elements=.. nanos=..</code>.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		final String separator = System.getProperty("line.separator");
+
+		for (final InstrumentedOperation op : OPERATIONS) {
+			sb.append(op.name());
+			sb.append(" calls=").append(this.GetCalls(op));
+			sb.append(" allocations=").append(this.GetAllocations(op));
+			sb.append(" elements=").append(this.GetElements(op));
+			sb.append(" nanos=").append(this.GetNanos(op));
+			sb.append(separator);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of calls.
+	 * 
+	 * @param op
+	 *            Operation
+	 * @return Number of calls
+	 */
+	public long GetCalls(InstrumentedOperation op) {
+		return values[op.ordinal() * Instrumentation.FIELD_COUNT + Instrumentation.CALLS];
+	}
+	/**
+	 * Returns the number of calls that allocated their result.
+	 * 
+	 * @param op
+	 *            Operation
+	 * @return Number of allocating calls
+	 */
+	public long GetAllocations(InstrumentedOperation op) {
+		return values[op.ordinal() * Instrumentation.FIELD_COUNT + Instrumentation.ALLOCATIONS];
+	}
+	/**
+	 * Returns the total number of elements processed by batch calls.
+	 * 
+	 * @param op
+	 *            Operation
+	 * @return Number of elements
+	 */
+	public long GetElements(InstrumentedOperation op) {
+		return values[op.ordinal() * Instrumentation.FIELD_COUNT + Instrumentation.ELEMENTS];
+	}
+	/**
+	 * Returns the total time spent in batch calls.
+	 * 
+	 * @param op
+	 *            Operation
+	 * @return Elapsed time (ns)
+	 */
+	public long GetNanos(InstrumentedOperation op) {
+		return values[op.ordinal() * Instrumentation.FIELD_COUNT + Instrumentation.NANOS];
+	}
+}
@@ -0,0 +1,44 @@
+package com.github.dabasan.basis.instrumentation;
+
+/**
+ * Operation counted by Instrumentation
+ * 
+ * @author Daba
+ *
+ */
+public enum InstrumentedOperation {
+	/**
+	 * MatrixFunctions.MMult()
+	 */
+	MMULT,
+	/**
+	 * MatrixFunctions.MInverse() and MTryInverse() on single matrices
+	 */
+	MINVERSE,
+	/**
+	 * MatrixFunctions.VTransform(), VTransformSR() and VProject() on single
+	 * vectors
+	 */
+	VTRANSFORM,
+	/**
+	 * VectorFunctions.VNorm()
+	 */
+	VNORM,
+	/**
+	 * MatrixFunctions.VTransform(), VTransformSR() and VProject() on vector
+	 * arrays
+	 */
+	VTRANSFORM_ARRAY,
+	/**
+	 * VectorArrayFunctions batch functions
+	 */
+	VECTOR_ARRAY,
+	/**
+	 * MatrixFunctions.MTryInverse() on matrix arrays
+	 */
+	MINVERSE_ARRAY,
+	/**
+	 * Batches processed by ParallelRunner (i.e. by every parallel API)
+	 */
+	PARALLEL_BATCH
+}
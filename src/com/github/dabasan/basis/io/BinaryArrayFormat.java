@@ -0,0 +1,38 @@
+package com.github.dabasan.basis.io;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of binary array files<br>
+ * All values are little-endian. A file consists of a 32-byte header, the
+ * elements, and for matrices one byte per matrix holding the ordinal of its
+ * MatrixKind.
+ * 
+ * <pre>
+ * offset  size  content
+ *      0     4  magic "DH3A"
+ *      4     4  format version
+ *      8     4  element type (BinaryArrayType)
+ *     12     4  matrix order (ordinal of MatrixOrder, 0 for vectors)
+ *     16     8  number of elements
+ *     24     8  reserved (0)
+ * </pre>
+ * 
+ * Elements start at a 32-byte boundary, so the whole file can be mapped and
+ * the element region wrapped by MatrixBuffer or VectorBuffer without copying.
+ * 
+ * @author Daba
+ *
+ */
+class BinaryArrayFormat {
+	static final int MAGIC = 'D' | 'H' << 8 | '3' << 16 | 'A' << 24;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int MAGIC_OFFSET = 0;
+	static final int VERSION_OFFSET = 4;
+	static final int TYPE_OFFSET = 8;
+	static final int ORDER_OFFSET = 12;
+	static final int COUNT_OFFSET = 16;
+}
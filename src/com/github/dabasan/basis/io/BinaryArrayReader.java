@@ -0,0 +1,222 @@
+package com.github.dabasan.basis.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixBuffer;
+import com.github.dabasan.basis.matrix.MatrixKind;
+import com.github.dabasan.basis.matrix.MatrixOrder;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorBuffer;
+
+/**
+ * Reads a binary array file written by BinaryArrayWriter<br>
+ * The file is memory-mapped when opened, so opening does not depend on the
+ * number of elements and any element can be read without touching the
+ * others. The mapping stays valid after close() until it is garbage
+ * collected. Files are limited to 2 GiB.
+ * 
+ * @author Daba
+ *
+ */
+public class BinaryArrayReader implements Closeable {
+	private static final MatrixKind[] KINDS = MatrixKind.values();
+
+	private final FileChannel channel;
+	private final BinaryArrayType type;
+	private final int version;
+	private final int count;
+	private final MatrixBuffer matrices;
+	private final VectorBuffer vectors;
+	private final ByteBuffer kinds;
+
+	/**
+	 * Opens and maps a file.
+	 * 
+	 * @param path
+	 *            Path
+	 * @throws IOException
+	 *             If the file cannot be read or is not a valid binary array
+	 *             file
+	 */
+	public BinaryArrayReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			final long size = channel.size();
+			if (size < BinaryArrayFormat.HEADER_SIZE) {
+				throw new IOException("Not a binary array file: " + path);
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File too large to map: " + path);
+			}
+
+			final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			map.order(BinaryArrayFormat.BYTE_ORDER);
+
+			if (map.getInt(BinaryArrayFormat.MAGIC_OFFSET) != BinaryArrayFormat.MAGIC) {
+				throw new IOException("Not a binary array file: " + path);
+			}
+			version = map.getInt(BinaryArrayFormat.VERSION_OFFSET);
+			if (version < 1 || version > BinaryArrayFormat.VERSION) {
+				throw new IOException("Unsupported format version " + version + ": " + path);
+			}
+			type = BinaryArrayType.FromCode(map.getInt(BinaryArrayFormat.TYPE_OFFSET));
+			final int order_ordinal = map.getInt(BinaryArrayFormat.ORDER_OFFSET);
+			if (type == null || order_ordinal < 0 || order_ordinal >= MatrixOrder.values().length) {
+				throw new IOException("Corrupt header: " + path);
+			}
+
+			final long stored_count = map.getLong(BinaryArrayFormat.COUNT_OFFSET);
+			final long record_size = type == BinaryArrayType.MATRIX ? type.element_size + 1
+					: type.element_size;
+			if (stored_count < 0 || stored_count > size
+					|| BinaryArrayFormat.HEADER_SIZE + stored_count * record_size != size) {
+				throw new IOException("Truncated or unfinished file: " + path);
+			}
+			count = (int) stored_count;
+
+			final int data_end = BinaryArrayFormat.HEADER_SIZE + count * type.element_size;
+			final ByteBuffer data = Slice(map, BinaryArrayFormat.HEADER_SIZE, data_end);
+
+			if (type == BinaryArrayType.MATRIX) {
+				matrices = new MatrixBuffer(data, MatrixOrder.values()[order_ordinal]);
+				vectors = null;
+				kinds = Slice(map, data_end, (int) size);
+			} else {
+				matrices = null;
+				vectors = new VectorBuffer(data);
+				kinds = null;
+			}
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public BinaryArrayType GetType() {
+		return type;
+	}
+	public int GetVersion() {
+		return version;
+	}
+	public int GetCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the mapped matrices.<br>
+	 * The buffer is read-only and its kinds are not tracked; use GetMatrix()
+	 * to get matrices with their stored kind.
+	 * 
+	 * @return Matrix buffer
+	 */
+	public MatrixBuffer GetMatrixBuffer() {
+		this.CheckType(BinaryArrayType.MATRIX);
+		return matrices;
+	}
+	/**
+	 * Returns the mapped vectors.<br>
+	 * The buffer is read-only.
+	 * 
+	 * @return Vector buffer
+	 */
+	public VectorBuffer GetVectorBuffer() {
+		this.CheckType(BinaryArrayType.VECTOR);
+		return vectors;
+	}
+
+	/**
+	 * Loads a matrix with its stored kind.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetMatrix(int index, Matrix dst) {
+		this.CheckType(BinaryArrayType.MATRIX);
+		this.CheckIndex(index);
+
+		matrices.GetMatrix(index, dst);
+
+		// Kinds from a newer writer fall back to GENERAL, which is always safe.
+		final int kind = kinds.get(index);
+		if (kind >= 0 && kind < KINDS.length) {
+			dst.SetKind(KINDS[kind]);
+		}
+
+		return dst;
+	}
+	public Matrix GetMatrix(int index) {
+		return this.GetMatrix(index, new Matrix());
+	}
+	/**
+	 * Loads matrices with their stored kinds.
+	 * 
+	 * @param index
+	 *            First index in the file
+	 * @param dst
+	 *            Destination matrices
+	 * @param offset
+	 *            First index in dst
+	 * @param count
+	 *            Number of matrices
+	 */
+	public void GetMatrices(int index, Matrix[] dst, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.GetMatrix(index + i, dst[offset + i]);
+		}
+	}
+	/**
+	 * Loads a vector.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 */
+	public Vector GetVector(int index, Vector dst) {
+		this.CheckType(BinaryArrayType.VECTOR);
+		this.CheckIndex(index);
+
+		return vectors.GetVector(index, dst);
+	}
+	public Vector GetVector(int index) {
+		return this.GetVector(index, new Vector());
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Returns the bytes from start to end as a new buffer, leaving the
+	 * position and the limit of the mapping untouched.
+	 */
+	private static ByteBuffer Slice(ByteBuffer map, int start, int end) {
+		final ByteBuffer view = map.duplicate();
+		view.position(start);
+		view.limit(end);
+		return view.slice().order(BinaryArrayFormat.BYTE_ORDER);
+	}
+	private void CheckType(BinaryArrayType expected) {
+		if (type != expected) {
+			throw new IllegalStateException("The file stores elements of type " + type + ".");
+		}
+	}
+	private void CheckIndex(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Invalid index: " + index);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.github.dabasan.basis.io;
+
+/**
+ * Kind of elements stored in a binary array file
+ * 
+ * @author Daba
+ *
+ */
+public enum BinaryArrayType {
+	/**
+	 * 3D vectors, 3 floats each
+	 */
+	VECTOR(1, 12),
+	/**
+	 * 4x4 matrices, 16 floats each, followed by one byte per matrix for its
+	 * kind
+	 */
+	MATRIX(2, 64);
+
+	final int code;
+	final int element_size;
+
+	private BinaryArrayType(int code, int element_size) {
+		this.code = code;
+		this.element_size = element_size;
+	}
+
+	static BinaryArrayType FromCode(int code) {
+		for (final BinaryArrayType type : values()) {
+			if (type.code == code) {
+				return type;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,308 @@
+package com.github.dabasan.basis.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixOrder;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorArray;
+
+/**
+ * Writes matrices or vectors to a binary array file<br>
+ * Elements are appended through a fixed staging buffer, so arrays of any
+ * length can be written with constant memory (plus one byte per matrix for
+ * its kind). The header is completed by close(); a file that was not closed
+ * is rejected by BinaryArrayReader.<br>
+ * BinaryArrayReader maps the whole file, so a file may not exceed
+ * Integer.MAX_VALUE bytes. WriteMatrix() and WriteVector() throw an
+ * IOException instead of appending an element that would make the file
+ * larger, which limits a file to about 33 million matrices or 179 million
+ * vectors.
+ * 
+ * @author Daba
+ *
+ */
+public class BinaryArrayWriter implements Closeable {
+	private static final int STAGING_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final BinaryArrayType type;
+	private final MatrixOrder order;
+	private final ByteBuffer staging;
+	private final float[] values;
+	private byte[] kinds;
+	private final long max_count;
+	private long count;
+	private boolean closed;
+
+	/**
+	 * Creates a file of vectors or of row-major matrices.<br>
+	 * An existing file is overwritten.
+	 * 
+	 * @param path
+	 *            Path
+	 * @param type
+	 *            Element type
+	 * @throws IOException
+	 *             If the file cannot be created
+	 */
+	public BinaryArrayWriter(Path path, BinaryArrayType type) throws IOException {
+		this(path, type, MatrixOrder.ROW_MAJOR);
+	}
+	/**
+	 * Creates a file.<br>
+	 * An existing file is overwritten.
+	 * 
+	 * @param path
+	 *            Path
+	 * @param type
+	 *            Element type
+	 * @param order
+	 *            Order of matrix elements in the file (ignored for vectors)
+	 * @throws IOException
+	 *             If the file cannot be created
+	 */
+	public BinaryArrayWriter(Path path, BinaryArrayType type, MatrixOrder order)
+			throws IOException {
+		this.type = type;
+		this.order = type == BinaryArrayType.MATRIX ? order : MatrixOrder.ROW_MAJOR;
+		this.staging = ByteBuffer.allocateDirect(STAGING_SIZE).order(BinaryArrayFormat.BYTE_ORDER);
+		this.values = new float[16];
+		this.kinds = type == BinaryArrayType.MATRIX ? new byte[1024] : null;
+
+		final int record_size = type == BinaryArrayType.MATRIX ? type.element_size + 1
+				: type.element_size;
+		this.max_count = (Integer.MAX_VALUE - BinaryArrayFormat.HEADER_SIZE) / record_size;
+
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		// The header is rewritten with the final count on close.
+		this.PutHeader(staging, 0);
+	}
+
+	public BinaryArrayType GetType() {
+		return type;
+	}
+	/**
+	 * Returns the number of elements written so far.
+	 * 
+	 * @return Number of elements
+	 */
+	public long GetCount() {
+		return count;
+	}
+
+	/**
+	 * Appends a matrix.
+	 * 
+	 * @param m
+	 *            Matrix
+	 * @throws IOException
+	 *             If writing fails or the file would exceed Integer.MAX_VALUE
+	 *             bytes
+	 */
+	public void WriteMatrix(Matrix m) throws IOException {
+		this.CheckType(BinaryArrayType.MATRIX);
+		this.Reserve(64);
+		this.CheckCapacity();
+
+		m.GetValues(values);
+		if (order == MatrixOrder.ROW_MAJOR) {
+			for (int i = 0; i < 16; i++) {
+				staging.putFloat(values[i]);
+			}
+		} else {
+			for (int c = 0; c < 4; c++) {
+				for (int r = 0; r < 4; r++) {
+					staging.putFloat(values[r * 4 + c]);
+				}
+			}
+		}
+
+		if (count == kinds.length) {
+			kinds = Arrays.copyOf(kinds, kinds.length * 2);
+		}
+		kinds[(int) count] = (byte) m.GetKind().ordinal();
+		count++;
+	}
+	/**
+	 * Appends matrices.
+	 * 
+	 * @param src
+	 *            Source matrices
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of matrices
+	 * @throws IOException
+	 *             If writing fails
+	 */
+	public void WriteMatrices(Matrix[] src, int offset, int count) throws IOException {
+		for (int i = offset; i < offset + count; i++) {
+			this.WriteMatrix(src[i]);
+		}
+	}
+	public void WriteMatrices(Matrix[] src) throws IOException {
+		this.WriteMatrices(src, 0, src.length);
+	}
+	/**
+	 * Appends a vector.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @throws IOException
+	 *             If writing fails or the file would exceed Integer.MAX_VALUE
+	 *             bytes
+	 */
+	public void WriteVector(float x, float y, float z) throws IOException {
+		this.CheckType(BinaryArrayType.VECTOR);
+		this.Reserve(12);
+		this.CheckCapacity();
+
+		staging.putFloat(x);
+		staging.putFloat(y);
+		staging.putFloat(z);
+		count++;
+	}
+	public void WriteVector(Vector v) throws IOException {
+		this.WriteVector(v.GetX(), v.GetY(), v.GetZ());
+	}
+	/**
+	 * Appends vectors.
+	 * 
+	 * @param src
+	 *            Source vectors
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of vectors
+	 * @throws IOException
+	 *             If writing fails
+	 */
+	public void WriteVectors(Vector[] src, int offset, int count) throws IOException {
+		for (int i = offset; i < offset + count; i++) {
+			this.WriteVector(src[i].GetX(), src[i].GetY(), src[i].GetZ());
+		}
+	}
+	public void WriteVectors(Vector[] src) throws IOException {
+		this.WriteVectors(src, 0, src.length);
+	}
+	/**
+	 * Appends vectors from a vector array.
+	 * 
+	 * @param src
+	 *            Source vector array
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of vectors
+	 * @throws IOException
+	 *             If writing fails
+	 */
+	public void WriteVectorArray(VectorArray src, int offset, int count) throws IOException {
+		final float[] xs = src.GetXArray();
+		final float[] ys = src.GetYArray();
+		final float[] zs = src.GetZArray();
+		for (int i = offset; i < offset + count; i++) {
+			this.WriteVector(xs[i], ys[i], zs[i]);
+		}
+	}
+	public void WriteVectorArray(VectorArray src) throws IOException {
+		this.WriteVectorArray(src, 0, src.GetSize());
+	}
+
+	/**
+	 * Writes buffered elements to the file.
+	 * 
+	 * @throws IOException
+	 *             If writing fails
+	 */
+	public void Flush() throws IOException {
+		this.CheckOpen();
+		this.Drain();
+	}
+	/**
+	 * Writes the remaining elements, the matrix kinds and the final header,
+	 * then closes the file.
+	 * 
+	 * @throws IOException
+	 *             If writing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			this.Drain();
+
+			if (kinds != null) {
+				final ByteBuffer kind_bytes = ByteBuffer.wrap(kinds, 0, (int) count);
+				while (kind_bytes.hasRemaining()) {
+					channel.write(kind_bytes);
+				}
+			}
+
+			this.PutHeader(staging, count);
+			staging.flip();
+			long position = 0;
+			while (staging.hasRemaining()) {
+				position += channel.write(staging, position);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void PutHeader(ByteBuffer buffer, long count) {
+		buffer.clear();
+		buffer.putInt(BinaryArrayFormat.MAGIC);
+		buffer.putInt(BinaryArrayFormat.VERSION);
+		buffer.putInt(type.code);
+		buffer.putInt(order.ordinal());
+		buffer.putLong(count);
+		buffer.putLong(0);
+	}
+	private void Reserve(int size) throws IOException {
+		this.CheckOpen();
+		if (staging.remaining() < size) {
+			this.Drain();
+		}
+	}
+	private void Drain() throws IOException {
+		staging.flip();
+		while (staging.hasRemaining()) {
+			channel.write(staging);
+		}
+		staging.clear();
+	}
+	private void CheckType(BinaryArrayType expected) {
+		if (type != expected) {
+			throw new IllegalStateException("The file stores elements of type " + type + ".");
+		}
+	}
+	private void CheckCapacity() throws IOException {
+		if (count >= max_count) {
+			throw new IOException(
+					"A binary array file holds at most " + max_count + " elements of this type.");
+		}
+	}
+	private void CheckOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The writer is closed.");
+		}
+	}
+}
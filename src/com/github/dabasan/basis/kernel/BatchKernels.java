@@ -0,0 +1,163 @@
+package com.github.dabasan.basis.kernel;
+
+/**
+ * Low-level kernels operating on primitive arrays<br>
+ * Used by MatrixFunctions, VectorArrayFunctions and ColorU8Functions.
+ * Matrices are passed as row-major arrays of 16 floats. Vectors are passed as
+ * separate X, Y and Z arrays, processed in the range [from, to). Destinations
+ * may be the same arrays as the sources.
+ * 
+ * @author Daba
+ *
+ */
+public interface BatchKernels {
+	/**
+	 * Returns the name of the implementation.
+	 * 
+	 * @return Name
+	 */
+	public String GetName();
+
+	/**
+	 * Multiplies two 4x4 matrices together.
+	 * 
+	 * @param a
+	 *            First matrix
+	 * @param b
+	 *            Second matrix
+	 * @param r
+	 *            Destination matrix (may be a or b)
+	 */
+	public void MMult(float[] a, float[] b, float[] r);
+	/**
+	 * Transforms vectors.
+	 * 
+	 * @param m
+	 *            Matrix
+	 * @param xs
+	 *            Source X-coordinates
+	 * @param ys
+	 *            Source Y-coordinates
+	 * @param zs
+	 *            Source Z-coordinates
+	 * @param dxs
+	 *            Destination X-coordinates
+	 * @param dys
+	 *            Destination Y-coordinates
+	 * @param dzs
+	 *            Destination Z-coordinates
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void VTransform(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to);
+	/**
+	 * Transforms vectors without translation.
+	 * 
+	 * @param m
+	 *            Matrix
+	 * @param xs
+	 *            Source X-coordinates
+	 * @param ys
+	 *            Source Y-coordinates
+	 * @param zs
+	 *            Source Z-coordinates
+	 * @param dxs
+	 *            Destination X-coordinates
+	 * @param dys
+	 *            Destination Y-coordinates
+	 * @param dzs
+	 *            Destination Z-coordinates
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void VTransformSR(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to);
+	/**
+	 * Normalizes vectors.
+	 * 
+	 * @param xs
+	 *            Source X-coordinates
+	 * @param ys
+	 *            Source Y-coordinates
+	 * @param zs
+	 *            Source Z-coordinates
+	 * @param dxs
+	 *            Destination X-coordinates
+	 * @param dys
+	 *            Destination Y-coordinates
+	 * @param dzs
+	 *            Destination Z-coordinates
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void VNorm(float[] xs, float[] ys, float[] zs, float[] dxs, float[] dys, float[] dzs,
+			int from, int to);
+	/**
+	 * Calculates dot products element by element.
+	 * 
+	 * @param lxs
+	 *            First X-coordinates
+	 * @param lys
+	 *            First Y-coordinates
+	 * @param lzs
+	 *            First Z-coordinates
+	 * @param rxs
+	 *            Second X-coordinates
+	 * @param rys
+	 *            Second Y-coordinates
+	 * @param rzs
+	 *            Second Z-coordinates
+	 * @param dst
+	 *            Destination array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float[] rxs, float[] rys,
+			float[] rzs, float[] dst, int from, int to);
+	/**
+	 * Calculates dot products with a single vector.
+	 * 
+	 * @param lxs
+	 *            X-coordinates
+	 * @param lys
+	 *            Y-coordinates
+	 * @param lzs
+	 *            Z-coordinates
+	 * @param rx
+	 *            X-coordinate of the vector
+	 * @param ry
+	 *            Y-coordinate of the vector
+	 * @param rz
+	 *            Z-coordinate of the vector
+	 * @param dst
+	 *            Destination array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float rx, float ry, float rz,
+			float[] dst, int from, int to);
+	/**
+	 * Converts 8-bit channel values (0-255) to floats (0.0-1.0).
+	 * 
+	 * @param src
+	 *            Source values
+	 * @param dst
+	 *            Destination values
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void U8ToFloat(int[] src, float[] dst, int from, int to);
+}
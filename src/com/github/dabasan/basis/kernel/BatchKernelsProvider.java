@@ -0,0 +1,24 @@
+package com.github.dabasan.basis.kernel;
+
+/**
+ * Selects the batch kernel implementation.<br>
+ * This is the Java 8 version, which always returns the scalar kernels. On JDK
+ * 16 and later, the multi-release JAR replaces this class with a version that
+ * returns SIMD kernels backed by the Vector API when the
+ * jdk.incubator.vector module is available.
+ * 
+ * @author Daba
+ *
+ */
+public class BatchKernelsProvider {
+	private static final BatchKernels KERNELS = new ScalarBatchKernels();
+
+	/**
+	 * Returns the kernels used by this library.
+	 * 
+	 * @return Kernels
+	 */
+	public static BatchKernels GetKernels() {
+		return KERNELS;
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.dabasan.basis.kernel;
+
+/**
+ * Plain Java implementation of the batch kernels<br>
+ * Used on every JDK and as the fallback when no SIMD implementation is
+ * available.
+ * 
+ * @author Daba
+ *
+ */
+public class ScalarBatchKernels implements BatchKernels {
+	@Override
+	public String GetName() {
+		return "scalar";
+	}
+
+	@Override
+	public void MMult(float[] a, float[] b, float[] r) {
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float a03 = a[3];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float a13 = a[7];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+		final float a23 = a[11];
+		final float a30 = a[12];
+		final float a31 = a[13];
+		final float a32 = a[14];
+		final float a33 = a[15];
+		final float b00 = b[0];
+		final float b01 = b[1];
+		final float b02 = b[2];
+		final float b03 = b[3];
+		final float b10 = b[4];
+		final float b11 = b[5];
+		final float b12 = b[6];
+		final float b13 = b[7];
+		final float b20 = b[8];
+		final float b21 = b[9];
+		final float b22 = b[10];
+		final float b23 = b[11];
+		final float b30 = b[12];
+		final float b31 = b[13];
+		final float b32 = b[14];
+		final float b33 = b[15];
+
+		r[0] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+		r[1] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+		r[2] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+		r[3] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+		r[4] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+		r[5] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+		r[6] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+		r[7] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+		r[8] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+		r[9] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+		r[10] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+		r[11] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+		r[12] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+		r[13] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+		r[14] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+		r[15] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
+	}
+	@Override
+	public void VTransform(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to) {
+		final float m00 = m[0];
+		final float m01 = m[1];
+		final float m02 = m[2];
+		final float m03 = m[3];
+		final float m10 = m[4];
+		final float m11 = m[5];
+		final float m12 = m[6];
+		final float m13 = m[7];
+		final float m20 = m[8];
+		final float m21 = m[9];
+		final float m22 = m[10];
+		final float m23 = m[11];
+
+		float x, y, z;
+		for (int i = from; i < to; i++) {
+			x = xs[i];
+			y = ys[i];
+			z = zs[i];
+
+			dxs[i] = m00 * x + m01 * y + m02 * z + m03;
+			dys[i] = m10 * x + m11 * y + m12 * z + m13;
+			dzs[i] = m20 * x + m21 * y + m22 * z + m23;
+		}
+	}
+	@Override
+	public void VTransformSR(float[] m, float[] xs, float[] ys, float[] zs, float[] dxs,
+			float[] dys, float[] dzs, int from, int to) {
+		final float m00 = m[0];
+		final float m01 = m[1];
+		final float m02 = m[2];
+		final float m10 = m[4];
+		final float m11 = m[5];
+		final float m12 = m[6];
+		final float m20 = m[8];
+		final float m21 = m[9];
+		final float m22 = m[10];
+
+		float x, y, z;
+		for (int i = from; i < to; i++) {
+			x = xs[i];
+			y = ys[i];
+			z = zs[i];
+
+			dxs[i] = m00 * x + m01 * y + m02 * z;
+			dys[i] = m10 * x + m11 * y + m12 * z;
+			dzs[i] = m20 * x + m21 * y + m22 * z;
+		}
+	}
+	@Override
+	public void VNorm(float[] xs, float[] ys, float[] zs, float[] dxs, float[] dys, float[] dzs,
+			int from, int to) {
+		float x;
+		float y;
+		float z;
+		float size;
+		for (int i = from; i < to; i++) {
+			x = xs[i];
+			y = ys[i];
+			z = zs[i];
+			size = (float) Math.sqrt(x * x + y * y + z * z);
+
+			dxs[i] = x / size;
+			dys[i] = y / size;
+			dzs[i] = z / size;
+		}
+	}
+	@Override
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float[] rxs, float[] rys,
+			float[] rzs, float[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = lxs[i] * rxs[i] + lys[i] * rys[i] + lzs[i] * rzs[i];
+		}
+	}
+	@Override
+	public void VDot(float[] lxs, float[] lys, float[] lzs, float rx, float ry, float rz,
+			float[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = lxs[i] * rx + lys[i] * ry + lzs[i] * rz;
+		}
+	}
+	@Override
+	public void U8ToFloat(int[] src, float[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = src[i] / 255.0f;
+		}
+	}
+}
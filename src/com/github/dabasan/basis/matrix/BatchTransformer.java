@@ -0,0 +1,168 @@
+package com.github.dabasan.basis.matrix;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dabasan.basis.instrumentation.Instrumentation;
+import com.github.dabasan.basis.instrumentation.InstrumentedOperation;
+import com.github.dabasan.basis.kernel.BatchKernels;
+import com.github.dabasan.basis.kernel.BatchKernelsProvider;
+import com.github.dabasan.basis.parallel.BatchTiming;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+import com.github.dabasan.basis.vector.VectorArray;
+
+/**
+ * Transforms large vector arrays and inverts large matrix arrays in
+ * parallel.<br>
+ * Each method splits the array across the threads of its ParallelRunner.
+ * Transforms return the timing of the batch, and inverses return the number
+ * of singular matrices over all chunks. With instrumentation, each call is
+ * recorded as one batch of the whole array rather than one per chunk.
+ * 
+ * @author Daba
+ *
+ */
+public class BatchTransformer {
+	/**
+	 * Inverting a matrix is a relatively large amount of work.
+	 */
+	private static final int PARALLEL_MIN_MATRICES = 1024;
+	private static final BatchKernels KERNELS = BatchKernelsProvider.GetKernels();
+
+	private final ParallelRunner runner;
+
+	/**
+	 * Uses the common ForkJoinPool.
+	 */
+	public BatchTransformer() {
+		this(new ParallelRunner());
+	}
+	public BatchTransformer(ParallelRunner runner) {
+		this.runner = runner;
+	}
+
+	public ParallelRunner GetRunner() {
+		return runner;
+	}
+
+	/**
+	 * Transforms vectors.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming VTransform(VectorArray v, Matrix m, VectorArray dst) {
+		return Record(InstrumentedOperation.VTRANSFORM_ARRAY, runner.Run(0, dst.GetSize(),
+				(from, to) -> MatrixFunctions.VTransformKernel(v, m, dst, from, to)));
+	}
+	/**
+	 * Transforms vectors without translation.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming VTransformSR(VectorArray v, Matrix m, VectorArray dst) {
+		return Record(InstrumentedOperation.VTRANSFORM_ARRAY, runner.Run(0, dst.GetSize(),
+				(from, to) -> MatrixFunctions.VTransformSRKernel(v, m, dst, from, to)));
+	}
+	/**
+	 * Transforms vectors and performs the perspective division.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix (e.g. a projection matrix)
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming VProject(VectorArray v, Matrix m, VectorArray dst) {
+		return Record(InstrumentedOperation.VTRANSFORM_ARRAY, runner.Run(0, dst.GetSize(),
+				(from, to) -> MatrixFunctions.VProjectKernel(v, m, dst, from, to)));
+	}
+	/**
+	 * Normalizes vectors.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @return Timing of the batch
+	 */
+	public BatchTiming VNorm(VectorArray v, VectorArray dst) {
+		return Record(InstrumentedOperation.VECTOR_ARRAY,
+				runner.Run(0, dst.GetSize(),
+						(from, to) -> KERNELS.VNorm(v.GetXArray(), v.GetYArray(), v.GetZArray(),
+								dst.GetXArray(), dst.GetYArray(), dst.GetZArray(), from, to)));
+	}
+	/**
+	 * Inverts matrices unless they are nearly singular.<br>
+	 * See MatrixFunctions.MTryInverse(Matrix, Matrix, float) for epsilon.
+	 * 
+	 * @param m
+	 *            Original matrices
+	 * @param dst
+	 *            Destination matrices (may be m)
+	 * @param epsilon
+	 *            Relative tolerance
+	 * @param success
+	 *            Receives whether each matrix was inverted (may be null)
+	 * @return Number of singular matrices
+	 */
+	public int MTryInverse(Matrix[] m, Matrix[] dst, float epsilon, boolean[] success) {
+		// Fail before any chunk writes, as the sequential form does.
+		MatrixFunctions.CheckWritable(dst, 0, dst.length);
+
+		final AtomicInteger singular_count = new AtomicInteger();
+		final BatchTiming timing = runner.Run(0, dst.length, PARALLEL_MIN_MATRICES,
+				(from, to) -> {
+					singular_count.addAndGet(
+							MatrixFunctions.MTryInverseKernel(m, dst, epsilon, success, from, to));
+				});
+		Record(InstrumentedOperation.MINVERSE_ARRAY, timing);
+
+		return singular_count.get();
+	}
+	/**
+	 * Inverts packed matrices unless they are nearly singular.<br>
+	 * See MatrixFunctions.MTryInverse(Matrix, Matrix, float) for epsilon.
+	 * 
+	 * @param m
+	 *            Original matrices (16 floats per matrix in row-major order)
+	 * @param dst
+	 *            Destination matrices (16 floats per matrix, may be m)
+	 * @param epsilon
+	 *            Relative tolerance
+	 * @param dets
+	 *            Receives the determinant of each matrix, or 0 for singular
+	 *            matrices (may be null)
+	 * @return Number of singular matrices
+	 */
+	public int MTryInverse(float[] m, float[] dst, float epsilon, float[] dets) {
+		final AtomicInteger singular_count = new AtomicInteger();
+		final BatchTiming timing = runner.Run(0, dst.length / 16, PARALLEL_MIN_MATRICES,
+				(from, to) -> {
+					singular_count.addAndGet(
+							MatrixFunctions.MTryInverseKernel(m, dst, epsilon, dets, from, to));
+				});
+		Record(InstrumentedOperation.MINVERSE_ARRAY, timing);
+
+		return singular_count.get();
+	}
+
+	private static BatchTiming Record(InstrumentedOperation op, BatchTiming timing) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.RecordBatch(op, timing.GetElementCount(), timing.GetElapsedNanos());
+		}
+		return timing;
+	}
+}
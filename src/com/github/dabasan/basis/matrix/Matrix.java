@@ -1,25 +1,36 @@
 package com.github.dabasan.basis.matrix;
 
+import java.util.Arrays;
+
 /**
- * 4x4 matrix
+ * 4x4 matrix<br>
+ * Elements are stored in a flat row-major array of 16 floats. Each matrix also
+ * carries a MatrixKind that MatrixFunctions uses to select cheaper kernels.
+ * Matrices built by MatrixFunctions get their kind automatically. Matrices
+ * edited with SetValue() or SetValues() become GENERAL unless SetKind() is
+ * called afterwards.<br>
+ * A matrix may be read-only, in which case every attempt to modify it,
+ * including passing it as a destination to MatrixFunctions, throws
+ * UnsupportedOperationException. See MatrixFunctions.MGetReadOnlyView().
  * 
  * @author Daba
  *
  */
 public class Matrix {
-	private final float[][] m;
+	/**
+	 * Elements in row-major order (m[row*4+column])
+	 */
+	final float[] m;
+	MatrixKind kind;
+	private final boolean read_only;
 
 	/**
 	 * All elements are set to 0.
 	 */
 	public Matrix() {
-		m = new float[4][4];
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				m[i][j] = 0.0f;
-			}
-		}
+		m = new float[16];
+		kind = MatrixKind.GENERAL;
+		read_only = false;
 	}
 	/**
 	 * All elements are set to the value specified.
@@ -28,13 +39,10 @@ public class Matrix {
 	 *            Value
 	 */
 	public Matrix(float v) {
-		m = new float[4][4];
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				m[i][j] = v;
-			}
-		}
+		m = new float[16];
+		Arrays.fill(m, v);
+		kind = MatrixKind.GENERAL;
+		read_only = false;
 	}
 	/**
 	 * Used to copy a matrix.
@@ -43,40 +51,134 @@ public class Matrix {
 	 *            Original matrix
 	 */
 	public Matrix(Matrix mat) {
-		this.m = new float[4][4];
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				this.m[i][j] = mat.m[i][j];
-			}
-		}
+		this.m = new float[16];
+		System.arraycopy(mat.m, 0, this.m, 0, 16);
+		this.kind = mat.kind;
+		this.read_only = false;
+	}
+	/**
+	 * Wraps an element array without copying it.
+	 * 
+	 * @param m
+	 *            Elements (16 values, row-major order)
+	 * @param kind
+	 *            Kind
+	 * @param read_only
+	 *            Whether the matrix rejects modification
+	 */
+	Matrix(float[] m, MatrixKind kind, boolean read_only) {
+		this.m = m;
+		this.kind = kind;
+		this.read_only = read_only;
 	}
 
 	@Override
 	public String toString() {
-		String ret = "";
+		final StringBuilder sb = new StringBuilder();
 		final String separator = System.getProperty("line.separator");
 
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 4; j++) {
-				ret += m[i][j];
+				sb.append(m[i * 4 + j]);
 				if (j != 3) {
-					ret += " ";
+					sb.append(" ");
 				}
 			}
 
 			if (i != 3) {
-				ret += separator;
+				sb.append(separator);
 			}
 		}
 
-		return ret;
+		return sb.toString();
 	}
 
 	public void SetValue(int row, int column, float value) {
-		m[row][column] = value;
+		this.CheckWritable();
+		m[checkIndex(row, column)] = value;
+		kind = MatrixKind.GENERAL;
 	}
 	public float GetValue(int row, int column) {
-		return m[row][column];
+		return m[checkIndex(row, column)];
+	}
+	/**
+	 * Sets all elements.
+	 * 
+	 * @param values
+	 *            Elements in row-major order (16 values)
+	 */
+	public void SetValues(float[] values) {
+		this.CheckWritable();
+		System.arraycopy(values, 0, m, 0, 16);
+		kind = MatrixKind.GENERAL;
+	}
+	/**
+	 * Copies all elements into an array.
+	 * 
+	 * @param dst
+	 *            Destination array (16 values, row-major order)
+	 * @return dst
+	 */
+	public float[] GetValues(float[] dst) {
+		return this.GetValues(dst, 0);
+	}
+	/**
+	 * Copies all elements into an array at an offset.
+	 * 
+	 * @param dst
+	 *            Destination array (16 values from offset, row-major order)
+	 * @param offset
+	 *            First index in dst
+	 * @return dst
+	 */
+	public float[] GetValues(float[] dst, int offset) {
+		System.arraycopy(m, 0, dst, offset, 16);
+		return dst;
+	}
+	/**
+	 * Returns a copy of all elements.
+	 * 
+	 * @return Elements in row-major order
+	 */
+	public float[] GetValues() {
+		return this.GetValues(new float[16]);
+	}
+
+	/**
+	 * Declares the kind of this matrix.<br>
+	 * The kind is not validated. Declaring a kind more specific than the
+	 * actual elements leads to wrong results. Use
+	 * MatrixFunctions.MClassify() to determine the kind from the elements.
+	 * 
+	 * @param kind
+	 *            Kind
+	 */
+	public void SetKind(MatrixKind kind) {
+		this.CheckWritable();
+		this.kind = kind;
+	}
+	public MatrixKind GetKind() {
+		return kind;
+	}
+	public boolean IsReadOnly() {
+		return read_only;
+	}
+
+	/**
+	 * Throws if this matrix is read-only.<br>
+	 * Every method that writes m or kind of a matrix other than one it has
+	 * just created must call this first.
+	 */
+	void CheckWritable() {
+		if (read_only) {
+			throw new UnsupportedOperationException("The matrix is read-only.");
+		}
+	}
+
+	private static int checkIndex(int row, int column) {
+		if (row < 0 || row >= 4 || column < 0 || column >= 4) {
+			throw new ArrayIndexOutOfBoundsException("(" + row + "," + column + ")");
+		}
+		return row * 4 + column;
 	}
 }
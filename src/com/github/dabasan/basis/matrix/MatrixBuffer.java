@@ -0,0 +1,199 @@
+package com.github.dabasan.basis.matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Array of matrices stored in an off-heap buffer<br>
+ * Each matrix occupies 16 floats laid out in the order specified at
+ * construction. The buffer can be handed to native code or shared memory
+ * without copying.<br>
+ * Elements are accessed by absolute index and the position of the buffer is
+ * never changed, so disjoint ranges can be accessed from multiple threads.
+ * 
+ * @author Daba
+ *
+ */
+public class MatrixBuffer {
+	private final ByteBuffer bytes;
+	private final FloatBuffer floats;
+	private final MatrixOrder order;
+	private final int capacity;
+
+	/**
+	 * Allocates a direct buffer in native byte order.
+	 * 
+	 * @param capacity
+	 *            Number of matrices
+	 * @param order
+	 *            Element order
+	 */
+	public MatrixBuffer(int capacity, MatrixOrder order) {
+		this(ByteBuffer.allocateDirect(capacity * 16 * 4).order(ByteOrder.nativeOrder()), order);
+	}
+	/**
+	 * Wraps an existing buffer (e.g. a mapped file).<br>
+	 * The buffer is used from its current position to its limit and its byte
+	 * order is respected.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 * @param order
+	 *            Element order
+	 */
+	public MatrixBuffer(ByteBuffer buffer, MatrixOrder order) {
+		this.bytes = buffer.slice().order(buffer.order());
+		this.floats = bytes.asFloatBuffer();
+		this.order = order;
+		this.capacity = floats.capacity() / 16;
+	}
+
+	public int GetCapacity() {
+		return capacity;
+	}
+	public MatrixOrder GetOrder() {
+		return order;
+	}
+	/**
+	 * Returns the underlying byte buffer.
+	 * 
+	 * @return Byte buffer
+	 */
+	public ByteBuffer GetByteBuffer() {
+		return bytes;
+	}
+
+	/**
+	 * Stores a matrix.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param m
+	 *            Matrix
+	 */
+	public void SetMatrix(int index, Matrix m) {
+		final int base = index * 16;
+		final float[] a = m.m;
+
+		if (order == MatrixOrder.ROW_MAJOR) {
+			for (int i = 0; i < 16; i++) {
+				floats.put(base + i, a[i]);
+			}
+		} else {
+			for (int i = 0; i < 4; i++) {
+				floats.put(base + i, a[i * 4]);
+				floats.put(base + 4 + i, a[i * 4 + 1]);
+				floats.put(base + 8 + i, a[i * 4 + 2]);
+				floats.put(base + 12 + i, a[i * 4 + 3]);
+			}
+		}
+	}
+	/**
+	 * Loads a matrix into a destination matrix.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetMatrix(int index, Matrix dst) {
+		dst.CheckWritable();
+		final int base = index * 16;
+		final float[] r = dst.m;
+
+		if (order == MatrixOrder.ROW_MAJOR) {
+			for (int i = 0; i < 16; i++) {
+				r[i] = floats.get(base + i);
+			}
+		} else {
+			for (int i = 0; i < 4; i++) {
+				r[i * 4] = floats.get(base + i);
+				r[i * 4 + 1] = floats.get(base + 4 + i);
+				r[i * 4 + 2] = floats.get(base + 8 + i);
+				r[i * 4 + 3] = floats.get(base + 12 + i);
+			}
+		}
+		dst.kind = MatrixKind.GENERAL;
+
+		return dst;
+	}
+	public Matrix GetMatrix(int index) {
+		return this.GetMatrix(index, new Matrix());
+	}
+	/**
+	 * Stores matrices.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param src
+	 *            Source matrices
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of matrices
+	 */
+	public void SetMatrices(int index, Matrix[] src, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.SetMatrix(index + i, src[offset + i]);
+		}
+	}
+	/**
+	 * Loads matrices into destination matrices.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param dst
+	 *            Destination matrices
+	 * @param offset
+	 *            First index in dst
+	 * @param count
+	 *            Number of matrices
+	 */
+	public void GetMatrices(int index, Matrix[] dst, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.GetMatrix(index + i, dst[offset + i]);
+		}
+	}
+	/**
+	 * Copies raw elements into this buffer in a single bulk operation.<br>
+	 * The elements must already be in the order of this buffer.
+	 * 
+	 * @param index
+	 *            First matrix index in this buffer
+	 * @param src
+	 *            Source elements (16 per matrix)
+	 * @param offset
+	 *            First element in src
+	 * @param count
+	 *            Number of matrices
+	 */
+	public void SetValues(int index, float[] src, int offset, int count) {
+		this.ViewAt(index * 16).put(src, offset, count * 16);
+	}
+	/**
+	 * Copies raw elements out of this buffer in a single bulk operation.
+	 * 
+	 * @param index
+	 *            First matrix index in this buffer
+	 * @param dst
+	 *            Destination elements (16 per matrix)
+	 * @param offset
+	 *            First element in dst
+	 * @param count
+	 *            Number of matrices
+	 */
+	public void GetValues(int index, float[] dst, int offset, int count) {
+		this.ViewAt(index * 16).get(dst, offset, count * 16);
+	}
+	/**
+	 * Returns a view of the floats positioned at an element, so that bulk
+	 * transfers never move the position of the shared buffer.
+	 */
+	private FloatBuffer ViewAt(int element) {
+		final FloatBuffer view = floats.duplicate();
+		view.position(element);
+		return view;
+	}
+}
@@ -1,6 +1,15 @@
 package com.github.dabasan.basis.matrix;
 
+import java.util.Arrays;
+
+import com.github.dabasan.basis.instrumentation.Instrumentation;
+import com.github.dabasan.basis.instrumentation.InstrumentedOperation;
+import com.github.dabasan.basis.kernel.BatchKernels;
+import com.github.dabasan.basis.kernel.BatchKernelsProvider;
+import com.github.dabasan.basis.quaternion.Quaternion;
+import com.github.dabasan.basis.trig.TrigFunctions;
 import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorArray;
 
 /**
  * Provides methods to handle matrices.
@@ -9,6 +18,20 @@ import com.github.dabasan.basis.vector.Vector;
  *
  */
 public class MatrixFunctions {
+	private static final BatchKernels KERNELS = BatchKernelsProvider.GetKernels();
+	private static final float UNIT_EPSILON = 1.0E-5f;
+
+	/**
+	 * Read-only identity matrix
+	 */
+	public static final Matrix IDENTITY = new Matrix(new float[]{1.0f, 0.0f, 0.0f, 0.0f, 0.0f,
+			1.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f}, MatrixKind.IDENTITY,
+			true);
+	/**
+	 * Read-only matrix whose elements are all 0
+	 */
+	public static final Matrix ZERO = new Matrix(new float[16], MatrixKind.GENERAL, true);
+
 	/**
 	 * Multiplies two matrices together.
 	 * 
@@ -19,22 +42,136 @@ public class MatrixFunctions {
 	 * @return m1*m2
 	 */
 	public static Matrix MMult(Matrix m1, Matrix m2) {
-		final Matrix ret = new Matrix();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.MMULT);
+		}
+		return MMult(m1, m2, new Matrix());
+	}
+	/**
+	 * Multiplies two matrices together and stores the result in a destination
+	 * matrix.
+	 * 
+	 * @param m1
+	 *            First matrix
+	 * @param m2
+	 *            Second matrix
+	 * @param dst
+	 *            Destination matrix (may be m1 or m2)
+	 * @return dst
+	 */
+	public static Matrix MMult(Matrix m1, Matrix m2, Matrix dst) {
+		dst.CheckWritable();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.MMULT);
+		}
+		final MatrixKind k1 = m1.kind;
+		final MatrixKind k2 = m2.kind;
 
-		float value;
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				value = 0.0f;
+		if (k1 == MatrixKind.IDENTITY) {
+			System.arraycopy(m2.m, 0, dst.m, 0, 16);
+		} else if (k2 == MatrixKind.IDENTITY) {
+			System.arraycopy(m1.m, 0, dst.m, 0, 16);
+		} else if (k1 != MatrixKind.GENERAL && k2 != MatrixKind.GENERAL) {
+			MultAffine(m1.m, m2.m, dst.m);
+		} else {
+			KERNELS.MMult(m1.m, m2.m, dst.m);
+		}
+		dst.kind = MatrixKind.Combine(k1, k2);
 
-				for (int k = 0; k < 4; k++) {
-					value += m1.GetValue(i, k) * m2.GetValue(k, j);
-				}
+		return dst;
+	}
+	/**
+	 * Multiplies two matrices whose last rows are (0, 0, 0, 1).
+	 */
+	private static void MultAffine(float[] a, float[] b, float[] r) {
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float a03 = a[3];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float a13 = a[7];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+		final float a23 = a[11];
+		final float b00 = b[0];
+		final float b01 = b[1];
+		final float b02 = b[2];
+		final float b03 = b[3];
+		final float b10 = b[4];
+		final float b11 = b[5];
+		final float b12 = b[6];
+		final float b13 = b[7];
+		final float b20 = b[8];
+		final float b21 = b[9];
+		final float b22 = b[10];
+		final float b23 = b[11];
 
-				ret.SetValue(i, j, value);
-			}
-		}
+		r[0] = a00 * b00 + a01 * b10 + a02 * b20;
+		r[1] = a00 * b01 + a01 * b11 + a02 * b21;
+		r[2] = a00 * b02 + a01 * b12 + a02 * b22;
+		r[3] = a00 * b03 + a01 * b13 + a02 * b23 + a03;
+		r[4] = a10 * b00 + a11 * b10 + a12 * b20;
+		r[5] = a10 * b01 + a11 * b11 + a12 * b21;
+		r[6] = a10 * b02 + a11 * b12 + a12 * b22;
+		r[7] = a10 * b03 + a11 * b13 + a12 * b23 + a13;
+		r[8] = a20 * b00 + a21 * b10 + a22 * b20;
+		r[9] = a20 * b01 + a21 * b11 + a22 * b21;
+		r[10] = a20 * b02 + a21 * b12 + a22 * b22;
+		r[11] = a20 * b03 + a21 * b13 + a22 * b23 + a23;
+		r[12] = 0.0f;
+		r[13] = 0.0f;
+		r[14] = 0.0f;
+		r[15] = 1.0f;
+	}
 
-		return ret;
+	/**
+	 * Copies a matrix into a destination matrix.<br>
+	 * The kind of the matrix is copied as well.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MCopy(Matrix m, Matrix dst) {
+		dst.CheckWritable();
+		System.arraycopy(m.m, 0, dst.m, 0, 16);
+		dst.kind = m.kind;
+
+		return dst;
+	}
+
+	/**
+	 * Returns a read-only view of a matrix.<br>
+	 * The view shares the elements of the original matrix, so it reflects
+	 * later changes to the original. Its kind is always GENERAL, since the
+	 * kind of the original may change after the view is created. Use
+	 * MGetReadOnlyCopy() for a constant that keeps its kind.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @return Read-only view
+	 */
+	public static Matrix MGetReadOnlyView(Matrix m) {
+		if (m.IsReadOnly()) {
+			return m;
+		}
+		return new Matrix(m.m, MatrixKind.GENERAL, true);
+	}
+	/**
+	 * Returns a read-only copy of a matrix.<br>
+	 * The copy keeps the kind of the original and can be shared freely.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @return Read-only copy
+	 */
+	public static Matrix MGetReadOnlyCopy(Matrix m) {
+		return new Matrix(m.m.clone(), m.kind, true);
 	}
 
 	/**
@@ -43,18 +180,35 @@ public class MatrixFunctions {
 	 * @return Identity matrix
 	 */
 	public static Matrix MGetIdent() {
-		final Matrix ret = new Matrix();
+		// A new matrix is already filled with 0.
+		final Matrix dst = new Matrix();
+		final float[] r = dst.m;
+		r[0] = 1.0f;
+		r[5] = 1.0f;
+		r[10] = 1.0f;
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.IDENTITY;
 
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				ret.SetValue(i, j, 0.0f);
-			}
-		}
-		for (int i = 0; i < 4; i++) {
-			ret.SetValue(i, i, 1.0f);
-		}
+		return dst;
+	}
+	/**
+	 * Sets an identity matrix to a destination matrix.
+	 * 
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetIdent(Matrix dst) {
+		dst.CheckWritable();
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = 1.0f;
+		r[5] = 1.0f;
+		r[10] = 1.0f;
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.IDENTITY;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a scaling matrix.
@@ -64,26 +218,28 @@ public class MatrixFunctions {
 	 * @return Scaling matrix
 	 */
 	public static Matrix MGetScale(Vector scale) {
-		final Matrix ret = new Matrix();
-
-		ret.SetValue(0, 0, scale.GetX());
-		ret.SetValue(0, 1, 0.0f);
-		ret.SetValue(0, 2, 0.0f);
-		ret.SetValue(0, 3, 0.0f);
-		ret.SetValue(1, 0, 0.0f);
-		ret.SetValue(1, 1, scale.GetY());
-		ret.SetValue(1, 2, 0.0f);
-		ret.SetValue(1, 3, 0.0f);
-		ret.SetValue(2, 0, 0.0f);
-		ret.SetValue(2, 1, 0.0f);
-		ret.SetValue(2, 2, scale.GetZ());
-		ret.SetValue(2, 3, 0.0f);
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		return MGetScale(scale, new Matrix());
+	}
+	/**
+	 * Sets a scaling matrix to a destination matrix.
+	 * 
+	 * @param scale
+	 *            Scaling vector
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetScale(Vector scale, Matrix dst) {
+		dst.CheckWritable();
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = scale.GetX();
+		r[5] = scale.GetY();
+		r[10] = scale.GetZ();
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.AFFINE;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a translation matrix.
@@ -93,26 +249,31 @@ public class MatrixFunctions {
 	 * @return Translation matrix
 	 */
 	public static Matrix MGetTranslate(Vector translate) {
-		final Matrix ret = new Matrix();
-
-		ret.SetValue(0, 0, 1.0f);
-		ret.SetValue(0, 1, 0.0f);
-		ret.SetValue(0, 2, 0.0f);
-		ret.SetValue(0, 3, translate.GetX());
-		ret.SetValue(1, 0, 0.0f);
-		ret.SetValue(1, 1, 1.0f);
-		ret.SetValue(1, 2, 0.0f);
-		ret.SetValue(1, 3, translate.GetY());
-		ret.SetValue(2, 0, 0.0f);
-		ret.SetValue(2, 1, 0.0f);
-		ret.SetValue(2, 2, 1.0f);
-		ret.SetValue(2, 3, translate.GetZ());
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		return MGetTranslate(translate, new Matrix());
+	}
+	/**
+	 * Sets a translation matrix to a destination matrix.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetTranslate(Vector translate, Matrix dst) {
+		dst.CheckWritable();
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = 1.0f;
+		r[3] = translate.GetX();
+		r[5] = 1.0f;
+		r[7] = translate.GetY();
+		r[10] = 1.0f;
+		r[11] = translate.GetZ();
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.TRANSLATION;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a rotation matrix around x-axis.
@@ -122,26 +283,34 @@ public class MatrixFunctions {
 	 * @return Rotation matrix
 	 */
 	public static Matrix MGetRotX(float th) {
-		final Matrix ret = new Matrix();
+		return MGetRotX(th, new Matrix());
+	}
+	/**
+	 * Sets a rotation matrix around x-axis to a destination matrix.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetRotX(float th, Matrix dst) {
+		dst.CheckWritable();
+		final long sin_cos = TrigFunctions.SinCosPacked(th);
+		final float cos_th = TrigFunctions.UnpackCos(sin_cos);
+		final float sin_th = TrigFunctions.UnpackSin(sin_cos);
 
-		ret.SetValue(0, 0, 1.0f);
-		ret.SetValue(0, 1, 0.0f);
-		ret.SetValue(0, 2, 0.0f);
-		ret.SetValue(0, 3, 0.0f);
-		ret.SetValue(1, 0, 0.0f);
-		ret.SetValue(1, 1, (float) Math.cos(th));
-		ret.SetValue(1, 2, (float) -Math.sin(th));
-		ret.SetValue(1, 3, 0.0f);
-		ret.SetValue(2, 0, 0.0f);
-		ret.SetValue(2, 1, (float) Math.sin(th));
-		ret.SetValue(2, 2, (float) Math.cos(th));
-		ret.SetValue(2, 3, 0.0f);
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = 1.0f;
+		r[5] = cos_th;
+		r[6] = -sin_th;
+		r[9] = sin_th;
+		r[10] = cos_th;
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.RIGID;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a rotation matrix around y-axis.
@@ -151,26 +320,34 @@ public class MatrixFunctions {
 	 * @return Rotation matrix
 	 */
 	public static Matrix MGetRotY(float th) {
-		final Matrix ret = new Matrix();
+		return MGetRotY(th, new Matrix());
+	}
+	/**
+	 * Sets a rotation matrix around y-axis to a destination matrix.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetRotY(float th, Matrix dst) {
+		dst.CheckWritable();
+		final long sin_cos = TrigFunctions.SinCosPacked(th);
+		final float cos_th = TrigFunctions.UnpackCos(sin_cos);
+		final float sin_th = TrigFunctions.UnpackSin(sin_cos);
 
-		ret.SetValue(0, 0, (float) Math.cos(th));
-		ret.SetValue(0, 1, 0.0f);
-		ret.SetValue(0, 2, (float) Math.sin(th));
-		ret.SetValue(0, 3, 0.0f);
-		ret.SetValue(1, 0, 0.0f);
-		ret.SetValue(1, 1, 1.0f);
-		ret.SetValue(1, 2, 0.0f);
-		ret.SetValue(1, 3, 0.0f);
-		ret.SetValue(2, 0, (float) -Math.sin(th));
-		ret.SetValue(2, 1, 0.0f);
-		ret.SetValue(2, 2, (float) Math.cos(th));
-		ret.SetValue(2, 3, 0.0f);
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = cos_th;
+		r[2] = sin_th;
+		r[5] = 1.0f;
+		r[8] = -sin_th;
+		r[10] = cos_th;
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.RIGID;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a rotation matrix around z-axis.
@@ -180,26 +357,34 @@ public class MatrixFunctions {
 	 * @return Rotation matrix
 	 */
 	public static Matrix MGetRotZ(float th) {
-		final Matrix ret = new Matrix();
+		return MGetRotZ(th, new Matrix());
+	}
+	/**
+	 * Sets a rotation matrix around z-axis to a destination matrix.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetRotZ(float th, Matrix dst) {
+		dst.CheckWritable();
+		final long sin_cos = TrigFunctions.SinCosPacked(th);
+		final float cos_th = TrigFunctions.UnpackCos(sin_cos);
+		final float sin_th = TrigFunctions.UnpackSin(sin_cos);
 
-		ret.SetValue(0, 0, (float) Math.cos(th));
-		ret.SetValue(0, 1, (float) -Math.sin(th));
-		ret.SetValue(0, 2, 0.0f);
-		ret.SetValue(0, 3, 0.0f);
-		ret.SetValue(1, 0, (float) Math.sin(th));
-		ret.SetValue(1, 1, (float) Math.cos(th));
-		ret.SetValue(1, 2, 0.0f);
-		ret.SetValue(1, 3, 0.0f);
-		ret.SetValue(2, 0, 0.0f);
-		ret.SetValue(2, 1, 0.0f);
-		ret.SetValue(2, 2, 1.0f);
-		ret.SetValue(2, 3, 0.0f);
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = cos_th;
+		r[1] = -sin_th;
+		r[4] = sin_th;
+		r[5] = cos_th;
+		r[10] = 1.0f;
+		r[15] = 1.0f;
+		dst.kind = MatrixKind.RIGID;
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Returns a rotation matrix around an arbitrary axis.
@@ -211,32 +396,458 @@ public class MatrixFunctions {
 	 * @return Rotation matrix
 	 */
 	public static Matrix MGetRotAxis(Vector axis, float th) {
-		final Matrix ret = new Matrix();
+		return MGetRotAxis(axis, th, new Matrix());
+	}
+	/**
+	 * Sets a rotation matrix around an arbitrary axis to a destination matrix.
+	 * 
+	 * @param axis
+	 *            Axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetRotAxis(Vector axis, float th, Matrix dst) {
+		dst.CheckWritable();
+		final long sin_cos = TrigFunctions.SinCosPacked(th);
+		final float cos_th = TrigFunctions.UnpackCos(sin_cos);
+		final float sin_th = TrigFunctions.UnpackSin(sin_cos);
+		final float one_minus_cos = 1.0f - cos_th;
+		final float nx = axis.GetX();
+		final float ny = axis.GetY();
+		final float nz = axis.GetZ();
+
+		final float[] r = dst.m;
+		Arrays.fill(r, 0.0f);
+		r[0] = cos_th + nx * nx * one_minus_cos;
+		r[1] = nx * ny * one_minus_cos - nz * sin_th;
+		r[2] = nx * nz * one_minus_cos + ny * sin_th;
+		r[4] = ny * nx * one_minus_cos + nz * sin_th;
+		r[5] = cos_th + ny * ny * one_minus_cos;
+		r[6] = ny * nz * one_minus_cos - nx * sin_th;
+		r[8] = nz * nx * one_minus_cos - ny * sin_th;
+		r[9] = nz * ny * one_minus_cos + nx * sin_th;
+		r[10] = cos_th + nz * nz * one_minus_cos;
+		r[15] = 1.0f;
+
+		// The result is a rotation only if the axis is normalized.
+		final float axis_square_size = nx * nx + ny * ny + nz * nz;
+		dst.kind = Math.abs(axis_square_size - 1.0f) < UNIT_EPSILON
+				? MatrixKind.RIGID
+				: MatrixKind.AFFINE;
+
+		return dst;
+	}
+	/**
+	 * Returns a transform matrix composed of a translation, a rotation around
+	 * an arbitrary axis and a scaling.<br>
+	 * The result is T*R*S, i.e. MMult(MGetTranslate(translate),
+	 * MMult(MGetRotAxis(axis, th), MGetScale(scale))), computed in closed form.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Transform matrix
+	 */
+	public static Matrix MGetTRS(Vector translate, Vector axis, float th, Vector scale) {
+		return MGetTRS(translate, axis, th, scale, new Matrix());
+	}
+	/**
+	 * Sets a transform matrix composed of a translation, a rotation around an
+	 * arbitrary axis and a scaling to a destination matrix.<br>
+	 * See MGetTRS(Vector, Vector, float, Vector).
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetTRS(Vector translate, Vector axis, float th, Vector scale,
+			Matrix dst) {
+		dst.CheckWritable();
+		final boolean rigid = SetRotationAxis(dst.m, axis, th);
+		ComposeTRS(dst, translate, scale, rigid, false);
 
-		final float cos_th = (float) Math.cos(th);
-		final float sin_th = (float) Math.sin(th);
+		return dst;
+	}
+	/**
+	 * Returns the inverse of the transform matrix returned by MGetTRS(Vector,
+	 * Vector, float, Vector).<br>
+	 * The result is S^-1*R^T*T^-1, computed in closed form. All components of
+	 * the scaling vector must be nonzero.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Inverse transform matrix
+	 */
+	public static Matrix MGetTRSInverse(Vector translate, Vector axis, float th, Vector scale) {
+		return MGetTRSInverse(translate, axis, th, scale, new Matrix());
+	}
+	public static Matrix MGetTRSInverse(Vector translate, Vector axis, float th, Vector scale,
+			Matrix dst) {
+		dst.CheckWritable();
+		final boolean rigid = SetRotationAxis(dst.m, axis, th);
+		ComposeTRS(dst, translate, scale, rigid, true);
+
+		return dst;
+	}
+	/**
+	 * Returns a transform matrix composed of a translation, a rotation by
+	 * angles around the x-, y- and z-axes, and a scaling.<br>
+	 * The rotation is applied around x-axis first and z-axis last, so the
+	 * result is T*Rz*Ry*Rx*S, computed in closed form.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param th_x
+	 *            Rotation angle around x-axis (radian)
+	 * @param th_y
+	 *            Rotation angle around y-axis (radian)
+	 * @param th_z
+	 *            Rotation angle around z-axis (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Transform matrix
+	 */
+	public static Matrix MGetTRS(Vector translate, float th_x, float th_y, float th_z,
+			Vector scale) {
+		return MGetTRS(translate, th_x, th_y, th_z, scale, new Matrix());
+	}
+	/**
+	 * Sets a transform matrix composed of a translation, a rotation by angles
+	 * around the x-, y- and z-axes, and a scaling to a destination matrix.<br>
+	 * See MGetTRS(Vector, float, float, float, Vector).
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param th_x
+	 *            Rotation angle around x-axis (radian)
+	 * @param th_y
+	 *            Rotation angle around y-axis (radian)
+	 * @param th_z
+	 *            Rotation angle around z-axis (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetTRS(Vector translate, float th_x, float th_y, float th_z,
+			Vector scale, Matrix dst) {
+		dst.CheckWritable();
+		SetRotationXYZ(dst.m, th_x, th_y, th_z);
+		ComposeTRS(dst, translate, scale, true, false);
+
+		return dst;
+	}
+	/**
+	 * Returns the inverse of the transform matrix returned by MGetTRS(Vector,
+	 * float, float, float, Vector).<br>
+	 * All components of the scaling vector must be nonzero.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param th_x
+	 *            Rotation angle around x-axis (radian)
+	 * @param th_y
+	 *            Rotation angle around y-axis (radian)
+	 * @param th_z
+	 *            Rotation angle around z-axis (radian)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Inverse transform matrix
+	 */
+	public static Matrix MGetTRSInverse(Vector translate, float th_x, float th_y, float th_z,
+			Vector scale) {
+		return MGetTRSInverse(translate, th_x, th_y, th_z, scale, new Matrix());
+	}
+	public static Matrix MGetTRSInverse(Vector translate, float th_x, float th_y, float th_z,
+			Vector scale, Matrix dst) {
+		dst.CheckWritable();
+		SetRotationXYZ(dst.m, th_x, th_y, th_z);
+		ComposeTRS(dst, translate, scale, true, true);
+
+		return dst;
+	}
+	/**
+	 * Returns a transform matrix composed of a translation, a rotation by a
+	 * quaternion and a scaling.<br>
+	 * The result is T*R*S, i.e. MMult(MGetTranslate(translate),
+	 * MMult(QToMatrix(rotation), MGetScale(scale))), computed in closed form.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param rotation
+	 *            Rotation (normalized)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Transform matrix
+	 */
+	public static Matrix MGetTRS(Vector translate, Quaternion rotation, Vector scale) {
+		return MGetTRS(translate, rotation, scale, new Matrix());
+	}
+	/**
+	 * Sets a transform matrix composed of a translation, a rotation by a
+	 * quaternion and a scaling to a destination matrix.<br>
+	 * See MGetTRS(Vector, Quaternion, Vector).
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param rotation
+	 *            Rotation (normalized)
+	 * @param scale
+	 *            Scaling vector
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix MGetTRS(Vector translate, Quaternion rotation, Vector scale,
+			Matrix dst) {
+		dst.CheckWritable();
+		final boolean rigid = SetRotationQuaternion(dst.m, 0, rotation.GetW(),
+				rotation.GetX(), rotation.GetY(), rotation.GetZ());
+		ComposeTRS(dst, translate, scale, rigid, false);
+
+		return dst;
+	}
+	/**
+	 * Returns the inverse of the transform matrix returned by MGetTRS(Vector,
+	 * Quaternion, Vector).<br>
+	 * All components of the scaling vector must be nonzero.
+	 * 
+	 * @param translate
+	 *            Translation vector
+	 * @param rotation
+	 *            Rotation (normalized)
+	 * @param scale
+	 *            Scaling vector
+	 * @return Inverse transform matrix
+	 */
+	public static Matrix MGetTRSInverse(Vector translate, Quaternion rotation, Vector scale) {
+		return MGetTRSInverse(translate, rotation, scale, new Matrix());
+	}
+	public static Matrix MGetTRSInverse(Vector translate, Quaternion rotation, Vector scale,
+			Matrix dst) {
+		dst.CheckWritable();
+		final boolean rigid = SetRotationQuaternion(dst.m, 0, rotation.GetW(),
+				rotation.GetX(), rotation.GetY(), rotation.GetZ());
+		ComposeTRS(dst, translate, scale, rigid, true);
+
+		return dst;
+	}
+	/**
+	 * Writes a transform matrix composed of a translation, a rotation by a
+	 * quaternion and a scaling to an array.<br>
+	 * The 16 elements are written in row-major order, e.g. into a bone
+	 * palette. See MGetTRS(Vector, Quaternion, Vector).
+	 * 
+	 * @param tx
+	 *            X-component of the translation
+	 * @param ty
+	 *            Y-component of the translation
+	 * @param tz
+	 *            Z-component of the translation
+	 * @param qw
+	 *            W-component of the rotation (normalized)
+	 * @param qx
+	 *            X-component of the rotation
+	 * @param qy
+	 *            Y-component of the rotation
+	 * @param qz
+	 *            Z-component of the rotation
+	 * @param sx
+	 *            X-component of the scaling
+	 * @param sy
+	 *            Y-component of the scaling
+	 * @param sz
+	 *            Z-component of the scaling
+	 * @param dst
+	 *            Destination array
+	 * @param offset
+	 *            First element in dst
+	 * @return dst
+	 */
+	public static float[] MGetTRS(float tx, float ty, float tz, float qw, float qx, float qy,
+			float qz, float sx, float sy, float sz, float[] dst, int offset) {
+		SetRotationQuaternion(dst, offset, qw, qx, qy, qz);
+		ComposeTRS(dst, offset, tx, ty, tz, sx, sy, sz);
+
+		return dst;
+	}
+	/**
+	 * Writes the rotation around an axis to the upper-left 3x3 part of r and
+	 * returns whether it is a rotation (i.e. the axis is normalized).
+	 */
+	private static boolean SetRotationAxis(float[] r, Vector axis, float th) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th);
+		final float cos_th = TrigFunctions.UnpackCos(sin_cos);
+		final float sin_th = TrigFunctions.UnpackSin(sin_cos);
+		final float one_minus_cos = 1.0f - cos_th;
 		final float nx = axis.GetX();
 		final float ny = axis.GetY();
 		final float nz = axis.GetZ();
 
-		ret.SetValue(0, 0, cos_th + nx * nx * (1.0f - cos_th));
-		ret.SetValue(0, 1, nx * ny * (1.0f - cos_th) - nz * sin_th);
-		ret.SetValue(0, 2, nx * nz * (1.0f - cos_th) + ny * sin_th);
-		ret.SetValue(0, 3, 0.0f);
-		ret.SetValue(1, 0, ny * nx * (1.0f - cos_th) + nz * sin_th);
-		ret.SetValue(1, 1, cos_th + ny * ny * (1.0f - cos_th));
-		ret.SetValue(1, 2, ny * nz * (1.0f - cos_th) - nx * sin_th);
-		ret.SetValue(1, 3, 0.0f);
-		ret.SetValue(2, 0, nz * nx * (1.0f - cos_th) - ny * sin_th);
-		ret.SetValue(2, 1, nz * ny * (1.0f - cos_th) + nx * sin_th);
-		ret.SetValue(2, 2, cos_th + nz * nz * (1.0f - cos_th));
-		ret.SetValue(2, 3, 0.0f);
-		ret.SetValue(3, 0, 0.0f);
-		ret.SetValue(3, 1, 0.0f);
-		ret.SetValue(3, 2, 0.0f);
-		ret.SetValue(3, 3, 1.0f);
+		r[0] = cos_th + nx * nx * one_minus_cos;
+		r[1] = nx * ny * one_minus_cos - nz * sin_th;
+		r[2] = nx * nz * one_minus_cos + ny * sin_th;
+		r[4] = ny * nx * one_minus_cos + nz * sin_th;
+		r[5] = cos_th + ny * ny * one_minus_cos;
+		r[6] = ny * nz * one_minus_cos - nx * sin_th;
+		r[8] = nz * nx * one_minus_cos - ny * sin_th;
+		r[9] = nz * ny * one_minus_cos + nx * sin_th;
+		r[10] = cos_th + nz * nz * one_minus_cos;
 
-		return ret;
+		final float axis_square_size = nx * nx + ny * ny + nz * nz;
+		return Math.abs(axis_square_size - 1.0f) < UNIT_EPSILON;
+	}
+	/**
+	 * Writes Rz*Ry*Rx to the upper-left 3x3 part of r.
+	 */
+	private static void SetRotationXYZ(float[] r, float th_x, float th_y, float th_z) {
+		final long sin_cos_x = TrigFunctions.SinCosPacked(th_x);
+		final long sin_cos_y = TrigFunctions.SinCosPacked(th_y);
+		final long sin_cos_z = TrigFunctions.SinCosPacked(th_z);
+		final float cx = TrigFunctions.UnpackCos(sin_cos_x);
+		final float sx = TrigFunctions.UnpackSin(sin_cos_x);
+		final float cy = TrigFunctions.UnpackCos(sin_cos_y);
+		final float sy = TrigFunctions.UnpackSin(sin_cos_y);
+		final float cz = TrigFunctions.UnpackCos(sin_cos_z);
+		final float sz = TrigFunctions.UnpackSin(sin_cos_z);
+
+		r[0] = cz * cy;
+		r[1] = cz * sy * sx - sz * cx;
+		r[2] = cz * sy * cx + sz * sx;
+		r[4] = sz * cy;
+		r[5] = sz * sy * sx + cz * cx;
+		r[6] = sz * sy * cx - cz * sx;
+		r[8] = -sy;
+		r[9] = cy * sx;
+		r[10] = cy * cx;
+	}
+	/**
+	 * Writes the rotation by a quaternion to the upper-left 3x3 part of the
+	 * matrix at r[offset] and returns whether it is a rotation (i.e. the
+	 * quaternion is normalized).
+	 */
+	static boolean SetRotationQuaternion(float[] r, int offset, float w, float x, float y,
+			float z) {
+		final float x2 = x + x;
+		final float y2 = y + y;
+		final float z2 = z + z;
+		final float xx = x * x2;
+		final float yy = y * y2;
+		final float zz = z * z2;
+		final float xy = x * y2;
+		final float xz = x * z2;
+		final float yz = y * z2;
+		final float wx = w * x2;
+		final float wy = w * y2;
+		final float wz = w * z2;
+
+		r[offset] = 1.0f - (yy + zz);
+		r[offset + 1] = xy - wz;
+		r[offset + 2] = xz + wy;
+		r[offset + 4] = xy + wz;
+		r[offset + 5] = 1.0f - (xx + zz);
+		r[offset + 6] = yz - wx;
+		r[offset + 8] = xz - wy;
+		r[offset + 9] = yz + wx;
+		r[offset + 10] = 1.0f - (xx + yy);
+
+		final float square_size = w * w + x * x + y * y + z * z;
+		return Math.abs(square_size - 1.0f) < UNIT_EPSILON;
+	}
+	/**
+	 * Completes T*R*S, or S^-1*R^T*T^-1 if inverse is true, from the rotation
+	 * in the upper-left 3x3 part of dst.
+	 */
+	private static void ComposeTRS(Matrix dst, Vector translate, Vector scale, boolean rigid,
+			boolean inverse) {
+		ComposeTRS(dst, translate.GetX(), translate.GetY(), translate.GetZ(), scale.GetX(),
+				scale.GetY(), scale.GetZ(), rigid, inverse);
+	}
+	static void ComposeTRS(Matrix dst, float tx, float ty, float tz, float sx, float sy,
+			float sz, boolean rigid, boolean inverse) {
+		if (inverse) {
+			ComposeInverseTRS(dst.m, 0, tx, ty, tz, sx, sy, sz);
+		} else {
+			ComposeTRS(dst.m, 0, tx, ty, tz, sx, sy, sz);
+		}
+
+		final boolean unit_scale = sx == 1.0f && sy == 1.0f && sz == 1.0f;
+		dst.kind = rigid && unit_scale ? MatrixKind.RIGID : MatrixKind.AFFINE;
+	}
+	private static void ComposeTRS(float[] r, int offset, float tx, float ty, float tz, float sx,
+			float sy, float sz) {
+		r[offset] *= sx;
+		r[offset + 1] *= sy;
+		r[offset + 2] *= sz;
+		r[offset + 3] = tx;
+		r[offset + 4] *= sx;
+		r[offset + 5] *= sy;
+		r[offset + 6] *= sz;
+		r[offset + 7] = ty;
+		r[offset + 8] *= sx;
+		r[offset + 9] *= sy;
+		r[offset + 10] *= sz;
+		r[offset + 11] = tz;
+		r[offset + 12] = 0.0f;
+		r[offset + 13] = 0.0f;
+		r[offset + 14] = 0.0f;
+		r[offset + 15] = 1.0f;
+	}
+	private static void ComposeInverseTRS(float[] r, int offset, float tx, float ty, float tz,
+			float sx, float sy, float sz) {
+		// Row i of S^-1*R^T is column i of R divided by the i-th scale.
+		final float rec_sx = 1.0f / sx;
+		final float rec_sy = 1.0f / sy;
+		final float rec_sz = 1.0f / sz;
+		final float i00 = r[offset] * rec_sx;
+		final float i01 = r[offset + 4] * rec_sx;
+		final float i02 = r[offset + 8] * rec_sx;
+		final float i10 = r[offset + 1] * rec_sy;
+		final float i11 = r[offset + 5] * rec_sy;
+		final float i12 = r[offset + 9] * rec_sy;
+		final float i20 = r[offset + 2] * rec_sz;
+		final float i21 = r[offset + 6] * rec_sz;
+		final float i22 = r[offset + 10] * rec_sz;
+
+		r[offset] = i00;
+		r[offset + 1] = i01;
+		r[offset + 2] = i02;
+		r[offset + 3] = -(i00 * tx + i01 * ty + i02 * tz);
+		r[offset + 4] = i10;
+		r[offset + 5] = i11;
+		r[offset + 6] = i12;
+		r[offset + 7] = -(i10 * tx + i11 * ty + i12 * tz);
+		r[offset + 8] = i20;
+		r[offset + 9] = i21;
+		r[offset + 10] = i22;
+		r[offset + 11] = -(i20 * tx + i21 * ty + i22 * tz);
+		r[offset + 12] = 0.0f;
+		r[offset + 13] = 0.0f;
+		r[offset + 14] = 0.0f;
+		r[offset + 15] = 1.0f;
 	}
 	/**
 	 * Transposes a matrix.
@@ -246,15 +857,55 @@ public class MatrixFunctions {
 	 * @return Transposed matrix
 	 */
 	public static Matrix MTranspose(Matrix m) {
-		final Matrix ret = new Matrix();
+		return MTranspose(m, new Matrix());
+	}
+	/**
+	 * Transposes a matrix and stores the result in a destination matrix.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @param dst
+	 *            Destination matrix (may be m)
+	 * @return dst
+	 */
+	public static Matrix MTranspose(Matrix m, Matrix dst) {
+		dst.CheckWritable();
+		final float[] a = m.m;
+		final float[] r = dst.m;
 
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				ret.SetValue(i, j, m.GetValue(j, i));
-			}
+		// Transposing moves the translation into the last row.
+		MatrixKind kind = MatrixKind.GENERAL;
+		if (m.kind != MatrixKind.GENERAL && a[3] == 0.0f && a[7] == 0.0f && a[11] == 0.0f) {
+			kind = m.kind == MatrixKind.TRANSLATION ? MatrixKind.IDENTITY : m.kind;
 		}
 
-		return ret;
+		float tmp;
+		r[0] = a[0];
+		r[5] = a[5];
+		r[10] = a[10];
+		r[15] = a[15];
+		tmp = a[1];
+		r[1] = a[4];
+		r[4] = tmp;
+		tmp = a[2];
+		r[2] = a[8];
+		r[8] = tmp;
+		tmp = a[3];
+		r[3] = a[12];
+		r[12] = tmp;
+		tmp = a[6];
+		r[6] = a[9];
+		r[9] = tmp;
+		tmp = a[7];
+		r[7] = a[13];
+		r[13] = tmp;
+		tmp = a[11];
+		r[11] = a[14];
+		r[14] = tmp;
+
+		dst.kind = kind;
+
+		return dst;
 	}
 	/**
 	 * Returns a 4 by 4 magic square.
@@ -264,22 +915,7 @@ public class MatrixFunctions {
 	public static Matrix MGetMagic() {
 		final Matrix ret = new Matrix();
 
-		ret.SetValue(0, 0, 16);
-		ret.SetValue(0, 1, 2);
-		ret.SetValue(0, 2, 3);
-		ret.SetValue(0, 3, 13);
-		ret.SetValue(1, 0, 5);
-		ret.SetValue(1, 1, 11);
-		ret.SetValue(1, 2, 10);
-		ret.SetValue(1, 3, 8);
-		ret.SetValue(2, 0, 9);
-		ret.SetValue(2, 1, 7);
-		ret.SetValue(2, 2, 6);
-		ret.SetValue(2, 3, 12);
-		ret.SetValue(3, 0, 4);
-		ret.SetValue(3, 1, 14);
-		ret.SetValue(3, 2, 15);
-		ret.SetValue(3, 3, 1);
+		ret.SetValues(new float[]{16, 2, 3, 13, 5, 11, 10, 8, 9, 7, 6, 12, 4, 14, 15, 1});
 
 		return ret;
 	}
@@ -291,36 +927,52 @@ public class MatrixFunctions {
 	 * @return Determinant
 	 */
 	public static float MGetDet(Matrix m) {
-		float ret = 0.0f;
+		final float[] a = m.m;
 
-		final float a00 = m.GetValue(0, 0);
-		final float a01 = m.GetValue(0, 1);
-		final float a02 = m.GetValue(0, 2);
-		final float a03 = m.GetValue(0, 3);
-		final float a10 = m.GetValue(1, 0);
-		final float a11 = m.GetValue(1, 1);
-		final float a12 = m.GetValue(1, 2);
-		final float a13 = m.GetValue(1, 3);
-		final float a20 = m.GetValue(2, 0);
-		final float a21 = m.GetValue(2, 1);
-		final float a22 = m.GetValue(2, 2);
-		final float a23 = m.GetValue(2, 3);
-		final float a30 = m.GetValue(3, 0);
-		final float a31 = m.GetValue(3, 1);
-		final float a32 = m.GetValue(3, 2);
-		final float a33 = m.GetValue(3, 3);
-
-		ret = a00
-				* (a11 * a22 * a33 + a12 * a23 * a31 + a13 * a21 * a32 - a13 * a22 * a31
-						- a12 * a21 * a33 - a11 * a23 * a32)
-				- a10 * (a01 * a22 * a33 + a02 * a23 * a31 + a03 * a21 * a32 - a03 * a22 * a31
-						- a02 * a21 * a33 - a01 * a23 * a32)
-				+ a20 * (a01 * a12 * a33 + a02 * a13 * a31 + a03 * a11 * a32 - a03 * a12 * a31
-						- a02 * a11 * a33 - a01 * a13 * a32)
-				- a30 * (a01 * a12 * a23 + a02 * a13 * a21 + a03 * a11 * a22 - a03 * a12 * a21
-						- a02 * a11 * a23 - a01 * a13 * a22);
+		switch (m.kind) {
+			case IDENTITY:
+			case TRANSLATION:
+				return 1.0f;
+			case RIGID:
+			case AFFINE:
+				return a[0] * (a[5] * a[10] - a[6] * a[9]) - a[1] * (a[4] * a[10] - a[6] * a[8])
+						+ a[2] * (a[4] * a[9] - a[5] * a[8]);
+			default:
+				break;
+		}
 
-		return ret;
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float a03 = a[3];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float a13 = a[7];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+		final float a23 = a[11];
+		final float a30 = a[12];
+		final float a31 = a[13];
+		final float a32 = a[14];
+		final float a33 = a[15];
+
+		// Laplace expansion over the 2x2 minors of the upper and lower rows
+		final float s0 = a00 * a11 - a01 * a10;
+		final float s1 = a00 * a12 - a02 * a10;
+		final float s2 = a00 * a13 - a03 * a10;
+		final float s3 = a01 * a12 - a02 * a11;
+		final float s4 = a01 * a13 - a03 * a11;
+		final float s5 = a02 * a13 - a03 * a12;
+		final float c0 = a20 * a31 - a21 * a30;
+		final float c1 = a20 * a32 - a22 * a30;
+		final float c2 = a20 * a33 - a23 * a30;
+		final float c3 = a21 * a32 - a22 * a31;
+		final float c4 = a21 * a33 - a23 * a31;
+		final float c5 = a22 * a33 - a23 * a32;
+
+		return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
 	}
 	/**
 	 * Returns an inverse matrix.
@@ -330,70 +982,508 @@ public class MatrixFunctions {
 	 * @return Inverse matrix
 	 */
 	public static Matrix MInverse(Matrix m) {
-		final Matrix ret = new Matrix();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.MINVERSE);
+		}
+		return MInverse(m, new Matrix());
+	}
+	/**
+	 * Inverts a matrix and stores the result in a destination matrix.<br>
+	 * The elements of the result are infinite or NaN if the matrix is
+	 * singular. Use MTryInverse() to detect singular matrices.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @param dst
+	 *            Destination matrix (may be m)
+	 * @return dst
+	 */
+	public static Matrix MInverse(Matrix m, Matrix dst) {
+		dst.CheckWritable();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.MINVERSE);
+		}
+		final MatrixKind kind = m.kind;
+
+		switch (kind) {
+			case IDENTITY:
+				MGetIdent(dst);
+				break;
+			case TRANSLATION:
+				InverseTranslation(m.m, dst.m);
+				break;
+			case RIGID:
+				InverseRigid(m.m, dst.m);
+				break;
+			case AFFINE:
+				InverseAffine(m.m, dst.m, false, 0.0f);
+				break;
+			default:
+				InverseGeneral(m.m, 0, dst.m, 0, false, 0.0f);
+				break;
+		}
+		dst.kind = kind;
 
-		final float a11 = m.GetValue(0, 0);
-		final float a12 = m.GetValue(0, 1);
-		final float a13 = m.GetValue(0, 2);
-		final float a14 = m.GetValue(0, 3);
-		final float a21 = m.GetValue(1, 0);
-		final float a22 = m.GetValue(1, 1);
-		final float a23 = m.GetValue(1, 2);
-		final float a24 = m.GetValue(1, 3);
-		final float a31 = m.GetValue(2, 0);
-		final float a32 = m.GetValue(2, 1);
-		final float a33 = m.GetValue(2, 2);
-		final float a34 = m.GetValue(2, 3);
-		final float a41 = m.GetValue(3, 0);
-		final float a42 = m.GetValue(3, 1);
-		final float a43 = m.GetValue(3, 2);
-		final float a44 = m.GetValue(3, 3);
-
-		final Matrix cofactor = new Matrix();
-		cofactor.SetValue(0, 0, a22 * a33 * a44 + a23 * a34 * a42 + a24 * a32 * a43
-				- a24 * a33 * a42 - a23 * a32 * a44 - a22 * a34 * a43);
-		cofactor.SetValue(0, 1, -a12 * a33 * a44 - a13 * a34 * a42 - a14 * a32 * a43
-				+ a14 * a33 * a42 + a13 * a32 * a44 + a12 * a34 * a43);
-		cofactor.SetValue(0, 2, a12 * a23 * a44 + a13 * a24 * a42 + a14 * a22 * a43
-				- a14 * a23 * a42 - a13 * a22 * a44 - a12 * a24 * a43);
-		cofactor.SetValue(0, 3, -a12 * a23 * a34 - a13 * a24 * a32 - a14 * a22 * a33
-				+ a14 * a23 * a32 + a13 * a22 * a34 + a12 * a24 * a33);
-		cofactor.SetValue(1, 0, -a21 * a33 * a44 - a23 * a34 * a41 - a24 * a31 * a43
-				+ a24 * a33 * a41 + a23 * a31 * a44 + a21 * a34 * a43);
-		cofactor.SetValue(1, 1, a11 * a33 * a44 + a13 * a34 * a41 + a14 * a31 * a43
-				- a14 * a33 * a41 - a13 * a31 * a44 - a11 * a34 * a43);
-		cofactor.SetValue(1, 2, -a11 * a23 * a44 - a13 * a24 * a41 - a14 * a21 * a43
-				+ a14 * a23 * a41 + a13 * a21 * a44 + a11 * a24 * a43);
-		cofactor.SetValue(1, 3, a11 * a23 * a34 + a13 * a24 * a31 + a14 * a21 * a33
-				- a14 * a23 * a31 - a13 * a21 * a34 - a11 * a24 * a33);
-		cofactor.SetValue(2, 0, a21 * a32 * a44 + a22 * a34 * a41 + a24 * a31 * a42
-				- a24 * a32 * a41 - a22 * a31 * a44 - a21 * a34 * a42);
-		cofactor.SetValue(2, 1, -a11 * a32 * a44 - a12 * a34 * a41 - a14 * a31 * a42
-				+ a14 * a32 * a41 + a12 * a31 * a44 + a11 * a34 * a42);
-		cofactor.SetValue(2, 2, a11 * a22 * a44 + a12 * a24 * a41 + a14 * a21 * a42
-				- a14 * a22 * a41 - a12 * a21 * a44 - a11 * a24 * a42);
-		cofactor.SetValue(2, 3, -a11 * a22 * a34 - a12 * a24 * a31 - a14 * a21 * a32
-				+ a14 * a22 * a31 + a12 * a21 * a34 + a11 * a24 * a32);
-		cofactor.SetValue(3, 0, -a21 * a32 * a43 - a22 * a33 * a41 - a23 * a31 * a42
-				+ a23 * a32 * a41 + a22 * a31 * a43 + a21 * a33 * a42);
-		cofactor.SetValue(3, 1, a11 * a32 * a43 + a12 * a33 * a41 + a13 * a31 * a42
-				- a13 * a32 * a41 - a12 * a31 * a43 - a11 * a33 * a42);
-		cofactor.SetValue(3, 2, -a11 * a22 * a43 - a12 * a23 * a41 - a13 * a21 * a42
-				+ a13 * a22 * a41 + a12 * a21 * a43 + a11 * a23 * a42);
-		cofactor.SetValue(3, 3, a11 * a22 * a33 + a12 * a23 * a31 + a13 * a21 * a32
-				- a13 * a22 * a31 - a12 * a21 * a33 - a11 * a23 * a32);
-
-		final float det = MatrixFunctions.MGetDet(m);
+		return dst;
+	}
+	/**
+	 * Inverts a matrix unless it is singular.<br>
+	 * dst is left unchanged if the determinant is 0 or not finite.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @param dst
+	 *            Destination matrix (may be m)
+	 * @return true if the matrix was inverted
+	 */
+	public static boolean MTryInverse(Matrix m, Matrix dst) {
+		return MTryInverse(m, dst, 0.0f);
+	}
+	/**
+	 * Inverts a matrix unless it is nearly singular.<br>
+	 * The matrix is regarded as singular if the absolute value of its
+	 * determinant is not greater than epsilon*s^n, where s is the largest
+	 * absolute value of its elements and n is 3 for affine matrices and 4
+	 * otherwise. The test is therefore independent of the scale of the matrix.
+	 * dst is left unchanged if the matrix is singular.
+	 * 
+	 * @param m
+	 *            Original matrix
+	 * @param dst
+	 *            Destination matrix (may be m)
+	 * @param epsilon
+	 *            Relative tolerance (0 to reject only exactly singular
+	 *            matrices)
+	 * @return true if the matrix was inverted
+	 */
+	public static boolean MTryInverse(Matrix m, Matrix dst, float epsilon) {
+		dst.CheckWritable();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.MINVERSE);
+		}
+		return TryInverse(m, dst, epsilon);
+	}
+	/**
+	 * Inverts matrices in an array unless they are nearly singular.<br>
+	 * Each destination matrix whose source is singular is left unchanged. See
+	 * MTryInverse(Matrix, Matrix, float) for epsilon.
+	 * 
+	 * @param m
+	 *            Original matrices
+	 * @param dst
+	 *            Destination matrices (may be m)
+	 * @param epsilon
+	 *            Relative tolerance
+	 * @param success
+	 *            Receives whether each matrix was inverted (may be null)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return Number of singular matrices
+	 */
+	public static int MTryInverse(Matrix[] m, Matrix[] dst, float epsilon, boolean[] success,
+			int from, int to) {
+		CheckWritable(dst, from, to);
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		final int singular_count = MTryInverseKernel(m, dst, epsilon, success, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.MINVERSE_ARRAY, to - from, start);
+		}
+
+		return singular_count;
+	}
+	/**
+	 * Checks that every matrix in a range is writable, so that a batch fails
+	 * before it writes anything.
+	 */
+	static void CheckWritable(Matrix[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i].CheckWritable();
+		}
+	}
+	/**
+	 * MTryInverse(Matrix[], Matrix[], float, boolean[], int, int) without
+	 * instrumentation or the writability check, for callers that check and
+	 * record the whole batch themselves
+	 */
+	static int MTryInverseKernel(Matrix[] m, Matrix[] dst, float epsilon, boolean[] success,
+			int from, int to) {
+		int singular_count = 0;
+		for (int i = from; i < to; i++) {
+			final boolean inverted = TryInverse(m[i], dst[i], epsilon);
+			if (!inverted) {
+				singular_count++;
+			}
+			if (success != null) {
+				success[i] = inverted;
+			}
+		}
+
+		return singular_count;
+	}
+	public static int MTryInverse(Matrix[] m, Matrix[] dst, float epsilon, boolean[] success) {
+		return MTryInverse(m, dst, epsilon, success, 0, dst.length);
+	}
+	/**
+	 * Inverts packed matrices unless they are nearly singular.<br>
+	 * Matrices are packed as 16 floats in row-major order (e.g. a bone
+	 * palette) and treated as general matrices. Each destination matrix whose
+	 * source is singular is left unchanged. See MTryInverse(Matrix, Matrix,
+	 * float) for epsilon.
+	 * 
+	 * @param m
+	 *            Original matrices (16 floats per matrix)
+	 * @param dst
+	 *            Destination matrices (16 floats per matrix, may be m)
+	 * @param epsilon
+	 *            Relative tolerance
+	 * @param dets
+	 *            Receives the determinant of each matrix, or 0 for singular
+	 *            matrices (may be null)
+	 * @param from
+	 *            First matrix (inclusive)
+	 * @param to
+	 *            Last matrix (exclusive)
+	 * @return Number of singular matrices
+	 */
+	public static int MTryInverse(float[] m, float[] dst, float epsilon, float[] dets, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		final int singular_count = MTryInverseKernel(m, dst, epsilon, dets, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.MINVERSE_ARRAY, to - from, start);
+		}
+
+		return singular_count;
+	}
+	/**
+	 * MTryInverse(float[], float[], float, float[], int, int) without
+	 * instrumentation
+	 */
+	static int MTryInverseKernel(float[] m, float[] dst, float epsilon, float[] dets, int from,
+			int to) {
+		int singular_count = 0;
+		for (int i = from; i < to; i++) {
+			final float det = InverseGeneral(m, i * 16, dst, i * 16, true, epsilon);
+			if (det == 0.0f) {
+				singular_count++;
+			}
+			if (dets != null) {
+				dets[i] = det;
+			}
+		}
+
+		return singular_count;
+	}
+	public static int MTryInverse(float[] m, float[] dst, float epsilon, float[] dets) {
+		return MTryInverse(m, dst, epsilon, dets, 0, dst.length / 16);
+	}
+	private static boolean TryInverse(Matrix m, Matrix dst, float epsilon) {
+		final MatrixKind kind = m.kind;
+
+		switch (kind) {
+			case IDENTITY:
+				MGetIdent(dst);
+				break;
+			case TRANSLATION:
+				InverseTranslation(m.m, dst.m);
+				break;
+			case RIGID:
+				InverseRigid(m.m, dst.m);
+				break;
+			case AFFINE:
+				if (InverseAffine(m.m, dst.m, true, epsilon) == 0.0f) {
+					return false;
+				}
+				break;
+			default:
+				if (InverseGeneral(m.m, 0, dst.m, 0, true, epsilon) == 0.0f) {
+					return false;
+				}
+				break;
+		}
+		dst.kind = kind;
+
+		return true;
+	}
+	/**
+	 * Returns false if det is 0, not finite, too small to be inverted, or not
+	 * greater than epsilon*scale^n.
+	 */
+	private static boolean IsInvertible(float det, float epsilon, float scale, int n) {
+		if (!(Math.abs(det) > 0.0f) || Float.isInfinite(det) || Float.isInfinite(1.0f / det)) {
+			return false;
+		}
+		if (epsilon > 0.0f) {
+			double threshold = epsilon;
+			for (int i = 0; i < n; i++) {
+				threshold *= scale;
+			}
+			return Math.abs(det) > threshold;
+		}
+		return true;
+	}
+	private static void InverseTranslation(float[] a, float[] r) {
+		final float tx = a[3];
+		final float ty = a[7];
+		final float tz = a[11];
+
+		Arrays.fill(r, 0.0f);
+		r[0] = 1.0f;
+		r[3] = -tx;
+		r[5] = 1.0f;
+		r[7] = -ty;
+		r[10] = 1.0f;
+		r[11] = -tz;
+		r[15] = 1.0f;
+	}
+	/**
+	 * The inverse of a rotation is its transpose, and the translation is
+	 * rotated back: (R|t)^-1 = (R^T|-R^T*t).
+	 */
+	private static void InverseRigid(float[] a, float[] r) {
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float tx = a[3];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float ty = a[7];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+		final float tz = a[11];
+
+		r[0] = a00;
+		r[1] = a10;
+		r[2] = a20;
+		r[3] = -(a00 * tx + a10 * ty + a20 * tz);
+		r[4] = a01;
+		r[5] = a11;
+		r[6] = a21;
+		r[7] = -(a01 * tx + a11 * ty + a21 * tz);
+		r[8] = a02;
+		r[9] = a12;
+		r[10] = a22;
+		r[11] = -(a02 * tx + a12 * ty + a22 * tz);
+		r[12] = 0.0f;
+		r[13] = 0.0f;
+		r[14] = 0.0f;
+		r[15] = 1.0f;
+	}
+	/**
+	 * Inverts the 3x3 linear part and transforms the translation with it:
+	 * (A|t)^-1 = (A^-1|-A^-1*t).<br>
+	 * If check is true and the matrix is singular, r is left unchanged and 0
+	 * is returned.
+	 */
+	private static float InverseAffine(float[] a, float[] r, boolean check, float epsilon) {
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float tx = a[3];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float ty = a[7];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+		final float tz = a[11];
+
+		final float c00 = a11 * a22 - a12 * a21;
+		final float c01 = a02 * a21 - a01 * a22;
+		final float c02 = a01 * a12 - a02 * a11;
+		final float c10 = a12 * a20 - a10 * a22;
+		final float c11 = a00 * a22 - a02 * a20;
+		final float c12 = a02 * a10 - a00 * a12;
+		final float c20 = a10 * a21 - a11 * a20;
+		final float c21 = a01 * a20 - a00 * a21;
+		final float c22 = a00 * a11 - a01 * a10;
+
+		final float det = a00 * c00 + a01 * c10 + a02 * c20;
+		if (check) {
+			final float scale = epsilon > 0.0f ? MaxAbs(a, 0, 3) : 0.0f;
+			if (!IsInvertible(det, epsilon, scale, 3)) {
+				return 0.0f;
+			}
+		}
 		final float rec_det = 1.0f / det;
 
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				ret.SetValue(i, j, cofactor.GetValue(i, j) * rec_det);
+		final float i00 = c00 * rec_det;
+		final float i01 = c01 * rec_det;
+		final float i02 = c02 * rec_det;
+		final float i10 = c10 * rec_det;
+		final float i11 = c11 * rec_det;
+		final float i12 = c12 * rec_det;
+		final float i20 = c20 * rec_det;
+		final float i21 = c21 * rec_det;
+		final float i22 = c22 * rec_det;
+
+		r[0] = i00;
+		r[1] = i01;
+		r[2] = i02;
+		r[3] = -(i00 * tx + i01 * ty + i02 * tz);
+		r[4] = i10;
+		r[5] = i11;
+		r[6] = i12;
+		r[7] = -(i10 * tx + i11 * ty + i12 * tz);
+		r[8] = i20;
+		r[9] = i21;
+		r[10] = i22;
+		r[11] = -(i20 * tx + i21 * ty + i22 * tz);
+		r[12] = 0.0f;
+		r[13] = 0.0f;
+		r[14] = 0.0f;
+		r[15] = 1.0f;
+
+		return det;
+	}
+	/**
+	 * Inverts a matrix with the adjugate, sharing the twelve 2x2 minors of the
+	 * upper and lower row pairs between the cofactors and the determinant.<br>
+	 * If check is true and the matrix is singular, r is left unchanged and 0
+	 * is returned.
+	 */
+	private static float InverseGeneral(float[] a, int a_offset, float[] r, int r_offset,
+			boolean check, float epsilon) {
+		final int o = a_offset;
+		final float a00 = a[o];
+		final float a01 = a[o + 1];
+		final float a02 = a[o + 2];
+		final float a03 = a[o + 3];
+		final float a10 = a[o + 4];
+		final float a11 = a[o + 5];
+		final float a12 = a[o + 6];
+		final float a13 = a[o + 7];
+		final float a20 = a[o + 8];
+		final float a21 = a[o + 9];
+		final float a22 = a[o + 10];
+		final float a23 = a[o + 11];
+		final float a30 = a[o + 12];
+		final float a31 = a[o + 13];
+		final float a32 = a[o + 14];
+		final float a33 = a[o + 15];
+
+		final float s0 = a00 * a11 - a01 * a10;
+		final float s1 = a00 * a12 - a02 * a10;
+		final float s2 = a00 * a13 - a03 * a10;
+		final float s3 = a01 * a12 - a02 * a11;
+		final float s4 = a01 * a13 - a03 * a11;
+		final float s5 = a02 * a13 - a03 * a12;
+		final float c0 = a20 * a31 - a21 * a30;
+		final float c1 = a20 * a32 - a22 * a30;
+		final float c2 = a20 * a33 - a23 * a30;
+		final float c3 = a21 * a32 - a22 * a31;
+		final float c4 = a21 * a33 - a23 * a31;
+		final float c5 = a22 * a33 - a23 * a32;
+
+		final float det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+		if (check) {
+			final float scale = epsilon > 0.0f ? MaxAbs(a, o, 4) : 0.0f;
+			if (!IsInvertible(det, epsilon, scale, 4)) {
+				return 0.0f;
 			}
 		}
+		final float rec_det = 1.0f / det;
+
+		final int p = r_offset;
+		r[p] = (a11 * c5 - a12 * c4 + a13 * c3) * rec_det;
+		r[p + 1] = (-a01 * c5 + a02 * c4 - a03 * c3) * rec_det;
+		r[p + 2] = (a31 * s5 - a32 * s4 + a33 * s3) * rec_det;
+		r[p + 3] = (-a21 * s5 + a22 * s4 - a23 * s3) * rec_det;
+		r[p + 4] = (-a10 * c5 + a12 * c2 - a13 * c1) * rec_det;
+		r[p + 5] = (a00 * c5 - a02 * c2 + a03 * c1) * rec_det;
+		r[p + 6] = (-a30 * s5 + a32 * s2 - a33 * s1) * rec_det;
+		r[p + 7] = (a20 * s5 - a22 * s2 + a23 * s1) * rec_det;
+		r[p + 8] = (a10 * c4 - a11 * c2 + a13 * c0) * rec_det;
+		r[p + 9] = (-a00 * c4 + a01 * c2 - a03 * c0) * rec_det;
+		r[p + 10] = (a30 * s4 - a31 * s2 + a33 * s0) * rec_det;
+		r[p + 11] = (-a20 * s4 + a21 * s2 - a23 * s0) * rec_det;
+		r[p + 12] = (-a10 * c3 + a11 * c1 - a12 * c0) * rec_det;
+		r[p + 13] = (a00 * c3 - a01 * c1 + a02 * c0) * rec_det;
+		r[p + 14] = (-a30 * s3 + a31 * s1 - a32 * s0) * rec_det;
+		r[p + 15] = (a20 * s3 - a21 * s1 + a22 * s0) * rec_det;
 
+		return det;
+	}
+	/**
+	 * Returns the largest absolute value of the upper left size x size
+	 * elements.
+	 */
+	private static float MaxAbs(float[] a, int offset, int size) {
+		float ret = 0.0f;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				ret = Math.max(ret, Math.abs(a[offset + i * 4 + j]));
+			}
+		}
 		return ret;
 	}
+	/**
+	 * Determines the kind of a matrix from its elements.<br>
+	 * The kind of the matrix itself is not changed. Pass the result to
+	 * Matrix.SetKind() to enable the fast paths for matrices built with
+	 * SetValue().
+	 * 
+	 * @param m
+	 *            Matrix
+	 * @param epsilon
+	 *            Tolerance for comparisons
+	 * @return Kind
+	 */
+	public static MatrixKind MClassify(Matrix m, float epsilon) {
+		final float[] a = m.m;
+
+		if (Math.abs(a[12]) > epsilon || Math.abs(a[13]) > epsilon
+				|| Math.abs(a[14]) > epsilon || Math.abs(a[15] - 1.0f) > epsilon) {
+			return MatrixKind.GENERAL;
+		}
+
+		final float a00 = a[0];
+		final float a01 = a[1];
+		final float a02 = a[2];
+		final float a10 = a[4];
+		final float a11 = a[5];
+		final float a12 = a[6];
+		final float a20 = a[8];
+		final float a21 = a[9];
+		final float a22 = a[10];
+
+		final boolean identity_linear = Math.abs(a00 - 1.0f) <= epsilon
+				&& Math.abs(a11 - 1.0f) <= epsilon && Math.abs(a22 - 1.0f) <= epsilon
+				&& Math.abs(a01) <= epsilon && Math.abs(a02) <= epsilon
+				&& Math.abs(a10) <= epsilon && Math.abs(a12) <= epsilon
+				&& Math.abs(a20) <= epsilon && Math.abs(a21) <= epsilon;
+		if (identity_linear) {
+			final boolean no_translation = Math.abs(a[3]) <= epsilon
+					&& Math.abs(a[7]) <= epsilon && Math.abs(a[11]) <= epsilon;
+			return no_translation ? MatrixKind.IDENTITY : MatrixKind.TRANSLATION;
+		}
+
+		// Rows of a rotation are orthonormal and its determinant is 1.
+		final boolean orthonormal = Math.abs(a00 * a00 + a01 * a01 + a02 * a02 - 1.0f) <= epsilon
+				&& Math.abs(a10 * a10 + a11 * a11 + a12 * a12 - 1.0f) <= epsilon
+				&& Math.abs(a20 * a20 + a21 * a21 + a22 * a22 - 1.0f) <= epsilon
+				&& Math.abs(a00 * a10 + a01 * a11 + a02 * a12) <= epsilon
+				&& Math.abs(a00 * a20 + a01 * a21 + a02 * a22) <= epsilon
+				&& Math.abs(a10 * a20 + a11 * a21 + a12 * a22) <= epsilon;
+		if (orthonormal) {
+			final float det = a00 * (a11 * a22 - a12 * a21) - a01 * (a10 * a22 - a12 * a20)
+					+ a02 * (a10 * a21 - a11 * a20);
+			if (det > 0.0f) {
+				return MatrixKind.RIGID;
+			}
+		}
+
+		return MatrixKind.AFFINE;
+	}
 
 	/**
 	 * Transforms a vector.
@@ -405,17 +1495,36 @@ public class MatrixFunctions {
 	 * @return m*v
 	 */
 	public static Vector VTransform(Vector v, Matrix m) {
-		Vector ret = new Vector();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.VTRANSFORM);
+		}
+		return VTransform(v, m, new Vector());
+	}
+	/**
+	 * Transforms a vector and stores the result in a destination vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector VTransform(Vector v, Matrix m, Vector dst) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.VTRANSFORM);
+		}
 
-		final float[] ex_v = new float[4];
-		ex_v[0] = v.GetX();
-		ex_v[1] = v.GetY();
-		ex_v[2] = v.GetZ();
-		ex_v[3] = 1.0f;
+		final float[] a = m.m;
+		final float x = v.GetX();
+		final float y = v.GetY();
+		final float z = v.GetZ();
 
-		ret = innerVTransform(ex_v, m);
+		dst.SetVector(a[0] * x + a[1] * y + a[2] * z + a[3], a[4] * x + a[5] * y + a[6] * z + a[7],
+				a[8] * x + a[9] * y + a[10] * z + a[11]);
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Transforms a vector without translation.
@@ -427,41 +1536,286 @@ public class MatrixFunctions {
 	 * @return m*v
 	 */
 	public static Vector VTransformSR(Vector v, Matrix m) {
-		Vector ret = new Vector();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.VTRANSFORM);
+		}
+		return VTransformSR(v, m, new Vector());
+	}
+	/**
+	 * Transforms a vector without translation and stores the result in a
+	 * destination vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector VTransformSR(Vector v, Matrix m, Vector dst) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.VTRANSFORM);
+		}
 
-		final float[] ex_v = new float[4];
-		ex_v[0] = v.GetX();
-		ex_v[1] = v.GetY();
-		ex_v[2] = v.GetZ();
-		ex_v[3] = 0.0f;
+		final float[] a = m.m;
+		final float x = v.GetX();
+		final float y = v.GetY();
+		final float z = v.GetZ();
 
-		ret = innerVTransform(ex_v, m);
+		dst.SetVector(a[0] * x + a[1] * y + a[2] * z, a[4] * x + a[5] * y + a[6] * z,
+				a[8] * x + a[9] * y + a[10] * z);
 
-		return ret;
+		return dst;
 	}
-	private static Vector innerVTransform(float[] ex_v, Matrix m) {
-		final Vector ret = new Vector();
-
-		float m00, m01, m02, m03;
-		float m10, m11, m12, m13;
-		float m20, m21, m22, m23;
-		m00 = m.GetValue(0, 0);
-		m01 = m.GetValue(0, 1);
-		m02 = m.GetValue(0, 2);
-		m03 = m.GetValue(0, 3);
-		m10 = m.GetValue(1, 0);
-		m11 = m.GetValue(1, 1);
-		m12 = m.GetValue(1, 2);
-		m13 = m.GetValue(1, 3);
-		m20 = m.GetValue(2, 0);
-		m21 = m.GetValue(2, 1);
-		m22 = m.GetValue(2, 2);
-		m23 = m.GetValue(2, 3);
-
-		ret.SetX(m00 * ex_v[0] + m01 * ex_v[1] + m02 * ex_v[2] + m03 * ex_v[3]);
-		ret.SetY(m10 * ex_v[0] + m11 * ex_v[1] + m12 * ex_v[2] + m13 * ex_v[3]);
-		ret.SetZ(m20 * ex_v[0] + m21 * ex_v[1] + m22 * ex_v[2] + m23 * ex_v[3]);
+	/**
+	 * Transforms a vector and divides the result by w (perspective
+	 * division).
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param m
+	 *            Matrix (e.g. a projection matrix)
+	 * @return Projected vector
+	 */
+	public static Vector VProject(Vector v, Matrix m) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.VTRANSFORM);
+		}
+		return VProject(v, m, new Vector());
+	}
+	/**
+	 * Transforms a vector, divides the result by w (perspective division) and
+	 * stores it in a destination vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param m
+	 *            Matrix (e.g. a projection matrix)
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector VProject(Vector v, Matrix m, Vector dst) {
+		if (m.kind != MatrixKind.GENERAL) {
+			return VTransform(v, m, dst);
+		}
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.VTRANSFORM);
+		}
 
-		return ret;
+		final float[] a = m.m;
+		final float x = v.GetX();
+		final float y = v.GetY();
+		final float z = v.GetZ();
+
+		final float rec_w = 1.0f / (a[12] * x + a[13] * y + a[14] * z + a[15]);
+		dst.SetVector((a[0] * x + a[1] * y + a[2] * z + a[3]) * rec_w,
+				(a[4] * x + a[5] * y + a[6] * z + a[7]) * rec_w,
+				(a[8] * x + a[9] * y + a[10] * z + a[11]) * rec_w);
+
+		return dst;
+	}
+
+	/**
+	 * Transforms vectors in a vector array.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VTransform(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		VTransformKernel(v, m, dst, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VTRANSFORM_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	/**
+	 * VTransform(VectorArray, Matrix, VectorArray, int, int) without
+	 * instrumentation
+	 */
+	static VectorArray VTransformKernel(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		if (m.kind == MatrixKind.IDENTITY || m.kind == MatrixKind.TRANSLATION) {
+			return TranslateArray(v, m.m[3], m.m[7], m.m[11], dst, from, to);
+		}
+
+		KERNELS.VTransform(m.m, v.GetXArray(), v.GetYArray(), v.GetZArray(), dst.GetXArray(),
+				dst.GetYArray(), dst.GetZArray(), from, to);
+		return dst;
+	}
+	private static VectorArray TranslateArray(VectorArray v, float tx, float ty, float tz,
+			VectorArray dst, int from, int to) {
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+		final float[] dxs = dst.GetXArray();
+		final float[] dys = dst.GetYArray();
+		final float[] dzs = dst.GetZArray();
+
+		if (tx == 0.0f && ty == 0.0f && tz == 0.0f) {
+			if (v != dst) {
+				System.arraycopy(xs, from, dxs, from, to - from);
+				System.arraycopy(ys, from, dys, from, to - from);
+				System.arraycopy(zs, from, dzs, from, to - from);
+			}
+			return dst;
+		}
+
+		for (int i = from; i < to; i++) {
+			dxs[i] = xs[i] + tx;
+		}
+		for (int i = from; i < to; i++) {
+			dys[i] = ys[i] + ty;
+		}
+		for (int i = from; i < to; i++) {
+			dzs[i] = zs[i] + tz;
+		}
+
+		return dst;
+	}
+	public static VectorArray VTransform(VectorArray v, Matrix m, VectorArray dst) {
+		return VTransform(v, m, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Transforms vectors in a vector array without translation.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VTransformSR(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		VTransformSRKernel(v, m, dst, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VTRANSFORM_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	/**
+	 * VTransformSR(VectorArray, Matrix, VectorArray, int, int) without
+	 * instrumentation
+	 */
+	static VectorArray VTransformSRKernel(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		if (m.kind == MatrixKind.IDENTITY || m.kind == MatrixKind.TRANSLATION) {
+			return TranslateArray(v, 0.0f, 0.0f, 0.0f, dst, from, to);
+		}
+
+		KERNELS.VTransformSR(m.m, v.GetXArray(), v.GetYArray(), v.GetZArray(), dst.GetXArray(),
+				dst.GetYArray(), dst.GetZArray(), from, to);
+		return dst;
+	}
+	public static VectorArray VTransformSR(VectorArray v, Matrix m, VectorArray dst) {
+		return VTransformSR(v, m, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Transforms vectors in a vector array and divides the results by w
+	 * (perspective division).
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param m
+	 *            Matrix (e.g. a projection matrix)
+	 * @param dst
+	 *            Destination vector array (may be v)
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VProject(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		VProjectKernel(v, m, dst, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VTRANSFORM_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	/**
+	 * VProject(VectorArray, Matrix, VectorArray, int, int) without
+	 * instrumentation
+	 */
+	static VectorArray VProjectKernel(VectorArray v, Matrix m, VectorArray dst, int from,
+			int to) {
+		if (m.kind != MatrixKind.GENERAL) {
+			return VTransformKernel(v, m, dst, from, to);
+		}
+
+		final float[] a = m.m;
+		final float m00 = a[0];
+		final float m01 = a[1];
+		final float m02 = a[2];
+		final float m03 = a[3];
+		final float m10 = a[4];
+		final float m11 = a[5];
+		final float m12 = a[6];
+		final float m13 = a[7];
+		final float m20 = a[8];
+		final float m21 = a[9];
+		final float m22 = a[10];
+		final float m23 = a[11];
+		final float m30 = a[12];
+		final float m31 = a[13];
+		final float m32 = a[14];
+		final float m33 = a[15];
+
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+		final float[] dxs = dst.GetXArray();
+		final float[] dys = dst.GetYArray();
+		final float[] dzs = dst.GetZArray();
+
+		float x;
+		float y;
+		float z;
+		float rec_w;
+		for (int i = from; i < to; i++) {
+			x = xs[i];
+			y = ys[i];
+			z = zs[i];
+			rec_w = 1.0f / (m30 * x + m31 * y + m32 * z + m33);
+
+			dxs[i] = (m00 * x + m01 * y + m02 * z + m03) * rec_w;
+			dys[i] = (m10 * x + m11 * y + m12 * z + m13) * rec_w;
+			dzs[i] = (m20 * x + m21 * y + m22 * z + m23) * rec_w;
+		}
+
+		return dst;
+	}
+	public static VectorArray VProject(VectorArray v, Matrix m, VectorArray dst) {
+		return VProject(v, m, dst, 0, dst.GetSize());
 	}
 }
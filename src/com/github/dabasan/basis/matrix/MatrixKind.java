@@ -0,0 +1,45 @@
+package com.github.dabasan.basis.matrix;
+
+/**
+ * Structural kind of a matrix<br>
+ * Kinds are ordered from the most specific to the most general. Every kind
+ * except GENERAL has (0, 0, 0, 1) as its last row.
+ * 
+ * @author Daba
+ *
+ */
+public enum MatrixKind {
+	/**
+	 * Identity matrix
+	 */
+	IDENTITY,
+	/**
+	 * Translation only
+	 */
+	TRANSLATION,
+	/**
+	 * Rotation and translation
+	 */
+	RIGID,
+	/**
+	 * Any 3x3 linear part and translation
+	 */
+	AFFINE,
+	/**
+	 * Arbitrary 4x4 matrix
+	 */
+	GENERAL;
+
+	/**
+	 * Returns the kind of the product of two matrices.
+	 * 
+	 * @param k1
+	 *            Kind of the first matrix
+	 * @param k2
+	 *            Kind of the second matrix
+	 * @return Kind of the product
+	 */
+	static MatrixKind Combine(MatrixKind k1, MatrixKind k2) {
+		return k1.ordinal() >= k2.ordinal() ? k1 : k2;
+	}
+}
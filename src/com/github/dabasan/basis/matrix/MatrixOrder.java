@@ -0,0 +1,18 @@
+package com.github.dabasan.basis.matrix;
+
+/**
+ * Memory layout of matrix elements
+ * 
+ * @author Daba
+ *
+ */
+public enum MatrixOrder {
+	/**
+	 * Elements of a row are contiguous (same as Matrix).
+	 */
+	ROW_MAJOR,
+	/**
+	 * Elements of a column are contiguous (e.g. OpenGL).
+	 */
+	COLUMN_MAJOR
+}
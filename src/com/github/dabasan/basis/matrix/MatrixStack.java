@@ -0,0 +1,315 @@
+package com.github.dabasan.basis.matrix;
+
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * Matrix stack for hierarchical rendering<br>
+ * All levels are allocated up front, so no operation allocates. Transforming
+ * operations multiply the top matrix from the right (top = top*op), as with
+ * the fixed-function stacks of OpenGL. Matrices returned by GetTop() and
+ * GetNormalMatrix() are read-only views of the internal storage and change
+ * with the stack.<br>
+ * A stack is not thread-safe.
+ * 
+ * @author Daba
+ *
+ */
+public class MatrixStack {
+	private final Matrix[] tops;
+	private final Matrix[] top_views;
+	private final Matrix[] normals;
+	private final Matrix[] normal_views;
+	private final boolean[] normal_valid;
+	private final Matrix temp;
+	private int depth;
+
+	/**
+	 * Creates a stack without cached normal matrices.
+	 * 
+	 * @param capacity
+	 *            Maximum number of levels
+	 */
+	public MatrixStack(int capacity) {
+		this(capacity, false);
+	}
+	/**
+	 * Creates a stack.<br>
+	 * The top level is initialized with an identity matrix.
+	 * 
+	 * @param capacity
+	 *            Maximum number of levels
+	 * @param cache_normal_matrices
+	 *            Whether to cache the inverse-transpose of each level
+	 */
+	public MatrixStack(int capacity, boolean cache_normal_matrices) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1.");
+		}
+
+		tops = new Matrix[capacity];
+		top_views = new Matrix[capacity];
+		for (int i = 0; i < capacity; i++) {
+			tops[i] = new Matrix();
+			top_views[i] = new Matrix(tops[i].m, MatrixKind.GENERAL, true);
+		}
+
+		if (cache_normal_matrices) {
+			normals = new Matrix[capacity];
+			normal_views = new Matrix[capacity];
+			normal_valid = new boolean[capacity];
+			for (int i = 0; i < capacity; i++) {
+				normals[i] = new Matrix();
+				normal_views[i] = new Matrix(normals[i].m, MatrixKind.GENERAL, true);
+			}
+		} else {
+			normals = null;
+			normal_views = null;
+			normal_valid = null;
+		}
+
+		temp = new Matrix();
+		depth = 0;
+		this.LoadIdentity();
+	}
+
+	public int GetCapacity() {
+		return tops.length;
+	}
+	/**
+	 * Returns the number of pushed levels.
+	 * 
+	 * @return 0 if only the initial level exists
+	 */
+	public int GetDepth() {
+		return depth;
+	}
+	public boolean IsCachingNormalMatrices() {
+		return normals != null;
+	}
+
+	/**
+	 * Duplicates the top matrix.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the stack is full
+	 */
+	public void Push() {
+		if (depth + 1 >= tops.length) {
+			throw new IllegalStateException("The matrix stack is full.");
+		}
+
+		MatrixFunctions.MCopy(tops[depth], tops[depth + 1]);
+		top_views[depth + 1].kind = tops[depth].kind;
+		if (normals != null) {
+			normal_valid[depth + 1] = normal_valid[depth];
+			if (normal_valid[depth]) {
+				MatrixFunctions.MCopy(normals[depth], normals[depth + 1]);
+				normal_views[depth + 1].kind = normals[depth].kind;
+			}
+		}
+
+		depth++;
+	}
+	/**
+	 * Discards the top matrix.
+	 * 
+	 * @throws IllegalStateException
+	 *             If nothing has been pushed
+	 */
+	public void Pop() {
+		if (depth == 0) {
+			throw new IllegalStateException("The matrix stack is empty.");
+		}
+		depth--;
+	}
+	/**
+	 * Pops all pushed levels and loads an identity matrix.
+	 */
+	public void Clear() {
+		depth = 0;
+		this.LoadIdentity();
+	}
+
+	/**
+	 * Returns the top matrix.
+	 * 
+	 * @return Read-only view of the top matrix
+	 */
+	public Matrix GetTop() {
+		return top_views[depth];
+	}
+	/**
+	 * Copies the top matrix.
+	 * 
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetTop(Matrix dst) {
+		return MatrixFunctions.MCopy(tops[depth], dst);
+	}
+	/**
+	 * Returns the inverse-transpose of the top matrix, which transforms
+	 * normals.<br>
+	 * The matrix is computed at most once per change of the top matrix.
+	 * 
+	 * @return Read-only view of the normal matrix
+	 * @throws IllegalStateException
+	 *             If the stack does not cache normal matrices
+	 */
+	public Matrix GetNormalMatrix() {
+		if (normals == null) {
+			throw new IllegalStateException("The matrix stack does not cache normal matrices.");
+		}
+
+		if (!normal_valid[depth]) {
+			MatrixFunctions.MInverse(tops[depth], temp);
+			MatrixFunctions.MTranspose(temp, normals[depth]);
+			normal_views[depth].kind = normals[depth].kind;
+			normal_valid[depth] = true;
+		}
+
+		return normal_views[depth];
+	}
+	/**
+	 * Calculates the inverse-transpose of the top matrix.
+	 * 
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetNormalMatrix(Matrix dst) {
+		if (normals != null) {
+			return MatrixFunctions.MCopy(this.GetNormalMatrix(), dst);
+		}
+
+		MatrixFunctions.MInverse(tops[depth], temp);
+		return MatrixFunctions.MTranspose(temp, dst);
+	}
+
+	/**
+	 * Replaces the top matrix with an identity matrix.
+	 */
+	public void LoadIdentity() {
+		MatrixFunctions.MGetIdent(tops[depth]);
+		this.Modified();
+	}
+	/**
+	 * Replaces the top matrix.
+	 * 
+	 * @param m
+	 *            Matrix
+	 */
+	public void Load(Matrix m) {
+		MatrixFunctions.MCopy(m, tops[depth]);
+		this.Modified();
+	}
+	/**
+	 * Multiplies the top matrix by a matrix.
+	 * 
+	 * @param m
+	 *            Matrix
+	 */
+	public void MultMatrix(Matrix m) {
+		MatrixFunctions.MMult(tops[depth], m, tops[depth]);
+		this.Modified();
+	}
+	/**
+	 * Multiplies the top matrix by a translation matrix.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public void Translate(float x, float y, float z) {
+		final Matrix top = tops[depth];
+		final float[] r = top.m;
+
+		// Only the last column changes.
+		for (int i = 0; i < 16; i += 4) {
+			r[i + 3] += r[i] * x + r[i + 1] * y + r[i + 2] * z;
+		}
+		top.kind = MatrixKind.Combine(top.kind, MatrixKind.TRANSLATION);
+
+		this.Modified();
+	}
+	public void Translate(Vector translate) {
+		this.Translate(translate.GetX(), translate.GetY(), translate.GetZ());
+	}
+	/**
+	 * Multiplies the top matrix by a scaling matrix.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public void Scale(float x, float y, float z) {
+		final Matrix top = tops[depth];
+		final float[] r = top.m;
+
+		// Scales the first three columns.
+		for (int i = 0; i < 16; i += 4) {
+			r[i] *= x;
+			r[i + 1] *= y;
+			r[i + 2] *= z;
+		}
+		top.kind = MatrixKind.Combine(top.kind, MatrixKind.AFFINE);
+
+		this.Modified();
+	}
+	public void Scale(Vector scale) {
+		this.Scale(scale.GetX(), scale.GetY(), scale.GetZ());
+	}
+	/**
+	 * Multiplies the top matrix by a rotation matrix around the x-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateX(float th) {
+		this.MultMatrix(MatrixFunctions.MGetRotX(th, temp));
+	}
+	/**
+	 * Multiplies the top matrix by a rotation matrix around the y-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateY(float th) {
+		this.MultMatrix(MatrixFunctions.MGetRotY(th, temp));
+	}
+	/**
+	 * Multiplies the top matrix by a rotation matrix around the z-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateZ(float th) {
+		this.MultMatrix(MatrixFunctions.MGetRotZ(th, temp));
+	}
+	/**
+	 * Multiplies the top matrix by a rotation matrix around an arbitrary
+	 * axis.
+	 * 
+	 * @param axis
+	 *            Rotation axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateAxis(Vector axis, float th) {
+		this.MultMatrix(MatrixFunctions.MGetRotAxis(axis, th, temp));
+	}
+
+	private void Modified() {
+		top_views[depth].kind = tops[depth].kind;
+		if (normals != null) {
+			normal_valid[depth] = false;
+		}
+	}
+}
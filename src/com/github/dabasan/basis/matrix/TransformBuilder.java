@@ -0,0 +1,324 @@
+package com.github.dabasan.basis.matrix;
+
+import com.github.dabasan.basis.quaternion.Quaternion;
+import com.github.dabasan.basis.trig.TrigFunctions;
+import com.github.dabasan.basis.vector.Vector;
+
+/**
+ * Translation, rotation and scaling composed on demand<br>
+ * The builder accumulates the components of a transform and composes T*R*S
+ * only when a matrix is read, so any number of operations between two reads
+ * costs one composition. The inverse is composed in closed form and cached
+ * separately. Rotations are accumulated as a quaternion, and each rotating
+ * operation is applied after the current rotation (R = op*R).<br>
+ * Matrices returned by GetMatrix() and GetInverse() are read-only views of
+ * the internal storage and change with the builder. A builder is not
+ * thread-safe.
+ * 
+ * @author Daba
+ *
+ */
+public class TransformBuilder {
+	private float tx;
+	private float ty;
+	private float tz;
+	private float qw;
+	private float qx;
+	private float qy;
+	private float qz;
+	private float sx;
+	private float sy;
+	private float sz;
+
+	private final Matrix matrix;
+	private final Matrix matrix_view;
+	private final Matrix inverse;
+	private final Matrix inverse_view;
+	private boolean matrix_valid;
+	private boolean inverse_valid;
+
+	/**
+	 * Creates a builder holding an identity transform.
+	 */
+	public TransformBuilder() {
+		matrix = new Matrix();
+		matrix_view = MatrixFunctions.MGetReadOnlyView(matrix);
+		inverse = new Matrix();
+		inverse_view = MatrixFunctions.MGetReadOnlyView(inverse);
+
+		this.Reset();
+	}
+
+	/**
+	 * Resets the transform to identity.
+	 */
+	public void Reset() {
+		tx = 0.0f;
+		ty = 0.0f;
+		tz = 0.0f;
+		qw = 1.0f;
+		qx = 0.0f;
+		qy = 0.0f;
+		qz = 0.0f;
+		sx = 1.0f;
+		sy = 1.0f;
+		sz = 1.0f;
+		this.Modified();
+	}
+
+	public void SetTranslation(float x, float y, float z) {
+		tx = x;
+		ty = y;
+		tz = z;
+		this.Modified();
+	}
+	public void SetTranslation(Vector translate) {
+		this.SetTranslation(translate.GetX(), translate.GetY(), translate.GetZ());
+	}
+	/**
+	 * Adds to the translation.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public void Translate(float x, float y, float z) {
+		tx += x;
+		ty += y;
+		tz += z;
+		this.Modified();
+	}
+	public void Translate(Vector translate) {
+		this.Translate(translate.GetX(), translate.GetY(), translate.GetZ());
+	}
+
+	/**
+	 * Sets the rotation.
+	 * 
+	 * @param rotation
+	 *            Rotation (normalized)
+	 */
+	public void SetRotation(Quaternion rotation) {
+		qw = rotation.GetW();
+		qx = rotation.GetX();
+		qy = rotation.GetY();
+		qz = rotation.GetZ();
+		this.Modified();
+	}
+	/**
+	 * Sets a rotation around an arbitrary axis.
+	 * 
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void SetRotationAxis(Vector axis, float th) {
+		qw = 1.0f;
+		qx = 0.0f;
+		qy = 0.0f;
+		qz = 0.0f;
+		this.RotateAxis(axis, th);
+	}
+	/**
+	 * Sets a rotation by angles around the x-, y- and z-axes.<br>
+	 * The rotation is applied around x-axis first and z-axis last (Rz*Ry*Rx),
+	 * as with MatrixFunctions.MGetTRS(Vector, float, float, float, Vector).
+	 * 
+	 * @param th_x
+	 *            Rotation angle around x-axis (radian)
+	 * @param th_y
+	 *            Rotation angle around y-axis (radian)
+	 * @param th_z
+	 *            Rotation angle around z-axis (radian)
+	 */
+	public void SetRotationXYZ(float th_x, float th_y, float th_z) {
+		qw = 1.0f;
+		qx = 0.0f;
+		qy = 0.0f;
+		qz = 0.0f;
+		this.RotateX(th_x);
+		this.RotateY(th_y);
+		this.RotateZ(th_z);
+	}
+	/**
+	 * Applies a rotation after the current rotation.
+	 * 
+	 * @param rotation
+	 *            Rotation (normalized)
+	 */
+	public void Rotate(Quaternion rotation) {
+		this.Rotate(rotation.GetW(), rotation.GetX(), rotation.GetY(), rotation.GetZ());
+	}
+	/**
+	 * Applies a rotation around an arbitrary axis after the current rotation.
+	 * 
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateAxis(Vector axis, float th) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th * 0.5f);
+		final float sin_half = TrigFunctions.UnpackSin(sin_cos);
+		this.Rotate(TrigFunctions.UnpackCos(sin_cos), axis.GetX() * sin_half,
+				axis.GetY() * sin_half, axis.GetZ() * sin_half);
+	}
+	/**
+	 * Applies a rotation around the x-axis after the current rotation.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateX(float th) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th * 0.5f);
+		this.Rotate(TrigFunctions.UnpackCos(sin_cos), TrigFunctions.UnpackSin(sin_cos), 0.0f,
+				0.0f);
+	}
+	/**
+	 * Applies a rotation around the y-axis after the current rotation.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateY(float th) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th * 0.5f);
+		this.Rotate(TrigFunctions.UnpackCos(sin_cos), 0.0f, TrigFunctions.UnpackSin(sin_cos),
+				0.0f);
+	}
+	/**
+	 * Applies a rotation around the z-axis after the current rotation.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 */
+	public void RotateZ(float th) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th * 0.5f);
+		this.Rotate(TrigFunctions.UnpackCos(sin_cos), 0.0f, 0.0f,
+				TrigFunctions.UnpackSin(sin_cos));
+	}
+	private void Rotate(float bw, float bx, float by, float bz) {
+		final float aw = qw;
+		final float ax = qx;
+		final float ay = qy;
+		final float az = qz;
+
+		// b*a: rotation by a followed by b
+		qw = bw * aw - bx * ax - by * ay - bz * az;
+		qx = bw * ax + bx * aw + by * az - bz * ay;
+		qy = bw * ay - bx * az + by * aw + bz * ax;
+		qz = bw * az + bx * ay - by * ax + bz * aw;
+		this.Modified();
+	}
+
+	public void SetScale(float x, float y, float z) {
+		sx = x;
+		sy = y;
+		sz = z;
+		this.Modified();
+	}
+	public void SetScale(Vector scale) {
+		this.SetScale(scale.GetX(), scale.GetY(), scale.GetZ());
+	}
+	/**
+	 * Multiplies the scale component-wise.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public void Scale(float x, float y, float z) {
+		sx *= x;
+		sy *= y;
+		sz *= z;
+		this.Modified();
+	}
+	public void Scale(Vector scale) {
+		this.Scale(scale.GetX(), scale.GetY(), scale.GetZ());
+	}
+
+	public Vector GetTranslation(Vector dst) {
+		dst.SetVector(tx, ty, tz);
+		return dst;
+	}
+	public Quaternion GetRotation(Quaternion dst) {
+		dst.SetQuaternion(qw, qx, qy, qz);
+		return dst;
+	}
+	public Vector GetScale(Vector dst) {
+		dst.SetVector(sx, sy, sz);
+		return dst;
+	}
+
+	/**
+	 * Returns the transform matrix T*R*S.<br>
+	 * The matrix is composed at most once per change of the builder.
+	 * 
+	 * @return Read-only view of the transform matrix
+	 */
+	public Matrix GetMatrix() {
+		if (!matrix_valid) {
+			this.Compose(matrix, false);
+			matrix_view.kind = matrix.kind;
+			matrix_valid = true;
+		}
+		return matrix_view;
+	}
+	/**
+	 * Copies the transform matrix.
+	 * 
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetMatrix(Matrix dst) {
+		return MatrixFunctions.MCopy(this.GetMatrix(), dst);
+	}
+	/**
+	 * Returns the inverse transform matrix S^-1*R^T*T^-1.<br>
+	 * The matrix is composed at most once per change of the builder. All
+	 * components of the scale must be nonzero.
+	 * 
+	 * @return Read-only view of the inverse transform matrix
+	 */
+	public Matrix GetInverse() {
+		if (!inverse_valid) {
+			this.Compose(inverse, true);
+			inverse_view.kind = inverse.kind;
+			inverse_valid = true;
+		}
+		return inverse_view;
+	}
+	/**
+	 * Copies the inverse transform matrix.
+	 * 
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetInverse(Matrix dst) {
+		return MatrixFunctions.MCopy(this.GetInverse(), dst);
+	}
+
+	private void Compose(Matrix dst, boolean inverse) {
+		// Accumulated products drift from unit length.
+		final float rec_size = 1.0f / (float) Math.sqrt(qw * qw + qx * qx + qy * qy + qz * qz);
+		qw *= rec_size;
+		qx *= rec_size;
+		qy *= rec_size;
+		qz *= rec_size;
+
+		MatrixFunctions.SetRotationQuaternion(dst.m, 0, qw, qx, qy, qz);
+		MatrixFunctions.ComposeTRS(dst, tx, ty, tz, sx, sy, sz, true, inverse);
+	}
+	private void Modified() {
+		matrix_valid = false;
+		inverse_valid = false;
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.dabasan.basis.parallel;
+
+/**
+ * Timing of a batch processed by ParallelRunner
+ * 
+ * @author Daba
+ *
+ */
+public class BatchTiming {
+	private final int element_count;
+	private final int chunk_count;
+	private final int chunk_size;
+	private final long elapsed_nanos;
+
+	public BatchTiming(int element_count, int chunk_count, int chunk_size, long elapsed_nanos) {
+		this.element_count = element_count;
+		this.chunk_count = chunk_count;
+		this.chunk_size = chunk_size;
+		this.elapsed_nanos = elapsed_nanos;
+	}
+
+	@Override
+	public String toString() {
+		return "elements=" + element_count + " chunks=" + chunk_count + " chunk_size="
+				+ chunk_size + " elapsed=" + elapsed_nanos + "ns";
+	}
+
+	public int GetElementCount() {
+		return element_count;
+	}
+	/**
+	 * Returns the number of chunks the batch was split into.<br>
+	 * 1 means the batch was processed sequentially in the calling thread.
+	 * 
+	 * @return Number of chunks
+	 */
+	public int GetChunkCount() {
+		return chunk_count;
+	}
+	public int GetChunkSize() {
+		return chunk_size;
+	}
+	/**
+	 * Returns the wall-clock time taken to process the batch.
+	 * 
+	 * @return Elapsed time (nanoseconds)
+	 */
+	public long GetElapsedNanos() {
+		return elapsed_nanos;
+	}
+}
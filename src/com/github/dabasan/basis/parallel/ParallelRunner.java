@@ -0,0 +1,228 @@
+package com.github.dabasan.basis.parallel;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.dabasan.basis.instrumentation.Instrumentation;
+import com.github.dabasan.basis.instrumentation.InstrumentedOperation;
+
+/**
+ * Splits index ranges across threads.<br>
+ * Ranges no larger than the minimum chunk size run sequentially in the calling
+ * thread. Larger ranges are split into about four chunks per thread, and no
+ * chunk is smaller than the minimum chunk size.
+ * 
+ * @author Daba
+ *
+ */
+public class ParallelRunner {
+	/**
+	 * Default minimum number of elements per chunk
+	 */
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 8192;
+
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final Executor executor;
+	private final int parallelism;
+	private int min_chunk_size;
+
+	/**
+	 * Uses the common ForkJoinPool.
+	 */
+	public ParallelRunner() {
+		this(ForkJoinPool.commonPool());
+	}
+	/**
+	 * Uses a ForkJoinPool.
+	 * 
+	 * @param pool
+	 *            Pool
+	 */
+	public ParallelRunner(ForkJoinPool pool) {
+		this.pool = pool;
+		this.executor = null;
+		this.parallelism = pool.getParallelism();
+		this.min_chunk_size = DEFAULT_MIN_CHUNK_SIZE;
+	}
+	/**
+	 * Uses an arbitrary executor.<br>
+	 * The calling thread processes one chunk itself and waits for the rest.
+	 * 
+	 * @param executor
+	 *            Executor
+	 * @param parallelism
+	 *            Number of threads available in the executor
+	 */
+	public ParallelRunner(Executor executor, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1.");
+		}
+
+		this.pool = null;
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.min_chunk_size = DEFAULT_MIN_CHUNK_SIZE;
+	}
+
+	public void SetMinChunkSize(int min_chunk_size) {
+		if (min_chunk_size < 1) {
+			throw new IllegalArgumentException("min_chunk_size must be at least 1.");
+		}
+		this.min_chunk_size = min_chunk_size;
+	}
+	public int GetMinChunkSize() {
+		return min_chunk_size;
+	}
+	public int GetParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Processes the range [from, to).
+	 * 
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @param task
+	 *            Task
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Run(int from, int to, RangeTask task) {
+		return this.Run(from, to, min_chunk_size, task);
+	}
+	/**
+	 * Processes the range [from, to) with a minimum chunk size that overrides
+	 * the one set on this runner.<br>
+	 * This is meant for coarse tasks, where each index stands for a large
+	 * amount of work.
+	 * 
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @param min_chunk_size
+	 *            Minimum number of indices per chunk
+	 * @param task
+	 *            Task
+	 * @return Timing of the batch
+	 */
+	public BatchTiming Run(int from, int to, int min_chunk_size, RangeTask task) {
+		if (min_chunk_size < 1) {
+			throw new IllegalArgumentException("min_chunk_size must be at least 1.");
+		}
+
+		final long start = System.nanoTime();
+
+		final int count = to - from;
+		if (count <= min_chunk_size || parallelism == 1) {
+			task.Run(from, to);
+			return Record(new BatchTiming(count, 1, count, System.nanoTime() - start));
+		}
+
+		final int target_chunks = parallelism * CHUNKS_PER_THREAD;
+		final int chunk_size = Math.max(min_chunk_size,
+				(count + target_chunks - 1) / target_chunks);
+		final int chunk_count = (count + chunk_size - 1) / chunk_size;
+
+		if (pool != null) {
+			pool.invoke(new RangeAction(task, from, to, chunk_size));
+		} else {
+			this.RunOnExecutor(from, to, task, chunk_size, chunk_count);
+		}
+
+		return Record(new BatchTiming(count, chunk_count, chunk_size, System.nanoTime() - start));
+	}
+
+	private static BatchTiming Record(BatchTiming timing) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.RecordBatch(InstrumentedOperation.PARALLEL_BATCH,
+					timing.GetElementCount(), timing.GetElapsedNanos());
+		}
+		return timing;
+	}
+
+	private void RunOnExecutor(int from, int to, RangeTask task, int chunk_size,
+			int chunk_count) {
+		final CountDownLatch latch = new CountDownLatch(chunk_count - 1);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+
+		for (int c = 1; c < chunk_count; c++) {
+			final int chunk_from = from + c * chunk_size;
+			final int chunk_to = Math.min(to, chunk_from + chunk_size);
+
+			executor.execute(() -> {
+				try {
+					task.Run(chunk_from, chunk_to);
+				} catch (final Throwable t) {
+					error.compareAndSet(null, t);
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+
+		try {
+			task.Run(from, Math.min(to, from + chunk_size));
+		} catch (final Throwable t) {
+			error.compareAndSet(null, t);
+		}
+
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		final Throwable t = error.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	private static class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RangeTask task;
+		private final int from;
+		private final int to;
+		private final int chunk_size;
+
+		public RangeAction(RangeTask task, int from, int to, int chunk_size) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+			this.chunk_size = chunk_size;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunk_size) {
+				task.Run(from, to);
+				return;
+			}
+
+			// Split on a chunk boundary so that chunks keep their size.
+			final int chunks = (to - from + chunk_size - 1) / chunk_size;
+			final int mid = from + (chunks / 2) * chunk_size;
+			invokeAll(new RangeAction(task, from, mid, chunk_size),
+					new RangeAction(task, mid, to, chunk_size));
+		}
+	}
+}
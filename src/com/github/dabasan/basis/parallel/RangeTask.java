@@ -0,0 +1,20 @@
+package com.github.dabasan.basis.parallel;
+
+/**
+ * Task processing a range of indices
+ * 
+ * @author Daba
+ *
+ */
+@FunctionalInterface
+public interface RangeTask {
+	/**
+	 * Processes the range [from, to).
+	 * 
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void Run(int from, int to);
+}
@@ -0,0 +1,78 @@
+package com.github.dabasan.basis.quaternion;
+
+/**
+ * Quaternion (w + xi + yj + zk)
+ * 
+ * @author Daba
+ *
+ */
+public class Quaternion {
+	private float w;
+	private float x;
+	private float y;
+	private float z;
+
+	/**
+	 * Identity quaternion (1, 0, 0, 0)
+	 */
+	public Quaternion() {
+		w = 1.0f;
+		x = 0.0f;
+		y = 0.0f;
+		z = 0.0f;
+	}
+	public Quaternion(float w, float x, float y, float z) {
+		this.w = w;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	/**
+	 * Used to copy a quaternion.
+	 * 
+	 * @param q
+	 *            Original quaternion
+	 */
+	public Quaternion(Quaternion q) {
+		this.w = q.GetW();
+		this.x = q.GetX();
+		this.y = q.GetY();
+		this.z = q.GetZ();
+	}
+
+	@Override
+	public String toString() {
+		return "(" + w + "," + x + "," + y + "," + z + ")";
+	}
+
+	public void SetW(float w) {
+		this.w = w;
+	}
+	public void SetX(float x) {
+		this.x = x;
+	}
+	public void SetY(float y) {
+		this.y = y;
+	}
+	public void SetZ(float z) {
+		this.z = z;
+	}
+	public void SetQuaternion(float w, float x, float y, float z) {
+		this.w = w;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	public float GetW() {
+		return w;
+	}
+	public float GetX() {
+		return x;
+	}
+	public float GetY() {
+		return y;
+	}
+	public float GetZ() {
+		return z;
+	}
+}
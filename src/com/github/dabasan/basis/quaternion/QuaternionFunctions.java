@@ -0,0 +1,649 @@
+package com.github.dabasan.basis.quaternion;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.matrix.MatrixKind;
+import com.github.dabasan.basis.trig.TrigFunctions;
+import com.github.dabasan.basis.vector.Vector;
+import com.github.dabasan.basis.vector.VectorFunctions;
+
+/**
+ * Provides methods to handle quaternions.<br>
+ * Rotations follow the same convention as MatrixFunctions.MGetRotAxis(), and
+ * QMult(q1, q2) corresponds to MMult(m1, m2).
+ * 
+ * @author Daba
+ *
+ */
+public class QuaternionFunctions {
+	/**
+	 * Above this dot product, slerp falls back to nlerp to avoid dividing by
+	 * a tiny sine.
+	 */
+	private static final float SLERP_THRESHOLD = 0.9995f;
+
+	/**
+	 * Generates a quaternion.
+	 * 
+	 * @param w
+	 *            W (real part)
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @return Quaternion
+	 */
+	public static Quaternion QGet(float w, float x, float y, float z) {
+		return new Quaternion(w, x, y, z);
+	}
+	/**
+	 * Returns an identity quaternion.
+	 * 
+	 * @return Identity quaternion
+	 */
+	public static Quaternion QGetIdent() {
+		return new Quaternion();
+	}
+	/**
+	 * Returns a quaternion representing a rotation around an arbitrary axis.
+	 * 
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Quaternion
+	 */
+	public static Quaternion QGetRotAxis(Vector axis, float th) {
+		return QuaternionFunctions.QGetRotAxis(axis, th, new Quaternion());
+	}
+	/**
+	 * Sets a quaternion representing a rotation around an arbitrary axis to a
+	 * destination quaternion.
+	 * 
+	 * @param axis
+	 *            Axis (normalized)
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination quaternion
+	 * @return dst
+	 */
+	public static Quaternion QGetRotAxis(Vector axis, float th, Quaternion dst) {
+		final long sin_cos = TrigFunctions.SinCosPacked(th * 0.5f);
+		final float sin_half = TrigFunctions.UnpackSin(sin_cos);
+
+		dst.SetQuaternion(TrigFunctions.UnpackCos(sin_cos), axis.GetX() * sin_half,
+				axis.GetY() * sin_half, axis.GetZ() * sin_half);
+
+		return dst;
+	}
+	/**
+	 * Multiplies two quaternions together (Hamilton product).
+	 * 
+	 * @param q1
+	 *            First quaternion
+	 * @param q2
+	 *            Second quaternion
+	 * @return q1*q2 (rotation by q2 followed by q1)
+	 */
+	public static Quaternion QMult(Quaternion q1, Quaternion q2) {
+		return QuaternionFunctions.QMult(q1, q2, new Quaternion());
+	}
+	/**
+	 * Multiplies two quaternions together and stores the result in a
+	 * destination quaternion.
+	 * 
+	 * @param q1
+	 *            First quaternion
+	 * @param q2
+	 *            Second quaternion
+	 * @param dst
+	 *            Destination quaternion (may be q1 or q2)
+	 * @return dst
+	 */
+	public static Quaternion QMult(Quaternion q1, Quaternion q2, Quaternion dst) {
+		final float aw = q1.GetW();
+		final float ax = q1.GetX();
+		final float ay = q1.GetY();
+		final float az = q1.GetZ();
+		final float bw = q2.GetW();
+		final float bx = q2.GetX();
+		final float by = q2.GetY();
+		final float bz = q2.GetZ();
+
+		dst.SetQuaternion(aw * bw - ax * bx - ay * by - az * bz,
+				aw * bx + ax * bw + ay * bz - az * by, aw * by - ax * bz + ay * bw + az * bx,
+				aw * bz + ax * by - ay * bx + az * bw);
+
+		return dst;
+	}
+	/**
+	 * Returns the conjugate of a quaternion.<br>
+	 * For a normalized quaternion this is the inverse rotation.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return Conjugate
+	 */
+	public static Quaternion QConjugate(Quaternion q) {
+		return QuaternionFunctions.QConjugate(q, new Quaternion());
+	}
+	/**
+	 * Calculates the conjugate of a quaternion and stores the result in a
+	 * destination quaternion.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @param dst
+	 *            Destination quaternion (may be q)
+	 * @return dst
+	 */
+	public static Quaternion QConjugate(Quaternion q, Quaternion dst) {
+		dst.SetQuaternion(q.GetW(), -q.GetX(), -q.GetY(), -q.GetZ());
+		return dst;
+	}
+	/**
+	 * Returns the dot product.
+	 * 
+	 * @param q1
+	 *            First quaternion
+	 * @param q2
+	 *            Second quaternion
+	 * @return Dot product
+	 */
+	public static float QDot(Quaternion q1, Quaternion q2) {
+		return q1.GetW() * q2.GetW() + q1.GetX() * q2.GetX() + q1.GetY() * q2.GetY()
+				+ q1.GetZ() * q2.GetZ();
+	}
+	/**
+	 * Returns the size of a quaternion.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return Size
+	 */
+	public static float QSize(Quaternion q) {
+		return (float) Math.sqrt(QuaternionFunctions.QDot(q, q));
+	}
+	/**
+	 * Normalizes a quaternion.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return Normalized quaternion
+	 */
+	public static Quaternion QNorm(Quaternion q) {
+		return QuaternionFunctions.QNorm(q, new Quaternion());
+	}
+	/**
+	 * Normalizes a quaternion and stores the result in a destination
+	 * quaternion.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @param dst
+	 *            Destination quaternion (may be q)
+	 * @return dst
+	 */
+	public static Quaternion QNorm(Quaternion q, Quaternion dst) {
+		final float rec_size = 1.0f / QuaternionFunctions.QSize(q);
+
+		dst.SetQuaternion(q.GetW() * rec_size, q.GetX() * rec_size, q.GetY() * rec_size,
+				q.GetZ() * rec_size);
+
+		return dst;
+	}
+	/**
+	 * Rotates a vector.
+	 * 
+	 * @param q
+	 *            Quaternion (normalized)
+	 * @param v
+	 *            Vector
+	 * @return Rotated vector
+	 */
+	public static Vector QRotate(Quaternion q, Vector v) {
+		return QuaternionFunctions.QRotate(q, v, new Vector());
+	}
+	/**
+	 * Rotates a vector and stores the result in a destination vector.
+	 * 
+	 * @param q
+	 *            Quaternion (normalized)
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector QRotate(Quaternion q, Vector v, Vector dst) {
+		final float w = q.GetW();
+		final float qx = q.GetX();
+		final float qy = q.GetY();
+		final float qz = q.GetZ();
+		final float vx = v.GetX();
+		final float vy = v.GetY();
+		final float vz = v.GetZ();
+
+		// v' = v + w*t + q_xyz x t, where t = 2 * (q_xyz x v)
+		final float tx = 2.0f * (qy * vz - qz * vy);
+		final float ty = 2.0f * (qz * vx - qx * vz);
+		final float tz = 2.0f * (qx * vy - qy * vx);
+
+		dst.SetVector(vx + w * tx + (qy * tz - qz * ty), vy + w * ty + (qz * tx - qx * tz),
+				vz + w * tz + (qx * ty - qy * tx));
+
+		return dst;
+	}
+	/**
+	 * Interpolates two quaternions linearly and normalizes the result
+	 * (nlerp).<br>
+	 * The shorter path is taken.
+	 * 
+	 * @param q1
+	 *            First quaternion
+	 * @param q2
+	 *            Second quaternion
+	 * @param t
+	 *            Blend factor (0.0: q1, 1.0: q2)
+	 * @return Interpolated quaternion
+	 */
+	public static Quaternion QNlerp(Quaternion q1, Quaternion q2, float t) {
+		return QuaternionFunctions.QNlerp(q1, q2, t, new Quaternion());
+	}
+	/**
+	 * Interpolates two quaternions linearly, normalizes the result (nlerp) and
+	 * stores it in a destination quaternion.
+	 * 
+	 * @param q1
+	 *            First quaternion
+	 * @param q2
+	 *            Second quaternion
+	 * @param t
+	 *            Blend factor (0.0: q1, 1.0: q2)
+	 * @param dst
+	 *            Destination quaternion (may be q1 or q2)
+	 * @return dst
+	 */
+	public static Quaternion QNlerp(Quaternion q1, Quaternion q2, float t, Quaternion dst) {
+		final float aw = q1.GetW();
+		final float ax = q1.GetX();
+		final float ay = q1.GetY();
+		final float az = q1.GetZ();
+		final float bw = q2.GetW();
+		final float bx = q2.GetX();
+		final float by = q2.GetY();
+		final float bz = q2.GetZ();
+
+		final float s0 = 1.0f - t;
+		final float s1 = (aw * bw + ax * bx + ay * by + az * bz) < 0.0f ? -t : t;
+
+		final float w = s0 * aw + s1 * bw;
+		final float x = s0 * ax + s1 * bx;
+		final float y = s0 * ay + s1 * by;
+		final float z = s0 * az + s1 * bz;
+		final float rec_size = 1.0f / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+
+		dst.SetQuaternion(w * rec_size, x * rec_size, y * rec_size, z * rec_size);
+
+		return dst;
+	}
+	/**
+	 * Interpolates two quaternions spherically (slerp).<br>
+	 * The shorter path is taken and the result is normalized.
+	 * 
+	 * @param q1
+	 *            First quaternion (normalized)
+	 * @param q2
+	 *            Second quaternion (normalized)
+	 * @param t
+	 *            Blend factor (0.0: q1, 1.0: q2)
+	 * @return Interpolated quaternion
+	 */
+	public static Quaternion QSlerp(Quaternion q1, Quaternion q2, float t) {
+		return QuaternionFunctions.QSlerp(q1, q2, t, new Quaternion());
+	}
+	/**
+	 * Interpolates two quaternions spherically (slerp) and stores the result
+	 * in a destination quaternion.
+	 * 
+	 * @param q1
+	 *            First quaternion (normalized)
+	 * @param q2
+	 *            Second quaternion (normalized)
+	 * @param t
+	 *            Blend factor (0.0: q1, 1.0: q2)
+	 * @param dst
+	 *            Destination quaternion (may be q1 or q2)
+	 * @return dst
+	 */
+	public static Quaternion QSlerp(Quaternion q1, Quaternion q2, float t, Quaternion dst) {
+		final float aw = q1.GetW();
+		final float ax = q1.GetX();
+		final float ay = q1.GetY();
+		final float az = q1.GetZ();
+		final float bw = q2.GetW();
+		final float bx = q2.GetX();
+		final float by = q2.GetY();
+		final float bz = q2.GetZ();
+
+		final long weights = SlerpWeights(aw * bw + ax * bx + ay * by + az * bz, t);
+		final float s0 = UnpackWeight1(weights);
+		final float s1 = UnpackWeight2(weights);
+
+		final float w = s0 * aw + s1 * bw;
+		final float x = s0 * ax + s1 * bx;
+		final float y = s0 * ay + s1 * by;
+		final float z = s0 * az + s1 * bz;
+		final float rec_size = 1.0f / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+
+		dst.SetQuaternion(w * rec_size, x * rec_size, y * rec_size, z * rec_size);
+
+		return dst;
+	}
+	/**
+	 * Interpolates quaternion arrays element by element with nlerp.
+	 * 
+	 * @param q1
+	 *            First quaternions
+	 * @param q2
+	 *            Second quaternions
+	 * @param ts
+	 *            Blend factors
+	 * @param dst
+	 *            Destination quaternions
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static Quaternion[] QNlerp(Quaternion[] q1, Quaternion[] q2, float[] ts,
+			Quaternion[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			QuaternionFunctions.QNlerp(q1[i], q2[i], ts[i], dst[i]);
+		}
+		return dst;
+	}
+	/**
+	 * Interpolates quaternion arrays element by element with slerp.
+	 * 
+	 * @param q1
+	 *            First quaternions
+	 * @param q2
+	 *            Second quaternions
+	 * @param ts
+	 *            Blend factors
+	 * @param dst
+	 *            Destination quaternions
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static Quaternion[] QSlerp(Quaternion[] q1, Quaternion[] q2, float[] ts,
+			Quaternion[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			QuaternionFunctions.QSlerp(q1[i], q2[i], ts[i], dst[i]);
+		}
+		return dst;
+	}
+	/**
+	 * Interpolates packed quaternions element by element with nlerp.<br>
+	 * Quaternions are packed as (w, x, y, z) with a stride of 4 floats.
+	 * 
+	 * @param q1
+	 *            First quaternions
+	 * @param q2
+	 *            Second quaternions
+	 * @param ts
+	 *            Blend factors (one per quaternion)
+	 * @param dst
+	 *            Destination quaternions (may be q1 or q2)
+	 * @param from
+	 *            First quaternion index (inclusive)
+	 * @param to
+	 *            Last quaternion index (exclusive)
+	 * @return dst
+	 */
+	public static float[] QNlerp(float[] q1, float[] q2, float[] ts, float[] dst, int from,
+			int to) {
+		for (int i = from; i < to; i++) {
+			QuaternionFunctions.QNlerp(q1, i * 4, q2, i * 4, ts[i], dst, i * 4);
+		}
+		return dst;
+	}
+	/**
+	 * Interpolates packed quaternions element by element with slerp.<br>
+	 * Quaternions are packed as (w, x, y, z) with a stride of 4 floats.
+	 * 
+	 * @param q1
+	 *            First quaternions (normalized)
+	 * @param q2
+	 *            Second quaternions (normalized)
+	 * @param ts
+	 *            Blend factors (one per quaternion)
+	 * @param dst
+	 *            Destination quaternions (may be q1 or q2)
+	 * @param from
+	 *            First quaternion index (inclusive)
+	 * @param to
+	 *            Last quaternion index (exclusive)
+	 * @return dst
+	 */
+	public static float[] QSlerp(float[] q1, float[] q2, float[] ts, float[] dst, int from,
+			int to) {
+		for (int i = from; i < to; i++) {
+			QuaternionFunctions.QSlerp(q1, i * 4, q2, i * 4, ts[i], dst, i * 4);
+		}
+		return dst;
+	}
+	/**
+	 * Interpolates two packed quaternions with nlerp.<br>
+	 * Each quaternion is packed as (w, x, y, z) from its offset.
+	 * 
+	 * @param q1
+	 *            Array of the first quaternion
+	 * @param q1_offset
+	 *            Offset of the first quaternion
+	 * @param q2
+	 *            Array of the second quaternion
+	 * @param q2_offset
+	 *            Offset of the second quaternion
+	 * @param t
+	 *            Blend factor
+	 * @param dst
+	 *            Destination array (may be q1 or q2)
+	 * @param dst_offset
+	 *            Offset of the result
+	 * @return dst
+	 */
+	public static float[] QNlerp(float[] q1, int q1_offset, float[] q2, int q2_offset, float t,
+			float[] dst, int dst_offset) {
+		final float aw = q1[q1_offset];
+		final float ax = q1[q1_offset + 1];
+		final float ay = q1[q1_offset + 2];
+		final float az = q1[q1_offset + 3];
+		final float bw = q2[q2_offset];
+		final float bx = q2[q2_offset + 1];
+		final float by = q2[q2_offset + 2];
+		final float bz = q2[q2_offset + 3];
+
+		final float s0 = 1.0f - t;
+		final float s1 = (aw * bw + ax * bx + ay * by + az * bz) < 0.0f ? -t : t;
+
+		final float w = s0 * aw + s1 * bw;
+		final float x = s0 * ax + s1 * bx;
+		final float y = s0 * ay + s1 * by;
+		final float z = s0 * az + s1 * bz;
+		final float rec_size = 1.0f / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+
+		dst[dst_offset] = w * rec_size;
+		dst[dst_offset + 1] = x * rec_size;
+		dst[dst_offset + 2] = y * rec_size;
+		dst[dst_offset + 3] = z * rec_size;
+
+		return dst;
+	}
+	/**
+	 * Interpolates two packed quaternions with slerp.<br>
+	 * Each quaternion is packed as (w, x, y, z) from its offset. This gives
+	 * the same result as QSlerp() on Quaternion objects.
+	 * 
+	 * @param q1
+	 *            Array of the first quaternion (normalized)
+	 * @param q1_offset
+	 *            Offset of the first quaternion
+	 * @param q2
+	 *            Array of the second quaternion (normalized)
+	 * @param q2_offset
+	 *            Offset of the second quaternion
+	 * @param t
+	 *            Blend factor
+	 * @param dst
+	 *            Destination array (may be q1 or q2)
+	 * @param dst_offset
+	 *            Offset of the result
+	 * @return dst
+	 */
+	public static float[] QSlerp(float[] q1, int q1_offset, float[] q2, int q2_offset, float t,
+			float[] dst, int dst_offset) {
+		final float aw = q1[q1_offset];
+		final float ax = q1[q1_offset + 1];
+		final float ay = q1[q1_offset + 2];
+		final float az = q1[q1_offset + 3];
+		final float bw = q2[q2_offset];
+		final float bx = q2[q2_offset + 1];
+		final float by = q2[q2_offset + 2];
+		final float bz = q2[q2_offset + 3];
+
+		final long weights = SlerpWeights(aw * bw + ax * bx + ay * by + az * bz, t);
+		final float s0 = UnpackWeight1(weights);
+		final float s1 = UnpackWeight2(weights);
+
+		final float w = s0 * aw + s1 * bw;
+		final float x = s0 * ax + s1 * bx;
+		final float y = s0 * ay + s1 * by;
+		final float z = s0 * az + s1 * bz;
+		final float rec_size = 1.0f / (float) Math.sqrt(w * w + x * x + y * y + z * z);
+
+		dst[dst_offset] = w * rec_size;
+		dst[dst_offset + 1] = x * rec_size;
+		dst[dst_offset + 2] = y * rec_size;
+		dst[dst_offset + 3] = z * rec_size;
+
+		return dst;
+	}
+	/**
+	 * Returns the weights of q1 and q2 in a slerp, packed into a long to be
+	 * read with UnpackWeight1() and UnpackWeight2().<br>
+	 * The weight of q2 is negated when the dot product is negative, so the
+	 * shorter arc is taken. Above SLERP_THRESHOLD the weights are those of a
+	 * linear blend. Callers normalize the blended quaternion.
+	 */
+	private static long SlerpWeights(float cos_om, float t) {
+		final float abs_cos_om = Math.abs(cos_om);
+
+		float s0;
+		float s1;
+		if (abs_cos_om > SLERP_THRESHOLD) {
+			s0 = 1.0f - t;
+			s1 = t;
+		} else {
+			final double om = Math.acos(abs_cos_om);
+			final double rec_sin_om = 1.0 / Math.sin(om);
+			s0 = (float) (Math.sin((1.0 - t) * om) * rec_sin_om);
+			s1 = (float) (Math.sin(t * om) * rec_sin_om);
+		}
+		if (cos_om < 0.0f) {
+			s1 = -s1;
+		}
+
+		return ((long) Float.floatToRawIntBits(s0) << 32)
+				| (Float.floatToRawIntBits(s1) & 0xFFFFFFFFL);
+	}
+	private static float UnpackWeight1(long weights) {
+		return Float.intBitsToFloat((int) (weights >>> 32));
+	}
+	private static float UnpackWeight2(long weights) {
+		return Float.intBitsToFloat((int) weights);
+	}
+	/**
+	 * Converts a quaternion to a rotation matrix.
+	 * 
+	 * @param q
+	 *            Quaternion (normalized)
+	 * @return Rotation matrix
+	 */
+	public static Matrix QToMatrix(Quaternion q) {
+		return QuaternionFunctions.QToMatrix(q, new Matrix());
+	}
+	/**
+	 * Converts a quaternion to a rotation matrix and stores the result in a
+	 * destination matrix.<br>
+	 * The kind of the result is RIGID only if q is normalized. Otherwise the
+	 * result is not a pure rotation, and its kind is AFFINE.
+	 * 
+	 * @param q
+	 *            Quaternion (normalized)
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public static Matrix QToMatrix(Quaternion q, Matrix dst) {
+		return MatrixFunctions.MGetTRS(VectorFunctions.ZERO, q, VectorFunctions.ONE, dst);
+	}
+	/**
+	 * Converts the rotation part of a matrix to a quaternion.
+	 * 
+	 * @param m
+	 *            Matrix (the upper-left 3x3 part must be a rotation)
+	 * @return Quaternion
+	 */
+	public static Quaternion QGetFromMatrix(Matrix m) {
+		return QuaternionFunctions.QGetFromMatrix(m, new Quaternion());
+	}
+	/**
+	 * Converts the rotation part of a matrix to a quaternion and stores the
+	 * result in a destination quaternion.
+	 * 
+	 * @param m
+	 *            Matrix (the upper-left 3x3 part must be a rotation)
+	 * @param dst
+	 *            Destination quaternion
+	 * @return dst
+	 */
+	public static Quaternion QGetFromMatrix(Matrix m, Quaternion dst) {
+		final float m00 = m.GetValue(0, 0);
+		final float m01 = m.GetValue(0, 1);
+		final float m02 = m.GetValue(0, 2);
+		final float m10 = m.GetValue(1, 0);
+		final float m11 = m.GetValue(1, 1);
+		final float m12 = m.GetValue(1, 2);
+		final float m20 = m.GetValue(2, 0);
+		final float m21 = m.GetValue(2, 1);
+		final float m22 = m.GetValue(2, 2);
+
+		// Divide by the largest of 4w^2, 4x^2, 4y^2 and 4z^2 for stability.
+		final float trace = m00 + m11 + m22;
+		float s;
+		if (trace > 0.0f) {
+			s = (float) Math.sqrt(trace + 1.0f) * 2.0f;
+			dst.SetQuaternion(0.25f * s, (m21 - m12) / s, (m02 - m20) / s, (m10 - m01) / s);
+		} else if (m00 > m11 && m00 > m22) {
+			s = (float) Math.sqrt(1.0f + m00 - m11 - m22) * 2.0f;
+			dst.SetQuaternion((m21 - m12) / s, 0.25f * s, (m01 + m10) / s, (m02 + m20) / s);
+		} else if (m11 > m22) {
+			s = (float) Math.sqrt(1.0f + m11 - m00 - m22) * 2.0f;
+			dst.SetQuaternion((m02 - m20) / s, (m01 + m10) / s, 0.25f * s, (m12 + m21) / s);
+		} else {
+			s = (float) Math.sqrt(1.0f + m22 - m00 - m11) * 2.0f;
+			dst.SetQuaternion((m10 - m01) / s, (m02 + m20) / s, (m12 + m21) / s, 0.25f * s);
+		}
+
+		return dst;
+	}
+}
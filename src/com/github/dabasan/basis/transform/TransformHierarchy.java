@@ -0,0 +1,328 @@
+package com.github.dabasan.basis.transform;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dabasan.basis.matrix.Matrix;
+import com.github.dabasan.basis.matrix.MatrixFunctions;
+import com.github.dabasan.basis.parallel.ParallelRunner;
+
+/**
+ * Hierarchy of transforms with lazily updated world matrices<br>
+ * Nodes are stored in flat arrays indexed by node number. A parent is always
+ * added before its children, so one pass in index order visits parents
+ * first. Setting a local matrix only marks the node. The next read of a world
+ * matrix recomputes the marked nodes and their descendants, and nothing else.
+ * Inverse world matrices are computed on demand and cached until the world
+ * matrix changes.
+ * 
+ * @author Daba
+ *
+ */
+public class TransformHierarchy {
+	/**
+	 * Parent index of root nodes
+	 */
+	public static final int NO_PARENT = -1;
+
+	private int node_count;
+	private int[] parents;
+	private Matrix[] locals;
+	private Matrix[] worlds;
+	private Matrix[] inverse_worlds;
+	private boolean[] local_dirty;
+	private boolean[] inverse_dirty;
+	private int[] updated_pass;
+	private int pass;
+	private boolean any_dirty;
+
+	// Nodes grouped by depth for level-parallel updates, rebuilt on demand.
+	private int[] level_nodes;
+	private int[] level_offsets;
+	private int[] depths;
+	private boolean levels_dirty;
+
+	public TransformHierarchy() {
+		this(16);
+	}
+	/**
+	 * @param initial_capacity
+	 *            Initial number of nodes that can be stored without growing
+	 */
+	public TransformHierarchy(int initial_capacity) {
+		final int capacity = Math.max(1, initial_capacity);
+
+		node_count = 0;
+		parents = new int[capacity];
+		locals = new Matrix[capacity];
+		worlds = new Matrix[capacity];
+		inverse_worlds = new Matrix[capacity];
+		local_dirty = new boolean[capacity];
+		inverse_dirty = new boolean[capacity];
+		updated_pass = new int[capacity];
+		depths = new int[capacity];
+		pass = 0;
+		any_dirty = false;
+		levels_dirty = true;
+	}
+
+	private void Grow() {
+		final int capacity = parents.length * 2;
+
+		parents = Arrays.copyOf(parents, capacity);
+		locals = Arrays.copyOf(locals, capacity);
+		worlds = Arrays.copyOf(worlds, capacity);
+		inverse_worlds = Arrays.copyOf(inverse_worlds, capacity);
+		local_dirty = Arrays.copyOf(local_dirty, capacity);
+		inverse_dirty = Arrays.copyOf(inverse_dirty, capacity);
+		updated_pass = Arrays.copyOf(updated_pass, capacity);
+		depths = Arrays.copyOf(depths, capacity);
+	}
+
+	/**
+	 * Adds a node with an identity local matrix.
+	 * 
+	 * @param parent
+	 *            Parent node or NO_PARENT
+	 * @return Index of the node
+	 */
+	public int AddNode(int parent) {
+		return this.AddNode(parent, MatrixFunctions.IDENTITY);
+	}
+	/**
+	 * Adds a node.
+	 * 
+	 * @param parent
+	 *            Parent node or NO_PARENT
+	 * @param local
+	 *            Local matrix (copied)
+	 * @return Index of the node
+	 */
+	public int AddNode(int parent, Matrix local) {
+		if (parent < NO_PARENT || parent >= node_count) {
+			throw new IllegalArgumentException("Invalid parent: " + parent);
+		}
+		if (node_count == parents.length) {
+			this.Grow();
+		}
+
+		final int node = node_count;
+		parents[node] = parent;
+		locals[node] = MatrixFunctions.MCopy(local, new Matrix());
+		worlds[node] = new Matrix();
+		inverse_worlds[node] = new Matrix();
+		local_dirty[node] = true;
+		inverse_dirty[node] = true;
+		updated_pass[node] = 0;
+		depths[node] = parent == NO_PARENT ? 0 : depths[parent] + 1;
+
+		node_count++;
+		any_dirty = true;
+		levels_dirty = true;
+
+		return node;
+	}
+
+	public int GetNodeCount() {
+		return node_count;
+	}
+	public int GetParent(int node) {
+		this.CheckNode(node);
+		return parents[node];
+	}
+	public int GetDepth(int node) {
+		this.CheckNode(node);
+		return depths[node];
+	}
+	/**
+	 * Returns whether some world matrices are out of date.
+	 * 
+	 * @return True if an update is pending
+	 */
+	public boolean IsDirty() {
+		return any_dirty;
+	}
+
+	/**
+	 * Sets the local matrix of a node.<br>
+	 * The world matrices of the node and its descendants are recomputed
+	 * when they are next read.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param local
+	 *            Local matrix (copied)
+	 */
+	public void SetLocalMatrix(int node, Matrix local) {
+		this.CheckNode(node);
+
+		MatrixFunctions.MCopy(local, locals[node]);
+		local_dirty[node] = true;
+		any_dirty = true;
+	}
+	/**
+	 * Copies the local matrix of a node into a destination matrix.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetLocalMatrix(int node, Matrix dst) {
+		this.CheckNode(node);
+		return MatrixFunctions.MCopy(locals[node], dst);
+	}
+	/**
+	 * Copies the world matrix of a node into a destination matrix.<br>
+	 * Pending updates are applied first.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetWorldMatrix(int node, Matrix dst) {
+		this.CheckNode(node);
+		if (any_dirty) {
+			this.UpdateWorldMatrices();
+		}
+
+		return MatrixFunctions.MCopy(worlds[node], dst);
+	}
+	/**
+	 * Copies the inverse world matrix of a node into a destination
+	 * matrix.<br>
+	 * The inverse is computed only if the world matrix has changed since it
+	 * was last requested.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param dst
+	 *            Destination matrix
+	 * @return dst
+	 */
+	public Matrix GetInverseWorldMatrix(int node, Matrix dst) {
+		this.CheckNode(node);
+		if (any_dirty) {
+			this.UpdateWorldMatrices();
+		}
+
+		if (inverse_dirty[node]) {
+			MatrixFunctions.MInverse(worlds[node], inverse_worlds[node]);
+			inverse_dirty[node] = false;
+		}
+
+		return MatrixFunctions.MCopy(inverse_worlds[node], dst);
+	}
+
+	/**
+	 * Recomputes world matrices of changed nodes and their descendants.
+	 * 
+	 * @return Number of recomputed nodes
+	 */
+	public int UpdateWorldMatrices() {
+		if (!any_dirty) {
+			return 0;
+		}
+
+		pass++;
+
+		int count = 0;
+		for (int i = 0; i < node_count; i++) {
+			if (this.UpdateNode(i)) {
+				count++;
+			}
+		}
+		any_dirty = false;
+
+		return count;
+	}
+	/**
+	 * Recomputes world matrices of changed nodes and their descendants in
+	 * parallel.<br>
+	 * Nodes at the same depth are independent of each other, so each depth is
+	 * processed in parallel after the previous one.
+	 * 
+	 * @param runner
+	 *            Runner used to split each depth across threads
+	 * @return Number of recomputed nodes
+	 */
+	public int UpdateWorldMatrices(ParallelRunner runner) {
+		if (!any_dirty) {
+			return 0;
+		}
+		if (levels_dirty) {
+			this.BuildLevels();
+		}
+
+		pass++;
+
+		final AtomicInteger count = new AtomicInteger();
+		final int level_count = level_offsets.length - 1;
+		for (int level = 0; level < level_count; level++) {
+			runner.Run(level_offsets[level], level_offsets[level + 1], (from, to) -> {
+				int chunk_count = 0;
+				for (int i = from; i < to; i++) {
+					if (this.UpdateNode(level_nodes[i])) {
+						chunk_count++;
+					}
+				}
+				count.addAndGet(chunk_count);
+			});
+		}
+		any_dirty = false;
+
+		return count.get();
+	}
+	private boolean UpdateNode(int node) {
+		final int parent = parents[node];
+		final boolean parent_updated = parent != NO_PARENT && updated_pass[parent] == pass;
+		if (!local_dirty[node] && !parent_updated) {
+			return false;
+		}
+
+		if (parent == NO_PARENT) {
+			MatrixFunctions.MCopy(locals[node], worlds[node]);
+		} else {
+			MatrixFunctions.MMult(worlds[parent], locals[node], worlds[node]);
+		}
+		local_dirty[node] = false;
+		inverse_dirty[node] = true;
+		updated_pass[node] = pass;
+
+		return true;
+	}
+	/**
+	 * Sorts nodes by depth with a counting sort.
+	 */
+	private void BuildLevels() {
+		int max_depth = 0;
+		for (int i = 0; i < node_count; i++) {
+			max_depth = Math.max(max_depth, depths[i]);
+		}
+
+		level_offsets = new int[max_depth + 2];
+		for (int i = 0; i < node_count; i++) {
+			level_offsets[depths[i] + 1]++;
+		}
+		for (int d = 0; d <= max_depth; d++) {
+			level_offsets[d + 1] += level_offsets[d];
+		}
+
+		level_nodes = new int[node_count];
+		final int[] cursors = Arrays.copyOf(level_offsets, max_depth + 1);
+		for (int i = 0; i < node_count; i++) {
+			level_nodes[cursors[depths[i]]++] = i;
+		}
+
+		levels_dirty = false;
+	}
+
+	private void CheckNode(int node) {
+		if (node < 0 || node >= node_count) {
+			throw new IndexOutOfBoundsException("Invalid node: " + node);
+		}
+	}
+}
@@ -0,0 +1,404 @@
+package com.github.dabasan.basis.trig;
+
+/**
+ * Trigonometric functions with a selectable speed/accuracy trade-off<br>
+ * The mode is PRECISE by default, so results are the same as with
+ * java.lang.Math. Other modes are opt-in and apply to every function of the
+ * library that computes sines, cosines or angles. Maximum absolute errors
+ * against java.lang.Math, measured over the documented ranges:
+ * <table>
+ * <caption>Maximum absolute errors</caption>
+ * <tr>
+ * <th>Function</th>
+ * <th>POLYNOMIAL</th>
+ * <th>TABLE</th>
+ * </tr>
+ * <tr>
+ * <td>Sin, Cos (|th| &lt;= 1.0E4)</td>
+ * <td>8.0E-8</td>
+ * <td>3.6E-7</td>
+ * </tr>
+ * <tr>
+ * <td>Asin ([-1,1])</td>
+ * <td>1.7E-7</td>
+ * <td>1.7E-7</td>
+ * </tr>
+ * <tr>
+ * <td>Acos ([-1,1])</td>
+ * <td>3.3E-7</td>
+ * <td>3.3E-7</td>
+ * </tr>
+ * <tr>
+ * <td>Atan2</td>
+ * <td>2.9E-7</td>
+ * <td>2.9E-7</td>
+ * </tr>
+ * </table>
+ * Arguments beyond MAX_REDUCED_ARGUMENT are passed to java.lang.Math in every
+ * mode.
+ * 
+ * @author Daba
+ *
+ */
+public class TrigFunctions {
+	/**
+	 * Largest absolute argument reduced by the approximations
+	 */
+	public static final float MAX_REDUCED_ARGUMENT = 1.0E5f;
+
+	private static final float HALF_PI = (float) (Math.PI * 0.5);
+	private static final float QUARTER_PI = (float) (Math.PI * 0.25);
+	private static final double REC_HALF_PI = 2.0 / Math.PI;
+	private static final float TAN_3_PI_8 = 2.414213562373095f;
+	private static final float TAN_PI_8 = 0.4142135623730950f;
+
+	private static final int TABLE_BITS = 12;
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+	private static final double TABLE_SCALE = TABLE_SIZE / (Math.PI * 2.0);
+	private static final float[] SIN_TABLE;
+
+	private static volatile TrigMode mode = TrigMode.PRECISE;
+
+	static {
+		// One extra entry so that interpolation never wraps.
+		SIN_TABLE = new float[TABLE_SIZE + 1];
+		for (int i = 0; i <= TABLE_SIZE; i++) {
+			SIN_TABLE[i] = (float) Math.sin(i / TABLE_SCALE);
+		}
+	}
+
+	/**
+	 * Sets the mode used by all functions.<br>
+	 * This is meant to be set once at startup.
+	 * 
+	 * @param mode
+	 *            Mode
+	 */
+	public static void SetMode(TrigMode mode) {
+		if (mode == null) {
+			throw new IllegalArgumentException("mode must not be null.");
+		}
+		TrigFunctions.mode = mode;
+	}
+	public static TrigMode GetMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the sine of an angle.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Sine
+	 */
+	public static float Sin(float th) {
+		return Sin(mode, th);
+	}
+	/**
+	 * Returns the cosine of an angle.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Cosine
+	 */
+	public static float Cos(float th) {
+		return Cos(mode, th);
+	}
+	/**
+	 * Calculates the sine and the cosine of an angle at once.<br>
+	 * Range reduction is shared between the two.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination array, receives (sin, cos)
+	 * @return dst
+	 */
+	public static float[] SinCos(float th, float[] dst) {
+		return SinCos(mode, th, dst);
+	}
+	/**
+	 * Calculates the sine and the cosine of an angle at once without a
+	 * destination array.<br>
+	 * Both are packed into a long, to be read with UnpackSin() and
+	 * UnpackCos().
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Packed sine and cosine
+	 */
+	public static long SinCosPacked(float th) {
+		return SinCosPacked(mode, th);
+	}
+	/**
+	 * Returns the sine from a value returned by SinCosPacked().
+	 * 
+	 * @param sin_cos
+	 *            Packed sine and cosine
+	 * @return Sine
+	 */
+	public static float UnpackSin(long sin_cos) {
+		return Float.intBitsToFloat((int) (sin_cos >>> 32));
+	}
+	/**
+	 * Returns the cosine from a value returned by SinCosPacked().
+	 * 
+	 * @param sin_cos
+	 *            Packed sine and cosine
+	 * @return Cosine
+	 */
+	public static float UnpackCos(long sin_cos) {
+		return Float.intBitsToFloat((int) sin_cos);
+	}
+	/**
+	 * Returns the arc sine of a value.
+	 * 
+	 * @param x
+	 *            Value in [-1,1]
+	 * @return Angle in [-pi/2,pi/2]
+	 */
+	public static float Asin(float x) {
+		return Asin(mode, x);
+	}
+	/**
+	 * Returns the arc cosine of a value.
+	 * 
+	 * @param x
+	 *            Value in [-1,1]
+	 * @return Angle in [0,pi]
+	 */
+	public static float Acos(float x) {
+		return Acos(mode, x);
+	}
+	/**
+	 * Returns the angle of (x,y) from the x-axis.
+	 * 
+	 * @param y
+	 *            Y
+	 * @param x
+	 *            X
+	 * @return Angle in [-pi,pi]
+	 */
+	public static float Atan2(float y, float x) {
+		return Atan2(mode, y, x);
+	}
+
+	/**
+	 * Returns the sine of an angle in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param th
+	 *            Angle (radian)
+	 * @return Sine
+	 */
+	public static float Sin(TrigMode mode, float th) {
+		if (mode == TrigMode.PRECISE || !(Math.abs(th) <= MAX_REDUCED_ARGUMENT)) {
+			return (float) Math.sin(th);
+		} else if (mode == TrigMode.TABLE) {
+			return TableSin(th * TABLE_SCALE);
+		}
+
+		final double k = Math.rint(th * REC_HALF_PI);
+		final float r = (float) (th - k * (Math.PI * 0.5));
+
+		return Quadrant((int) (long) k, SinPoly(r), CosPoly(r));
+	}
+	/**
+	 * Returns the cosine of an angle in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param th
+	 *            Angle (radian)
+	 * @return Cosine
+	 */
+	public static float Cos(TrigMode mode, float th) {
+		if (mode == TrigMode.PRECISE || !(Math.abs(th) <= MAX_REDUCED_ARGUMENT)) {
+			return (float) Math.cos(th);
+		} else if (mode == TrigMode.TABLE) {
+			return TableSin(th * TABLE_SCALE + TABLE_SIZE / 4);
+		}
+
+		final double k = Math.rint(th * REC_HALF_PI);
+		final float r = (float) (th - k * (Math.PI * 0.5));
+
+		return Quadrant((int) (long) k + 1, SinPoly(r), CosPoly(r));
+	}
+	/**
+	 * Calculates the sine and the cosine of an angle in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination array, receives (sin, cos)
+	 * @return dst
+	 */
+	public static float[] SinCos(TrigMode mode, float th, float[] dst) {
+		final long sin_cos = SinCosPacked(mode, th);
+		dst[0] = UnpackSin(sin_cos);
+		dst[1] = UnpackCos(sin_cos);
+
+		return dst;
+	}
+	/**
+	 * Calculates the sine and the cosine of an angle in a specific mode and
+	 * packs them into a long.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param th
+	 *            Angle (radian)
+	 * @return Packed sine and cosine
+	 */
+	public static long SinCosPacked(TrigMode mode, float th) {
+		if (mode != TrigMode.POLYNOMIAL || !(Math.abs(th) <= MAX_REDUCED_ARGUMENT)) {
+			return Pack(Sin(mode, th), Cos(mode, th));
+		}
+
+		final double k = Math.rint(th * REC_HALF_PI);
+		final float r = (float) (th - k * (Math.PI * 0.5));
+		final int q = (int) (long) k;
+		final float s = SinPoly(r);
+		final float c = CosPoly(r);
+
+		return Pack(Quadrant(q, s, c), Quadrant(q + 1, s, c));
+	}
+	/**
+	 * Returns the arc sine of a value in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param x
+	 *            Value in [-1,1]
+	 * @return Angle in [-pi/2,pi/2]
+	 */
+	public static float Asin(TrigMode mode, float x) {
+		if (mode == TrigMode.PRECISE || !(Math.abs(x) <= 1.0f)) {
+			return (float) Math.asin(x);
+		}
+
+		final float a = Math.abs(x);
+		float r;
+		if (a > 0.5f) {
+			// asin(a) = pi/2 - 2*asin(sqrt((1-a)/2))
+			final float z = 0.5f * (1.0f - a);
+			final float s = (float) Math.sqrt(z);
+			r = HALF_PI - 2.0f * AsinPoly(s, z);
+		} else {
+			r = AsinPoly(a, a * a);
+		}
+
+		return x < 0.0f ? -r : r;
+	}
+	/**
+	 * Returns the arc cosine of a value in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param x
+	 *            Value in [-1,1]
+	 * @return Angle in [0,pi]
+	 */
+	public static float Acos(TrigMode mode, float x) {
+		if (mode == TrigMode.PRECISE || !(Math.abs(x) <= 1.0f)) {
+			return (float) Math.acos(x);
+		}
+
+		return HALF_PI - Asin(mode, x);
+	}
+	/**
+	 * Returns the angle of (x,y) from the x-axis in a specific mode.
+	 * 
+	 * @param mode
+	 *            Mode
+	 * @param y
+	 *            Y
+	 * @param x
+	 *            X
+	 * @return Angle in [-pi,pi]
+	 */
+	public static float Atan2(TrigMode mode, float y, float x) {
+		if (mode == TrigMode.PRECISE || Float.isNaN(x) || Float.isNaN(y) || Float.isInfinite(x)
+				|| Float.isInfinite(y) || x == 0.0f) {
+			return (float) Math.atan2(y, x);
+		}
+
+		final float r = Atan(y / x);
+		if (x > 0.0f) {
+			return r;
+		}
+
+		// Same sign handling for y = -0 as Math.atan2
+		final boolean negative = y < 0.0f || (y == 0.0f && 1.0f / y < 0.0f);
+		return negative ? r - (float) Math.PI : r + (float) Math.PI;
+	}
+
+	private static long Pack(float sin, float cos) {
+		return ((long) Float.floatToRawIntBits(sin) << 32)
+				| (Float.floatToRawIntBits(cos) & 0xFFFFFFFFL);
+	}
+	/**
+	 * Returns sin(q*pi/2+r) from sin(r) and cos(r) without branching, since
+	 * quadrants of arbitrary angles are poorly predicted.
+	 */
+	private static float Quadrant(int q, float sin_r, float cos_r) {
+		final int swap = -(q & 1);
+		final int bits = (Float.floatToRawIntBits(sin_r) & ~swap)
+				| (Float.floatToRawIntBits(cos_r) & swap);
+
+		return Float.intBitsToFloat(bits ^ ((q & 2) << 30));
+	}
+	/**
+	 * @param pos
+	 *            Angle in table entries
+	 */
+	private static float TableSin(double pos) {
+		final double floor = Math.floor(pos);
+		final int i = (int) ((long) floor & TABLE_MASK);
+		final float frac = (float) (pos - floor);
+
+		return SIN_TABLE[i] + (SIN_TABLE[i + 1] - SIN_TABLE[i]) * frac;
+	}
+
+	// Minimax polynomials on [-pi/4,pi/4] from the Cephes library
+	private static float SinPoly(float r) {
+		final float z = r * r;
+		return ((-1.9515295891E-4f * z + 8.3321608736E-3f) * z - 1.6666654611E-1f) * z * r + r;
+	}
+	private static float CosPoly(float r) {
+		final float z = r * r;
+		return ((2.443315711809948E-5f * z - 1.388731625493765E-3f) * z + 4.166664568298827E-2f)
+				* z * z - 0.5f * z + 1.0f;
+	}
+	// asin on [0,0.5], z = x*x
+	private static float AsinPoly(float x, float z) {
+		return ((((4.2163199048E-2f * z + 2.4181311049E-2f) * z + 4.5470025998E-2f) * z
+				+ 7.4953002686E-2f) * z + 1.6666752422E-1f) * z * x + x;
+	}
+	private static float Atan(float t) {
+		final float a = Math.abs(t);
+
+		float base;
+		float x;
+		if (a > TAN_3_PI_8) {
+			base = HALF_PI;
+			x = -1.0f / a;
+		} else if (a > TAN_PI_8) {
+			base = QUARTER_PI;
+			x = (a - 1.0f) / (a + 1.0f);
+		} else {
+			base = 0.0f;
+			x = a;
+		}
+
+		final float z = x * x;
+		final float r = base + (((8.05374449538E-2f * z - 1.38776856032E-1f) * z
+				+ 1.99777106478E-1f) * z - 3.33329491539E-1f) * z * x + x;
+
+		return t < 0.0f ? -r : r;
+	}
+}
@@ -0,0 +1,23 @@
+package com.github.dabasan.basis.trig;
+
+/**
+ * How TrigFunctions evaluates trigonometric functions
+ * 
+ * @author Daba
+ *
+ */
+public enum TrigMode {
+	/**
+	 * java.lang.Math in double precision, rounded to float
+	 */
+	PRECISE,
+	/**
+	 * Float polynomial approximations
+	 */
+	POLYNOMIAL,
+	/**
+	 * Interpolated lookup table for sine and cosine, polynomial approximations
+	 * for inverse functions
+	 */
+	TABLE
+}
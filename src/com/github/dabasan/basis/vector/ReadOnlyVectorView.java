@@ -0,0 +1,29 @@
+package com.github.dabasan.basis.vector;
+
+/**
+ * Read-only view of another vector
+ * 
+ * @author Daba
+ *
+ */
+class ReadOnlyVectorView extends Vector {
+	private final Vector v;
+
+	public ReadOnlyVectorView(Vector v) {
+		super(0.0f, 0.0f, 0.0f, true);
+		this.v = v;
+	}
+
+	@Override
+	public float GetX() {
+		return v.GetX();
+	}
+	@Override
+	public float GetY() {
+		return v.GetY();
+	}
+	@Override
+	public float GetZ() {
+		return v.GetZ();
+	}
+}
@@ -1,7 +1,9 @@
 package com.github.dabasan.basis.vector;
 
 /**
- * 3D vector
+ * 3D vector<br>
+ * A vector may be read-only, in which case every setter throws
+ * UnsupportedOperationException. See VectorFunctions.VGetReadOnlyView().
  * 
  * @author Daba
  *
@@ -10,6 +12,7 @@ public class Vector {
 	private float x;
 	private float y;
 	private float z;
+	private final boolean read_only;
 
 	/**
 	 * All components are set to 0.
@@ -18,11 +21,19 @@ public class Vector {
 		x = 0.0f;
 		y = 0.0f;
 		z = 0.0f;
+		read_only = false;
 	}
 	public Vector(float x, float y, float z) {
 		this.x = x;
 		this.y = y;
 		this.z = z;
+		this.read_only = false;
+	}
+	Vector(float x, float y, float z, boolean read_only) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.read_only = read_only;
 	}
 	/**
 	 * Used to copy a vector.
@@ -34,23 +45,28 @@ public class Vector {
 		this.x = v.GetX();
 		this.y = v.GetY();
 		this.z = v.GetZ();
+		this.read_only = false;
 	}
 
 	@Override
 	public String toString() {
-		return "(" + x + "," + y + "," + z + ")";
+		return "(" + this.GetX() + "," + this.GetY() + "," + this.GetZ() + ")";
 	}
 
 	public void SetX(float x) {
+		this.CheckWritable();
 		this.x = x;
 	}
 	public void SetY(float y) {
+		this.CheckWritable();
 		this.y = y;
 	}
 	public void SetZ(float z) {
+		this.CheckWritable();
 		this.z = z;
 	}
 	public void SetVector(float x, float y, float z) {
+		this.CheckWritable();
 		this.x = x;
 		this.y = y;
 		this.z = z;
@@ -64,4 +80,13 @@ public class Vector {
 	public float GetZ() {
 		return z;
 	}
+	public boolean IsReadOnly() {
+		return read_only;
+	}
+
+	private void CheckWritable() {
+		if (read_only) {
+			throw new UnsupportedOperationException("The vector is read-only.");
+		}
+	}
 }
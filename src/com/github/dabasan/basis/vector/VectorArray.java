@@ -0,0 +1,165 @@
+package com.github.dabasan.basis.vector;
+
+/**
+ * Array of 3D vectors stored as a structure of arrays<br>
+ * X, Y and Z components are kept in separate primitive arrays so that batch
+ * operations can stream over them without per-element objects.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorArray {
+	private final float[] xs;
+	private final float[] ys;
+	private final float[] zs;
+
+	/**
+	 * All components are set to 0.
+	 * 
+	 * @param size
+	 *            Number of vectors
+	 */
+	public VectorArray(int size) {
+		xs = new float[size];
+		ys = new float[size];
+		zs = new float[size];
+	}
+	/**
+	 * Wraps existing arrays without copying them.
+	 * 
+	 * @param xs
+	 *            X-coordinates
+	 * @param ys
+	 *            Y-coordinates
+	 * @param zs
+	 *            Z-coordinates
+	 */
+	public VectorArray(float[] xs, float[] ys, float[] zs) {
+		if (xs.length != ys.length || xs.length != zs.length) {
+			throw new IllegalArgumentException("Arrays must have the same length.");
+		}
+
+		this.xs = xs;
+		this.ys = ys;
+		this.zs = zs;
+	}
+	/**
+	 * Copies vectors into a new array.
+	 * 
+	 * @param vs
+	 *            Vectors
+	 */
+	public VectorArray(Vector[] vs) {
+		this(vs.length);
+
+		for (int i = 0; i < vs.length; i++) {
+			xs[i] = vs[i].GetX();
+			ys[i] = vs[i].GetY();
+			zs[i] = vs[i].GetZ();
+		}
+	}
+	/**
+	 * Used to copy a vector array.
+	 * 
+	 * @param va
+	 *            Original vector array
+	 */
+	public VectorArray(VectorArray va) {
+		xs = va.xs.clone();
+		ys = va.ys.clone();
+		zs = va.zs.clone();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("[");
+		for (int i = 0; i < xs.length; i++) {
+			if (i != 0) {
+				sb.append(",");
+			}
+			sb.append("(" + xs[i] + "," + ys[i] + "," + zs[i] + ")");
+		}
+		sb.append("]");
+
+		return sb.toString();
+	}
+
+	public int GetSize() {
+		return xs.length;
+	}
+
+	public void SetX(int index, float x) {
+		xs[index] = x;
+	}
+	public void SetY(int index, float y) {
+		ys[index] = y;
+	}
+	public void SetZ(int index, float z) {
+		zs[index] = z;
+	}
+	public void SetVector(int index, float x, float y, float z) {
+		xs[index] = x;
+		ys[index] = y;
+		zs[index] = z;
+	}
+	public void SetVector(int index, Vector v) {
+		xs[index] = v.GetX();
+		ys[index] = v.GetY();
+		zs[index] = v.GetZ();
+	}
+	public float GetX(int index) {
+		return xs[index];
+	}
+	public float GetY(int index) {
+		return ys[index];
+	}
+	public float GetZ(int index) {
+		return zs[index];
+	}
+	/**
+	 * Copies a vector into a destination vector.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 */
+	public Vector GetVector(int index, Vector dst) {
+		dst.SetVector(xs[index], ys[index], zs[index]);
+		return dst;
+	}
+	public Vector GetVector(int index) {
+		return this.GetVector(index, new Vector());
+	}
+
+	/**
+	 * Returns the backing array of X-coordinates.<br>
+	 * Changes to the returned array are reflected in this vector array.
+	 * 
+	 * @return X-coordinates
+	 */
+	public float[] GetXArray() {
+		return xs;
+	}
+	/**
+	 * Returns the backing array of Y-coordinates.<br>
+	 * Changes to the returned array are reflected in this vector array.
+	 * 
+	 * @return Y-coordinates
+	 */
+	public float[] GetYArray() {
+		return ys;
+	}
+	/**
+	 * Returns the backing array of Z-coordinates.<br>
+	 * Changes to the returned array are reflected in this vector array.
+	 * 
+	 * @return Z-coordinates
+	 */
+	public float[] GetZArray() {
+		return zs;
+	}
+}
@@ -0,0 +1,248 @@
+package com.github.dabasan.basis.vector;
+
+import com.github.dabasan.basis.instrumentation.Instrumentation;
+import com.github.dabasan.basis.instrumentation.InstrumentedOperation;
+import com.github.dabasan.basis.kernel.BatchKernels;
+import com.github.dabasan.basis.kernel.BatchKernelsProvider;
+
+/**
+ * Provides batch methods to handle vector arrays.<br>
+ * Every method operates on the range [from, to) and the destination may be
+ * one of the sources.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorArrayFunctions {
+	private static final BatchKernels KERNELS = BatchKernelsProvider.GetKernels();
+
+	/**
+	 * Adds two vector arrays element by element.
+	 * 
+	 * @param lhs
+	 *            First vector array
+	 * @param rhs
+	 *            Second vector array
+	 * @param dst
+	 *            Destination vector array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VAdd(VectorArray lhs, VectorArray rhs, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		final float[] lxs = lhs.GetXArray();
+		final float[] lys = lhs.GetYArray();
+		final float[] lzs = lhs.GetZArray();
+		final float[] rxs = rhs.GetXArray();
+		final float[] rys = rhs.GetYArray();
+		final float[] rzs = rhs.GetZArray();
+		final float[] dxs = dst.GetXArray();
+		final float[] dys = dst.GetYArray();
+		final float[] dzs = dst.GetZArray();
+
+		for (int i = from; i < to; i++) {
+			dxs[i] = lxs[i] + rxs[i];
+		}
+		for (int i = from; i < to; i++) {
+			dys[i] = lys[i] + rys[i];
+		}
+		for (int i = from; i < to; i++) {
+			dzs[i] = lzs[i] + rzs[i];
+		}
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static VectorArray VAdd(VectorArray lhs, VectorArray rhs, VectorArray dst) {
+		return VectorArrayFunctions.VAdd(lhs, rhs, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Subtracts a vector array from another vector array element by element.
+	 * 
+	 * @param lhs
+	 *            First vector array
+	 * @param rhs
+	 *            Second vector array
+	 * @param dst
+	 *            Destination vector array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VSub(VectorArray lhs, VectorArray rhs, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		final float[] lxs = lhs.GetXArray();
+		final float[] lys = lhs.GetYArray();
+		final float[] lzs = lhs.GetZArray();
+		final float[] rxs = rhs.GetXArray();
+		final float[] rys = rhs.GetYArray();
+		final float[] rzs = rhs.GetZArray();
+		final float[] dxs = dst.GetXArray();
+		final float[] dys = dst.GetYArray();
+		final float[] dzs = dst.GetZArray();
+
+		for (int i = from; i < to; i++) {
+			dxs[i] = lxs[i] - rxs[i];
+		}
+		for (int i = from; i < to; i++) {
+			dys[i] = lys[i] - rys[i];
+		}
+		for (int i = from; i < to; i++) {
+			dzs[i] = lzs[i] - rzs[i];
+		}
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static VectorArray VSub(VectorArray lhs, VectorArray rhs, VectorArray dst) {
+		return VectorArrayFunctions.VSub(lhs, rhs, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Rescales vectors.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param scale
+	 *            Scale
+	 * @param dst
+	 *            Destination vector array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VScale(VectorArray v, float scale, VectorArray dst, int from,
+			int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+		final float[] dxs = dst.GetXArray();
+		final float[] dys = dst.GetYArray();
+		final float[] dzs = dst.GetZArray();
+
+		for (int i = from; i < to; i++) {
+			dxs[i] = xs[i] * scale;
+		}
+		for (int i = from; i < to; i++) {
+			dys[i] = ys[i] * scale;
+		}
+		for (int i = from; i < to; i++) {
+			dzs[i] = zs[i] * scale;
+		}
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static VectorArray VScale(VectorArray v, float scale, VectorArray dst) {
+		return VectorArrayFunctions.VScale(v, scale, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Normalizes vectors.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param dst
+	 *            Destination vector array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static VectorArray VNorm(VectorArray v, VectorArray dst, int from, int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		KERNELS.VNorm(v.GetXArray(), v.GetYArray(), v.GetZArray(), dst.GetXArray(),
+				dst.GetYArray(), dst.GetZArray(), from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static VectorArray VNorm(VectorArray v, VectorArray dst) {
+		return VectorArrayFunctions.VNorm(v, dst, 0, dst.GetSize());
+	}
+	/**
+	 * Calculates dot products element by element.
+	 * 
+	 * @param lhs
+	 *            First vector array
+	 * @param rhs
+	 *            Second vector array
+	 * @param dst
+	 *            Destination array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static float[] VDot(VectorArray lhs, VectorArray rhs, float[] dst, int from, int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		KERNELS.VDot(lhs.GetXArray(), lhs.GetYArray(), lhs.GetZArray(), rhs.GetXArray(),
+				rhs.GetYArray(), rhs.GetZArray(), dst, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static float[] VDot(VectorArray lhs, VectorArray rhs, float[] dst) {
+		return VectorArrayFunctions.VDot(lhs, rhs, dst, 0, dst.length);
+	}
+	/**
+	 * Calculates dot products between vectors and a single vector.
+	 * 
+	 * @param lhs
+	 *            Vector array
+	 * @param rhs
+	 *            Vector
+	 * @param dst
+	 *            Destination array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 * @return dst
+	 */
+	public static float[] VDot(VectorArray lhs, Vector rhs, float[] dst, int from, int to) {
+		final long start = Instrumentation.AVAILABLE ? Instrumentation.StartBatch() : 0L;
+
+		KERNELS.VDot(lhs.GetXArray(), lhs.GetYArray(), lhs.GetZArray(), rhs.GetX(), rhs.GetY(),
+				rhs.GetZ(), dst, from, to);
+
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.EndBatch(InstrumentedOperation.VECTOR_ARRAY, to - from, start);
+		}
+
+		return dst;
+	}
+	public static float[] VDot(VectorArray lhs, Vector rhs, float[] dst) {
+		return VectorArrayFunctions.VDot(lhs, rhs, dst, 0, dst.length);
+	}
+}
@@ -0,0 +1,206 @@
+package com.github.dabasan.basis.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Array of vectors stored in an off-heap buffer<br>
+ * Each vector occupies 3 contiguous floats (x, y, z). The buffer can be
+ * handed to native code or shared memory without copying.<br>
+ * Elements are accessed by absolute index and the position of the buffer is
+ * never changed, so disjoint ranges can be accessed from multiple threads.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorBuffer {
+	private final ByteBuffer bytes;
+	private final FloatBuffer floats;
+	private final int capacity;
+
+	/**
+	 * Allocates a direct buffer in native byte order.
+	 * 
+	 * @param capacity
+	 *            Number of vectors
+	 */
+	public VectorBuffer(int capacity) {
+		this(ByteBuffer.allocateDirect(capacity * 3 * 4).order(ByteOrder.nativeOrder()));
+	}
+	/**
+	 * Wraps an existing buffer (e.g. a mapped file).<br>
+	 * The buffer is used from its current position to its limit and its byte
+	 * order is respected.
+	 * 
+	 * @param buffer
+	 *            Buffer
+	 */
+	public VectorBuffer(ByteBuffer buffer) {
+		this.bytes = buffer.slice().order(buffer.order());
+		this.floats = bytes.asFloatBuffer();
+		this.capacity = floats.capacity() / 3;
+	}
+
+	public int GetCapacity() {
+		return capacity;
+	}
+	/**
+	 * Returns the underlying byte buffer.
+	 * 
+	 * @return Byte buffer
+	 */
+	public ByteBuffer GetByteBuffer() {
+		return bytes;
+	}
+
+	public void SetVector(int index, float x, float y, float z) {
+		final int base = index * 3;
+		floats.put(base, x);
+		floats.put(base + 1, y);
+		floats.put(base + 2, z);
+	}
+	public void SetVector(int index, Vector v) {
+		this.SetVector(index, v.GetX(), v.GetY(), v.GetZ());
+	}
+	/**
+	 * Loads a vector into a destination vector.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 */
+	public Vector GetVector(int index, Vector dst) {
+		final int base = index * 3;
+		dst.SetVector(floats.get(base), floats.get(base + 1), floats.get(base + 2));
+		return dst;
+	}
+	public Vector GetVector(int index) {
+		return this.GetVector(index, new Vector());
+	}
+	/**
+	 * Stores vectors.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param src
+	 *            Source vectors
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void SetVectors(int index, Vector[] src, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.SetVector(index + i, src[offset + i]);
+		}
+	}
+	/**
+	 * Loads vectors into destination vectors.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param dst
+	 *            Destination vectors
+	 * @param offset
+	 *            First index in dst
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void GetVectors(int index, Vector[] dst, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			this.GetVector(index + i, dst[offset + i]);
+		}
+	}
+	/**
+	 * Stores vectors from a vector array.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param src
+	 *            Source vector array
+	 * @param offset
+	 *            First index in src
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void SetVectorArray(int index, VectorArray src, int offset, int count) {
+		final float[] xs = src.GetXArray();
+		final float[] ys = src.GetYArray();
+		final float[] zs = src.GetZArray();
+
+		int base = index * 3;
+		for (int i = offset; i < offset + count; i++) {
+			floats.put(base, xs[i]);
+			floats.put(base + 1, ys[i]);
+			floats.put(base + 2, zs[i]);
+			base += 3;
+		}
+	}
+	/**
+	 * Loads vectors into a vector array.
+	 * 
+	 * @param index
+	 *            First index in this buffer
+	 * @param dst
+	 *            Destination vector array
+	 * @param offset
+	 *            First index in dst
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void GetVectorArray(int index, VectorArray dst, int offset, int count) {
+		final float[] xs = dst.GetXArray();
+		final float[] ys = dst.GetYArray();
+		final float[] zs = dst.GetZArray();
+
+		int base = index * 3;
+		for (int i = offset; i < offset + count; i++) {
+			xs[i] = floats.get(base);
+			ys[i] = floats.get(base + 1);
+			zs[i] = floats.get(base + 2);
+			base += 3;
+		}
+	}
+	/**
+	 * Copies raw components into this buffer in a single bulk operation.
+	 * 
+	 * @param index
+	 *            First vector index in this buffer
+	 * @param src
+	 *            Source components (x, y, z per vector)
+	 * @param offset
+	 *            First element in src
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void SetValues(int index, float[] src, int offset, int count) {
+		this.ViewAt(index * 3).put(src, offset, count * 3);
+	}
+	/**
+	 * Copies raw components out of this buffer in a single bulk operation.
+	 * 
+	 * @param index
+	 *            First vector index in this buffer
+	 * @param dst
+	 *            Destination components (x, y, z per vector)
+	 * @param offset
+	 *            First element in dst
+	 * @param count
+	 *            Number of vectors
+	 */
+	public void GetValues(int index, float[] dst, int offset, int count) {
+		this.ViewAt(index * 3).get(dst, offset, count * 3);
+	}
+	/**
+	 * Returns a view of the floats positioned at an element, so that bulk
+	 * transfers never move the position of the shared buffer.
+	 */
+	private FloatBuffer ViewAt(int element) {
+		final FloatBuffer view = floats.duplicate();
+		view.position(element);
+		return view;
+	}
+}
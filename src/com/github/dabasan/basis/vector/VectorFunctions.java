@@ -1,5 +1,9 @@
 package com.github.dabasan.basis.vector;
 
+import com.github.dabasan.basis.instrumentation.Instrumentation;
+import com.github.dabasan.basis.instrumentation.InstrumentedOperation;
+import com.github.dabasan.basis.trig.TrigFunctions;
+
 /**
  * Provides methods to handle vectors.
  * 
@@ -7,6 +11,27 @@ package com.github.dabasan.basis.vector;
  *
  */
 public class VectorFunctions {
+	/**
+	 * Read-only vector (0,0,0)
+	 */
+	public static final Vector ZERO = new Vector(0.0f, 0.0f, 0.0f, true);
+	/**
+	 * Read-only vector (1,1,1)
+	 */
+	public static final Vector ONE = new Vector(1.0f, 1.0f, 1.0f, true);
+	/**
+	 * Read-only vector (1,0,0)
+	 */
+	public static final Vector UNIT_X = new Vector(1.0f, 0.0f, 0.0f, true);
+	/**
+	 * Read-only vector (0,1,0)
+	 */
+	public static final Vector UNIT_Y = new Vector(0.0f, 1.0f, 0.0f, true);
+	/**
+	 * Read-only vector (0,0,1)
+	 */
+	public static final Vector UNIT_Z = new Vector(0.0f, 0.0f, 1.0f, true);
+
 	/**
 	 * Generates a vector.
 	 * 
@@ -21,6 +46,30 @@ public class VectorFunctions {
 	public static Vector VGet(float x, float y, float z) {
 		return new Vector(x, y, z);
 	}
+	/**
+	 * Returns a read-only view of a vector.<br>
+	 * The view reflects later changes to the original vector.
+	 * 
+	 * @param v
+	 *            Original vector
+	 * @return Read-only view
+	 */
+	public static Vector VGetReadOnlyView(Vector v) {
+		if (v.IsReadOnly()) {
+			return v;
+		}
+		return new ReadOnlyVectorView(v);
+	}
+	/**
+	 * Returns a read-only copy of a vector.
+	 * 
+	 * @param v
+	 *            Original vector
+	 * @return Read-only copy
+	 */
+	public static Vector VGetReadOnlyCopy(Vector v) {
+		return new Vector(v.GetX(), v.GetY(), v.GetZ(), true);
+	}
 	/**
 	 * Adds two vectors.
 	 * 
@@ -31,11 +80,23 @@ public class VectorFunctions {
 	 * @return lhs+rhs
 	 */
 	public static Vector VAdd(Vector lhs, Vector rhs) {
-		final Vector res = new Vector();
-
-		res.SetVector(lhs.GetX() + rhs.GetX(), lhs.GetY() + rhs.GetY(), lhs.GetZ() + rhs.GetZ());
+		return VectorFunctions.VAdd(lhs, rhs, new Vector());
+	}
+	/**
+	 * Adds two vectors and stores the result in a destination vector.
+	 * 
+	 * @param lhs
+	 *            First vector
+	 * @param rhs
+	 *            Second vector
+	 * @param dst
+	 *            Destination vector (may be lhs or rhs)
+	 * @return dst
+	 */
+	public static Vector VAdd(Vector lhs, Vector rhs, Vector dst) {
+		dst.SetVector(lhs.GetX() + rhs.GetX(), lhs.GetY() + rhs.GetY(), lhs.GetZ() + rhs.GetZ());
 
-		return res;
+		return dst;
 	}
 	/**
 	 * Subtracts a vector from another vector.
@@ -47,11 +108,24 @@ public class VectorFunctions {
 	 * @return lhs-rhs
 	 */
 	public static Vector VSub(Vector lhs, Vector rhs) {
-		final Vector res = new Vector();
-
-		res.SetVector(lhs.GetX() - rhs.GetX(), lhs.GetY() - rhs.GetY(), lhs.GetZ() - rhs.GetZ());
+		return VectorFunctions.VSub(lhs, rhs, new Vector());
+	}
+	/**
+	 * Subtracts a vector from another vector and stores the result in a
+	 * destination vector.
+	 * 
+	 * @param lhs
+	 *            First vector
+	 * @param rhs
+	 *            Second vector
+	 * @param dst
+	 *            Destination vector (may be lhs or rhs)
+	 * @return dst
+	 */
+	public static Vector VSub(Vector lhs, Vector rhs, Vector dst) {
+		dst.SetVector(lhs.GetX() - rhs.GetX(), lhs.GetY() - rhs.GetY(), lhs.GetZ() - rhs.GetZ());
 
-		return res;
+		return dst;
 	}
 	/**
 	 * Returns the size of a vector.
@@ -99,12 +173,30 @@ public class VectorFunctions {
 	 * @return Normalized vector
 	 */
 	public static Vector VNorm(Vector v) {
-		final Vector res = new Vector();
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountAllocation(InstrumentedOperation.VNORM);
+		}
+		return VectorFunctions.VNorm(v, new Vector());
+	}
+	/**
+	 * Normalizes a vector and stores the result in a destination vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector VNorm(Vector v, Vector dst) {
+		if (Instrumentation.AVAILABLE) {
+			Instrumentation.CountCall(InstrumentedOperation.VNORM);
+		}
+
 		final float size = VectorFunctions.VSize(v);
 
-		res.SetVector(v.GetX() / size, v.GetY() / size, v.GetZ() / size);
+		dst.SetVector(v.GetX() / size, v.GetY() / size, v.GetZ() / size);
 
-		return res;
+		return dst;
 	}
 	/**
 	 * Rescales a vector.
@@ -116,11 +208,23 @@ public class VectorFunctions {
 	 * @return Rescaled vector
 	 */
 	public static Vector VScale(Vector v, float scale) {
-		final Vector res = new Vector();
-
-		res.SetVector(v.GetX() * scale, v.GetY() * scale, v.GetZ() * scale);
+		return VectorFunctions.VScale(v, scale, new Vector());
+	}
+	/**
+	 * Rescales a vector and stores the result in a destination vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param scale
+	 *            Scale
+	 * @param dst
+	 *            Destination vector (may be v)
+	 * @return dst
+	 */
+	public static Vector VScale(Vector v, float scale, Vector dst) {
+		dst.SetVector(v.GetX() * scale, v.GetY() * scale, v.GetZ() * scale);
 
-		return res;
+		return dst;
 	}
 	/**
 	 * Returns the dot product.
@@ -148,13 +252,31 @@ public class VectorFunctions {
 	 * @return lhs×rhs
 	 */
 	public static Vector VCross(Vector lhs, Vector rhs) {
-		final Vector res = new Vector();
+		return VectorFunctions.VCross(lhs, rhs, new Vector());
+	}
+	/**
+	 * Calculates the cross product and stores the result in a destination
+	 * vector.
+	 * 
+	 * @param lhs
+	 *            First vector
+	 * @param rhs
+	 *            Second vector
+	 * @param dst
+	 *            Destination vector (may be lhs or rhs)
+	 * @return dst
+	 */
+	public static Vector VCross(Vector lhs, Vector rhs, Vector dst) {
+		final float lx = lhs.GetX();
+		final float ly = lhs.GetY();
+		final float lz = lhs.GetZ();
+		final float rx = rhs.GetX();
+		final float ry = rhs.GetY();
+		final float rz = rhs.GetZ();
 
-		res.SetX(lhs.GetY() * rhs.GetZ() - lhs.GetZ() * rhs.GetY());
-		res.SetY(lhs.GetZ() * rhs.GetX() - lhs.GetX() * rhs.GetZ());
-		res.SetZ(lhs.GetX() * rhs.GetY() - lhs.GetY() * rhs.GetX());
+		dst.SetVector(ly * rz - lz * ry, lz * rx - lx * rz, lx * ry - ly * rx);
 
-		return res;
+		return dst;
 	}
 	/**
 	 * Returns the average (center) of the vector.
@@ -164,15 +286,37 @@ public class VectorFunctions {
 	 * @return Average
 	 */
 	public static Vector VAverage(Vector[] v) {
-		Vector ret = VectorFunctions.VGet(0.0f, 0.0f, 0.0f);
+		return VectorFunctions.VAverage(v, new Vector());
+	}
+	/**
+	 * Calculates the average (center) of the vector and stores the result in
+	 * a destination vector.<br>
+	 * Use VectorStatistics for streamed input and VectorReductionFunctions for
+	 * large arrays.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 */
+	public static Vector VAverage(Vector[] v, Vector dst) {
+		// Float sums lose the low bits of each element once they grow large.
+		double x = 0.0;
+		double y = 0.0;
+		double z = 0.0;
 
 		final int v_num = v.length;
 		for (int i = 0; i < v_num; i++) {
-			ret = VectorFunctions.VAdd(ret, v[i]);
+			x += v[i].GetX();
+			y += v[i].GetY();
+			z += v[i].GetZ();
 		}
-		ret = VectorFunctions.VScale(ret, 1.0f / v_num);
 
-		return ret;
+		final double scale = 1.0 / v_num;
+		dst.SetVector((float) (x * scale), (float) (y * scale), (float) (z * scale));
+
+		return dst;
 	}
 	/**
 	 * Returns the vertical angle of the vector.
@@ -190,7 +334,7 @@ public class VectorFunctions {
 		float th;
 
 		final float sin_th = v.GetY() / d;
-		th = (float) Math.asin(sin_th);
+		th = TrigFunctions.Asin(sin_th);
 
 		return th;
 	}
@@ -202,18 +346,19 @@ public class VectorFunctions {
 	 * @return Horizontal angle
 	 */
 	public static float VAngleH(Vector v) {
-		final Vector xz_vec = VectorFunctions.VGet(v.GetX(), 0.0f, v.GetZ());
-		final float xz_length = VectorFunctions.VSize(xz_vec);
+		final float x = v.GetX();
+		final float z = v.GetZ();
+		final float xz_length = (float) Math.sqrt(x * x + z * z);
 		if (xz_length < 1.0E-8f) {
 			return 0.0f;
 		}
 
 		float th;
 
-		final float cos_th = v.GetX() / xz_length;
-		th = (float) Math.acos(cos_th);
+		final float cos_th = x / xz_length;
+		th = TrigFunctions.Acos(cos_th);
 
-		if (v.GetZ() >= 0.0f) {
+		if (z >= 0.0f) {
 			th *= (-1.0f);
 		}
 
@@ -229,14 +374,26 @@ public class VectorFunctions {
 	 * @return Vector
 	 */
 	public static Vector VGetFromAngles(float v_rotate, float h_rotate) {
-		Vector ret = new Vector();
-
-		ret.SetX((float) Math.cos(h_rotate));
-		ret.SetY((float) Math.sin(v_rotate));
-		ret.SetZ(-(float) Math.sin(h_rotate));
-
-		ret = VectorFunctions.VNorm(ret);
+		return VectorFunctions.VGetFromAngles(v_rotate, h_rotate, new Vector());
+	}
+	/**
+	 * Calculates a normalized vector from the specified rotation angles and
+	 * stores the result in a destination vector.
+	 * 
+	 * @param v_rotate
+	 *            Vertical rotation angle
+	 * @param h_rotate
+	 *            Horizontal rotation angle
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 */
+	public static Vector VGetFromAngles(float v_rotate, float h_rotate, Vector dst) {
+		final long h_sin_cos = TrigFunctions.SinCosPacked(h_rotate);
+		dst.SetX(TrigFunctions.UnpackCos(h_sin_cos));
+		dst.SetY(TrigFunctions.Sin(v_rotate));
+		dst.SetZ(-TrigFunctions.UnpackSin(h_sin_cos));
 
-		return ret;
+		return VectorFunctions.VNorm(dst, dst);
 	}
 }
@@ -0,0 +1,382 @@
+package com.github.dabasan.basis.vector;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import com.github.dabasan.basis.parallel.ParallelRunner;
+
+/**
+ * Provides methods to compute bounds of large sets of points.<br>
+ * Every method accepts vectors, vector arrays and packed vectors (x, y, z per
+ * vector), does not allocate per point, and has an overload that splits the
+ * points across the threads of a ParallelRunner. Sets no larger than the
+ * minimum chunk size of the runner are processed in the calling thread.
+ * Parallel results are combined in completion order, so they may differ from
+ * the sequential ones in the last bits.<br>
+ * For streamed input, add each chunk to a VectorStatistics, which provides the
+ * centroid, the axis-aligned bounding box and the covariance.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorReductionFunctions {
+	/**
+	 * Adds points to statistics in parallel.
+	 * 
+	 * @param v
+	 *            Vectors
+	 * @param dst
+	 *            Statistics the points are added to
+	 * @param runner
+	 *            Runner
+	 * @return dst
+	 */
+	public static VectorStatistics VGetStatistics(Vector[] v, VectorStatistics dst,
+			ParallelRunner runner) {
+		return Statistics(v.length, (s, from, to) -> s.Add(v, from, to), dst, runner);
+	}
+	public static VectorStatistics VGetStatistics(VectorArray v, VectorStatistics dst,
+			ParallelRunner runner) {
+		return Statistics(v.GetSize(), (s, from, to) -> s.Add(v, from, to), dst, runner);
+	}
+	/**
+	 * Adds points to statistics in parallel.
+	 * 
+	 * @param v
+	 *            Packed vectors (x, y, z per vector)
+	 * @param dst
+	 *            Statistics the points are added to
+	 * @param runner
+	 *            Runner
+	 * @return dst
+	 */
+	public static VectorStatistics VGetStatistics(float[] v, VectorStatistics dst,
+			ParallelRunner runner) {
+		return Statistics(v.length / 3, (s, from, to) -> s.Add(v, from, to), dst, runner);
+	}
+
+	/**
+	 * Returns a sphere enclosing all points.<br>
+	 * The sphere is centered on the axis-aligned bounding box, and its radius
+	 * is the distance to the farthest point. It is not the minimal sphere, but
+	 * its radius is at most half the diagonal of the box.
+	 * 
+	 * @param v
+	 *            Vectors (at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @return Radius
+	 */
+	public static float VGetBoundingSphere(Vector[] v, Vector center_dst) {
+		return VGetBoundingSphere(v, center_dst, null);
+	}
+	/**
+	 * Returns a sphere enclosing all points in parallel.<br>
+	 * See VGetBoundingSphere(Vector[], Vector).
+	 * 
+	 * @param v
+	 *            Vectors (at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @param runner
+	 *            Runner
+	 * @return Radius
+	 */
+	public static float VGetBoundingSphere(Vector[] v, Vector center_dst, ParallelRunner runner) {
+		return BoundingSphere(v.length, (s, from, to) -> s.Add(v, from, to),
+				(cx, cy, cz, from, to) -> MaxSquareDistance(v, cx, cy, cz, from, to), center_dst,
+				runner);
+	}
+	public static float VGetBoundingSphere(VectorArray v, Vector center_dst) {
+		return VGetBoundingSphere(v, center_dst, null);
+	}
+	public static float VGetBoundingSphere(VectorArray v, Vector center_dst,
+			ParallelRunner runner) {
+		return BoundingSphere(v.GetSize(), (s, from, to) -> s.Add(v, from, to),
+				(cx, cy, cz, from, to) -> MaxSquareDistance(v, cx, cy, cz, from, to), center_dst,
+				runner);
+	}
+	/**
+	 * Returns a sphere enclosing all points.<br>
+	 * See VGetBoundingSphere(Vector[], Vector).
+	 * 
+	 * @param v
+	 *            Packed vectors (x, y, z per vector, at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @return Radius
+	 */
+	public static float VGetBoundingSphere(float[] v, Vector center_dst) {
+		return VGetBoundingSphere(v, center_dst, null);
+	}
+	public static float VGetBoundingSphere(float[] v, Vector center_dst, ParallelRunner runner) {
+		return BoundingSphere(v.length / 3, (s, from, to) -> s.Add(v, from, to),
+				(cx, cy, cz, from, to) -> MaxSquareDistance(v, cx, cy, cz, from, to), center_dst,
+				runner);
+	}
+
+	/**
+	 * Calculates an oriented bounding box enclosing all points.<br>
+	 * The axes of the box are the principal axes of the points (see
+	 * VectorStatistics.GetPrincipalAxes()), and the box is fitted to the
+	 * extent of the points along each axis. A point p is inside the box when
+	 * |VDot(p-center, axes[i])| &lt;= half_extents[i] for every axis.
+	 * 
+	 * @param v
+	 *            Vectors (at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @param axes_dst
+	 *            Destination vectors of the axes (3 vectors)
+	 * @param half_extents_dst
+	 *            Destination vector of the half extents along the axes
+	 */
+	public static void VGetOrientedBounds(Vector[] v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst) {
+		VGetOrientedBounds(v, center_dst, axes_dst, half_extents_dst, null);
+	}
+	/**
+	 * Calculates an oriented bounding box enclosing all points in
+	 * parallel.<br>
+	 * See VGetOrientedBounds(Vector[], Vector, Vector[], Vector).
+	 * 
+	 * @param v
+	 *            Vectors (at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @param axes_dst
+	 *            Destination vectors of the axes (3 vectors)
+	 * @param half_extents_dst
+	 *            Destination vector of the half extents along the axes
+	 * @param runner
+	 *            Runner
+	 */
+	public static void VGetOrientedBounds(Vector[] v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst, ParallelRunner runner) {
+		OrientedBounds(v.length, (s, from, to) -> s.Add(v, from, to),
+				(origin, axes, bounds, from, to) -> Project(v, origin, axes, bounds, from, to),
+				center_dst, axes_dst, half_extents_dst, runner);
+	}
+	public static void VGetOrientedBounds(VectorArray v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst) {
+		VGetOrientedBounds(v, center_dst, axes_dst, half_extents_dst, null);
+	}
+	public static void VGetOrientedBounds(VectorArray v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst, ParallelRunner runner) {
+		OrientedBounds(v.GetSize(), (s, from, to) -> s.Add(v, from, to),
+				(origin, axes, bounds, from, to) -> Project(v, origin, axes, bounds, from, to),
+				center_dst, axes_dst, half_extents_dst, runner);
+	}
+	/**
+	 * Calculates an oriented bounding box enclosing all points.<br>
+	 * See VGetOrientedBounds(Vector[], Vector, Vector[], Vector).
+	 * 
+	 * @param v
+	 *            Packed vectors (x, y, z per vector, at least one)
+	 * @param center_dst
+	 *            Destination vector of the center
+	 * @param axes_dst
+	 *            Destination vectors of the axes (3 vectors)
+	 * @param half_extents_dst
+	 *            Destination vector of the half extents along the axes
+	 */
+	public static void VGetOrientedBounds(float[] v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst) {
+		VGetOrientedBounds(v, center_dst, axes_dst, half_extents_dst, null);
+	}
+	public static void VGetOrientedBounds(float[] v, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst, ParallelRunner runner) {
+		OrientedBounds(v.length / 3, (s, from, to) -> s.Add(v, from, to),
+				(origin, axes, bounds, from, to) -> Project(v, origin, axes, bounds, from, to),
+				center_dst, axes_dst, half_extents_dst, runner);
+	}
+
+	@FunctionalInterface
+	private interface StatisticsTask {
+		public void Add(VectorStatistics s, int from, int to);
+	}
+	@FunctionalInterface
+	private interface DistanceTask {
+		public float MaxSquareDistance(float cx, float cy, float cz, int from, int to);
+	}
+	@FunctionalInterface
+	private interface ProjectionTask {
+		public void Project(float[] origin, float[] axes, float[] bounds, int from, int to);
+	}
+
+	/**
+	 * Runs the task sequentially if runner is null, otherwise merges the
+	 * statistics of each chunk into dst.
+	 */
+	private static VectorStatistics Statistics(int size, StatisticsTask task,
+			VectorStatistics dst, ParallelRunner runner) {
+		if (runner == null) {
+			task.Add(dst, 0, size);
+			return dst;
+		}
+
+		runner.Run(0, size, (from, to) -> {
+			final VectorStatistics chunk = new VectorStatistics();
+			task.Add(chunk, from, to);
+			synchronized (dst) {
+				dst.Merge(chunk);
+			}
+		});
+
+		return dst;
+	}
+	private static float BoundingSphere(int size, StatisticsTask statistics_task,
+			DistanceTask distance_task, Vector center_dst, ParallelRunner runner) {
+		final VectorStatistics s = Statistics(size, statistics_task, new VectorStatistics(),
+				runner);
+		final Vector min = s.GetMin(new Vector());
+		final Vector max = s.GetMax(new Vector());
+		final float cx = (min.GetX() + max.GetX()) * 0.5f;
+		final float cy = (min.GetY() + max.GetY()) * 0.5f;
+		final float cz = (min.GetZ() + max.GetZ()) * 0.5f;
+		center_dst.SetVector(cx, cy, cz);
+
+		float max_square_distance;
+		if (runner == null) {
+			max_square_distance = distance_task.MaxSquareDistance(cx, cy, cz, 0, size);
+		} else {
+			final DoubleAccumulator max_accumulator = new DoubleAccumulator(Math::max, 0.0);
+			runner.Run(0, size, (from, to) -> max_accumulator
+					.accumulate(distance_task.MaxSquareDistance(cx, cy, cz, from, to)));
+			max_square_distance = (float) max_accumulator.get();
+		}
+
+		return (float) Math.sqrt(max_square_distance);
+	}
+	private static void OrientedBounds(int size, StatisticsTask statistics_task,
+			ProjectionTask projection_task, Vector center_dst, Vector[] axes_dst,
+			Vector half_extents_dst, ParallelRunner runner) {
+		final VectorStatistics s = Statistics(size, statistics_task, new VectorStatistics(),
+				runner);
+		final Vector centroid = s.GetCentroid(new Vector());
+		s.GetPrincipalAxes(axes_dst);
+
+		// Points are projected relative to the centroid to keep precision.
+		final float[] origin = {centroid.GetX(), centroid.GetY(), centroid.GetZ()};
+		final float[] axes = new float[9];
+		for (int i = 0; i < 3; i++) {
+			axes[i * 3] = axes_dst[i].GetX();
+			axes[i * 3 + 1] = axes_dst[i].GetY();
+			axes[i * 3 + 2] = axes_dst[i].GetZ();
+		}
+		final float[] bounds = NewProjectedBounds();
+		if (runner == null) {
+			projection_task.Project(origin, axes, bounds, 0, size);
+		} else {
+			runner.Run(0, size, (from, to) -> {
+				final float[] chunk_bounds = NewProjectedBounds();
+				projection_task.Project(origin, axes, chunk_bounds, from, to);
+				synchronized (bounds) {
+					for (int i = 0; i < 3; i++) {
+						bounds[i] = Math.min(bounds[i], chunk_bounds[i]);
+						bounds[i + 3] = Math.max(bounds[i + 3], chunk_bounds[i + 3]);
+					}
+				}
+			});
+		}
+
+		float cx = origin[0];
+		float cy = origin[1];
+		float cz = origin[2];
+		for (int i = 0; i < 3; i++) {
+			final float middle = (bounds[i] + bounds[i + 3]) * 0.5f;
+			cx += axes[i * 3] * middle;
+			cy += axes[i * 3 + 1] * middle;
+			cz += axes[i * 3 + 2] * middle;
+		}
+		center_dst.SetVector(cx, cy, cz);
+		half_extents_dst.SetVector((bounds[3] - bounds[0]) * 0.5f, (bounds[4] - bounds[1]) * 0.5f,
+				(bounds[5] - bounds[2]) * 0.5f);
+	}
+	/**
+	 * Returns (min0, min1, min2, max0, max1, max2) of projections before any
+	 * point is added.
+	 */
+	private static float[] NewProjectedBounds() {
+		return new float[]{Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+				Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+				Float.NEGATIVE_INFINITY};
+	}
+
+	private static float MaxSquareDistance(Vector[] v, float cx, float cy, float cz, int from,
+			int to) {
+		float ret = 0.0f;
+		for (int i = from; i < to; i++) {
+			final float dx = v[i].GetX() - cx;
+			final float dy = v[i].GetY() - cy;
+			final float dz = v[i].GetZ() - cz;
+			final float square_distance = dx * dx + dy * dy + dz * dz;
+			ret = square_distance > ret ? square_distance : ret;
+		}
+		return ret;
+	}
+	private static float MaxSquareDistance(VectorArray v, float cx, float cy, float cz, int from,
+			int to) {
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+
+		float ret = 0.0f;
+		for (int i = from; i < to; i++) {
+			final float dx = xs[i] - cx;
+			final float dy = ys[i] - cy;
+			final float dz = zs[i] - cz;
+			final float square_distance = dx * dx + dy * dy + dz * dz;
+			ret = square_distance > ret ? square_distance : ret;
+		}
+		return ret;
+	}
+	private static float MaxSquareDistance(float[] v, float cx, float cy, float cz, int from,
+			int to) {
+		float ret = 0.0f;
+		for (int i = from; i < to; i++) {
+			final float dx = v[i * 3] - cx;
+			final float dy = v[i * 3 + 1] - cy;
+			final float dz = v[i * 3 + 2] - cz;
+			final float square_distance = dx * dx + dy * dy + dz * dz;
+			ret = square_distance > ret ? square_distance : ret;
+		}
+		return ret;
+	}
+
+	private static void Project(Vector[] v, float[] origin, float[] axes, float[] bounds,
+			int from, int to) {
+		for (int i = from; i < to; i++) {
+			Project(v[i].GetX(), v[i].GetY(), v[i].GetZ(), origin, axes, bounds);
+		}
+	}
+	private static void Project(VectorArray v, float[] origin, float[] axes, float[] bounds,
+			int from, int to) {
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+		for (int i = from; i < to; i++) {
+			Project(xs[i], ys[i], zs[i], origin, axes, bounds);
+		}
+	}
+	private static void Project(float[] v, float[] origin, float[] axes, float[] bounds,
+			int from, int to) {
+		for (int i = from; i < to; i++) {
+			Project(v[i * 3], v[i * 3 + 1], v[i * 3 + 2], origin, axes, bounds);
+		}
+	}
+	private static void Project(float x, float y, float z, float[] origin, float[] axes,
+			float[] bounds) {
+		final float dx = x - origin[0];
+		final float dy = y - origin[1];
+		final float dz = z - origin[2];
+		for (int j = 0; j < 3; j++) {
+			final float d = axes[j * 3] * dx + axes[j * 3 + 1] * dy + axes[j * 3 + 2] * dz;
+			if (d < bounds[j]) {
+				bounds[j] = d;
+			}
+			if (d > bounds[j + 3]) {
+				bounds[j + 3] = d;
+			}
+		}
+	}
+}
@@ -0,0 +1,554 @@
+package com.github.dabasan.basis.vector;
+
+/**
+ * Running statistics of a set of points<br>
+ * Points can be added one at a time or in chunks of any of the array types,
+ * so a large or streamed set never has to be held in memory at once. Once
+ * compiled, adding points does not allocate. Statistics of disjoint subsets
+ * can be combined with Merge(), which is how VectorReductionFunctions splits
+ * the work across threads.<br>
+ * Sums are kept in double precision relative to the first point added, and
+ * the first-order sums of blocks of points are added with Kahan-Babuska
+ * compensation, so the centroid and the covariance stay accurate for millions
+ * of points far from the origin.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorStatistics {
+	/**
+	 * Points are summed in blocks, and each block sum is added with
+	 * compensation.
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private long count;
+	private float origin_x;
+	private float origin_y;
+	private float origin_z;
+	private double sum_x;
+	private double sum_y;
+	private double sum_z;
+	private double compensation_x;
+	private double compensation_y;
+	private double compensation_z;
+	private double sum_xx;
+	private double sum_xy;
+	private double sum_xz;
+	private double sum_yy;
+	private double sum_yz;
+	private double sum_zz;
+	private float min_x;
+	private float min_y;
+	private float min_z;
+	private float max_x;
+	private float max_y;
+	private float max_z;
+
+	public VectorStatistics() {
+		this.Reset();
+	}
+
+	/**
+	 * Removes all points.
+	 */
+	public void Reset() {
+		count = 0;
+		origin_x = 0.0f;
+		origin_y = 0.0f;
+		origin_z = 0.0f;
+		sum_x = 0.0;
+		sum_y = 0.0;
+		sum_z = 0.0;
+		compensation_x = 0.0;
+		compensation_y = 0.0;
+		compensation_z = 0.0;
+		sum_xx = 0.0;
+		sum_xy = 0.0;
+		sum_xz = 0.0;
+		sum_yy = 0.0;
+		sum_yz = 0.0;
+		sum_zz = 0.0;
+		min_x = Float.POSITIVE_INFINITY;
+		min_y = Float.POSITIVE_INFINITY;
+		min_z = Float.POSITIVE_INFINITY;
+		max_x = Float.NEGATIVE_INFINITY;
+		max_y = Float.NEGATIVE_INFINITY;
+		max_z = Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Adds a point.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public void Add(float x, float y, float z) {
+		if (count == 0) {
+			this.SetOrigin(x, y, z);
+		}
+
+		final double dx = x - origin_x;
+		final double dy = y - origin_y;
+		final double dz = z - origin_z;
+		this.AddBlock(1, dx, dy, dz, dx * dx, dx * dy, dx * dz, dy * dy, dy * dz, dz * dz, x, y, z,
+				x, y, z);
+	}
+	public void Add(Vector v) {
+		this.Add(v.GetX(), v.GetY(), v.GetZ());
+	}
+	/**
+	 * Adds points.
+	 * 
+	 * @param v
+	 *            Vectors
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void Add(Vector[] v, int from, int to) {
+		if (from < to && count == 0) {
+			this.SetOrigin(v[from].GetX(), v[from].GetY(), v[from].GetZ());
+		}
+
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int end = Math.min(start + BLOCK_SIZE, to);
+			final Block block = new Block(origin_x, origin_y, origin_z);
+			for (int i = start; i < end; i++) {
+				block.Add(v[i].GetX(), v[i].GetY(), v[i].GetZ());
+			}
+			this.AddBlock(block);
+		}
+	}
+	public void Add(Vector[] v) {
+		this.Add(v, 0, v.length);
+	}
+	/**
+	 * Adds points.
+	 * 
+	 * @param v
+	 *            Vector array
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	public void Add(VectorArray v, int from, int to) {
+		final float[] xs = v.GetXArray();
+		final float[] ys = v.GetYArray();
+		final float[] zs = v.GetZArray();
+		if (from < to && count == 0) {
+			this.SetOrigin(xs[from], ys[from], zs[from]);
+		}
+
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int end = Math.min(start + BLOCK_SIZE, to);
+			final Block block = new Block(origin_x, origin_y, origin_z);
+			for (int i = start; i < end; i++) {
+				block.Add(xs[i], ys[i], zs[i]);
+			}
+			this.AddBlock(block);
+		}
+	}
+	public void Add(VectorArray v) {
+		this.Add(v, 0, v.GetSize());
+	}
+	/**
+	 * Adds points.
+	 * 
+	 * @param v
+	 *            Packed vectors (x, y, z per vector)
+	 * @param from
+	 *            First vector (inclusive)
+	 * @param to
+	 *            Last vector (exclusive)
+	 */
+	public void Add(float[] v, int from, int to) {
+		if (from < to && count == 0) {
+			this.SetOrigin(v[from * 3], v[from * 3 + 1], v[from * 3 + 2]);
+		}
+
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int end = Math.min(start + BLOCK_SIZE, to);
+			final Block block = new Block(origin_x, origin_y, origin_z);
+			for (int i = start; i < end; i++) {
+				block.Add(v[i * 3], v[i * 3 + 1], v[i * 3 + 2]);
+			}
+			this.AddBlock(block);
+		}
+	}
+	public void Add(float[] v) {
+		this.Add(v, 0, v.length / 3);
+	}
+	private void SetOrigin(float x, float y, float z) {
+		origin_x = x;
+		origin_y = y;
+		origin_z = z;
+	}
+	private void AddBlock(Block b) {
+		this.AddBlock(b.count, b.sx, b.sy, b.sz, b.sxx, b.sxy, b.sxz, b.syy, b.syz, b.szz, b.lx,
+				b.ly, b.lz, b.ux, b.uy, b.uz);
+	}
+	/**
+	 * Adds the sums of a block of points taken relative to the origin.<br>
+	 * The first-order sums are added with Kahan-Babuska compensation.
+	 */
+	private void AddBlock(long n, double sx, double sy, double sz, double sxx, double sxy,
+			double sxz, double syy, double syz, double szz, float lx, float ly, float lz,
+			float ux, float uy, float uz) {
+		count += n;
+
+		double t = sum_x + sx;
+		compensation_x += Math.abs(sum_x) >= Math.abs(sx) ? (sum_x - t) + sx : (sx - t) + sum_x;
+		sum_x = t;
+		t = sum_y + sy;
+		compensation_y += Math.abs(sum_y) >= Math.abs(sy) ? (sum_y - t) + sy : (sy - t) + sum_y;
+		sum_y = t;
+		t = sum_z + sz;
+		compensation_z += Math.abs(sum_z) >= Math.abs(sz) ? (sum_z - t) + sz : (sz - t) + sum_z;
+		sum_z = t;
+
+		sum_xx += sxx;
+		sum_xy += sxy;
+		sum_xz += sxz;
+		sum_yy += syy;
+		sum_yz += syz;
+		sum_zz += szz;
+
+		min_x = Math.min(min_x, lx);
+		min_y = Math.min(min_y, ly);
+		min_z = Math.min(min_z, lz);
+		max_x = Math.max(max_x, ux);
+		max_y = Math.max(max_y, uy);
+		max_z = Math.max(max_z, uz);
+	}
+	/**
+	 * Adds the points of other statistics.<br>
+	 * The result is the same as if the points had been added to this one.
+	 * 
+	 * @param s
+	 *            Statistics (may not be this)
+	 */
+	public void Merge(VectorStatistics s) {
+		if (s.count == 0) {
+			return;
+		}
+		if (count == 0) {
+			this.Set(s);
+			return;
+		}
+
+		// Moves the sums of s to the origin of this: p-a = (p-b)+d
+		final double dx = (double) s.origin_x - origin_x;
+		final double dy = (double) s.origin_y - origin_y;
+		final double dz = (double) s.origin_z - origin_z;
+		final double n = s.count;
+		final double sx = s.sum_x + s.compensation_x;
+		final double sy = s.sum_y + s.compensation_y;
+		final double sz = s.sum_z + s.compensation_z;
+
+		sum_xx += s.sum_xx + 2.0 * sx * dx + n * dx * dx;
+		sum_xy += s.sum_xy + sx * dy + dx * sy + n * dx * dy;
+		sum_xz += s.sum_xz + sx * dz + dx * sz + n * dx * dz;
+		sum_yy += s.sum_yy + 2.0 * sy * dy + n * dy * dy;
+		sum_yz += s.sum_yz + sy * dz + dy * sz + n * dy * dz;
+		sum_zz += s.sum_zz + 2.0 * sz * dz + n * dz * dz;
+
+		this.AddBlock(s.count, sx + n * dx, sy + n * dy, sz + n * dz, 0.0, 0.0, 0.0, 0.0, 0.0,
+				0.0, s.min_x, s.min_y, s.min_z, s.max_x, s.max_y, s.max_z);
+	}
+	/**
+	 * Copies other statistics.
+	 * 
+	 * @param s
+	 *            Statistics
+	 */
+	public void Set(VectorStatistics s) {
+		count = s.count;
+		origin_x = s.origin_x;
+		origin_y = s.origin_y;
+		origin_z = s.origin_z;
+		sum_x = s.sum_x;
+		sum_y = s.sum_y;
+		sum_z = s.sum_z;
+		compensation_x = s.compensation_x;
+		compensation_y = s.compensation_y;
+		compensation_z = s.compensation_z;
+		sum_xx = s.sum_xx;
+		sum_xy = s.sum_xy;
+		sum_xz = s.sum_xz;
+		sum_yy = s.sum_yy;
+		sum_yz = s.sum_yz;
+		sum_zz = s.sum_zz;
+		min_x = s.min_x;
+		min_y = s.min_y;
+		min_z = s.min_z;
+		max_x = s.max_x;
+		max_y = s.max_y;
+		max_z = s.max_z;
+	}
+
+	public long GetCount() {
+		return count;
+	}
+	/**
+	 * Returns the centroid (average) of the points.
+	 * 
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 * @throws IllegalStateException
+	 *             If no points have been added
+	 */
+	public Vector GetCentroid(Vector dst) {
+		this.CheckNotEmpty();
+
+		final double rec_count = 1.0 / count;
+		dst.SetVector((float) (origin_x + (sum_x + compensation_x) * rec_count),
+				(float) (origin_y + (sum_y + compensation_y) * rec_count),
+				(float) (origin_z + (sum_z + compensation_z) * rec_count));
+
+		return dst;
+	}
+	/**
+	 * Returns the minimum corner of the axis-aligned bounding box.
+	 * 
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 * @throws IllegalStateException
+	 *             If no points have been added
+	 */
+	public Vector GetMin(Vector dst) {
+		this.CheckNotEmpty();
+		dst.SetVector(min_x, min_y, min_z);
+		return dst;
+	}
+	/**
+	 * Returns the maximum corner of the axis-aligned bounding box.
+	 * 
+	 * @param dst
+	 *            Destination vector
+	 * @return dst
+	 * @throws IllegalStateException
+	 *             If no points have been added
+	 */
+	public Vector GetMax(Vector dst) {
+		this.CheckNotEmpty();
+		dst.SetVector(max_x, max_y, max_z);
+		return dst;
+	}
+	/**
+	 * Returns the covariance matrix of the points (divided by the number of
+	 * points).
+	 * 
+	 * @param dst
+	 *            Destination (3x3 in row-major order, at least 9 floats)
+	 * @return dst
+	 * @throws IllegalStateException
+	 *             If no points have been added
+	 */
+	public float[] GetCovariance(float[] dst) {
+		final double[] c = this.GetCovariance();
+		for (int i = 0; i < 9; i++) {
+			dst[i] = (float) c[i];
+		}
+		return dst;
+	}
+	/**
+	 * Returns the principal axes of the points, i.e. the eigenvectors of the
+	 * covariance matrix.<br>
+	 * The axes are normalized, sorted by decreasing variance and form a
+	 * right-handed basis.
+	 * 
+	 * @param dst
+	 *            Destination vectors (3 vectors)
+	 * @return dst
+	 * @throws IllegalStateException
+	 *             If no points have been added
+	 */
+	public Vector[] GetPrincipalAxes(Vector[] dst) {
+		final double[] a = this.GetCovariance();
+		final double[] v = {1.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, 1.0};
+
+		// Cyclic Jacobi rotations; columns of v converge to the eigenvectors.
+		for (int sweep = 0; sweep < 16; sweep++) {
+			final double off = a[1] * a[1] + a[2] * a[2] + a[5] * a[5];
+			final double diagonal = a[0] * a[0] + a[4] * a[4] + a[8] * a[8];
+			if (!(off > diagonal * 1.0E-24)) {
+				break;
+			}
+			Rotate(a, v, 0, 1);
+			Rotate(a, v, 0, 2);
+			Rotate(a, v, 1, 2);
+		}
+
+		int first = 0;
+		int second = 1;
+		int third = 2;
+		if (a[first * 4] < a[second * 4]) {
+			final int temp = first;
+			first = second;
+			second = temp;
+		}
+		if (a[second * 4] < a[third * 4]) {
+			final int temp = second;
+			second = third;
+			third = temp;
+		}
+		if (a[first * 4] < a[second * 4]) {
+			final int temp = first;
+			first = second;
+			second = temp;
+		}
+
+		final double x0 = v[first];
+		final double y0 = v[first + 3];
+		final double z0 = v[first + 6];
+		final double x1 = v[second];
+		final double y1 = v[second + 3];
+		final double z1 = v[second + 6];
+		dst[0].SetVector((float) x0, (float) y0, (float) z0);
+		dst[1].SetVector((float) x1, (float) y1, (float) z1);
+		dst[2].SetVector((float) (y0 * z1 - z0 * y1), (float) (z0 * x1 - x0 * z1),
+				(float) (x0 * y1 - y0 * x1));
+
+		return dst;
+	}
+	/**
+	 * Applies the Jacobi rotation that zeroes a[p][q] to the symmetric matrix
+	 * a and accumulates it into v.
+	 */
+	private static void Rotate(double[] a, double[] v, int p, int q) {
+		final double apq = a[p * 3 + q];
+		if (apq == 0.0) {
+			return;
+		}
+
+		final double theta = (a[q * 3 + q] - a[p * 3 + p]) / (2.0 * apq);
+		final double root = Math.sqrt(theta * theta + 1.0);
+		final double tan = theta >= 0.0 ? 1.0 / (theta + root) : -1.0 / (root - theta);
+		final double c = 1.0 / Math.sqrt(tan * tan + 1.0);
+		final double s = tan * c;
+
+		final int r = 3 - p - q;
+		final double arp = a[r * 3 + p];
+		final double arq = a[r * 3 + q];
+		a[p * 3 + p] -= tan * apq;
+		a[q * 3 + q] += tan * apq;
+		a[p * 3 + q] = 0.0;
+		a[q * 3 + p] = 0.0;
+		a[r * 3 + p] = a[p * 3 + r] = c * arp - s * arq;
+		a[r * 3 + q] = a[q * 3 + r] = s * arp + c * arq;
+
+		for (int i = 0; i < 3; i++) {
+			final double vip = v[i * 3 + p];
+			final double viq = v[i * 3 + q];
+			v[i * 3 + p] = c * vip - s * viq;
+			v[i * 3 + q] = s * vip + c * viq;
+		}
+	}
+	private double[] GetCovariance() {
+		this.CheckNotEmpty();
+
+		final double rec_count = 1.0 / count;
+		final double mx = (sum_x + compensation_x) * rec_count;
+		final double my = (sum_y + compensation_y) * rec_count;
+		final double mz = (sum_z + compensation_z) * rec_count;
+		final double xx = sum_xx * rec_count - mx * mx;
+		final double xy = sum_xy * rec_count - mx * my;
+		final double xz = sum_xz * rec_count - mx * mz;
+		final double yy = sum_yy * rec_count - my * my;
+		final double yz = sum_yz * rec_count - my * mz;
+		final double zz = sum_zz * rec_count - mz * mz;
+
+		return new double[]{xx, xy, xz, xy, yy, yz, xz, yz, zz};
+	}
+	private void CheckNotEmpty() {
+		if (count == 0) {
+			throw new IllegalStateException("No points have been added.");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "VectorStatistics [count=" + count + "]";
+	}
+
+	/**
+	 * Sums of a block of points relative to an origin<br>
+	 * A block never leaves the loop that fills it, so escape analysis keeps
+	 * its fields in registers and no object is actually allocated.
+	 */
+	private static final class Block {
+		private double ox;
+		private double oy;
+		private double oz;
+		private int count;
+		private double sx;
+		private double sy;
+		private double sz;
+		private double sxx;
+		private double sxy;
+		private double sxz;
+		private double syy;
+		private double syz;
+		private double szz;
+		private float lx;
+		private float ly;
+		private float lz;
+		private float ux;
+		private float uy;
+		private float uz;
+
+		public Block(float origin_x, float origin_y, float origin_z) {
+			ox = origin_x;
+			oy = origin_y;
+			oz = origin_z;
+			count = 0;
+			sx = 0.0;
+			sy = 0.0;
+			sz = 0.0;
+			sxx = 0.0;
+			sxy = 0.0;
+			sxz = 0.0;
+			syy = 0.0;
+			syz = 0.0;
+			szz = 0.0;
+			lx = Float.POSITIVE_INFINITY;
+			ly = Float.POSITIVE_INFINITY;
+			lz = Float.POSITIVE_INFINITY;
+			ux = Float.NEGATIVE_INFINITY;
+			uy = Float.NEGATIVE_INFINITY;
+			uz = Float.NEGATIVE_INFINITY;
+		}
+		public void Add(float x, float y, float z) {
+			final double dx = x - ox;
+			final double dy = y - oy;
+			final double dz = z - oz;
+			count++;
+			sx += dx;
+			sy += dy;
+			sz += dz;
+			sxx += dx * dx;
+			sxy += dx * dy;
+			sxz += dx * dz;
+			syy += dy * dy;
+			syz += dy * dz;
+			szz += dz * dz;
+
+			// Comparisons are cheaper than Math.min/max, which also order NaN and -0.
+			lx = x < lx ? x : lx;
+			ly = y < ly ? y : ly;
+			lz = z < lz ? z : lz;
+			ux = x > ux ? x : ux;
+			uy = y > uy ? y : uy;
+			uz = z > uz ? z : uz;
+		}
+	}
+}